@@ -7,8 +7,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.core.env.Environment;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import pizzeria.commons.persistence.ConnectionPools;
 
 /**
  * The H2 config.
@@ -27,18 +27,12 @@ public class H2Config {
     }
 
     /**
-     * Set up the connection to the database.
+     * Set up the connection pool to the database, see ConnectionPools.
      *
      * @return The data source.
      */
     @Bean
     public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(environment.getProperty("jdbc.driverClassName"));
-        dataSource.setUrl(environment.getProperty("jdbc.url"));
-        dataSource.setUsername(environment.getProperty("jdbc.user"));
-        dataSource.setPassword(environment.getProperty("jdbc.pass"));
-
-        return dataSource;
+        return ConnectionPools.create(environment, "authentication-pool");
     }
 }
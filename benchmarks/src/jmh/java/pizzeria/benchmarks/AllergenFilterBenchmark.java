@@ -0,0 +1,74 @@
+package pizzeria.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import pizzeria.food.domain.Allergens.AllergenIndex;
+import pizzeria.food.domain.Allergens.AllergenService;
+import pizzeria.food.domain.catalog.CatalogChangedEvent;
+import pizzeria.food.domain.catalog.CatalogItemType;
+import pizzeria.food.domain.ingredient.IngredientNotFoundException;
+import pizzeria.food.domain.recipe.Recipe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * AllergenService.filterMenuOnAllergens over a synthetic menu.
+ * The index is filled through the same catalog events the entity listener publishes.
+ */
+@State(Scope.Benchmark)
+public class AllergenFilterBenchmark {
+    private static final int INGREDIENTS = 500;
+    private static final int ALLERGENS = 40;
+    private static final int TOPPINGS_PER_RECIPE = 6;
+
+    @Param({"10000"})
+    private int recipes;
+
+    @Param({"0", "1", "5"})
+    private int userAllergies;
+
+    private AllergenService allergenService;
+    private List<String> allergies;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        AllergenIndex index = new AllergenIndex(null, null);
+        for (long id = 1; id <= INGREDIENTS; id++) {
+            // most ingredients have no allergens, the rest one or two
+            List<String> allergens = new ArrayList<>();
+            if (random.nextInt(4) == 0) {
+                allergens.add("allergen" + random.nextInt(ALLERGENS));
+                if (random.nextBoolean()) {
+                    allergens.add("allergen" + random.nextInt(ALLERGENS));
+                }
+            }
+            index.onCatalogChanged(new CatalogChangedEvent(CatalogItemType.INGREDIENT, id, "ingredient" + id,
+                    100, false, allergens, List.of()));
+        }
+        for (long id = 1; id <= recipes; id++) {
+            List<Long> toppings = new ArrayList<>();
+            for (int i = 0; i < TOPPINGS_PER_RECIPE; i++) {
+                toppings.add(1L + random.nextInt(INGREDIENTS));
+            }
+            index.onCatalogChanged(new CatalogChangedEvent(CatalogItemType.RECIPE, INGREDIENTS + id, "recipe" + id,
+                    1000, false, List.of(), toppings));
+        }
+        allergenService = new AllergenService(index, null, null, null);
+
+        allergies = new ArrayList<>();
+        for (int i = 0; i < userAllergies; i++) {
+            allergies.add("allergen" + i);
+        }
+    }
+
+    @Benchmark
+    public List<Recipe> filterMenuOnAllergens() throws IngredientNotFoundException {
+        return allergenService.filterMenuOnAllergens(allergies);
+    }
+}
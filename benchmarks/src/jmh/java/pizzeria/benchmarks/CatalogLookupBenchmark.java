@@ -0,0 +1,135 @@
+package pizzeria.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.orm.hibernate5.SpringBeanContainer;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import pizzeria.commons.persistence.ConnectionPools;
+import pizzeria.food.domain.catalog.CatalogSnapshotCache;
+import pizzeria.food.domain.ingredient.Ingredient;
+import pizzeria.food.domain.ingredient.IngredientNotFoundException;
+import pizzeria.food.domain.ingredient.IngredientRepository;
+import pizzeria.food.domain.ingredient.IngredientService;
+import pizzeria.food.domain.recipe.Recipe;
+import pizzeria.food.domain.recipe.RecipeNotFoundException;
+import pizzeria.food.domain.recipe.RecipeRepository;
+import pizzeria.food.domain.recipe.RecipeServiceResponseInformation;
+import pizzeria.food.models.prices.Tuple;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The batched lookups that resolve the ids of an order to prices, per order size.
+ * Unlike the other benchmarks these run the real queries, against an in-memory H2 database,
+ * since the point of the batching is the number of round trips to the database.
+ */
+@State(Scope.Benchmark)
+public class CatalogLookupBenchmark {
+    private static final int CATALOG_SIZE = 50;
+
+    @Param({"1", "10", "50"})
+    private int orderSize;
+
+    private AnnotationConfigApplicationContext context;
+    private IngredientService ingredientService;
+    private RecipeServiceResponseInformation recipeServiceResponseInformation;
+    private List<Long> ingredientIds;
+    private List<Long> recipeIds;
+
+    @Setup
+    public void setup() {
+        context = new AnnotationConfigApplicationContext(CatalogDatabase.class);
+        IngredientRepository ingredientRepository = context.getBean(IngredientRepository.class);
+        RecipeRepository recipeRepository = context.getBean(RecipeRepository.class);
+
+        List<Long> catalogIngredients = new ArrayList<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            catalogIngredients.add(ingredientRepository.save(
+                    new Ingredient("ingredient" + i, 1.0 + i, new ArrayList<>(List.of("allergen" + i)))).getId());
+        }
+        List<Long> catalogRecipes = new ArrayList<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            catalogRecipes.add(recipeRepository.save(new Recipe("recipe" + i, catalogIngredients, 10.0 + i)).getId());
+        }
+        ingredientIds = catalogIngredients.subList(0, orderSize);
+        recipeIds = catalogRecipes.subList(0, orderSize);
+
+        ingredientService = new IngredientService(ingredientRepository,
+                new CatalogSnapshotCache(recipeRepository, ingredientRepository, new ObjectMapper()));
+        recipeServiceResponseInformation = new RecipeServiceResponseInformation(recipeRepository,
+                ingredientService, ingredientRepository);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Map<Long, Tuple> getPrices() throws RecipeNotFoundException {
+        return recipeServiceResponseInformation.getPrices(recipeIds);
+    }
+
+    @Benchmark
+    public Map<Long, Tuple> getDetails() throws IngredientNotFoundException {
+        return ingredientService.getDetails(ingredientIds);
+    }
+
+    /**
+     * Only the repositories of the catalog, on a fresh in-memory database.
+     */
+    @Configuration
+    @EnableJpaRepositories(basePackageClasses = {IngredientRepository.class, RecipeRepository.class})
+    @EnableTransactionManagement
+    static class CatalogDatabase {
+        @Bean
+        public DataSource dataSource() {
+            StandardEnvironment environment = new StandardEnvironment();
+            environment.getPropertySources().addFirst(new MapPropertySource("catalog-benchmark", Map.of(
+                    "jdbc.driverClassName", "org.h2.Driver",
+                    "jdbc.url", "jdbc:h2:mem:catalog-benchmark;DB_CLOSE_DELAY=-1")));
+            // the same pool and statement cache as the food microservice
+            return ConnectionPools.create(environment, "catalog-benchmark-pool");
+        }
+
+        @Bean
+        public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource,
+                                                                           ConfigurableListableBeanFactory beanFactory) {
+            HibernateJpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
+            vendorAdapter.setGenerateDdl(true);
+            LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+            factory.setDataSource(dataSource);
+            factory.setJpaVendorAdapter(vendorAdapter);
+            factory.setPackagesToScan("pizzeria.food.domain");
+            // the catalog entity listener is a spring bean, like in the microservice
+            factory.getJpaPropertyMap().put(AvailableSettings.BEAN_CONTAINER, new SpringBeanContainer(beanFactory));
+            return factory;
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package pizzeria.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import pizzeria.order.domain.food.Food;
+import pizzeria.order.domain.order.Order;
+import pizzeria.order.models.GetPricesResponseModel;
+import pizzeria.order.models.OrdersResponse;
+import pizzeria.order.models.Tuple;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Jackson serialization and deserialization of the payloads the order microservice sends and receives,
+ * with an ObjectMapper configured the way Spring Boot configures the one of the controllers.
+ */
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+    @Param({"1", "100"})
+    private int orders;
+
+    private ObjectMapper mapper;
+    private Order order;
+    private OrdersResponse ordersResponse;
+    private GetPricesResponseModel prices;
+    private String orderJson;
+    private String ordersResponseJson;
+    private String pricesJson;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<Order> all = new ArrayList<>();
+        for (long id = 1; id <= orders; id++) {
+            List<Food> foods = new ArrayList<>();
+            for (long f = 0; f < 4; f++) {
+                foods.add(new Food(id * 10 + f, f, id, new ArrayList<>(List.of(1L, 2L, 3L)),
+                        new ArrayList<>(List.of(4L))));
+            }
+            all.add(new Order(id, foods, 1L, "user" + id, LocalDateTime.of(2030, 1, 1, 18, 30),
+                    42.5, new ArrayList<>(List.of("ABCD12"))));
+        }
+        order = all.get(0);
+        ordersResponse = new OrdersResponse(all);
+
+        Map<Long, Tuple> foodPrices = new HashMap<>();
+        Map<Long, Tuple> ingredientPrices = new HashMap<>();
+        for (long id = 0; id < 50; id++) {
+            foodPrices.put(id, new Tuple(8.5 + id, "recipe" + id));
+            ingredientPrices.put(id, new Tuple(0.5 + id / 10.0, "ingredient" + id));
+        }
+        prices = new GetPricesResponseModel(foodPrices, ingredientPrices);
+
+        orderJson = mapper.writeValueAsString(order);
+        ordersResponseJson = mapper.writeValueAsString(ordersResponse);
+        pricesJson = mapper.writeValueAsString(prices);
+    }
+
+    @Benchmark
+    public String writeOrder() throws JsonProcessingException {
+        return mapper.writeValueAsString(order);
+    }
+
+    @Benchmark
+    public Order readOrder() throws JsonProcessingException {
+        return mapper.readValue(orderJson, Order.class);
+    }
+
+    @Benchmark
+    public String writeOrdersResponse() throws JsonProcessingException {
+        return mapper.writeValueAsString(ordersResponse);
+    }
+
+    @Benchmark
+    public OrdersResponse readOrdersResponse() throws JsonProcessingException {
+        return mapper.readValue(ordersResponseJson, OrdersResponse.class);
+    }
+
+    @Benchmark
+    public String writePrices() throws JsonProcessingException {
+        return mapper.writeValueAsString(prices);
+    }
+
+    @Benchmark
+    public GetPricesResponseModel readPrices() throws JsonProcessingException {
+        return mapper.readValue(pricesJson, GetPricesResponseModel.class);
+    }
+}
@@ -0,0 +1,57 @@
+package pizzeria.benchmarks;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import pizzeria.commons.authentication.JwtTokenVerifier;
+
+import java.util.Date;
+
+/**
+ * Claim extraction by the JwtTokenVerifier of the order microservice,
+ * for a token that was verified before and for one that has to be parsed and checked every time.
+ */
+@State(Scope.Benchmark)
+public class JwtTokenVerifierBenchmark {
+    private static final String SECRET = "exampleSecret";
+
+    private String token;
+    private JwtTokenVerifier cached;
+    private JwtTokenVerifier uncached;
+
+    @Setup
+    public void setup() {
+        // signed the same way as the tokens of the authentication microservice
+        token = Jwts.builder()
+                .setSubject("user@pizza.nl")
+                .claim("role", "[ROLE_CUSTOMER]")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(SignatureAlgorithm.HS512, SECRET)
+                .compact();
+
+        cached = new JwtTokenVerifier();
+        Stubs.inject(cached, "jwtSecret", SECRET);
+        uncached = new JwtTokenVerifier();
+        Stubs.inject(uncached, "jwtSecret", SECRET);
+        uncached.configureCache(0, 0);
+    }
+
+    @Benchmark
+    public void cachedClaims(Blackhole blackhole) {
+        blackhole.consume(cached.getNetIdFromToken(token));
+        blackhole.consume(cached.getRoleFromToken(token));
+        blackhole.consume(cached.getExpirationDateFromToken(token));
+    }
+
+    @Benchmark
+    public void parsedClaims(Blackhole blackhole) {
+        blackhole.consume(uncached.getNetIdFromToken(token));
+        blackhole.consume(uncached.getRoleFromToken(token));
+        blackhole.consume(uncached.getExpirationDateFromToken(token));
+    }
+}
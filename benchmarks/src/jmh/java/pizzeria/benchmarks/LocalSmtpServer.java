@@ -0,0 +1,85 @@
+package pizzeria.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * SMTP server on the loopback interface that accepts every message and throws it away, so sending mail can be
+ * benchmarked without a mail server. The greeting can be delayed to simulate a TLS handshake and login.
+ */
+final class LocalSmtpServer implements AutoCloseable {
+    private final ServerSocket serverSocket;
+    private final long connectDelayMillis;
+
+    LocalSmtpServer(long connectDelayMillis) throws IOException {
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.connectDelayMillis = connectDelayMillis;
+        Thread acceptor = new Thread(this::accept, "local-smtp-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                Thread handler = new Thread(() -> handle(client), "local-smtp-client");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void handle(Socket client) {
+        try (client) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = client.getOutputStream();
+            Thread.sleep(connectDelayMillis);
+            reply(out, "220 localhost ESMTP");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() < 4 ? line.toUpperCase() : line.substring(0, 4).toUpperCase();
+                if ("EHLO".equals(command)) {
+                    reply(out, "250-localhost\r\n250 OK");
+                } else if ("DATA".equals(command)) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    while ((line = in.readLine()) != null && !".".equals(line)) {
+                        //the content of the message is not needed
+                    }
+                    reply(out, "250 OK");
+                } else if ("QUIT".equals(command)) {
+                    reply(out, "221 Bye");
+                    return;
+                } else {
+                    reply(out, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            //the client closed the connection
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void reply(OutputStream out, String response) throws IOException {
+        out.write((response + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+}
@@ -0,0 +1,70 @@
+package pizzeria.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import pizzeria.order.domain.coupon.Coupon;
+import pizzeria.order.domain.coupon.PercentageCoupon;
+import pizzeria.order.domain.coupon.TwoForOneCoupon;
+import pizzeria.order.domain.food.Food;
+import pizzeria.order.domain.order.Order;
+import pizzeria.order.models.GetPricesResponseModel;
+import pizzeria.order.models.Tuple;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Order.calculatePrice with a single coupon, for orders of growing size.
+ * Every food is one of 20 recipes with two extra toppings out of 50 ingredients.
+ */
+@State(Scope.Thread)
+public class OrderPriceBenchmark {
+    private static final int RECIPES = 20;
+    private static final int INGREDIENTS = 50;
+
+    @Param({"1", "10", "100", "1000"})
+    private int orderSize;
+
+    @Param({"percentage", "twoForOne"})
+    private String coupon;
+
+    private Order order;
+    private GetPricesResponseModel prices;
+    private List<Coupon> coupons;
+
+    @Setup
+    public void setup() {
+        Map<Long, Tuple> foodPrices = new HashMap<>();
+        for (long id = 0; id < RECIPES; id++) {
+            foodPrices.put(id, new Tuple(8.5 + id, "recipe" + id));
+        }
+        Map<Long, Tuple> ingredientPrices = new HashMap<>();
+        for (long id = 0; id < INGREDIENTS; id++) {
+            ingredientPrices.put(id, new Tuple(0.5 + id / 10.0, "ingredient" + id));
+        }
+        prices = new GetPricesResponseModel(foodPrices, ingredientPrices);
+
+        List<Food> foods = new ArrayList<>();
+        for (int i = 0; i < orderSize; i++) {
+            foods.add(new Food(i, i % RECIPES, 1L, List.of(),
+                    List.of((long) (i % INGREDIENTS), (long) ((i * 7) % INGREDIENTS))));
+        }
+        order = new Order(1L, foods, 1L, "user", LocalDateTime.now(), 0.0, new ArrayList<>());
+        coupons = List.of("percentage".equals(coupon)
+                ? new PercentageCoupon("ABCD12", 0.15)
+                : new TwoForOneCoupon("EFGH34"));
+    }
+
+    @Benchmark
+    public double calculatePrice() {
+        // calculatePrice records the applied coupon in the order, start from an empty list like a new order does
+        order.setCouponIds(new ArrayList<>(1));
+        return order.calculatePrice(prices, coupons);
+    }
+}
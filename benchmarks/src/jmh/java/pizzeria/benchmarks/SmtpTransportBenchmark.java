@@ -0,0 +1,71 @@
+package pizzeria.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import pizzeria.order.domain.mailing.MessageTransport;
+import pizzeria.order.domain.mailing.SmtpConnectionPool;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Sending a store notification through a new SMTP connection per message, like Transport.send does,
+ * and through the pooled MessageTransport, against a local server that delays every new connection.
+ */
+@State(Scope.Benchmark)
+public class SmtpTransportBenchmark {
+    // the time a real server takes for the TLS handshake and the login, 0 for the cost of the protocol alone
+    @Param({"0", "10"})
+    private long connectDelayMillis;
+
+    private LocalSmtpServer server;
+    private SmtpConnectionPool pool;
+    private MessageTransport transport;
+    private MimeMessage message;
+
+    @Setup
+    public void setup() throws IOException, MessagingException {
+        server = new LocalSmtpServer(connectDelayMillis);
+        Properties properties = new Properties();
+        properties.put("mail.smtp.host", "localhost");
+        properties.put("mail.smtp.port", String.valueOf(server.getPort()));
+        properties.put("mail.smtp.auth", "false");
+        Session session = Session.getInstance(properties);
+
+        pool = new SmtpConnectionPool(session, 4, 60_000, 1_000);
+        transport = new MessageTransport(pool);
+
+        message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("pizzeria@localhost"));
+        message.addRecipient(Message.RecipientType.TO, new InternetAddress("store@localhost"));
+        message.setSubject("Order has been created!");
+        message.setText("Order with orderId : 1 has been created");
+        message.saveChanges();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pool.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void connectionPerMessage() throws MessagingException {
+        Transport.send(message);
+    }
+
+    @Benchmark
+    public void pooled() throws MessagingException {
+        transport.sendMessage(message);
+    }
+}
@@ -0,0 +1,46 @@
+package pizzeria.benchmarks;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * In memory stand-ins for the Spring Data repositories, so the services can be benchmarked without a database.
+ */
+final class Stubs {
+    private Stubs() {
+    }
+
+    /**
+     * @param type the repository interface
+     * @param answers the answer per method name, every other method throws
+     * @return a repository that answers from the given functions
+     */
+    static <T> T repository(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        Object stub = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer.apply(args);
+            }
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(answers, args);
+            }
+            throw new UnsupportedOperationException(method.getName() + " is not stubbed");
+        });
+        return type.cast(stub);
+    }
+
+    /**
+     * Sets a field that Spring would normally inject, e.g. a @Value.
+     */
+    static void inject(Object target, String field, Object value) {
+        try {
+            Field declared = target.getClass().getDeclaredField(field);
+            declared.setAccessible(true);
+            declared.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not set " + field, e);
+        }
+    }
+}
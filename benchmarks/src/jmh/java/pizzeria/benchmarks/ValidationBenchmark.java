@@ -0,0 +1,87 @@
+package pizzeria.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import pizzeria.order.domain.store.Store;
+import pizzeria.order.domain.store.StoreRepository;
+import pizzeria.order.domain.store.StoreService;
+import pizzeria.user.domain.user.UserRepository;
+import pizzeria.user.domain.user.UserService;
+import pizzeria.user.models.UserRegisterModel;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The input validation of StoreService.addStore and UserService.saveUser, against repositories that
+ * accept everything, so only the validation and the service code are measured.
+ */
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+    private StoreService storeService;
+    private UserService userService;
+    private Store validStore;
+    private Store invalidStore;
+    private UserRegisterModel validUser;
+    private UserRegisterModel invalidUser;
+
+    @Setup
+    public void setup() {
+        StoreRepository storeRepository = Stubs.repository(StoreRepository.class, Map.of(
+                "existsById", args -> false,
+                "save", args -> args[0]));
+        storeService = new StoreService(storeRepository);
+        UserRepository userRepository = Stubs.repository(UserRepository.class, Map.of(
+                "existsByEmail", args -> false,
+                "save", args -> args[0]));
+        // saving a user does not talk to the authentication microservice
+        userService = new UserService(userRepository, null);
+
+        validStore = new Store("NL-2628CD", "delft.store@pizza.nl");
+        invalidStore = new Store("NL-2628CD", "delft.store@pizza");
+        validUser = user("first.last@student.tudelft.nl");
+        invalidUser = user("first.last@@student.tudelft.nl");
+    }
+
+    @Benchmark
+    public Store addValidStore() throws Exception {
+        return storeService.addStore(validStore);
+    }
+
+    @Benchmark
+    public boolean addInvalidStore() {
+        try {
+            storeService.addStore(invalidStore);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public UserRegisterModel saveValidUser() throws Exception {
+        userService.saveUser(validUser);
+        return validUser;
+    }
+
+    @Benchmark
+    public boolean saveInvalidUser() {
+        try {
+            userService.saveUser(invalidUser);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static UserRegisterModel user(String email) {
+        UserRegisterModel model = new UserRegisterModel();
+        model.setEmail(email);
+        model.setName("Pizza Lover");
+        model.setPassword("password");
+        model.setAllergies(List.of("gluten"));
+        return model;
+    }
+}
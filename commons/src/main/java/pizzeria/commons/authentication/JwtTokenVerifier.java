@@ -0,0 +1,116 @@
+package pizzeria.commons.authentication;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.impl.TextCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+
+/**
+ * Verifies the JWT token in the request for validity.
+ * A token is parsed and its signature checked once, after which its claims are served from a cache
+ * until the token expires.
+ * It is shared by the microservices that accept the tokens of the authentication microservice,
+ * their request authentication config imports it.
+ */
+@Component
+public class JwtTokenVerifier {
+    @Value("${jwt.secret}")  // automatically loads jwt.secret from resources/application.properties
+    private transient String jwtSecret;
+
+    // built on first use, so the secret is decoded once instead of on every parse
+    private transient volatile JwtParser parser;
+
+    private transient VerifiedTokenCache cache = new VerifiedTokenCache(10_000, 300_000);
+
+    /**
+     * Sets the limits of the verified token cache.
+     *
+     * @param maxSize the maximum number of verified tokens kept
+     * @param ttlMillis how long a verified token is kept at most
+     */
+    @Autowired
+    public void configureCache(@Value("${jwt.cache.max-size:10000}") int maxSize,
+                               @Value("${jwt.cache.ttl-ms:300000}") long ttlMillis) {
+        this.cache = new VerifiedTokenCache(maxSize, ttlMillis);
+    }
+
+    /**
+     * Parses the token and verifies its signature, or returns the claims of a token that was verified before.
+     *
+     * @param token JWT token
+     * @return The subject, roles and expiration of the token
+     */
+    public VerifiedToken verify(String token) {
+        long now = System.currentTimeMillis();
+        VerifiedToken verified = cache.get(token, now);
+        if (verified != null) {
+            return verified;
+        }
+
+        Claims claims = parser().parseClaimsJws(token).getBody();
+        verified = new VerifiedToken(claims.getSubject(), toRoles(claims.get("role")), claims.getExpiration());
+        cache.put(token, verified, now);
+        return verified;
+    }
+
+    /**
+     * Validate the JWT token for expiration.
+     */
+    public boolean validateToken(String token) {
+        return !verify(token).isExpired(new Date());
+    }
+
+    /**
+     * Get the id from the token
+     * @param token JWT token
+     * @return The id from the token
+     */
+    public String getNetIdFromToken(String token) {
+        return verify(token).getNetId();
+    }
+
+    /**
+     * Returns a collection of granted authorities from the token (in our case it will be only one authority)
+     * @param token JWT token
+     * @return A collection of granted authorities in the format ROLE_(Given role)
+     */
+    public Collection
+            <GrantedAuthority> getRoleFromToken(String token) {
+        return verify(token).getRoles();
+    }
+
+    /**
+     * Return the expiration date from the JWT toekn
+     * @param token JWT token
+     * @return Date of expiration
+     */
+    public Date getExpirationDateFromToken(String token) {
+        return verify(token).getExpiration();
+    }
+
+    private static Collection<GrantedAuthority> toRoles(Object roleClaim) {
+        if (roleClaim == null) {
+            return Collections.emptySet();
+        }
+        String role = roleClaim.toString().replace("[", "").replace("]", "");
+        return Collections.singleton(new SimpleGrantedAuthority(role));
+    }
+
+    private JwtParser parser() {
+        JwtParser current = parser;
+        if (current == null) {
+            current = Jwts.parser().setSigningKey(TextCodec.BASE64.decode(jwtSecret));
+            parser = current;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,57 @@
+package pizzeria.commons.authentication;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * The claims of a JWT token whose signature has been verified.
+ */
+public class VerifiedToken {
+    private final String netId;
+    private final Collection<GrantedAuthority> roles;
+    private final Date expiration;
+
+    /**
+     * Instantiates a new Verified token
+     *
+     * @param netId the subject of the token
+     * @param roles the authorities granted by the token
+     * @param expiration the moment the token expires, null if it never does
+     */
+    public VerifiedToken(String netId, Collection<GrantedAuthority> roles, Date expiration) {
+        this.netId = netId;
+        this.roles = roles;
+        this.expiration = expiration;
+    }
+
+    /**
+     * @return the subject of the token
+     */
+    public String getNetId() {
+        return netId;
+    }
+
+    /**
+     * @return the authorities granted by the token
+     */
+    public Collection<GrantedAuthority> getRoles() {
+        return roles;
+    }
+
+    /**
+     * @return the moment the token expires, null if it never does
+     */
+    public Date getExpiration() {
+        return expiration;
+    }
+
+    /**
+     * @param now the current time
+     * @return whether the token has expired at the given time
+     */
+    public boolean isExpired(Date now) {
+        return expiration != null && expiration.before(now);
+    }
+}
@@ -0,0 +1,81 @@
+package pizzeria.commons.authentication;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of tokens that have already been verified, so a client that sends the same token
+ * on every request only pays for the signature check once.
+ * The least recently used entry is evicted when the cache is full, and an entry is never
+ * returned after its token has expired or after the time to live has passed.
+ */
+public class VerifiedTokenCache {
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * Instantiates a new Verified token cache
+     *
+     * @param maxSize the maximum number of tokens kept
+     * @param ttlMillis the maximum time a token is kept, even if it expires later
+     */
+    public VerifiedTokenCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedTokenCache.Entry> eldest) {
+                return size() > VerifiedTokenCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param token the raw JWT token
+     * @param now the current time in epoch millis
+     * @return the verified claims, or null if the token is not cached or no longer valid
+     */
+    public synchronized VerifiedToken get(String token, long now) {
+        Entry entry = entries.get(token);
+        if (entry == null) return null;
+        if (entry.evictAt <= now) {
+            entries.remove(token);
+            return null;
+        }
+        return entry.verified;
+    }
+
+    /**
+     * @param token the raw JWT token
+     * @param verified the claims of the token
+     * @param now the current time in epoch millis
+     */
+    public synchronized void put(String token, VerifiedToken verified, long now) {
+        if (maxSize <= 0) return;
+        long evictAt = now + ttlMillis;
+        if (verified.getExpiration() != null) {
+            evictAt = Math.min(evictAt, verified.getExpiration().getTime());
+        }
+        if (evictAt > now) {
+            entries.put(token, new Entry(verified, evictAt));
+        }
+    }
+
+    /**
+     * @return the number of cached tokens
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        final VerifiedToken verified;
+        final long evictAt;
+
+        Entry(VerifiedToken verified, long evictAt) {
+            this.verified = verified;
+            this.evictAt = evictAt;
+        }
+    }
+}
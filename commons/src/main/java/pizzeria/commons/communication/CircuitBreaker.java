@@ -0,0 +1,115 @@
+package pizzeria.commons.communication;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Clock;
+import java.util.Locale;
+
+/**
+ * The type Circuit breaker
+ * Counts the consecutive failed calls to another microservice. After too many failures the circuit opens,
+ * and calls are rejected right away instead of each waiting for a timeout. Once the open period is over
+ * a single probe call is let through (half open): when it succeeds the circuit closes, when it fails it opens again.
+ */
+public class CircuitBreaker {
+    /**
+     * The states of the circuit, the ordinal is reported as the state gauge
+     */
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final transient String target;
+    private final transient int failureThreshold;
+    private final transient long openMillis;
+    private final transient Clock clock;
+    private final transient MeterRegistry meterRegistry;
+
+    // all guarded by this
+    private transient State state = State.CLOSED;
+    private transient int consecutiveFailures;
+    private transient long openedAt;
+    private transient boolean probing;
+
+    /**
+     * Instantiates a new, closed Circuit breaker
+     *
+     * @param target the name of the microservice behind the circuit, used as tag of the metrics
+     * @param failureThreshold the number of consecutive failures that opens the circuit
+     * @param openMillis how long the circuit stays open before a probe call is let through
+     * @param clock the clock used to decide when the open period is over
+     * @param meterRegistry the registry the state and the transitions are reported to
+     */
+    public CircuitBreaker(String target, int failureThreshold, long openMillis, Clock clock, MeterRegistry meterRegistry) {
+        this.target = target;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("resilience.circuit.state", this, breaker -> breaker.getState().ordinal())
+                .tag("target", target)
+                .description("State of the circuit, 0 closed, 1 open, 2 half open")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Asks whether a call may be made now, a permitted call has to be reported with onSuccess or onFailure
+     *
+     * @return true iff the circuit is closed, or this call is the probe of a half open circuit
+     */
+    public synchronized boolean tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.millis() - openedAt < openMillis) {
+                    return false;
+                }
+                transition(State.HALF_OPEN);
+                probing = true;
+                return true;
+            default:
+                if (probing) {
+                    return false;
+                }
+                probing = true;
+                return true;
+        }
+    }
+
+    /**
+     * Reports that a permitted call reached the microservice
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probing = false;
+        if (state != State.CLOSED) {
+            transition(State.CLOSED);
+        }
+    }
+
+    /**
+     * Reports that a permitted call failed or timed out
+     */
+    public synchronized void onFailure() {
+        probing = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            openedAt = clock.millis();
+            transition(State.OPEN);
+        }
+    }
+
+    /**
+     * @return the current state of the circuit
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void transition(State to) {
+        state = to;
+        meterRegistry.counter("resilience.circuit.transitions",
+                "target", target, "state", to.name().toLowerCase(Locale.ROOT)).increment();
+    }
+}
@@ -0,0 +1,181 @@
+package pizzeria.commons.communication;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.client.HttpClient;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The type Service guard
+ * Protects this microservice against another microservice that stalls or fails.
+ * Calls get a connect and read timeout, at most a fixed number of calls to the target run at the same time (bulkhead),
+ * and a circuit breaker stops calling the target for a while when it keeps failing.
+ * A rejected call fails right away with a RejectedException, so a stalled target cannot take all request threads.
+ */
+public class ServiceGuard {
+    private final transient String target;
+    private final transient Duration connectTimeout;
+    private final transient Duration readTimeout;
+    private final transient Semaphore bulkhead;
+    private final transient long maxWaitMillis;
+    private final transient CircuitBreaker circuitBreaker;
+    private final transient HttpClient httpClient;
+
+    private final transient Counter bulkheadRejections;
+    private final transient Counter circuitRejections;
+
+    /**
+     * Instantiates a new Service guard
+     *
+     * @param target the name of the microservice that is called, used as tag of the metrics
+     * @param connectTimeout the maximum time to set up a connection to the target
+     * @param readTimeout the maximum time to wait for the answer of the target
+     * @param maxConcurrentCalls the number of calls to the target that may run at the same time
+     * @param maxWaitMillis how long a call waits for a free slot before it is rejected
+     * @param circuitBreaker the circuit breaker of the target
+     * @param meterRegistry the registry the rejections are reported to
+     */
+    public ServiceGuard(String target, Duration connectTimeout, Duration readTimeout, int maxConcurrentCalls,
+                        long maxWaitMillis, CircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
+        this(target, connectTimeout, readTimeout, maxConcurrentCalls, maxWaitMillis, circuitBreaker, meterRegistry, null);
+    }
+
+    /**
+     * Instantiates a new Service guard whose calls share the pooled connections of the given client
+     *
+     * @param target the name of the microservice that is called, used as tag of the metrics
+     * @param connectTimeout the maximum time to set up a connection to the target
+     * @param readTimeout the maximum time to wait for the answer of the target
+     * @param maxConcurrentCalls the number of calls to the target that may run at the same time
+     * @param maxWaitMillis how long a call waits for a free slot before it is rejected
+     * @param circuitBreaker the circuit breaker of the target
+     * @param meterRegistry the registry the rejections are reported to
+     * @param httpClient the client that makes the calls, or null to open a connection per call
+     */
+    public ServiceGuard(String target, Duration connectTimeout, Duration readTimeout, int maxConcurrentCalls,
+                        long maxWaitMillis, CircuitBreaker circuitBreaker, MeterRegistry meterRegistry,
+                        HttpClient httpClient) {
+        this.target = target;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.maxWaitMillis = maxWaitMillis;
+        this.circuitBreaker = circuitBreaker;
+        this.httpClient = httpClient;
+
+        this.bulkheadRejections = Counter.builder("resilience.rejections")
+                .tag("target", target).tag("reason", "bulkhead_full")
+                .description("Calls that were rejected without reaching the target")
+                .register(meterRegistry);
+        this.circuitRejections = Counter.builder("resilience.rejections")
+                .tag("target", target).tag("reason", "circuit_open")
+                .description("Calls that were rejected without reaching the target")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Creates a guard that never rejects a call, used for testing purposes
+     *
+     * @param target the name of the microservice that is called
+     * @return the guard
+     */
+    public static ServiceGuard unguarded(String target) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new ServiceGuard(target, Duration.ZERO, Duration.ZERO, Integer.MAX_VALUE, 0,
+                new CircuitBreaker(target, Integer.MAX_VALUE, 0, Clock.systemUTC(), meterRegistry), meterRegistry);
+    }
+
+    /**
+     * @param restTemplateBuilder the rest template builder
+     * @return a rest template with the timeouts of the target, that uses the pooled connections of the client
+     */
+    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder) {
+        RestTemplateBuilder builder = restTemplateBuilder;
+        if (httpClient != null) {
+            // every template gets its own factory for its timeouts, the connections are shared through the client
+            builder = builder.requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient));
+        }
+        return builder
+                .setConnectTimeout(connectTimeout)
+                .setReadTimeout(readTimeout)
+                .build();
+    }
+
+    /**
+     * Makes the call when the bulkhead has room and the circuit lets it through.
+     * Exceptions, errors and 5xx answers count as failures of the target, 4xx answers show that the target is up.
+     *
+     * @param call the call to the target
+     * @param <T> the type of the answer
+     * @return the answer of the call
+     * @throws RejectedException when the call was not made
+     */
+    public <T> T call(Supplier<T> call) {
+        if (!enterBulkhead()) {
+            bulkheadRejections.increment();
+            throw new RejectedException("Too many calls to " + target + " in progress");
+        }
+        try {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                circuitRejections.increment();
+                throw new RejectedException("The circuit to " + target + " is open");
+            }
+            boolean reachedTarget = false;
+            try {
+                T result = call.get();
+                reachedTarget = true;
+                return result;
+            } catch (HttpClientErrorException e) {
+                reachedTarget = true;
+                throw e;
+            } finally {
+                // every permitted call is reported, also one that ended in an Error, or a half open circuit would keep its probe forever
+                if (reachedTarget) {
+                    circuitBreaker.onSuccess();
+                } else {
+                    circuitBreaker.onFailure();
+                }
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * @return the circuit breaker of the target
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    private boolean enterBulkhead() {
+        try {
+            return bulkhead.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Thrown when a call is rejected by the bulkhead or the circuit breaker, without reaching the target
+     */
+    public static class RejectedException extends RestClientException {
+        private static final long serialVersionUID = 1L;
+
+        public RejectedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package pizzeria.commons.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The HTTP client config.
+ * Imported by the configuration of every microservice that calls another one.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    private final transient Environment environment;
+
+    public HttpClientConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Set up the client that makes the calls to the other microservices.
+     * Connections are pooled and kept alive, so a call reuses an open connection instead of setting up a new one.
+     * The pool is sized through the http.client properties, and its statistics are published by actuator.
+     *
+     * @param meterRegistry the registry the pool statistics are reported to
+     * @return The HTTP client.
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                environment.getProperty("http.client.time-to-live-ms", Long.class, 300000L), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(environment.getProperty("http.client.max-total", Integer.class, 100));
+        connectionManager.setDefaultMaxPerRoute(environment.getProperty("http.client.max-per-route", Integer.class, 20));
+        // a connection that was idle for a while is checked before it is used, the other side may have closed it
+        connectionManager.setValidateAfterInactivity(
+                environment.getProperty("http.client.validate-after-inactivity-ms", Integer.class, 2000));
+
+        String pool = environment.getProperty("http.client.pool-name", "http");
+        registerGauge(meterRegistry, "http.client.pool.leased", pool, connectionManager, PoolStats::getLeased);
+        registerGauge(meterRegistry, "http.client.pool.available", pool, connectionManager, PoolStats::getAvailable);
+        registerGauge(meterRegistry, "http.client.pool.pending", pool, connectionManager, PoolStats::getPending);
+        registerGauge(meterRegistry, "http.client.pool.max", pool, connectionManager, PoolStats::getMax);
+
+        // a primitive long, the overload of evictIdleConnections that takes a Long is deprecated
+        long idleEvictionMillis = environment.getProperty("http.client.idle-eviction-ms", Long.class, 30000L);
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(keepAliveStrategy(
+                        environment.getProperty("http.client.keep-alive-ms", Long.class, 30000L)))
+                .evictExpiredConnections()
+                .evictIdleConnections(idleEvictionMillis, TimeUnit.MILLISECONDS)
+                // the connect and read timeouts are set per microservice, this bounds the wait for a pooled connection
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(environment.getProperty("http.client.pool-timeout-ms", Integer.class, 500))
+                        .build())
+                .build();
+    }
+
+    /**
+     * Keeps a connection for as long as the server allows, but never longer than the given time
+     */
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(long keepAliveMillis) {
+        return (response, context) -> {
+            long offered = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return offered > 0 ? Math.min(offered, keepAliveMillis) : keepAliveMillis;
+        };
+    }
+
+    private static void registerGauge(MeterRegistry meterRegistry, String name, String pool,
+                                      PoolingHttpClientConnectionManager connectionManager,
+                                      ToDoubleFunction<PoolStats> stat) {
+        Gauge.builder(name, connectionManager, manager -> stat.applyAsDouble(manager.getTotalStats()))
+                .tag("pool", pool)
+                .description("Connections of the pool to the other microservices")
+                .register(meterRegistry);
+    }
+}
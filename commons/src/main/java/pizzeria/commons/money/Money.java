@@ -0,0 +1,122 @@
+package pizzeria.commons.money;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of euros, stored as a whole number of cents.
+ * The food microservice stores and sends the catalog prices as cents, and the order microservice
+ * adds them up and applies coupons on cents, so the price the client calculated can be compared
+ * to the one of the server without a tolerance.
+ * In JSON an amount is written as a decimal number with two digits after the point, e.g. 12.50
+ */
+public final class Money implements Comparable<Money>, Serializable {
+    public static final Money ZERO = new Money(0);
+
+    private static final long serialVersionUID = 1L;
+    private static final int SCALE = 2;
+    private static final double MINOR_PER_MAJOR = 100.0;
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    /**
+     * @param minorUnits the amount in cents
+     * @return the amount
+     */
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * @param amount the amount in euros, rounded to the nearest cent
+     * @return the amount
+     */
+    public static Money of(double amount) {
+        return ofMinor(toMinor(amount));
+    }
+
+    /**
+     * @param amount the amount in euros, rounded half up to cents
+     * @return the amount
+     */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static Money of(BigDecimal amount) {
+        return ofMinor(amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    /**
+     * @param amount the amount in euros
+     * @return the amount in cents, rounded to the nearest cent
+     */
+    public static long toMinor(double amount) {
+        return Math.round(amount * MINOR_PER_MAJOR);
+    }
+
+    /**
+     * @param minorUnits the amount in cents
+     * @return the amount in euros
+     */
+    public static double toMajor(long minorUnits) {
+        return minorUnits / MINOR_PER_MAJOR;
+    }
+
+    /**
+     * @return the amount in cents
+     */
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    /**
+     * @return the amount in euros
+     */
+    public double toDouble() {
+        return toMajor(minorUnits);
+    }
+
+    /**
+     * @return the amount in euros, with exactly two digits after the point
+     */
+    @JsonValue
+    public BigDecimal toDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    /**
+     * @param other the amount to add
+     * @return the sum of both amounts
+     */
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money)) return false;
+        return minorUnits == ((Money) o).minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,20 @@
+package pizzeria.commons.money;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Stores an amount as its number of cents in a BIGINT column.
+ */
+@Converter
+public class MoneyConverter implements AttributeConverter<Money, Long> {
+    @Override
+    public Long convertToDatabaseColumn(Money amount) {
+        return amount == null ? null : amount.getMinorUnits();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(Long minorUnits) {
+        return minorUnits == null ? null : Money.ofMinor(minorUnits);
+    }
+}
@@ -0,0 +1,42 @@
+package pizzeria.commons.persistence;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.core.env.Environment;
+
+/**
+ * Sets up the pool of connections to the database of a microservice.
+ * Every microservice configures its pool through the same jdbc and jdbc.pool properties.
+ */
+public final class ConnectionPools {
+
+    private ConnectionPools() {
+    }
+
+    /**
+     * Creates the connection pool described by the jdbc properties.
+     * The pool is sized through the jdbc.pool properties, and its metrics are published by actuator.
+     *
+     * @param environment the environment holding the jdbc properties
+     * @param defaultPoolName the name of the pool when jdbc.pool.name is not set
+     * @return The pooled data source.
+     */
+    public static HikariDataSource create(Environment environment, String defaultPoolName) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setDriverClassName(environment.getProperty("jdbc.driverClassName"));
+        dataSource.setJdbcUrl(environment.getProperty("jdbc.url"));
+        dataSource.setUsername(environment.getProperty("jdbc.user"));
+        dataSource.setPassword(environment.getProperty("jdbc.pass"));
+
+        dataSource.setPoolName(environment.getProperty("jdbc.pool.name", defaultPoolName));
+        dataSource.setMinimumIdle(environment.getProperty("jdbc.pool.minimum-idle", Integer.class, 2));
+        dataSource.setMaximumPoolSize(environment.getProperty("jdbc.pool.maximum-size", Integer.class, 10));
+        dataSource.setConnectionTimeout(environment.getProperty("jdbc.pool.connection-timeout-ms", Long.class, 30000L));
+        dataSource.setIdleTimeout(environment.getProperty("jdbc.pool.idle-timeout-ms", Long.class, 600000L));
+        dataSource.setMaxLifetime(environment.getProperty("jdbc.pool.max-lifetime-ms", Long.class, 1800000L));
+        dataSource.setLeakDetectionThreshold(environment.getProperty("jdbc.pool.leak-detection-threshold-ms", Long.class, 0L));
+        // H2 keeps the parsed statements of each connection, since pooled connections live long this acts as a statement cache
+        dataSource.addDataSourceProperty("QUERY_CACHE_SIZE", environment.getProperty("jdbc.statement-cache-size", "64"));
+
+        return dataSource;
+    }
+}
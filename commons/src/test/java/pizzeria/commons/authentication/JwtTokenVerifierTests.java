@@ -1,4 +1,4 @@
-package pizzeria.order.authentication;
+package pizzeria.commons.authentication;
 
 import io.jsonwebtoken.*;
 import org.assertj.core.api.ThrowableAssert;
@@ -122,9 +122,53 @@ public class JwtTokenVerifierTests {
         assertThat(actual).isEqualTo(expected);
     }
 
+    @Test
+    public void verify_readsAllClaimsOnce() {
+        // Arrange
+        String token = generateToken(secret, "user123", -10_000_000, 10_000_000, "ROLE_CUSTOMER");
+
+        // Act
+        VerifiedToken first = jwtTokenVerifier.verify(token);
+        VerifiedToken second = jwtTokenVerifier.verify(token);
+
+        // Assert
+        assertThat(first.getNetId()).isEqualTo("user123");
+        assertThat(first.getRoles().toArray()[0].toString()).isEqualTo("ROLE_CUSTOMER");
+        assertThat(first.isExpired(new Date())).isFalse();
+        // the second call is served from the cache
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    public void verify_tokenWithoutRole_hasNoRoles() {
+        // Arrange
+        String token = generateToken(secret, "user123", -10_000_000, 10_000_000, null);
+
+        // Act
+        VerifiedToken actual = jwtTokenVerifier.verify(token);
+
+        // Assert
+        assertThat(actual.getRoles()).isEmpty();
+    }
+
+    @Test
+    public void verify_doesNotCacheInvalidTokens() {
+        // Arrange
+        String token = generateToken("incorrectSecret", "user123", -10_000_000, 10_000_000, "ROLE_CUSTOMER");
+
+        // Act
+        ThrowableAssert.ThrowingCallable action = () -> jwtTokenVerifier.verify(token);
+
+        // Assert
+        assertThatExceptionOfType(SignatureException.class).isThrownBy(action);
+        assertThatExceptionOfType(SignatureException.class).isThrownBy(action);
+    }
+
     private String generateToken(String jwtSecret, String netid, long issuanceOffset, long expirationOffset, String role) {
         Map<String, Object> claims = new HashMap<>();
-        claims.put("role", role);
+        if (role != null) {
+            claims.put("role", role);
+        }
         return Jwts.builder().setClaims(claims).setSubject(netid)
                 .setIssuedAt(new Date(System.currentTimeMillis() + issuanceOffset))
                 .setExpiration(new Date(System.currentTimeMillis() + expirationOffset))
@@ -0,0 +1,82 @@
+package pizzeria.commons.authentication;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VerifiedTokenCacheTests {
+    private static VerifiedToken token(String netId, Long expiration) {
+        return new VerifiedToken(netId, Collections.singleton(new SimpleGrantedAuthority("ROLE_CUSTOMER")),
+                expiration == null ? null : new Date(expiration));
+    }
+
+    @Test
+    public void cachedToken_isReturned() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 1000);
+        VerifiedToken verified = token("user123", 5000L);
+
+        cache.put("token", verified, 0);
+
+        assertThat(cache.get("token", 999)).isSameAs(verified);
+        assertThat(cache.get("other", 999)).isNull();
+    }
+
+    @Test
+    public void token_isEvictedWhenItExpires() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 1000);
+
+        cache.put("token", token("user123", 500L), 0);
+
+        assertThat(cache.get("token", 499)).isNotNull();
+        assertThat(cache.get("token", 500)).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void token_isEvictedAfterTimeToLive() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 1000);
+
+        cache.put("token", token("user123", null), 0);
+
+        assertThat(cache.get("token", 999)).isNotNull();
+        assertThat(cache.get("token", 1000)).isNull();
+    }
+
+    @Test
+    public void expiredToken_isNotCached() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 1000);
+
+        cache.put("token", token("user123", 100L), 200);
+
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void leastRecentlyUsed_isEvictedWhenFull() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(2, 1000);
+        cache.put("first", token("first", null), 0);
+        cache.put("second", token("second", null), 0);
+
+        //use the first token, so the second one is the least recently used
+        cache.get("first", 1);
+        cache.put("third", token("third", null), 1);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("first", 2)).isNotNull();
+        assertThat(cache.get("second", 2)).isNull();
+        assertThat(cache.get("third", 2)).isNotNull();
+    }
+
+    @Test
+    public void emptyCache_keepsNothing() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(0, 1000);
+
+        cache.put("token", token("user123", null), 0);
+
+        assertThat(cache.get("token", 1)).isNull();
+    }
+}
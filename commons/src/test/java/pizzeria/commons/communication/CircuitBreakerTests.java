@@ -0,0 +1,74 @@
+package pizzeria.commons.communication;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class CircuitBreakerTests {
+    private transient Clock clock;
+    private transient SimpleMeterRegistry meterRegistry;
+    private transient CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setup() {
+        clock = Mockito.mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new CircuitBreaker("food", 3, 1000, clock, meterRegistry);
+    }
+
+    @Test
+    void consecutiveFailures_openTheCircuit() {
+        fail(2);
+        circuitBreaker.onSuccess();
+        fail(2);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        fail(1);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+        assertThat(meterRegistry.get("resilience.circuit.state").tag("target", "food").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void afterTheOpenPeriod_oneProbeIsLetThrough() {
+        fail(3);
+
+        when(clock.millis()).thenReturn(1000L);
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+
+        circuitBreaker.onSuccess();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void failedProbe_opensTheCircuitAgain() {
+        fail(3);
+        when(clock.millis()).thenReturn(1000L);
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+
+        circuitBreaker.onFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        when(clock.millis()).thenReturn(1999L);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+        assertThat(meterRegistry.get("resilience.circuit.transitions").tag("state", "open").counter().count())
+                .isEqualTo(2.0);
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+            circuitBreaker.onFailure();
+        }
+    }
+}
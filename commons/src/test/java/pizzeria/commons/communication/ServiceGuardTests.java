@@ -0,0 +1,103 @@
+package pizzeria.commons.communication;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ServiceGuardTests {
+    private transient SimpleMeterRegistry meterRegistry;
+    private transient CircuitBreaker circuitBreaker;
+    private transient ServiceGuard guard;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new CircuitBreaker("food", 2, 60000, Clock.systemUTC(), meterRegistry);
+        guard = new ServiceGuard("food", Duration.ofMillis(100), Duration.ofMillis(100), 1, 0,
+                circuitBreaker, meterRegistry);
+    }
+
+    @Test
+    void openCircuit_rejectsWithoutCalling() {
+        for (int i = 0; i < 2; i++) {
+            assertThrows(ResourceAccessException.class, () -> guard.call(() -> {
+                throw new ResourceAccessException("Read timed out");
+            }));
+        }
+
+        assertThrows(ServiceGuard.RejectedException.class, () -> guard.call(() -> "answer"));
+        assertThat(rejections("circuit_open")).isEqualTo(1.0);
+    }
+
+    @Test
+    void clientErrors_doNotOpenTheCircuit() {
+        for (int i = 0; i < 3; i++) {
+            assertThrows(HttpClientErrorException.class, () -> guard.call(() -> {
+                throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+            }));
+        }
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(guard.call(() -> "answer")).isEqualTo("answer");
+    }
+
+    @Test
+    void fullBulkhead_rejectsTheNextCall() throws Exception {
+        CountDownLatch inCall = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> guard.call(() -> {
+                inCall.countDown();
+                try {
+                    return release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }));
+            assertThat(inCall.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThrows(ServiceGuard.RejectedException.class, () -> guard.call(() -> "answer"));
+            assertThat(rejections("bulkhead_full")).isEqualTo(1.0);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void errorInProbe_doesNotKeepTheCircuitHalfOpen() {
+        CircuitBreaker instantRetry = new CircuitBreaker("user", 1, 0, Clock.systemUTC(), meterRegistry);
+        ServiceGuard retryingGuard = new ServiceGuard("user", Duration.ofMillis(100), Duration.ofMillis(100), 1, 0,
+                instantRetry, meterRegistry);
+        assertThrows(ResourceAccessException.class, () -> retryingGuard.call(() -> {
+            throw new ResourceAccessException("Read timed out");
+        }));
+
+        // the probe of the half open circuit ends in an error instead of an exception
+        assertThrows(StackOverflowError.class, () -> retryingGuard.call(() -> {
+            throw new StackOverflowError();
+        }));
+
+        assertThat(instantRetry.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(retryingGuard.call(() -> "answer")).isEqualTo("answer");
+        assertThat(instantRetry.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    private double rejections(String reason) {
+        return meterRegistry.get("resilience.rejections").tag("reason", reason).counter().count();
+    }
+}
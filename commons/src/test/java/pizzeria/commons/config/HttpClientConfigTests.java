@@ -0,0 +1,35 @@
+package pizzeria.commons.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HttpClientConfigTests {
+    @Test
+    void pool_isSizedAndNamedFromTheProperties() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        HttpClientConfig config = new HttpClientConfig(new MockEnvironment()
+                .withProperty("http.client.pool-name", "food")
+                .withProperty("http.client.max-total", "7")
+                .withProperty("http.client.idle-eviction-ms", "1000"));
+
+        try (CloseableHttpClient httpClient = config.httpClient(meterRegistry)) {
+            assertThat(httpClient).isNotNull();
+            assertThat(meterRegistry.get("http.client.pool.max").tag("pool", "food").gauge().value()).isEqualTo(7.0);
+            assertThat(meterRegistry.get("http.client.pool.leased").gauge().value()).isEqualTo(0.0);
+        }
+    }
+
+    @Test
+    void pool_hasDefaultsWithoutProperties() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        HttpClientConfig config = new HttpClientConfig(new MockEnvironment());
+
+        try (CloseableHttpClient httpClient = config.httpClient(meterRegistry)) {
+            assertThat(meterRegistry.get("http.client.pool.max").tag("pool", "http").gauge().value()).isEqualTo(100.0);
+        }
+    }
+}
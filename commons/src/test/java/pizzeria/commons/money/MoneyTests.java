@@ -0,0 +1,43 @@
+package pizzeria.commons.money;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MoneyTests {
+    @Test
+    public void of_roundsToCents() {
+        assertThat(Money.of(12.5).getMinorUnits()).isEqualTo(1250);
+        assertThat(Money.of(0.1).plus(Money.of(0.2))).isEqualTo(Money.of(0.3));
+        assertThat(Money.of(new BigDecimal("8.125")).getMinorUnits()).isEqualTo(813);
+        assertThat(Money.ofMinor(0)).isSameAs(Money.ZERO);
+    }
+
+    @Test
+    public void toDouble_isTheClosestDouble() {
+        assertThat(Money.ofMinor(1099).toDouble()).isEqualTo(10.99);
+        assertThat(Money.toMajor(Money.toMinor(0.1) + Money.toMinor(0.2))).isEqualTo(0.3);
+    }
+
+    @Test
+    public void json_isDecimalWithTwoDigits() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+
+        assertThat(mapper.writeValueAsString(Money.of(8.5))).isEqualTo("8.50");
+        assertThat(mapper.readValue("8.1", Money.class)).isEqualTo(Money.ofMinor(810));
+        assertThat(Money.ofMinor(5).toString()).isEqualTo("0.05");
+    }
+
+    @Test
+    public void converter_storesCents() {
+        MoneyConverter converter = new MoneyConverter();
+
+        assertThat(converter.convertToDatabaseColumn(Money.of(10.99))).isEqualTo(1099L);
+        assertThat(converter.convertToEntityAttribute(1099L)).isEqualTo(Money.of(10.99));
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+        assertThat(converter.convertToEntityAttribute(null)).isNull();
+    }
+}
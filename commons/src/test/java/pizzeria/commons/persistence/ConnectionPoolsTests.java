@@ -0,0 +1,129 @@
+package pizzeria.commons.persistence;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ConnectionPoolsTests {
+    private transient HikariDataSource dataSource;
+
+    @BeforeEach
+    void setup() {
+        dataSource = ConnectionPools.create(environment()
+                .withProperty("jdbc.pool.maximum-size", "3")
+                .withProperty("jdbc.pool.connection-timeout-ms", "250")
+                .withProperty("jdbc.pool.leak-detection-threshold-ms", "10000"), "test-pool");
+    }
+
+    @AfterEach
+    void close() {
+        dataSource.close();
+    }
+
+    @Test
+    void pool_isSizedFromTheProperties() {
+        assertThat(dataSource.getPoolName()).isEqualTo("test-pool");
+        assertThat(dataSource.getMaximumPoolSize()).isEqualTo(3);
+        assertThat(dataSource.getMinimumIdle()).isEqualTo(2);
+        assertThat(dataSource.getConnectionTimeout()).isEqualTo(250);
+        assertThat(dataSource.getLeakDetectionThreshold()).isEqualTo(10000);
+        assertThat(dataSource.getDataSourceProperties().getProperty("QUERY_CACHE_SIZE")).isEqualTo("64");
+    }
+
+    @Test
+    void pool_isNamedFromThePropertyWhenSet() {
+        try (HikariDataSource named = ConnectionPools.create(environment()
+                .withProperty("jdbc.pool.name", "named-pool"), "test-pool")) {
+            assertThat(named.getPoolName()).isEqualTo("named-pool");
+        }
+    }
+
+    @Test
+    void connections_areReused() throws Exception {
+        Connection first = dataSource.getConnection();
+        Object physical = first.unwrap(Connection.class);
+        first.close();
+
+        try (Connection second = dataSource.getConnection()) {
+            assertThat(second.unwrap(Connection.class)).isSameAs(physical);
+        }
+    }
+
+    @Test
+    void exhaustedPool_timesOut() throws Exception {
+        List<Connection> borrowed = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                borrowed.add(dataSource.getConnection());
+            }
+            assertThrows(SQLException.class, () -> dataSource.getConnection());
+        } finally {
+            for (Connection connection : borrowed) {
+                connection.close();
+            }
+        }
+    }
+
+    @Test
+    void concurrentRequests_shareThePool() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Integer>> queries = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                queries.add(() -> {
+                    try (Connection connection = dataSource.getConnection()) {
+                        return connection.createStatement().executeQuery("SELECT 1").next() ? 1 : 0;
+                    }
+                });
+            }
+            int succeeded = 0;
+            for (Future<Integer> result : executor.invokeAll(queries)) {
+                succeeded += result.get();
+            }
+            assertThat(succeeded).isEqualTo(32);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void poolMetrics_areReported() throws Exception {
+        // actuator binds the pool to its registry the same way
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+
+        try (Connection connection = dataSource.getConnection()) {
+            // the borrowed connection is the one the pool reports as active
+            assertThat(connection.isValid(1)).isTrue();
+            assertThat(meterRegistry.get("hikaricp.connections.active").tag("pool", "test-pool").gauge().value())
+                    .isEqualTo(1.0);
+            assertThat(meterRegistry.get("hikaricp.connections.pending").gauge()).isNotNull();
+            assertThat(meterRegistry.get("hikaricp.connections.idle").gauge()).isNotNull();
+        }
+        assertThat(meterRegistry.get("hikaricp.connections.acquire").timer().count()).isGreaterThan(0);
+    }
+
+    private static MockEnvironment environment() {
+        return new MockEnvironment()
+                .withProperty("jdbc.driverClassName", "org.h2.Driver")
+                .withProperty("jdbc.url", "jdbc:h2:mem:connectionPoolsDb")
+                .withProperty("jdbc.user", "sa")
+                .withProperty("jdbc.pass", "");
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
+import pizzeria.commons.communication.ServiceGuard;
 import pizzeria.food.models.allergens.GetAllergiesFromUserResponseModel;
 
 import java.util.Collections;
@@ -15,22 +16,37 @@ import java.util.Optional;
 public class HttpRequestService {
 
     private final transient RestTemplate restTemplate;
+    private final transient ServiceGuard userServiceGuard;
 
+    /**
+     * @param restTemplateBuilder builder for the RestTemplate
+     * @param userServiceGuard the timeouts, bulkhead and circuit breaker of the user microservice
+     */
     @Autowired
-    public HttpRequestService(RestTemplateBuilder restTemplateBuilder) {
-        this.restTemplate = restTemplateBuilder.build();
+    public HttpRequestService(RestTemplateBuilder restTemplateBuilder, ServiceGuard userServiceGuard) {
+        this(userServiceGuard.restTemplate(restTemplateBuilder), userServiceGuard);
     }
 
     /**
      * @param restTemplate The restTemplate that is used to send the request
      */
     public HttpRequestService(RestTemplate restTemplate) {
+        this(restTemplate, ServiceGuard.unguarded("user"));
+    }
+
+    /**
+     * @param restTemplate The restTemplate that is used to send the request
+     * @param userServiceGuard the timeouts, bulkhead and circuit breaker of the user microservice
+     */
+    public HttpRequestService(RestTemplate restTemplate, ServiceGuard userServiceGuard) {
         this.restTemplate = restTemplate;
+        this.userServiceGuard = userServiceGuard;
     }
 
     /**
      * @param token The token of the user
      * @return the list of the allergens of the user associated with the JWT token from the user ms.
+     * @throws ServiceGuard.RejectedException when the user ms is not called because it keeps failing or is overloaded
      */
     public Optional<List<String>> getUserAllergens(String token) {
         HttpHeaders headers = new HttpHeaders();
@@ -38,7 +54,8 @@ public class HttpRequestService {
         headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
 
         HttpEntity<String> entity = new HttpEntity<>(headers);
-        ResponseEntity<GetAllergiesFromUserResponseModel> response = this.restTemplate.exchange("http://localhost:8083/allergies/get_allergies", HttpMethod.GET, entity, GetAllergiesFromUserResponseModel.class);
+        ResponseEntity<GetAllergiesFromUserResponseModel> response = userServiceGuard.call(() ->
+                this.restTemplate.exchange("http://localhost:8083/allergies/get_allergies", HttpMethod.GET, entity, GetAllergiesFromUserResponseModel.class));
         if (response.getStatusCode() == HttpStatus.OK) {
             return Optional.of(response.getBody().getAllergies());
         } else {
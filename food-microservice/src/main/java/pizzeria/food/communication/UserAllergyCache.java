@@ -0,0 +1,165 @@
+package pizzeria.food.communication;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded cache of the allergies of the users, keyed by the subject of their JWT token,
+ * so filtering the menu does not ask the user microservice for the allergies on every request.
+ * The user microservice invalidates an entry when the allergies of the user change or the user is deleted,
+ * the time to live only bounds how long a missed invalidation can serve outdated allergies.
+ * Expired allergies are kept for a grace period, so they can still be used when the user microservice cannot be reached.
+ * Allergies are only stored when the user was not invalidated while they were asked for, so an answer that left
+ * before an invalidation never puts the outdated allergies back.
+ */
+@Component
+public class UserAllergyCache {
+    private final transient int maxSize;
+    private final transient long ttlMillis;
+    private final transient long staleGraceMillis;
+    private final transient Clock clock;
+    private final transient LinkedHashMap<String, Entry> entries;
+    // the generation of the last invalidation of every user, the least recently invalidated one is forgotten first
+    private final transient LinkedHashMap<String, Long> invalidations;
+    // counts the invalidations, a request remembers it before asking for the allergies
+    private transient long generation;
+    // the latest generation that was forgotten, answers to requests older than it are not stored
+    private transient long forgotten;
+
+    /**
+     * Instantiates a new User allergy cache with the settings from the properties
+     *
+     * @param maxSize the maximum number of users kept, the least recently used one is evicted first
+     * @param ttlMillis the maximum time the allergies of a user are kept
+     * @param staleGraceMillis how long after expiring the allergies may still be used as a fallback
+     */
+    @Autowired
+    public UserAllergyCache(@Value("${user.allergies.cache.max-size:10000}") int maxSize,
+                            @Value("${user.allergies.cache.ttl-ms:600000}") long ttlMillis,
+                            @Value("${user.allergies.cache.stale-grace-ms:3600000}") long staleGraceMillis) {
+        this(maxSize, ttlMillis, staleGraceMillis, Clock.systemUTC());
+    }
+
+    /**
+     * Instantiates a new User allergy cache, used for testing purposes
+     *
+     * @param maxSize the maximum number of users kept, the least recently used one is evicted first
+     * @param ttlMillis the maximum time the allergies of a user are kept
+     * @param clock the clock used to decide when an entry has expired
+     */
+    public UserAllergyCache(int maxSize, long ttlMillis, Clock clock) {
+        this(maxSize, ttlMillis, 0, clock);
+    }
+
+    /**
+     * Instantiates a new User allergy cache, used for testing purposes
+     *
+     * @param maxSize the maximum number of users kept, the least recently used one is evicted first
+     * @param ttlMillis the maximum time the allergies of a user are kept
+     * @param staleGraceMillis how long after expiring the allergies may still be used as a fallback
+     * @param clock the clock used to decide when an entry has expired
+     */
+    public UserAllergyCache(int maxSize, long ttlMillis, long staleGraceMillis, Clock clock) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.staleGraceMillis = staleGraceMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserAllergyCache.Entry> eldest) {
+                return size() > UserAllergyCache.this.maxSize;
+            }
+        };
+        this.invalidations = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                if (size() <= Math.max(1, UserAllergyCache.this.maxSize)) return false;
+                forgotten = eldest.getValue();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @param netId the subject of the token of the user
+     * @return the cached allergies of the user, or empty if they are not cached or have expired
+     */
+    public synchronized Optional<List<String>> get(String netId) {
+        Entry entry = entries.get(netId);
+        if (entry == null) return Optional.empty();
+        long now = clock.millis();
+        if (entry.evictAt <= now) {
+            if (entry.evictAt + staleGraceMillis <= now) {
+                entries.remove(netId);
+            }
+            return Optional.empty();
+        }
+        return Optional.of(entry.allergies);
+    }
+
+    /**
+     * @param netId the subject of the token of the user
+     * @return the cached allergies of the user even if they have expired, or empty if the grace period is over too
+     */
+    public synchronized Optional<List<String>> getStale(String netId) {
+        Entry entry = entries.get(netId);
+        if (entry == null || entry.evictAt + staleGraceMillis <= clock.millis()) return Optional.empty();
+        return Optional.of(entry.allergies);
+    }
+
+    /**
+     * @return the current generation, taken before the allergies are asked for and passed to put
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Stores the allergies of a user, unless the user was invalidated since they were asked for
+     *
+     * @param netId the subject of the token of the user
+     * @param allergies the allergies of the user as returned by the user microservice
+     * @param askedAt the generation taken before the allergies were asked for
+     */
+    public synchronized void put(String netId, List<String> allergies, long askedAt) {
+        if (maxSize <= 0 || netId == null || allergies == null) return;
+        // the user changed the allergies after they were asked for, or may have when the invalidation was forgotten
+        if (askedAt < forgotten || askedAt < invalidations.getOrDefault(netId, 0L)) return;
+        entries.put(netId, new Entry(List.copyOf(allergies), clock.millis() + ttlMillis));
+    }
+
+    /**
+     * @param netId the subject of the token of the user whose allergies changed
+     */
+    public synchronized void invalidate(String netId) {
+        entries.remove(netId);
+        generation++;
+        // moved to the end, so the users invalidated longest ago are forgotten first
+        invalidations.remove(netId);
+        invalidations.put(netId, generation);
+    }
+
+    /**
+     * @return the number of cached users
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        final List<String> allergies;
+        final long evictAt;
+
+        Entry(List<String> allergies, long evictAt) {
+            this.allergies = allergies;
+            this.evictAt = evictAt;
+        }
+    }
+}
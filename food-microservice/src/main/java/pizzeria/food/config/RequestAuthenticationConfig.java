@@ -2,10 +2,12 @@ package pizzeria.food.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import pizzeria.commons.authentication.JwtTokenVerifier;
 import pizzeria.food.authentication.JwtAuthenticationEntryPoint;
 import pizzeria.food.authentication.JwtRequestFilter;
 
@@ -13,6 +15,8 @@ import pizzeria.food.authentication.JwtRequestFilter;
  * The type Web security config.
  */
 @Configuration
+// the verifier of the tokens, shared with the other microservices
+@Import(JwtTokenVerifier.class)
 public class RequestAuthenticationConfig extends WebSecurityConfigurerAdapter {
     private final transient JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
     private final transient JwtRequestFilter jwtRequestFilter;
@@ -39,6 +43,8 @@ public class RequestAuthenticationConfig extends WebSecurityConfigurerAdapter {
                 .antMatchers("/recipe/save").hasAuthority(role)
                 .antMatchers("/recipe/update").hasAuthority(role)
                 .antMatchers("/recipe/delete").hasAuthority(role)
+                // only called by the user microservice, with a service token, when the allergies of a user changed
+                .antMatchers("/allergens/invalidate").hasAuthority("ROLE_SERVICE")
                 .antMatchers("/allergens/menu").authenticated()
                 .antMatchers("/allergens/warn").authenticated()
                 .anyRequest().permitAll()
@@ -6,9 +6,11 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import pizzeria.food.communication.HttpRequestService;
+import pizzeria.food.communication.UserAllergyCache;
 import pizzeria.food.domain.Allergens.AllergenService;
 import pizzeria.food.models.allergens.CheckIfRecipeIsSafeRequestModel;
 import pizzeria.food.models.allergens.FilterMenuResponseModel;
+import pizzeria.food.models.allergens.InvalidateAllergiesRequestModel;
 import java.util.Optional;
 
 @RestController
@@ -17,15 +19,19 @@ public class AllergenController {
 
     private final transient AllergenService allergenService;
     private final transient HttpRequestService requestService;
+    private final transient UserAllergyCache userAllergyCache;
 
     /**
      * Constructor for the AllergenController class that auto wires the required service
      * @param allergenService AllergenService that handles the allergen complexity
+     * @param userAllergyCache UserAllergyCache that keeps the allergies of the users
      */
     @Autowired
-    public AllergenController(AllergenService allergenService, HttpRequestService requestService) {
+    public AllergenController(AllergenService allergenService, HttpRequestService requestService,
+                              UserAllergyCache userAllergyCache) {
         this.allergenService = allergenService;
         this.requestService = requestService;
+        this.userAllergyCache = userAllergyCache;
     }
 
 
@@ -40,7 +46,7 @@ public class AllergenController {
             if (responseModel == null) {
                 return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
             }
-            return ResponseEntity.status(HttpStatus.OK).body(allergenService.filterMenu(token));
+            return ResponseEntity.status(HttpStatus.OK).body(responseModel);
         } catch (Exception e) {
             return ResponseEntity.badRequest().header(HttpHeaders.WARNING, e.getMessage()).build();
         }
@@ -59,4 +65,15 @@ public class AllergenController {
             return ResponseEntity.badRequest().header(HttpHeaders.WARNING, e.getMessage()).build();
         }
     }
+
+    /**
+     * Called by the user microservice when the allergies of a user changed or the user was deleted
+     * @param requestModel the id of the user whose cached allergies should be dropped
+     * @return 200 OK, also when the allergies of the user were not cached
+     */
+    @PostMapping("/invalidate")
+    public ResponseEntity<Void> invalidateAllergies(@RequestBody InvalidateAllergiesRequestModel requestModel) {
+        userAllergyCache.invalidate(requestModel.getId());
+        return ResponseEntity.ok().build();
+    }
 }
@@ -0,0 +1,42 @@
+package pizzeria.food.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import pizzeria.food.domain.catalog.CatalogChangeFeed;
+import pizzeria.food.models.catalog.CatalogFeedResponseModel;
+
+@RestController
+@RequestMapping("/catalog")
+public class CatalogController {
+    private final transient CatalogChangeFeed changeFeed;
+
+    /**
+     * Constructor for the CatalogController that auto wires the change feed
+     * @param changeFeed CatalogChangeFeed that keeps track of the price changes
+     */
+    @Autowired
+    public CatalogController(CatalogChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * @return every recipe and ingredient price together with the version of the catalog
+     */
+    @GetMapping("/snapshot")
+    public ResponseEntity<CatalogFeedResponseModel> getSnapshot() {
+        return ResponseEntity.ok().body(changeFeed.snapshot());
+    }
+
+    /**
+     * @param since the last version the caller has applied
+     * @return the changes (including deletions) that happened after the given version
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<CatalogFeedResponseModel> getChanges(@RequestParam("since") long since) {
+        return ResponseEntity.ok().body(changeFeed.changesSince(since));
+    }
+}
@@ -5,23 +5,26 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import pizzeria.food.domain.catalog.CatalogSnapshotCache;
 import pizzeria.food.domain.ingredient.*;
 import pizzeria.food.models.ingredient.*;
 
-import java.util.List;
 
 @RestController
 @RequestMapping("/ingredient")
 public class IngredientController {
     private final transient IngredientService ingredientService;
+    private final transient CatalogSnapshotCache snapshotCache;
 
     /**
      * Constructor for the IngredientController class that autowires the required service
      * @param ingredientService IngredientService that handles the complexity
+     * @param snapshotCache CatalogSnapshotCache that holds the serialized list of extra toppings
      */
     @Autowired
-    public IngredientController(IngredientService ingredientService){
+    public IngredientController(IngredientService ingredientService, CatalogSnapshotCache snapshotCache){
         this.ingredientService = ingredientService;
+        this.snapshotCache = snapshotCache;
     }
 
     /**
@@ -73,14 +76,15 @@ public class IngredientController {
     }
 
     /**
-     * @return the list of extra toppings
+     * @param ifNoneMatch the entity tag of the list the client already has, if any
+     * @param acceptEncoding the encodings the client accepts
+     * @return the list of extra toppings as pre-serialized json,
+     * or 304 Not Modified when the list did not change since the given entity tag
      */
     @GetMapping("/extraToppings")
-    public ResponseEntity<ExtraToppingsResponseModel> getExtraToppingsSet(){
-        List<Ingredient> ingredientList = ingredientService.getToppingsList();
-        ExtraToppingsResponseModel responseModel = new ExtraToppingsResponseModel();
-        responseModel.setIngredients(ingredientList);
-        return ResponseEntity.ok().body(responseModel);
+    public ResponseEntity<byte[]> getExtraToppingsSet(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding){
+        return SnapshotResponses.serve(snapshotCache, CatalogSnapshotCache.Resource.EXTRA_TOPPINGS, ifNoneMatch, acceptEncoding);
     }
 
 
@@ -5,6 +5,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import pizzeria.food.domain.catalog.CatalogSnapshotCache;
 import pizzeria.food.domain.ingredient.Ingredient;
 import pizzeria.food.domain.ingredient.IngredientNotFoundException;
 import pizzeria.food.domain.recipe.*;
@@ -21,16 +22,20 @@ public class RecipeController {
 
     private final transient RecipeService foodService;
     private final transient RecipeServiceResponseInformation recipeServiceResponseInformation;
+    private final transient CatalogSnapshotCache snapshotCache;
 
     /**
      * Constructor for the RecipeController class that auto wires the required service
      * @param foodService RecipeService that handles all the Recipe complexity
+     * @param snapshotCache CatalogSnapshotCache that holds the serialized menu
      */
     @Autowired
     public RecipeController(RecipeService foodService,
-                            RecipeServiceResponseInformation recipeServiceResponseInformation){
+                            RecipeServiceResponseInformation recipeServiceResponseInformation,
+                            CatalogSnapshotCache snapshotCache){
         this.foodService = foodService;
         this.recipeServiceResponseInformation = recipeServiceResponseInformation;
+        this.snapshotCache = snapshotCache;
     }
 
     /**
@@ -82,14 +87,15 @@ public class RecipeController {
     }
 
     /**
-     * @return MenuResponseModel holding the list of available recipes
+     * @param ifNoneMatch the entity tag of the menu the client already has, if any
+     * @param acceptEncoding the encodings the client accepts
+     * @return MenuResponseModel holding the list of available recipes, as pre-serialized json,
+     * or 304 Not Modified when the menu did not change since the given entity tag
      */
     @GetMapping("/menu")
-    public ResponseEntity<MenuResponseModel> getMenu() {
-        List<Recipe> menu = recipeServiceResponseInformation.getMenu();
-        MenuResponseModel responseModel = new MenuResponseModel();
-        responseModel.setMenu(menu);
-        return ResponseEntity.ok().body(responseModel);
+    public ResponseEntity<byte[]> getMenu(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return SnapshotResponses.serve(snapshotCache, CatalogSnapshotCache.Resource.MENU, ifNoneMatch, acceptEncoding);
     }
 
     @GetMapping("/getBaseToppings")
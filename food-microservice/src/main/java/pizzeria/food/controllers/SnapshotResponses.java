@@ -0,0 +1,78 @@
+package pizzeria.food.controllers;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import pizzeria.food.domain.catalog.CatalogSnapshotCache;
+import pizzeria.food.domain.catalog.EncodedSnapshot;
+
+/**
+ * Turns a catalog snapshot into a response, honouring If-None-Match and Accept-Encoding.
+ */
+final class SnapshotResponses {
+    private SnapshotResponses() {
+    }
+
+    /**
+     * @param snapshotCache the cache that holds the serialized resource
+     * @param resource the resource that is requested
+     * @param ifNoneMatch the If-None-Match header of the request, may be null
+     * @param acceptEncoding the Accept-Encoding header of the request, may be null
+     * @return 304 when the client has the current version, otherwise the pre-encoded body
+     */
+    static ResponseEntity<byte[]> serve(CatalogSnapshotCache snapshotCache, CatalogSnapshotCache.Resource resource,
+                                        String ifNoneMatch, String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String etag = snapshotCache.currentEtag(resource);
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(gzip ? gzipEtag(etag) : etag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        EncodedSnapshot snapshot = snapshotCache.get(resource);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            // the gzip body has other bytes than the json one, so it gets a strong tag of its own
+            return response.eTag(gzipEtag(snapshot.getEtag()))
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(snapshot.getGzip());
+        }
+        return response.eTag(snapshot.getEtag()).body(snapshot.getJson());
+    }
+
+    private static String gzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * A client may hold either encoding of the current version, so the tags of both of them match
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        String gzipEtag = gzipEtag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if ("*".equals(tag) || etag.equals(tag) || gzipEtag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!"gzip".equalsIgnoreCase(parts[0].trim())) continue;
+            return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+        }
+        return false;
+    }
+}
@@ -0,0 +1,323 @@
+package pizzeria.food.domain.Allergens;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pizzeria.commons.money.Money;
+import pizzeria.food.domain.catalog.CatalogChangedEvent;
+import pizzeria.food.domain.catalog.CatalogItemType;
+import pizzeria.food.domain.ingredient.Ingredient;
+import pizzeria.food.domain.ingredient.IngredientNotFoundException;
+import pizzeria.food.domain.ingredient.IngredientRepository;
+import pizzeria.food.domain.recipe.Recipe;
+import pizzeria.food.domain.recipe.RecipeNotFoundException;
+import pizzeria.food.domain.recipe.RecipeRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In memory index of the allergens of every ingredient and recipe.
+ * Every distinct allergen gets its own bit, so the allergens of an ingredient or a recipe are stored as a bitmask
+ * and checking a recipe against the allergies of a user is a bitwise AND instead of a set intersection.
+ * The masks are seeded from the database on start up and kept up to date with the CatalogChangedEvents,
+ * so answering a request does not touch the database.
+ */
+@Component
+public class AllergenIndex {
+    private static final long[] EMPTY = new long[0];
+
+    private final transient RecipeRepository recipeRepository;
+    private final transient IngredientRepository ingredientRepository;
+    private final transient ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // bit position of every allergen that was ever seen, positions are never reused
+    private final transient Map<String, Integer> dictionary = new HashMap<>();
+    private final transient Map<Long, long[]> ingredientMasks = new HashMap<>();
+    private final transient NavigableMap<Long, IndexedRecipe> recipes = new TreeMap<>();
+    // recipes per ingredient id, so only the affected recipes are recomputed when an ingredient changes
+    private final transient Map<Long, Set<Long>> recipesByIngredient = new HashMap<>();
+
+    /**
+     * Constructor for the AllergenIndex that auto wires the required databases
+     * @param recipeRepository RecipeRepository used to seed the index on start up
+     * @param ingredientRepository IngredientRepository used to seed the index on start up
+     */
+    @Autowired
+    public AllergenIndex(RecipeRepository recipeRepository, IngredientRepository ingredientRepository) {
+        this.recipeRepository = recipeRepository;
+        this.ingredientRepository = ingredientRepository;
+    }
+
+    /**
+     * Indexes everything that is already stored in the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        List<Ingredient> ingredients = ingredientRepository.findAll();
+        List<Recipe> stored = recipeRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            for (Ingredient ingredient : ingredients) {
+                putIngredient(ingredient.getId(), ingredient.getAllergens());
+            }
+            for (Recipe recipe : stored) {
+                putRecipe(recipe.getId(), recipe.getName(), recipe.getBasePriceInMinorUnits(), recipe.getBaseToppings());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param event the change that happened to a recipe or an ingredient
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.getType() == CatalogItemType.INGREDIENT) {
+                if (event.isDeleted()) {
+                    removeIngredient(event.getId());
+                } else {
+                    putIngredient(event.getId(), event.getAllergens());
+                }
+            } else if (event.isDeleted()) {
+                removeRecipe(event.getId());
+            } else {
+                putRecipe(event.getId(), event.getName(), event.getPriceInMinorUnits(), event.getToppings());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Translates the allergies of a user to a mask, allergens that no ingredient contains are left out
+     * @param allergens list of strings that represents the allergens
+     * @return the mask with a bit set for every known allergen in the list
+     */
+    public long[] maskOf(Collection<String> allergens) {
+        lock.readLock().lock();
+        try {
+            long[] mask = EMPTY;
+            for (String allergen : allergens) {
+                Integer bit = dictionary.get(allergen);
+                if (bit != null) {
+                    mask = withBit(mask, bit);
+                }
+            }
+            return mask;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param allergens mask of the allergens we need to filter on
+     * @return the recipes that do not contain any of the allergens, ordered by id
+     * @throws IngredientNotFoundException when an ingredient of a recipe is not stored in the database
+     */
+    public List<Recipe> safeRecipes(long[] allergens) throws IngredientNotFoundException {
+        lock.readLock().lock();
+        try {
+            List<Recipe> menu = new ArrayList<>();
+            for (IndexedRecipe recipe : recipes.values()) {
+                if (recipe.mask == null) {
+                    throw new IngredientNotFoundException();
+                }
+                if (!intersects(recipe.mask, allergens)) {
+                    menu.add(recipe.toRecipe());
+                }
+            }
+            return menu;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param toppings ids of the ingredients of a recipe that does not have to be stored
+     * @param allergens mask of the allergens
+     * @return true iff none of the ingredients contain any of the allergens
+     * @throws IngredientNotFoundException when one of the ingredients is not stored in the database
+     */
+    public boolean isSafe(List<Long> toppings, long[] allergens) throws IngredientNotFoundException {
+        lock.readLock().lock();
+        try {
+            long[] mask = combine(toppings);
+            if (mask == null) {
+                throw new IngredientNotFoundException();
+            }
+            return !intersects(mask, allergens);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param recipeId id of the stored recipe
+     * @param allergens mask of the allergens
+     * @return true iff the recipe does not contain any of the allergens
+     * @throws RecipeNotFoundException when the recipe is not stored in the database
+     * @throws IngredientNotFoundException when an ingredient of the recipe is not stored in the database
+     */
+    public boolean isSafe(long recipeId, long[] allergens) throws RecipeNotFoundException, IngredientNotFoundException {
+        lock.readLock().lock();
+        try {
+            IndexedRecipe recipe = recipes.get(recipeId);
+            if (recipe == null) {
+                throw new RecipeNotFoundException();
+            }
+            if (recipe.mask == null) {
+                throw new IngredientNotFoundException();
+            }
+            return !intersects(recipe.mask, allergens);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct allergens that have a bit assigned
+     */
+    public int getAllergenCount() {
+        lock.readLock().lock();
+        try {
+            return dictionary.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putIngredient(long id, List<String> allergens) {
+        long[] mask = EMPTY;
+        for (String allergen : allergens) {
+            Integer bit = dictionary.get(allergen);
+            if (bit == null) {
+                bit = dictionary.size();
+                dictionary.put(allergen, bit);
+            }
+            mask = withBit(mask, bit);
+        }
+        ingredientMasks.put(id, mask);
+        recompute(id);
+    }
+
+    private void removeIngredient(long id) {
+        ingredientMasks.remove(id);
+        recompute(id);
+    }
+
+    private void putRecipe(long id, String name, long priceInMinorUnits, List<Long> toppings) {
+        removeRecipe(id);
+        List<Long> copy = new ArrayList<>(toppings);
+        recipes.put(id, new IndexedRecipe(id, name, priceInMinorUnits, copy, combine(copy)));
+        for (Long topping : copy) {
+            recipesByIngredient.computeIfAbsent(topping, key -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void removeRecipe(long id) {
+        IndexedRecipe old = recipes.remove(id);
+        if (old == null) return;
+        for (Long topping : old.toppings) {
+            Set<Long> users = recipesByIngredient.get(topping);
+            if (users != null) {
+                users.remove(id);
+                if (users.isEmpty()) {
+                    recipesByIngredient.remove(topping);
+                }
+            }
+        }
+    }
+
+    private void recompute(long ingredientId) {
+        for (Long recipeId : recipesByIngredient.getOrDefault(ingredientId, Set.of())) {
+            IndexedRecipe recipe = recipes.get(recipeId);
+            recipe.mask = combine(recipe.toppings);
+        }
+    }
+
+    /**
+     * @return the union of the masks of the ingredients, or null when one of them is unknown
+     */
+    private long[] combine(List<Long> toppings) {
+        long[] mask = EMPTY;
+        for (Long topping : toppings) {
+            long[] ingredient = ingredientMasks.get(topping);
+            if (ingredient == null) {
+                return null;
+            }
+            if (ingredient.length > mask.length) {
+                long[] grown = new long[ingredient.length];
+                System.arraycopy(mask, 0, grown, 0, mask.length);
+                mask = grown;
+            } else if (mask == EMPTY) {
+                continue;
+            }
+            for (int i = 0; i < ingredient.length; i++) {
+                mask[i] |= ingredient[i];
+            }
+        }
+        return mask;
+    }
+
+    private static long[] withBit(long[] mask, int bit) {
+        int word = bit >>> 6;
+        long[] result = mask;
+        if (word >= mask.length) {
+            result = new long[word + 1];
+            System.arraycopy(mask, 0, result, 0, mask.length);
+        }
+        result[word] |= 1L << bit;
+        return result;
+    }
+
+    private static boolean intersects(long[] a, long[] b) {
+        int words = Math.min(a.length, b.length);
+        for (int i = 0; i < words; i++) {
+            if ((a[i] & b[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The indexed state of a recipe, the mask is null while one of its ingredients is missing
+     */
+    private static final class IndexedRecipe {
+        final long id;
+        final String name;
+        final long priceInMinorUnits;
+        final List<Long> toppings;
+        long[] mask;
+
+        IndexedRecipe(long id, String name, long priceInMinorUnits, List<Long> toppings, long[] mask) {
+            this.id = id;
+            this.name = name;
+            this.priceInMinorUnits = priceInMinorUnits;
+            this.toppings = toppings;
+            this.mask = mask;
+        }
+
+        Recipe toRecipe() {
+            Recipe recipe = new Recipe(name, new ArrayList<>(toppings), Money.ofMinor(priceInMinorUnits));
+            recipe.setId(id);
+            return recipe;
+        }
+    }
+}
@@ -3,12 +3,15 @@ package pizzeria.food.domain.Allergens;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import pizzeria.commons.communication.ServiceGuard;
+import pizzeria.food.authentication.AuthManager;
 import pizzeria.food.communication.HttpRequestService;
+import pizzeria.food.communication.UserAllergyCache;
 import pizzeria.food.domain.ingredient.IngredientNotFoundException;
-import pizzeria.food.domain.ingredient.IngredientRepository;
 import pizzeria.food.domain.recipe.Recipe;
 import pizzeria.food.domain.recipe.RecipeNotFoundException;
-import pizzeria.food.domain.recipe.RecipeRepository;
 import pizzeria.food.models.allergens.CheckIfRecipeIsSafeRequestModel;
 import pizzeria.food.models.allergens.FilterMenuResponseModel;
 
@@ -16,23 +19,28 @@ import java.util.*;
 
 @Service
 public class AllergenService {
-    private final transient RecipeRepository recipeRepository;
-    private final transient IngredientRepository ingredientRepository;
+    private final transient AllergenIndex allergenIndex;
     private final transient HttpRequestService requestService;
+    private final transient UserAllergyCache userAllergyCache;
+    private final transient AuthManager authManager;
 
 
     /**
-     * Constructor for the AllergenService class that auto wires the required databases
-     * @param recipeRepository RecipeRepository in which we will perform all recipe related operations
-     * @param ingredientRepository IngredientRepository in which we will perform all ingredient related operations
+     * Constructor for the AllergenService class that auto wires the allergen index
+     * @param allergenIndex AllergenIndex that holds the allergens of every recipe and ingredient
+     * @param requestService HttpRequestService used to retrieve the allergies of a user
+     * @param userAllergyCache UserAllergyCache that keeps the allergies of the users that were retrieved before
+     * @param authManager AuthManager used to get the id of the authenticated user
      */
     @Autowired
-    public AllergenService(RecipeRepository recipeRepository,
-                           IngredientRepository ingredientRepository,
-                           HttpRequestService requestService) {
-        this.recipeRepository = recipeRepository;
-        this.ingredientRepository = ingredientRepository;
+    public AllergenService(AllergenIndex allergenIndex,
+                           HttpRequestService requestService,
+                           UserAllergyCache userAllergyCache,
+                           AuthManager authManager) {
+        this.allergenIndex = allergenIndex;
         this.requestService = requestService;
+        this.userAllergyCache = userAllergyCache;
+        this.authManager = authManager;
     }
 
     /**
@@ -41,14 +49,7 @@ public class AllergenService {
      * @throws IngredientNotFoundException when an ingredient of a recipe wasn't found in the database
      */
     public List<Recipe> filterMenuOnAllergens(List<String> allergens) throws IngredientNotFoundException {
-        List<Recipe> recipes = recipeRepository.findAll();
-        List<Recipe> menu = new ArrayList<>();
-        for (Recipe recipe: recipes){
-            if (recipeIsSafe(recipe, allergens)){
-                menu.add(recipe);
-            }
-        }
-        return menu;
+        return allergenIndex.safeRecipes(allergenIndex.maskOf(allergens));
     }
 
 
@@ -59,29 +60,7 @@ public class AllergenService {
      * @throws IngredientNotFoundException when an ingredient of this recipe is not stored in the database
      */
     public boolean recipeIsSafe(Recipe recipe, List<String> allergens) throws IngredientNotFoundException {
-        List<Long> ids = recipe.getBaseToppings();
-        Set <String> recipeAllergens = getSetOfAllergens(ids);
-        recipeAllergens.retainAll(new HashSet<>(allergens));
-        return recipeAllergens.isEmpty();
-    }
-
-    /**
-     * Returns a set of the allergens contained in the list of ids
-     * @param ingredientIds list of ingredient ids
-     * @return set of allergens
-     * @throws IngredientNotFoundException
-     */
-    @SuppressWarnings("PMD")
-    private Set<String> getSetOfAllergens(List<Long> ingredientIds) throws IngredientNotFoundException {
-        Set<String> allergens = new HashSet<>();
-
-        for (Long ingredientId : ingredientIds) {
-            if (!ingredientRepository.existsById(ingredientId)) {
-                throw new IngredientNotFoundException();
-            }
-            allergens.addAll(ingredientRepository.findById(ingredientId).get().getAllergens());
-        }
-        return allergens;
+        return allergenIndex.isSafe(recipe.getBaseToppings(), allergenIndex.maskOf(allergens));
     }
 
     /**
@@ -92,16 +71,11 @@ public class AllergenService {
      * @throws IngredientNotFoundException when an ingredient of this recipe is not stored in the database
      */
     public boolean checkIfSafeRecipeWithId(long recipeId, List<String> allergens) throws RecipeNotFoundException, IngredientNotFoundException {
-        if (recipeRepository.existsById(recipeId)){
-            Recipe recipe = recipeRepository.findById(recipeId).get();
-            return recipeIsSafe(recipe, allergens);
-        } else {
-            throw new RecipeNotFoundException();
-        }
+        return allergenIndex.isSafe(recipeId, allergenIndex.maskOf(allergens));
     }
 
     public FilterMenuResponseModel filterMenu(String token) throws IngredientNotFoundException {
-        Optional<List<String>> allergens = requestService.getUserAllergens(token);
+        Optional<List<String>> allergens = getUserAllergens(token);
         if (allergens.isPresent()) {
             List<Recipe> filteredMenu = filterMenuOnAllergens(allergens.get());
             FilterMenuResponseModel responseModel = new FilterMenuResponseModel();
@@ -112,7 +86,7 @@ public class AllergenService {
     }
 
     public Optional<Boolean> checkSafety(String token, CheckIfRecipeIsSafeRequestModel requestModel) throws Exception {
-        Optional<List<String>> allergens = requestService.getUserAllergens(token);
+        Optional<List<String>> allergens = getUserAllergens(token);
 
         if (allergens.isPresent()) {
             boolean checkSafety = checkIfSafeRecipeWithId(requestModel.getId(), allergens.get());
@@ -121,4 +95,32 @@ public class AllergenService {
         }
         return Optional.empty();
     }
+
+    /**
+     * Returns the allergies of the authenticated user from the cache, or asks the user microservice on a miss.
+     * When the user microservice cannot be reached the expired allergies of the user are used, if they are still known.
+     * The answer is not cached when the allergies of the user changed while it was on its way.
+     * @param token The token of the user
+     * @return the list of the allergens of the user, empty if the user microservice did not return them
+     */
+    private Optional<List<String>> getUserAllergens(String token) {
+        String netId = authManager.getNetId();
+        Optional<List<String>> cached = userAllergyCache.get(netId);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        long askedAt = userAllergyCache.generation();
+        Optional<List<String>> allergens;
+        try {
+            allergens = requestService.getUserAllergens(token);
+        } catch (ServiceGuard.RejectedException | ResourceAccessException | HttpServerErrorException e) {
+            Optional<List<String>> stale = userAllergyCache.getStale(netId);
+            if (stale.isPresent()) {
+                return stale;
+            }
+            throw e;
+        }
+        allergens.ifPresent(list -> userAllergyCache.put(netId, list, askedAt));
+        return allergens;
+    }
 }
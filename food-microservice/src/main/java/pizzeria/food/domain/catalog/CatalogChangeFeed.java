@@ -0,0 +1,142 @@
+package pizzeria.food.domain.catalog;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pizzeria.food.domain.ingredient.Ingredient;
+import pizzeria.food.domain.ingredient.IngredientRepository;
+import pizzeria.food.domain.recipe.Recipe;
+import pizzeria.food.domain.recipe.RecipeRepository;
+import pizzeria.food.models.catalog.CatalogChangeModel;
+import pizzeria.food.models.catalog.CatalogFeedResponseModel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Versioned change feed of the recipe and ingredient prices.
+ * Every change gets the next version number, and only the latest change per item is retained,
+ * so the log never grows beyond the number of items that ever existed. Deleted items stay in the
+ * log as tombstones, which lets consumers that are behind remove them from their replica.
+ */
+@Service
+public class CatalogChangeFeed {
+    // identifies this instance of the feed, versions restart when the microservice restarts
+    private final transient String epoch = UUID.randomUUID().toString();
+    private final transient NavigableMap<Long, CatalogChangeModel> log = new TreeMap<>();
+    private final transient Map<String, Long> latestVersions = new HashMap<>();
+    private final transient RecipeRepository recipeRepository;
+    private final transient IngredientRepository ingredientRepository;
+    private transient long version;
+
+    /**
+     * Constructor for the CatalogChangeFeed that auto wires the required databases
+     * @param recipeRepository RecipeRepository used to seed the feed on start up
+     * @param ingredientRepository IngredientRepository used to seed the feed on start up
+     */
+    @Autowired
+    public CatalogChangeFeed(RecipeRepository recipeRepository, IngredientRepository ingredientRepository) {
+        this.recipeRepository = recipeRepository;
+        this.ingredientRepository = ingredientRepository;
+    }
+
+    /**
+     * Records everything that is already stored in the database, so the first snapshot is complete.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void seed() {
+        for (Recipe recipe : recipeRepository.findAll()) {
+            append(CatalogItemType.RECIPE, recipe.getId(), recipe.getName(), recipe.getBasePriceInMinorUnits(), false);
+        }
+        for (Ingredient ingredient : ingredientRepository.findAll()) {
+            append(CatalogItemType.INGREDIENT, ingredient.getId(), ingredient.getName(),
+                    ingredient.getPriceInMinorUnits(), false);
+        }
+    }
+
+    /**
+     * The listeners of transactions that commit at the same time run in any order, so the event only says which item
+     * changed. The committed row is read again while holding the lock of the feed, which makes the last change that
+     * is appended for an item always hold what was committed last, even when an older event is applied after it.
+     *
+     * @param event the change that happened to a recipe or an ingredient, applied once its transaction committed
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public synchronized void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.getType() == CatalogItemType.RECIPE) {
+            Optional<Recipe> recipe = recipeRepository.findById(event.getId());
+            if (recipe.isPresent()) {
+                append(CatalogItemType.RECIPE, event.getId(), recipe.get().getName(),
+                        recipe.get().getBasePriceInMinorUnits(), false);
+                return;
+            }
+        } else {
+            Optional<Ingredient> ingredient = ingredientRepository.findById(event.getId());
+            if (ingredient.isPresent()) {
+                append(CatalogItemType.INGREDIENT, event.getId(), ingredient.get().getName(),
+                        ingredient.get().getPriceInMinorUnits(), false);
+                return;
+            }
+        }
+        // the row is gone, so the item was deleted, by this change or by one that committed after it
+        append(event.getType(), event.getId(), event.getName(), event.getPriceInMinorUnits(), true);
+    }
+
+    /**
+     * @return every item that currently exists in the catalog, together with the current version
+     */
+    public synchronized CatalogFeedResponseModel snapshot() {
+        List<CatalogChangeModel> items = new ArrayList<>(log.size());
+        for (CatalogChangeModel change : log.values()) {
+            if (!change.isDeleted()) {
+                items.add(change);
+            }
+        }
+        return new CatalogFeedResponseModel(epoch, version, items);
+    }
+
+    /**
+     * @param since the last version the consumer has applied
+     * @return the latest change of every item that changed after the given version, including tombstones
+     */
+    public synchronized CatalogFeedResponseModel changesSince(long since) {
+        return new CatalogFeedResponseModel(epoch, version, new ArrayList<>(log.tailMap(since, false).values()));
+    }
+
+    /**
+     * @return the current version of the catalog
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the identifier of this instance of the feed
+     */
+    public String getEpoch() {
+        return epoch;
+    }
+
+    private void append(CatalogItemType type, long id, String name, long priceInMinorUnits, boolean deleted) {
+        String key = type.name() + ':' + id;
+        Long previous = latestVersions.get(key);
+        if (previous != null) {
+            log.remove(previous);
+        }
+        version++;
+        log.put(version, new CatalogChangeModel(version, type, id, name, priceInMinorUnits, deleted));
+        latestVersions.put(key, version);
+    }
+}
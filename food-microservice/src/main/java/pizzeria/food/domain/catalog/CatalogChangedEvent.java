@@ -0,0 +1,75 @@
+package pizzeria.food.domain.catalog;
+
+import java.util.List;
+
+/**
+ * A domain event that indicates a recipe or an ingredient was saved, updated or deleted.
+ */
+public class CatalogChangedEvent {
+    private final CatalogItemType type;
+    private final long id;
+    private final String name;
+    private final long priceInMinorUnits;
+    private final boolean deleted;
+    private final List<String> allergens;
+    private final List<Long> toppings;
+
+    /**
+     * @param type the kind of item that changed
+     * @param id the id of the item that changed
+     * @param name the name of the item after the change
+     * @param priceInMinorUnits the price of the item after the change, in cents
+     * @param deleted true iff the item was removed from the catalog
+     */
+    public CatalogChangedEvent(CatalogItemType type, long id, String name, long priceInMinorUnits, boolean deleted) {
+        this(type, id, name, priceInMinorUnits, deleted, List.of(), List.of());
+    }
+
+    /**
+     * @param type the kind of item that changed
+     * @param id the id of the item that changed
+     * @param name the name of the item after the change
+     * @param priceInMinorUnits the price of the item after the change, in cents
+     * @param deleted true iff the item was removed from the catalog
+     * @param allergens the allergens of the ingredient after the change, empty for a recipe
+     * @param toppings the ids of the base toppings of the recipe after the change, empty for an ingredient
+     */
+    public CatalogChangedEvent(CatalogItemType type, long id, String name, long priceInMinorUnits, boolean deleted,
+                               List<String> allergens, List<Long> toppings) {
+        this.type = type;
+        this.id = id;
+        this.name = name;
+        this.priceInMinorUnits = priceInMinorUnits;
+        this.deleted = deleted;
+        this.allergens = allergens;
+        this.toppings = toppings;
+    }
+
+    public CatalogItemType getType() {
+        return type;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getPriceInMinorUnits() {
+        return priceInMinorUnits;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public List<String> getAllergens() {
+        return allergens;
+    }
+
+    public List<Long> getToppings() {
+        return toppings;
+    }
+}
@@ -0,0 +1,47 @@
+package pizzeria.food.domain.catalog;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Hibernate does not call the JPA callbacks of an entity when only one of its element collections changed,
+ * such as the allergens of an ingredient or the toppings of a recipe, so those writes are published
+ * from the collection events of hibernate instead.
+ * The services update an item by merging it, which updates the stored collection in place.
+ * A write that also changed the item itself is published twice, the consumers only keep the latest state.
+ */
+@Component
+public class CatalogCollectionListener implements PostCollectionUpdateEventListener {
+    private static final long serialVersionUID = 1L;
+
+    private final transient CatalogEntityListener entityListener;
+
+    /**
+     * Registers the listener with the session factory
+     * @param entityManagerFactory the factory of the sessions whose collection updates are listened to
+     * @param eventPublisher publisher used to broadcast the catalog changes
+     */
+    @Autowired
+    public CatalogCollectionListener(EntityManagerFactory entityManagerFactory, ApplicationEventPublisher eventPublisher) {
+        this.entityListener = new CatalogEntityListener(eventPublisher);
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class).getServiceRegistry()
+                .getService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+    }
+
+    /**
+     * @param event the update of a collection of a recipe or an ingredient
+     */
+    @Override
+    public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+        entityListener.onSaved(event.getAffectedOwnerOrNull());
+    }
+}
@@ -0,0 +1,66 @@
+package pizzeria.food.domain.catalog;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import pizzeria.food.domain.ingredient.Ingredient;
+import pizzeria.food.domain.recipe.Recipe;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JPA entity listener that turns every write on a Recipe or Ingredient into a CatalogChangedEvent.
+ * Hooking the persistence layer (instead of the services) makes sure no write path is missed.
+ * The events are published while the transaction is flushed, the consumers only apply them once it committed,
+ * so a write that is rolled back never shows up in the change feed, the snapshots or the allergen index.
+ */
+public class CatalogEntityListener {
+    private final transient ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Instantiated by hibernate through the spring bean container
+     * @param eventPublisher publisher used to broadcast the catalog changes
+     */
+    @Autowired
+    public CatalogEntityListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * @param entity the recipe or ingredient that was inserted or updated
+     */
+    @PostPersist
+    @PostUpdate
+    public void onSaved(Object entity) {
+        publish(entity, false);
+    }
+
+    /**
+     * @param entity the recipe or ingredient that was deleted
+     */
+    @PostRemove
+    public void onRemoved(Object entity) {
+        publish(entity, true);
+    }
+
+    private void publish(Object entity, boolean deleted) {
+        if (entity instanceof Recipe) {
+            Recipe recipe = (Recipe) entity;
+            eventPublisher.publishEvent(new CatalogChangedEvent(CatalogItemType.RECIPE, recipe.getId(),
+                    recipe.getName(), recipe.getBasePriceInMinorUnits(), deleted, List.of(), copy(recipe.getBaseToppings())));
+        } else if (entity instanceof Ingredient) {
+            Ingredient ingredient = (Ingredient) entity;
+            eventPublisher.publishEvent(new CatalogChangedEvent(CatalogItemType.INGREDIENT, ingredient.getId(),
+                    ingredient.getName(), ingredient.getPriceInMinorUnits(), deleted,
+                    copy(ingredient.getAllergens()), List.of()));
+        }
+    }
+
+    private static <T> List<T> copy(List<T> values) {
+        // the collections of the entity can still change after the event was published
+        return values == null ? List.of() : new ArrayList<>(values);
+    }
+}
@@ -0,0 +1,43 @@
+package pizzeria.food.domain.catalog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Helpers for resolving a batch of catalog ids with a single query.
+ */
+public final class CatalogIds {
+    private CatalogIds() {
+    }
+
+    /**
+     * @param ids the ids as they were requested, may contain duplicates
+     * @return the distinct ids, in the order they were requested
+     */
+    public static Set<Long> distinct(Collection<Long> ids) {
+        return new LinkedHashSet<>(ids);
+    }
+
+    /**
+     * @param requested the distinct ids that were asked for
+     * @param found the ids that the database returned
+     * @return the requested ids that were not found, in the order they were requested
+     */
+    public static List<Long> missing(Set<Long> requested, Collection<Long> found) {
+        if (found.size() == requested.size()) {
+            return List.of();
+        }
+        Set<Long> present = new HashSet<>(found);
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            if (!present.contains(id)) {
+                missing.add(id);
+            }
+        }
+        return missing;
+    }
+}
@@ -0,0 +1,9 @@
+package pizzeria.food.domain.catalog;
+
+/**
+ * Enum representing the kind of catalog item a price change refers to
+ */
+public enum CatalogItemType {
+    RECIPE,
+    INGREDIENT
+}
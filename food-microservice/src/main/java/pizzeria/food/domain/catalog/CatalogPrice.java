@@ -0,0 +1,15 @@
+package pizzeria.food.domain.catalog;
+
+import pizzeria.commons.money.Money;
+
+/**
+ * Projection of the id, price and name of a recipe or an ingredient,
+ * so price lookups do not load the entities together with their element collections.
+ */
+public interface CatalogPrice {
+    long getId();
+
+    Money getPrice();
+
+    String getName();
+}
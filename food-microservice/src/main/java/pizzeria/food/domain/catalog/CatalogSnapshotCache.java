@@ -0,0 +1,142 @@
+package pizzeria.food.domain.catalog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pizzeria.food.domain.ingredient.IngredientRepository;
+import pizzeria.food.domain.recipe.RecipeRepository;
+import pizzeria.food.models.ingredient.ExtraToppingsResponseModel;
+import pizzeria.food.models.recipe.MenuResponseModel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the menu and the list of extra toppings serialized, so the public endpoints that are read
+ * thousands of times between two catalog changes neither query the database nor run jackson per request.
+ * Every write to the catalog bumps the version, the next read rebuilds the snapshot it needs.
+ * The entity tag is derived from the version, which lets a client that already has the latest
+ * snapshot be answered with 304 Not Modified without building anything.
+ */
+@Service
+public class CatalogSnapshotCache {
+    /**
+     * The catalog resources that are served from a snapshot
+     */
+    public enum Resource {
+        MENU, EXTRA_TOPPINGS
+    }
+
+    // identifies this instance, so a tag from before a restart never matches
+    private final transient String epoch = UUID.randomUUID().toString();
+    private final transient AtomicLong version = new AtomicLong();
+    private final transient Map<Resource, EncodedSnapshot> snapshots = new EnumMap<>(Resource.class);
+    private final transient RecipeRepository recipeRepository;
+    private final transient IngredientRepository ingredientRepository;
+    private final transient ObjectMapper objectMapper;
+
+    /**
+     * Constructor for the CatalogSnapshotCache that auto wires the required databases
+     * @param recipeRepository RecipeRepository the menu is loaded from
+     * @param ingredientRepository IngredientRepository the extra toppings are loaded from
+     * @param objectMapper the mapper that spring uses for the other responses
+     */
+    @Autowired
+    public CatalogSnapshotCache(RecipeRepository recipeRepository,
+                                IngredientRepository ingredientRepository,
+                                ObjectMapper objectMapper) {
+        this.recipeRepository = recipeRepository;
+        this.ingredientRepository = ingredientRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Marks every snapshot as outdated, called by the services after they changed the catalog
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * @param event a change to a recipe or an ingredient, also when it did not go through a service
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        invalidate();
+    }
+
+    /**
+     * @param resource the resource the client asks for
+     * @return the entity tag the resource has right now, computed without loading anything
+     */
+    public String currentEtag(Resource resource) {
+        return etag(resource, version.get());
+    }
+
+    /**
+     * @param resource the resource the client asks for
+     * @return the snapshot of the current version, built when the catalog changed since the last one
+     */
+    public EncodedSnapshot get(Resource resource) {
+        long current = version.get();
+        synchronized (snapshots) {
+            EncodedSnapshot snapshot = snapshots.get(resource);
+            if (snapshot != null && snapshot.getVersion() == current) {
+                return snapshot;
+            }
+        }
+        // built outside the lock, tagged with the version read before loading so a concurrent
+        // change results in a rebuild on the next read instead of a snapshot that is too old for its tag
+        EncodedSnapshot snapshot = build(resource, current);
+        synchronized (snapshots) {
+            EncodedSnapshot cached = snapshots.get(resource);
+            if (cached == null || cached.getVersion() < current) {
+                snapshots.put(resource, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    private EncodedSnapshot build(Resource resource, long version) {
+        Object body;
+        if (resource == Resource.MENU) {
+            MenuResponseModel menu = new MenuResponseModel();
+            menu.setMenu(recipeRepository.findAll());
+            body = menu;
+        } else {
+            ExtraToppingsResponseModel toppings = new ExtraToppingsResponseModel();
+            toppings.setIngredients(ingredientRepository.findAll());
+            body = toppings;
+        }
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            return new EncodedSnapshot(version, etag(resource, version), json, gzip(json));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String etag(Resource resource, long version) {
+        return '"' + epoch + '-' + resource.name().toLowerCase() + '-' + version + '"';
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4 + 32);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json);
+        } catch (IOException e) {
+            //writing to memory does not fail
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
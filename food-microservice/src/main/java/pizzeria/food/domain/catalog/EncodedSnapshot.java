@@ -0,0 +1,41 @@
+package pizzeria.food.domain.catalog;
+
+/**
+ * A response body that was serialized once and is served as is until the catalog changes.
+ * The body is kept both as plain json and gzip compressed, so neither has to be encoded per request.
+ */
+public class EncodedSnapshot {
+    private final long version;
+    private final String etag;
+    private final byte[] json;
+    private final byte[] gzip;
+
+    /**
+     * @param version the catalog version the snapshot was built from
+     * @param etag the strong entity tag of the snapshot, including the quotes
+     * @param json the serialized body
+     * @param gzip the serialized body, gzip compressed
+     */
+    public EncodedSnapshot(long version, String etag, byte[] json, byte[] gzip) {
+        this.version = version;
+        this.etag = etag;
+        this.json = json;
+        this.gzip = gzip;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public byte[] getJson() {
+        return json;
+    }
+
+    public byte[] getGzip() {
+        return gzip;
+    }
+}
@@ -1,8 +1,13 @@
 package pizzeria.food.domain.ingredient;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import pizzeria.food.domain.catalog.CatalogEntityListener;
+import pizzeria.commons.money.Money;
+import pizzeria.commons.money.MoneyConverter;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -11,6 +16,7 @@ import java.util.Objects;
 
 @Entity
 @NoArgsConstructor
+@EntityListeners(CatalogEntityListener.class)
 public class Ingredient {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -20,9 +26,9 @@ public class Ingredient {
     @Getter
     @Setter
     private String name;
-    @Getter
-    @Setter
-    private double price;
+    @Convert(converter = MoneyConverter.class)
+    @JsonProperty("price")
+    private Money price = Money.ZERO;
     @ElementCollection(fetch = FetchType.EAGER)
     @Getter
     @Setter
@@ -37,7 +43,7 @@ public class Ingredient {
      */
     public Ingredient(String name, double price, List<String> allergens) {
         this.name = name;
-        this.price = price;
+        this.price = Money.of(price);
         this.allergens = allergens;
     }
 
@@ -48,10 +54,34 @@ public class Ingredient {
      */
     public Ingredient(String name, double price) {
         this.name = name;
-        this.price = price;
+        this.price = Money.of(price);
         this.allergens = new ArrayList<>();
     }
 
+    /**
+     * @return the price of this Ingredient in euros
+     */
+    @JsonIgnore
+    public double getPrice() {
+        return price.toDouble();
+    }
+
+    /**
+     * @return the price of this Ingredient in cents
+     */
+    @JsonIgnore
+    public long getPriceInMinorUnits() {
+        return price.getMinorUnits();
+    }
+
+    /**
+     * @param price the price of this Ingredient in euros, rounded to the nearest cent
+     */
+    @JsonIgnore
+    public void setPrice(double price) {
+        this.price = Money.of(price);
+    }
+
     /**
      * @param id long value representing the new id of this ingredient
      */
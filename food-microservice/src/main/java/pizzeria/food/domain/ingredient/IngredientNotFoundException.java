@@ -1,8 +1,13 @@
 package pizzeria.food.domain.ingredient;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 public class IngredientNotFoundException extends Exception{
 
     static final long serialVersionUID = -3437518456124229568L;
+    private final transient List<Long> missingIds;
     /**
      * Constructs a new exception with the specified detail message.  The
      * cause is not initialized, and may subsequently be initialized by
@@ -10,6 +15,7 @@ public class IngredientNotFoundException extends Exception{
      */
     public IngredientNotFoundException() {
         super("The ingredient was not found in the database");
+        this.missingIds = List.of();
     }
 
     /**
@@ -22,6 +28,26 @@ public class IngredientNotFoundException extends Exception{
      */
     public IngredientNotFoundException(String message) {
         super(message);
+        this.missingIds = List.of();
+    }
+
+    /**
+     * Constructs a new exception that reports every id that was not found at once.
+     *
+     * @param missingIds the ids that are not stored in the database, in the order they were requested
+     */
+    public IngredientNotFoundException(Collection<Long> missingIds) {
+        super(missingIds.size() == 1
+                ? "The Ingredient with id " + missingIds.iterator().next() + " was not found in the database"
+                : "The Ingredients with ids " + missingIds + " were not found in the database");
+        this.missingIds = new ArrayList<>(missingIds);
+    }
+
+    /**
+     * @return the ids that were not found, empty when the exception was not raised by a lookup of ids
+     */
+    public List<Long> getMissingIds() {
+        return missingIds;
     }
 
     /**
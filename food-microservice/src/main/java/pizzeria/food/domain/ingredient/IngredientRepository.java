@@ -1,12 +1,27 @@
 package pizzeria.food.domain.ingredient;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import pizzeria.food.domain.catalog.CatalogPrice;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface IngredientRepository extends JpaRepository<Ingredient, Long> {
     // This method will be used to check if an ingredient is already in the database
     boolean existsByName(String name);
 
+    // loads only the columns needed for pricing, in one query for all ids
+    @Query("select i.id as id, i.price as price, i.name as name from Ingredient i where i.id in :ids")
+    List<CatalogPrice> findPricesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select i.id from Ingredient i where i.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 
+    // fetches the allergens in the same query instead of one extra query per ingredient
+    @Query("select distinct i from Ingredient i left join fetch i.allergens where i.id in :ids order by i.id")
+    List<Ingredient> findAllWithAllergensByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -2,6 +2,9 @@ package pizzeria.food.domain.ingredient;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import pizzeria.food.domain.catalog.CatalogIds;
+import pizzeria.food.domain.catalog.CatalogPrice;
+import pizzeria.food.domain.catalog.CatalogSnapshotCache;
 import pizzeria.food.models.prices.Tuple;
 
 import java.util.*;
@@ -9,14 +12,17 @@ import java.util.*;
 @Service
 public class IngredientService {
     private final transient IngredientRepository ingredientRepository;
+    private final transient CatalogSnapshotCache snapshotCache;
 
     /**
      * Constructor for the IngredientService class that auto wires the required database
      * @param ingredientRepository IngredientRepository  in which we will perform the operations.
+     * @param snapshotCache CatalogSnapshotCache whose toppings and menu are outdated after every change
      */
     @Autowired
-    public IngredientService(IngredientRepository ingredientRepository){
+    public IngredientService(IngredientRepository ingredientRepository, CatalogSnapshotCache snapshotCache){
         this.ingredientRepository = ingredientRepository;
+        this.snapshotCache = snapshotCache;
     }
 
     /**
@@ -32,6 +38,7 @@ public class IngredientService {
             throw new IngredientAlreadyInUseException();
         }
         Ingredient result = ingredientRepository.save(ingredient);
+        snapshotCache.invalidate();
         return result;
     }
 
@@ -48,7 +55,9 @@ public class IngredientService {
         }
         if (ingredientRepository.existsById(id)) {
             ingredient.setId(id);
-            return ingredientRepository.save(ingredient);
+            Ingredient result = ingredientRepository.save(ingredient);
+            snapshotCache.invalidate();
+            return result;
         } else {
             throw new IngredientNotFoundException();
         }
@@ -63,6 +72,7 @@ public class IngredientService {
     public boolean deleteIngredient(long id) throws IngredientNotFoundException {
         if (ingredientRepository.existsById(id)) {
             ingredientRepository.deleteById(id);
+            snapshotCache.invalidate();
             return true;
         }
         throw new IngredientNotFoundException();
@@ -72,31 +82,37 @@ public class IngredientService {
      * @param ids list of longs that represents the ids of the ingredients we want the price from.
      * @return a list of doubles that represents the prices of the given ingredient ids
      * @throws IngredientNotFoundException when one of the given ids was not associated with an
-     * ingredient in the database.
+     * ingredient in the database, listing every id that was not found.
      */
-    @SuppressWarnings("PMD")
     public Map<Long, Tuple> getDetails(List<Long> ids) throws IngredientNotFoundException {
-        if (ids == null) {
+        if (ids == null || ids.isEmpty()) {
             return new HashMap<>();
         }
-        Map<Long, Tuple> prices = new HashMap<>(ids.size());
-
-        for (long id: ids){
-            if (ingredientRepository.existsById(id)){
-                Ingredient ingredient = ingredientRepository.findById(id).get();
-                prices.put(id, new Tuple(ingredient.getPrice(), ingredient.getName()));
-            } else {
-                throw new IngredientNotFoundException("The Ingredient with id " + id + " was not found in the database");
-            }
+        Set<Long> requested = CatalogIds.distinct(ids);
+        Map<Long, Tuple> prices = new HashMap<>(requested.size());
+        for (CatalogPrice price : ingredientRepository.findPricesByIdIn(requested)) {
+            prices.put(price.getId(), new Tuple(price.getPrice(), price.getName()));
+        }
+        List<Long> missing = CatalogIds.missing(requested, prices.keySet());
+        if (!missing.isEmpty()) {
+            throw new IngredientNotFoundException(missing);
         }
         return prices;
     }
 
+    /**
+     * @param ids list of longs that represents the ids of the ingredients that should exist.
+     * @throws IngredientNotFoundException when one of the given ids was not associated with an
+     * ingredient in the database, listing every id that was not found.
+     */
     public void checkForIngredientsExistence(List<Long> ids) throws IngredientNotFoundException {
-        for (long id: ids){
-            if (!ingredientRepository.existsById(id)){
-                throw new IngredientNotFoundException();
-            }
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        Set<Long> requested = CatalogIds.distinct(ids);
+        List<Long> missing = CatalogIds.missing(requested, ingredientRepository.findExistingIds(requested));
+        if (!missing.isEmpty()) {
+            throw new IngredientNotFoundException(missing);
         }
     }
 
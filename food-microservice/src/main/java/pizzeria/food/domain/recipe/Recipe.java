@@ -1,14 +1,20 @@
 package pizzeria.food.domain.recipe;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import pizzeria.food.domain.HasEvents;
+import pizzeria.food.domain.catalog.CatalogEntityListener;
+import pizzeria.commons.money.Money;
+import pizzeria.commons.money.MoneyConverter;
 import javax.persistence.*;
 import java.util.List;
 import java.util.Objects;
 
 @Entity
 @NoArgsConstructor
+@EntityListeners(CatalogEntityListener.class)
 public class Recipe extends HasEvents {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -25,9 +31,9 @@ public class Recipe extends HasEvents {
     @Setter
     private List<Long> baseToppings;
 
-    @Getter
-    @Setter
-    private double basePrice;
+    @Convert(converter = MoneyConverter.class)
+    @JsonProperty("basePrice")
+    private Money basePrice = Money.ZERO;
 
     @Getter
     private FoodType foodType = FoodType.PIZZA;
@@ -39,11 +45,44 @@ public class Recipe extends HasEvents {
      * @param basePrice double value representing the price of the food without any extra toppings
      */
     public Recipe(String name, List<Long> baseToppings, double basePrice) {
+        this(name, baseToppings, Money.of(basePrice));
+    }
+
+    /**
+     * @param name String value representing the name of this Food instance
+     * @param baseToppings List of ingredients representing the selected baseToppings
+     * @param basePrice the price of the food without any extra toppings
+     */
+    public Recipe(String name, List<Long> baseToppings, Money basePrice) {
         this.name = name;
         this.baseToppings = baseToppings;
         this.basePrice = basePrice;
     }
 
+    /**
+     * @return the price of the food without any extra toppings in euros
+     */
+    @JsonIgnore
+    public double getBasePrice() {
+        return basePrice.toDouble();
+    }
+
+    /**
+     * @return the price of the food without any extra toppings in cents
+     */
+    @JsonIgnore
+    public long getBasePriceInMinorUnits() {
+        return basePrice.getMinorUnits();
+    }
+
+    /**
+     * @param basePrice the price of the food without any extra toppings in euros, rounded to the nearest cent
+     */
+    @JsonIgnore
+    public void setBasePrice(double basePrice) {
+        this.basePrice = Money.of(basePrice);
+    }
+
     /**
      * @param o Object to compare to
      * @return true iff o is an instance of a recipe and has the same id as this recipe
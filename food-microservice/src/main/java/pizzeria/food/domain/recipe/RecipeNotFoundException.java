@@ -1,7 +1,12 @@
 package pizzeria.food.domain.recipe;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 public class RecipeNotFoundException extends Exception{
     static final long serialVersionUID = -3387416993124229948L;
+    private final transient List<Long> missingIds;
 
     /**
      * Constructs a new exception with {@code null} as its detail message.
@@ -10,6 +15,7 @@ public class RecipeNotFoundException extends Exception{
      */
     public RecipeNotFoundException() {
         super("The recipe could not be found in the database");
+        this.missingIds = List.of();
     }
 
     /**
@@ -22,6 +28,26 @@ public class RecipeNotFoundException extends Exception{
      */
     public RecipeNotFoundException(String message) {
         super(message);
+        this.missingIds = List.of();
+    }
+
+    /**
+     * Constructs a new exception that reports every id that was not found at once.
+     *
+     * @param missingIds the ids that are not stored in the database, in the order they were requested
+     */
+    public RecipeNotFoundException(Collection<Long> missingIds) {
+        super(missingIds.size() == 1
+                ? "The Recipe with id " + missingIds.iterator().next() + " was not found in the database"
+                : "The Recipes with ids " + missingIds + " were not found in the database");
+        this.missingIds = new ArrayList<>(missingIds);
+    }
+
+    /**
+     * @return the ids that were not found, empty when the exception was not raised by a lookup of ids
+     */
+    public List<Long> getMissingIds() {
+        return missingIds;
     }
 
     /**
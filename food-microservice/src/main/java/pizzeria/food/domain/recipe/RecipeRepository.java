@@ -1,8 +1,13 @@
 package pizzeria.food.domain.recipe;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import pizzeria.food.domain.catalog.CatalogPrice;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -10,4 +15,8 @@ public interface RecipeRepository extends JpaRepository<Recipe, Long> {
 
     Optional<Recipe> findById(long id);
     boolean existsByName(String name);
+
+    // loads only the columns needed for pricing, in one query for all ids
+    @Query("select r.id as id, r.basePrice as price, r.name as name from Recipe r where r.id in :ids")
+    List<CatalogPrice> findPricesByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -2,6 +2,7 @@ package pizzeria.food.domain.recipe;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import pizzeria.food.domain.catalog.CatalogSnapshotCache;
 import pizzeria.food.domain.ingredient.IngredientNotFoundException;
 import pizzeria.food.domain.ingredient.IngredientRepository;
 import pizzeria.food.domain.ingredient.IngredientService;
@@ -11,19 +12,23 @@ public class RecipeService {
     private final transient RecipeRepository recipeRepository;
     private final transient IngredientRepository ingredientRepository;
     private final transient IngredientService ingredientService;
+    private final transient CatalogSnapshotCache snapshotCache;
 
     /**
      * Constructor for the RecipeService class that auto wires the required databases.
      * @param recipeRepository RecipeRepository in which we will perform all recipe related operations
      * @param ingredientRepository ingredientRepository that we use to check existence of ingredients
+     * @param snapshotCache CatalogSnapshotCache whose menu is outdated after every change
      */
     @Autowired
     public RecipeService(RecipeRepository recipeRepository,
                          IngredientRepository ingredientRepository,
-                         IngredientService ingredientService){
+                         IngredientService ingredientService,
+                         CatalogSnapshotCache snapshotCache){
         this.recipeRepository = recipeRepository;
         this.ingredientRepository = ingredientRepository;
         this.ingredientService = ingredientService;
+        this.snapshotCache = snapshotCache;
     }
 
     /**
@@ -42,6 +47,7 @@ public class RecipeService {
         }
         ingredientService.checkForIngredientsExistence(recipe.getBaseToppings());
         Recipe result = recipeRepository.save(recipe);
+        snapshotCache.invalidate();
         return result;
     }
 
@@ -62,7 +68,9 @@ public class RecipeService {
         ingredientService.checkForIngredientsExistence(recipe.getBaseToppings());
         if (recipeRepository.existsById(id)) {
             recipe.setId(id);
-            return recipeRepository.save(recipe);
+            Recipe result = recipeRepository.save(recipe);
+            snapshotCache.invalidate();
+            return result;
         }
         throw new RecipeNotFoundException();
     }
@@ -76,6 +84,7 @@ public class RecipeService {
     public boolean deleteFood(long id) throws RecipeNotFoundException {
         if (recipeRepository.existsById(id)) {
             recipeRepository.deleteById(id);
+            snapshotCache.invalidate();
             return true;
         }
         throw new RecipeNotFoundException();
@@ -2,6 +2,8 @@ package pizzeria.food.domain.recipe;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import pizzeria.food.domain.catalog.CatalogIds;
+import pizzeria.food.domain.catalog.CatalogPrice;
 import pizzeria.food.domain.ingredient.Ingredient;
 import pizzeria.food.domain.ingredient.IngredientNotFoundException;
 import pizzeria.food.domain.ingredient.IngredientRepository;
@@ -12,6 +14,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class RecipeServiceResponseInformation {
@@ -31,22 +35,21 @@ public class RecipeServiceResponseInformation {
     /**
      * @param ids List longs representing the ids of the recipes of which we want to get the prices
      * @return a list of doubles that are the prices of the recipes
-     * @throws RecipeNotFoundException thrown when one of the ids of the recipes was not in the database.
+     * @throws RecipeNotFoundException thrown when one of the ids of the recipes was not in the database,
+     * listing every id that was not found.
      */
-    @SuppressWarnings("PMD")
     public Map<Long, Tuple> getPrices(List<Long> ids) throws RecipeNotFoundException {
-        if (ids == null) {
+        if (ids == null || ids.isEmpty()) {
             return new HashMap<>();
         }
-
-        Map<Long, Tuple> prices = new HashMap<>(ids.size());
-        for (long id: ids){
-            if (recipeRepository.existsById(id)) {
-                Recipe recipe = recipeRepository.findById(id).get();
-                prices.put(id, new Tuple(recipe.getBasePrice(), recipe.getName()));
-            } else {
-                throw new RecipeNotFoundException("The Recipe with the id " + id + " was not found in the databases");
-            }
+        Set<Long> requested = CatalogIds.distinct(ids);
+        Map<Long, Tuple> prices = new HashMap<>(requested.size());
+        for (CatalogPrice price : recipeRepository.findPricesByIdIn(requested)) {
+            prices.put(price.getId(), new Tuple(price.getPrice(), price.getName()));
+        }
+        List<Long> missing = CatalogIds.missing(requested, prices.keySet());
+        if (!missing.isEmpty()) {
+            throw new RecipeNotFoundException(missing);
         }
         return prices;
     }
@@ -61,21 +64,28 @@ public class RecipeServiceResponseInformation {
     /**
      * given a recipe id return the associated ingredients
      * @param id long value representing the id of the recipe
-     * @return List of Ingredients representing the basetoppings that are fetched from the ingredientRepository
+     * @return List of Ingredients representing the basetoppings, fetched together with their allergens in one query
+     * @throws RecipeNotFoundException when the recipe is not stored in the database
+     * @throws IngredientNotFoundException when base toppings are not stored in the database, listing every missing id
      */
-    @SuppressWarnings("PMD")
     public List<Ingredient> getBaseToppings(long id) throws RecipeNotFoundException, IngredientNotFoundException {
-        if (recipeRepository.existsById(id)){
-            Recipe recipe = recipeRepository.findById(id).get();
-            List<Ingredient> baseToppings = new ArrayList<>();
-            ingredientService.checkForIngredientsExistence(recipe.getBaseToppings());
-
-            for (long ingredientId: recipe.getBaseToppings()){
-                baseToppings.add(ingredientRepository.findById(ingredientId).get());
-            }
-            return ingredientRepository.findAllById(recipe.getBaseToppings());
-        } else {
+        Optional<Recipe> recipe = recipeRepository.findById(id);
+        if (recipe.isEmpty()) {
             throw new RecipeNotFoundException("The Recipe with the id " + id + " was not found in the databases");
         }
+        Set<Long> requested = CatalogIds.distinct(recipe.get().getBaseToppings());
+        if (requested.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Ingredient> baseToppings = ingredientRepository.findAllWithAllergensByIdIn(requested);
+        List<Long> found = new ArrayList<>(baseToppings.size());
+        for (Ingredient ingredient : baseToppings) {
+            found.add(ingredient.getId());
+        }
+        List<Long> missing = CatalogIds.missing(requested, found);
+        if (!missing.isEmpty()) {
+            throw new IngredientNotFoundException(missing);
+        }
+        return baseToppings;
     }
 }
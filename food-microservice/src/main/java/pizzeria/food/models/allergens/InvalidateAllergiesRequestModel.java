@@ -0,0 +1,12 @@
+package pizzeria.food.models.allergens;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvalidateAllergiesRequestModel {
+    private String id;
+}
@@ -0,0 +1,21 @@
+package pizzeria.food.models.catalog;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pizzeria.food.domain.catalog.CatalogItemType;
+
+/**
+ * A single entry of the catalog change feed, the price is sent as a whole number of cents
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogChangeModel {
+    private long version;
+    private CatalogItemType type;
+    private long id;
+    private String name;
+    private long priceInMinorUnits;
+    private boolean deleted;
+}
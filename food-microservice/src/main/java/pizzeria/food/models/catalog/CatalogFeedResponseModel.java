@@ -0,0 +1,16 @@
+package pizzeria.food.models.catalog;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogFeedResponseModel {
+    private String epoch;
+    private long version;
+    private List<CatalogChangeModel> changes;
+}
@@ -1,13 +1,48 @@
 package pizzeria.food.models.prices;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import pizzeria.commons.money.Money;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class Tuple {
-    private double price;
+    @JsonProperty("price")
+    private Money price = Money.ZERO;
     private String name;
+
+    /**
+     * @param price the price of the recipe/ingredient in euros
+     * @param name the name of the recipe/ingredient
+     */
+    public Tuple(double price, String name) {
+        this(Money.of(price), name);
+    }
+
+    /**
+     * @param price the price of the recipe/ingredient
+     * @param name the name of the recipe/ingredient
+     */
+    public Tuple(Money price, String name) {
+        this.price = price;
+        this.name = name;
+    }
+
+    /**
+     * @return the price in euros
+     */
+    @JsonIgnore
+    public double getPrice() {
+        return price.toDouble();
+    }
+
+    /**
+     * @param price the price in euros, rounded to the nearest cent
+     */
+    @JsonIgnore
+    public void setPrice(double price) {
+        this.price = Money.of(price);
+    }
 }
@@ -1,116 +0,0 @@
-package pizzeria.food.authentication;
-
-import io.jsonwebtoken.*;
-import org.assertj.core.api.ThrowableAssert;
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
-
-import java.lang.reflect.Field;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
-
-import static org.assertj.core.api.Assertions.assertThat;
-import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-
-public class JwtTokenVerifierTests {
-    private transient JwtTokenVerifier jwtTokenVerifier;
-
-    private final String secret = "testSecret123";
-
-    @BeforeEach
-    public void setup() throws NoSuchFieldException, IllegalAccessException {
-        jwtTokenVerifier = new JwtTokenVerifier();
-        this.injectSecret(secret);
-    }
-
-    @Test
-    public void validateNonExpiredToken() {
-        // Arrange
-        String token = generateToken(secret, "user123", -10_000_000, 10_000_000);
-
-        // Act
-        boolean actual = jwtTokenVerifier.validateToken(token);
-
-        // Assert
-        assertThat(actual).isTrue();
-    }
-
-    @Test
-    public void validateExpiredToken() {
-        // Arrange
-        String token = generateToken(secret, "user123", -10_000_000, -5_000_000);
-
-        // Act
-        ThrowableAssert.ThrowingCallable action = () -> jwtTokenVerifier.validateToken(token);
-
-        // Assert
-        assertThatExceptionOfType(ExpiredJwtException.class)
-                .isThrownBy(action);
-    }
-
-    @Test
-    public void validateTokenIncorrectSignature() {
-        // Arrange
-        String token = generateToken("incorrectSecret", "user123", -10_000_000, 10_000_000);
-
-        // Act
-        ThrowableAssert.ThrowingCallable action = () -> jwtTokenVerifier.validateToken(token);
-
-        // Assert
-        assertThatExceptionOfType(SignatureException.class)
-                .isThrownBy(action);
-    }
-
-    @Test
-    public void validateMalformedToken() {
-        // Arrange
-        String token = "malformedtoken";
-
-        // Act
-        ThrowableAssert.ThrowingCallable action = () -> jwtTokenVerifier.validateToken(token);
-
-        // Assert
-        assertThatExceptionOfType(MalformedJwtException.class)
-                .isThrownBy(action);
-    }
-
-    @Test
-    public void parseNetid() {
-        // Arrange
-        String expected = "user123";
-        String token = generateToken(secret, expected, -10_000_000, 10_000_000);
-
-        // Act
-        String actual = jwtTokenVerifier.getNetIdFromToken(token);
-
-        // Assert
-        assertThat(actual).isEqualTo(expected);
-    }
-
-    @Test
-    public void getRoleFromToken(){
-        Map<String, Object> claims = new HashMap<>();
-        claims.put("role", "ROLE_MANAGER");
-        String token = Jwts.builder().setClaims(claims)
-                .setIssuedAt(new Date(System.currentTimeMillis() + 1000))
-                .setExpiration(new Date(System.currentTimeMillis() + 10000))
-                .signWith(SignatureAlgorithm.HS512, secret).compact();
-        assertEquals("ROLE_MANAGER", jwtTokenVerifier.getRoleFromToken(token).toArray()[0].toString());
-    }
-
-    private String generateToken(String jwtSecret, String netid, long issuanceOffset, long expirationOffset) {
-        Map<String, Object> claims = new HashMap<>();
-        return Jwts.builder().setClaims(claims).setSubject(netid)
-                .setIssuedAt(new Date(System.currentTimeMillis() + issuanceOffset))
-                .setExpiration(new Date(System.currentTimeMillis() + expirationOffset))
-                .signWith(SignatureAlgorithm.HS512, jwtSecret).compact();
-    }
-
-    private void injectSecret(String secret) throws NoSuchFieldException, IllegalAccessException {
-        Field declaredField = jwtTokenVerifier.getClass().getDeclaredField("jwtSecret");
-        declaredField.setAccessible(true);
-        declaredField.set(jwtTokenVerifier, secret);
-    }
-}
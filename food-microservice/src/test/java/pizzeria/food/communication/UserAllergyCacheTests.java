@@ -0,0 +1,127 @@
+package pizzeria.food.communication;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class UserAllergyCacheTests {
+    private transient Clock clock;
+
+    @BeforeEach
+    void setUp() {
+        clock = Mockito.mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+    }
+
+    @Test
+    void cachedAllergies_areReturned() {
+        UserAllergyCache cache = new UserAllergyCache(10, 1000, clock);
+
+        cache.put("user", List.of("gluten"), cache.generation());
+
+        assertThat(cache.get("user")).contains(List.of("gluten"));
+        assertThat(cache.get("other")).isEmpty();
+    }
+
+    @Test
+    void allergies_expireAfterTimeToLive() {
+        UserAllergyCache cache = new UserAllergyCache(10, 1000, clock);
+        cache.put("user", List.of("gluten"), cache.generation());
+
+        when(clock.millis()).thenReturn(999L);
+        assertThat(cache.get("user")).isPresent();
+        when(clock.millis()).thenReturn(1000L);
+        assertThat(cache.get("user")).isEmpty();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    void expiredAllergies_areKeptAsStaleDuringGracePeriod() {
+        UserAllergyCache cache = new UserAllergyCache(10, 1000, 500, clock);
+        cache.put("user", List.of("gluten"), cache.generation());
+
+        when(clock.millis()).thenReturn(1200L);
+        assertThat(cache.get("user")).isEmpty();
+        assertThat(cache.getStale("user")).contains(List.of("gluten"));
+        assertThat(cache.getStale("other")).isEmpty();
+
+        when(clock.millis()).thenReturn(1500L);
+        assertThat(cache.getStale("user")).isEmpty();
+        assertThat(cache.get("user")).isEmpty();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    void leastRecentlyUsedUser_isEvictedWhenFull() {
+        UserAllergyCache cache = new UserAllergyCache(2, 1000, clock);
+        cache.put("first", List.of(), cache.generation());
+        cache.put("second", List.of(), cache.generation());
+
+        cache.get("first");
+        cache.put("third", List.of(), cache.generation());
+
+        assertThat(cache.get("second")).isEmpty();
+        assertThat(cache.get("first")).isPresent();
+        assertThat(cache.get("third")).isPresent();
+    }
+
+    @Test
+    void invalidate_removesUser() {
+        UserAllergyCache cache = new UserAllergyCache(10, 1000, clock);
+        cache.put("user", List.of("gluten"), cache.generation());
+
+        cache.invalidate("user");
+        cache.invalidate("unknown");
+
+        assertThat(cache.get("user")).isEmpty();
+    }
+
+    @Test
+    void allergiesAskedForBeforeAnInvalidation_areNotStored() {
+        UserAllergyCache cache = new UserAllergyCache(10, 1000, 500, clock);
+
+        // a request misses the cache and asks the user microservice
+        assertThat(cache.get("user")).isEmpty();
+        long askedAt = cache.generation();
+        // the user adds an allergy before the answer arrives
+        cache.invalidate("user");
+        cache.put("user", List.of(), askedAt);
+
+        assertThat(cache.get("user")).isEmpty();
+        assertThat(cache.getStale("user")).isEmpty();
+
+        // the next request asks after the invalidation, so its answer is stored
+        cache.put("user", List.of("gluten"), cache.generation());
+        assertThat(cache.get("user")).contains(List.of("gluten"));
+    }
+
+    @Test
+    void allergiesOfOtherUsers_areStoredAfterAnInvalidation() {
+        UserAllergyCache cache = new UserAllergyCache(10, 1000, clock);
+        long askedAt = cache.generation();
+
+        cache.invalidate("other");
+        cache.put("user", List.of("gluten"), askedAt);
+
+        assertThat(cache.get("user")).contains(List.of("gluten"));
+    }
+
+    @Test
+    void allergiesAskedForBeforeAForgottenInvalidation_areNotStored() {
+        UserAllergyCache cache = new UserAllergyCache(1, 1000, clock);
+        long askedAt = cache.generation();
+
+        cache.invalidate("user");
+        // only one invalidation is remembered, the one of user is forgotten
+        cache.invalidate("other");
+        cache.put("user", List.of(), askedAt);
+
+        assertThat(cache.get("user")).isEmpty();
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import pizzeria.food.communication.HttpRequestService;
+import pizzeria.food.communication.UserAllergyCache;
 import pizzeria.food.domain.Allergens.AllergenService;
 import pizzeria.food.domain.ingredient.IngredientNotFoundException;
 import pizzeria.food.domain.recipe.Recipe;
@@ -18,8 +19,10 @@ import pizzeria.food.domain.recipe.RecipeNotFoundException;
 import pizzeria.food.models.allergens.CheckIfRecipeIsSafeRequestModel;
 import pizzeria.food.models.allergens.FilterMenuRequestModel;
 import pizzeria.food.models.allergens.FilterMenuResponseModel;
+import pizzeria.food.models.allergens.InvalidateAllergiesRequestModel;
 
 
+import java.time.Clock;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +30,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
@@ -36,12 +41,14 @@ class AllergenControllerTest {
     private transient AllergenController allergenController;
     private transient AllergenService allergenService;
     private transient HttpRequestService requestService;
+    private transient UserAllergyCache userAllergyCache;
 
     @BeforeEach
     void setUp(){
         allergenService = Mockito.mock(AllergenService.class);
         requestService = Mockito.mock(HttpRequestService.class);
-        allergenController = new AllergenController(allergenService, requestService);
+        userAllergyCache = new UserAllergyCache(10, 60_000, Clock.systemUTC());
+        allergenController = new AllergenController(allergenService, requestService, userAllergyCache);
     }
 
     @Test
@@ -162,4 +169,25 @@ class AllergenControllerTest {
             fail();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void filterMenu_asksTheServiceOnce() throws IngredientNotFoundException {
+        when(allergenService.filterMenu("a")).thenReturn(new FilterMenuResponseModel(List.of()));
+
+        allergenController.filterMenu("a");
+
+        verify(allergenService, times(1)).filterMenu("a");
+    }
+
+    @Test
+    void invalidateAllergies_removesCachedUser() {
+        userAllergyCache.put("user", List.of("gluten"), userAllergyCache.generation());
+        userAllergyCache.put("other", List.of("lactose"), userAllergyCache.generation());
+
+        ResponseEntity<Void> response = allergenController.invalidateAllergies(new InvalidateAllergiesRequestModel("user"));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertThat(userAllergyCache.get("user")).isEmpty();
+        assertThat(userAllergyCache.get("other")).contains(List.of("lactose"));
+    }
+}
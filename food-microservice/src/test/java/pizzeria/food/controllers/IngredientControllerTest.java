@@ -1,5 +1,6 @@
 package pizzeria.food.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,9 +11,13 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import pizzeria.food.domain.catalog.CatalogSnapshotCache;
 import pizzeria.food.domain.ingredient.*;
+import pizzeria.food.domain.recipe.RecipeRepository;
+import pizzeria.food.integration.utils.JsonUtil;
 import pizzeria.food.models.ingredient.*;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -30,11 +35,15 @@ import static org.mockito.Mockito.when;
 class IngredientControllerTest {
     private transient IngredientController ingredientController;
     private transient IngredientService ingredientService;
+    private transient IngredientRepository ingredientRepository;
 
     @BeforeEach
     void setUp(){
         ingredientService = Mockito.mock(IngredientService.class);
-        ingredientController = new IngredientController(ingredientService);
+        ingredientRepository = Mockito.mock(IngredientRepository.class);
+        CatalogSnapshotCache snapshotCache = new CatalogSnapshotCache(Mockito.mock(RecipeRepository.class),
+                ingredientRepository, new ObjectMapper());
+        ingredientController = new IngredientController(ingredientService, snapshotCache);
     }
     @Test
     void saveIngredient() {
@@ -166,16 +175,20 @@ class IngredientControllerTest {
     }
 
     @Test
-    void getExtraToppingsSet() {
+    void getExtraToppingsSet() throws Exception {
         Ingredient ingredient1 = new Ingredient("Test1", 12.0, List.of("gluten", "lactose"));
         Ingredient ingredient2 = new Ingredient("Test2", 5.0, List.of("gluten", "lactose", "egg"));
         Ingredient ingredient3 = new Ingredient("Test3", 7.0, List.of("egg"));
         Ingredient ingredient4 = new Ingredient("Test4", 3.0, List.of("gluten", "egg"));
 
         List<Ingredient> extraToppingsSet = List.of(ingredient1, ingredient2, ingredient3, ingredient4);
-        when(ingredientService.getToppingsList()).thenReturn(extraToppingsSet);
-        ResponseEntity<ExtraToppingsResponseModel> response = ingredientController.getExtraToppingsSet();
-        assertThat(response.getBody().getIngredients()).containsExactlyElementsOf(extraToppingsSet);
+        when(ingredientRepository.findAll()).thenReturn(extraToppingsSet);
+        ResponseEntity<byte[]> response = ingredientController.getExtraToppingsSet(null, null);
+        ExtraToppingsResponseModel body = JsonUtil.deserialize(new String(response.getBody(), StandardCharsets.UTF_8),
+                ExtraToppingsResponseModel.class);
+        assertThat(body.getIngredients()).extracting(Ingredient::getName)
+                .containsExactly("Test1", "Test2", "Test3", "Test4");
+        assertThat(response.getHeaders().getETag()).isNotNull();
 
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package pizzeria.food.controllers;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,17 +12,25 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import pizzeria.food.domain.catalog.CatalogSnapshotCache;
 import pizzeria.food.domain.ingredient.Ingredient;
 import pizzeria.food.domain.ingredient.IngredientNotFoundException;
+import pizzeria.food.domain.ingredient.IngredientRepository;
 import pizzeria.food.domain.recipe.*;
+import pizzeria.food.integration.utils.JsonUtil;
 import pizzeria.food.models.ingredient.GetBaseToppingsRequestModel;
 import pizzeria.food.models.ingredient.GetBaseToppingsResponseModel;
 import pizzeria.food.models.recipe.*;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
@@ -30,12 +40,16 @@ class RecipeControllerTest {
     private transient RecipeController recipeController;
     private transient RecipeService recipeService;
     private transient RecipeServiceResponseInformation recipeServiceResponseInformation;
+    private transient RecipeRepository recipeRepository;
+    private transient CatalogSnapshotCache snapshotCache;
 
     @BeforeEach
     void setUp(){
         recipeService = Mockito.mock(RecipeService.class);
         recipeServiceResponseInformation = Mockito.mock(RecipeServiceResponseInformation.class);
-        recipeController = new RecipeController(recipeService, recipeServiceResponseInformation);
+        recipeRepository = Mockito.mock(RecipeRepository.class);
+        snapshotCache = new CatalogSnapshotCache(recipeRepository, Mockito.mock(IngredientRepository.class), new ObjectMapper());
+        recipeController = new RecipeController(recipeService, recipeServiceResponseInformation, snapshotCache);
     }
     @Test
     void saveFood() {
@@ -223,13 +237,58 @@ class RecipeControllerTest {
         recipe.setId(1L);
         Recipe recipe2 = new Recipe("Test2", List.of(1L, 55L, 3L), 12.0);
         recipe2.setId(2L);
-        when(recipeServiceResponseInformation.getMenu()).thenReturn(List.of(recipe, recipe2));
-        ResponseEntity<MenuResponseModel> response = recipeController.getMenu();
+        when(recipeRepository.findAll()).thenReturn(List.of(recipe, recipe2));
+        ResponseEntity<byte[]> response = recipeController.getMenu(null, null);
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
-        assertThat(response.getBody().getMenu()).isEqualTo(List.of(recipe, recipe2));
+        assertThat(menuOf(response.getBody()).getMenu()).isEqualTo(List.of(recipe, recipe2));
 
     }
 
+    @Test
+    void getMenu_servedFromSnapshotUntilInvalidated() throws Exception {
+        Recipe recipe = new Recipe("Test", List.of(1L, 55L, 3L), 12.0);
+        recipe.setId(1L);
+        when(recipeRepository.findAll()).thenReturn(List.of(recipe));
+
+        String etag = recipeController.getMenu(null, null).getHeaders().getETag();
+        recipeController.getMenu(null, null);
+        verify(recipeRepository, times(1)).findAll();
+
+        ResponseEntity<byte[]> notModified = recipeController.getMenu(etag, null);
+        assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(notModified.getBody()).isNull();
+
+        snapshotCache.invalidate();
+        ResponseEntity<byte[]> changed = recipeController.getMenu(etag, null);
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getHeaders().getETag()).isNotEqualTo(etag);
+        verify(recipeRepository, times(2)).findAll();
+    }
+
+    @Test
+    void getMenu_gzipWhenAccepted() throws Exception {
+        Recipe recipe = new Recipe("Test", List.of(1L, 55L, 3L), 12.0);
+        recipe.setId(1L);
+        when(recipeRepository.findAll()).thenReturn(List.of(recipe));
+
+        ResponseEntity<byte[]> response = recipeController.getMenu(null, "deflate, gzip;q=0.8");
+
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+            assertThat(menuOf(in.readAllBytes()).getMenu()).isEqualTo(List.of(recipe));
+        }
+        assertThat(recipeController.getMenu(null, "gzip;q=0").getHeaders()
+                .containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+    }
+
+    private static MenuResponseModel menuOf(byte[] json) {
+        try {
+            return JsonUtil.deserialize(new String(json, StandardCharsets.UTF_8), MenuResponseModel.class);
+        } catch (JsonProcessingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     @Test
     void getBaseToppings(){
         long id = 1L;
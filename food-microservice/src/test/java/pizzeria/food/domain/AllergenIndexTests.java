@@ -0,0 +1,104 @@
+package pizzeria.food.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import pizzeria.food.domain.Allergens.AllergenIndex;
+import pizzeria.food.domain.ingredient.Ingredient;
+import pizzeria.food.domain.ingredient.IngredientNotFoundException;
+import pizzeria.food.domain.ingredient.IngredientRepository;
+import pizzeria.food.domain.recipe.Recipe;
+import pizzeria.food.domain.recipe.RecipeNotFoundException;
+import pizzeria.food.domain.recipe.RecipeRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+// activate profiles to have spring use mocks during auto-injection of certain beans.
+@ActiveProfiles({"test"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class AllergenIndexTests {
+    @Autowired
+    private transient AllergenIndex allergenIndex;
+
+    @Autowired
+    private transient IngredientRepository ingredientRepository;
+
+    @Autowired
+    private transient RecipeRepository recipeRepository;
+
+    @Test
+    void updatedIngredient_changesMaskOfItsRecipes() throws Exception {
+        Ingredient ingredient = ingredientRepository.save(new Ingredient("cheese", 1.5, new ArrayList<>(List.of("lactose"))));
+        Recipe recipe = recipeRepository.save(new Recipe("margherita", List.of(ingredient.getId()), 8.0));
+        assertThat(allergenIndex.isSafe(recipe.getId(), allergenIndex.maskOf(List.of("gluten")))).isTrue();
+
+        ingredient.setAllergens(new ArrayList<>(List.of("lactose", "gluten")));
+        ingredientRepository.save(ingredient);
+
+        assertThat(allergenIndex.isSafe(recipe.getId(), allergenIndex.maskOf(List.of("gluten")))).isFalse();
+        assertThat(allergenIndex.safeRecipes(allergenIndex.maskOf(List.of("gluten")))).isEmpty();
+    }
+
+    @Test
+    void deletedIngredient_makesItsRecipesUnresolved() {
+        Ingredient ingredient = ingredientRepository.save(new Ingredient("cheese", 1.5, List.of("lactose")));
+        Recipe recipe = recipeRepository.save(new Recipe("margherita", List.of(ingredient.getId()), 8.0));
+
+        ingredientRepository.deleteById(ingredient.getId());
+
+        assertThrows(IngredientNotFoundException.class,
+                () -> allergenIndex.isSafe(recipe.getId(), allergenIndex.maskOf(List.of())));
+    }
+
+    @Test
+    void deletedRecipe_isRemovedFromTheIndex() throws Exception {
+        Ingredient ingredient = ingredientRepository.save(new Ingredient("cheese", 1.5, List.of("lactose")));
+        Recipe recipe = recipeRepository.save(new Recipe("margherita", List.of(ingredient.getId()), 8.0));
+
+        recipeRepository.deleteById(recipe.getId());
+
+        assertThat(allergenIndex.safeRecipes(allergenIndex.maskOf(List.of()))).isEmpty();
+        assertThrows(RecipeNotFoundException.class,
+                () -> allergenIndex.isSafe(recipe.getId(), allergenIndex.maskOf(List.of())));
+    }
+
+    @Test
+    void allergensBeyondTheFirstWord_areIndexed() throws Exception {
+        List<String> many = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            many.add("Al" + i);
+        }
+        Ingredient plain = ingredientRepository.save(new Ingredient("dough", 1.0, many.subList(0, 70)));
+        Ingredient rare = ingredientRepository.save(new Ingredient("truffle", 9.0, many.subList(70, 100)));
+        recipeRepository.save(new Recipe("plain", List.of(plain.getId()), 8.0));
+        recipeRepository.save(new Recipe("special", List.of(plain.getId(), rare.getId()), 20.0));
+
+        assertThat(allergenIndex.getAllergenCount()).isEqualTo(100);
+        assertThat(allergenIndex.safeRecipes(allergenIndex.maskOf(List.of("Al99"))))
+                .extracting(Recipe::getName).containsExactly("plain");
+        assertThat(allergenIndex.safeRecipes(allergenIndex.maskOf(List.of("Al100"))))
+                .extracting(Recipe::getName).containsExactly("plain", "special");
+    }
+
+    @Test
+    void seed_indexesStoredItems() throws Exception {
+        Ingredient ingredient = ingredientRepository.save(new Ingredient("cheese", 1.5, List.of("lactose")));
+        Recipe recipe = recipeRepository.save(new Recipe("margherita", List.of(ingredient.getId()), 8.0));
+
+        AllergenIndex fresh = new AllergenIndex(recipeRepository, ingredientRepository);
+        fresh.seed();
+
+        assertThat(fresh.isSafe(recipe.getId(), fresh.maskOf(List.of("lactose")))).isFalse();
+        assertThat(fresh.isSafe(List.of(ingredient.getId()), fresh.maskOf(List.of("gluten")))).isTrue();
+    }
+}
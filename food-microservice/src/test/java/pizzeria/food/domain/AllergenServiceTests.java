@@ -2,12 +2,17 @@ package pizzeria.food.domain;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import pizzeria.food.authentication.AuthManager;
+import pizzeria.food.communication.HttpRequestService;
+import pizzeria.food.communication.UserAllergyCache;
+import pizzeria.food.domain.Allergens.AllergenIndex;
 import pizzeria.food.domain.Allergens.AllergenService;
 import pizzeria.food.domain.ingredient.Ingredient;
 import pizzeria.food.domain.ingredient.IngredientNotFoundException;
@@ -16,9 +21,13 @@ import pizzeria.food.domain.recipe.Recipe;
 import pizzeria.food.domain.recipe.RecipeNotFoundException;
 import pizzeria.food.domain.recipe.RecipeRepository;
 
+import java.time.Clock;
 import java.util.List;
+import java.util.Optional;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
 
 @SpringBootTest
 @ExtendWith(SpringExtension.class)
@@ -34,6 +43,26 @@ public class AllergenServiceTests {
     private transient RecipeRepository recipeRepository;
     @Autowired
     private transient AllergenService allergenService;
+    @Autowired
+    private transient AllergenIndex allergenIndex;
+
+    @Test
+    void filterMenu_doesNotCacheAllergiesThatChangedWhileTheyWereAskedFor() throws Exception {
+        HttpRequestService requestService = Mockito.mock(HttpRequestService.class);
+        AuthManager authManager = Mockito.mock(AuthManager.class);
+        UserAllergyCache cache = new UserAllergyCache(10, 60_000, Clock.systemUTC());
+        AllergenService service = new AllergenService(allergenIndex, requestService, cache, authManager);
+        when(authManager.getNetId()).thenReturn("user");
+        // the user adds an allergy while the allergies without it are on their way
+        when(requestService.getUserAllergens("token")).thenAnswer(invocation -> {
+            cache.invalidate("user");
+            return Optional.of(List.<String>of());
+        });
+
+        service.filterMenu("token");
+
+        assertThat(cache.get("user")).isEmpty();
+    }
 
     @Test
     void filterMenuOnAllergens() {
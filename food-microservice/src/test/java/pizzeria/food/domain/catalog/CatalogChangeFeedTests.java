@@ -0,0 +1,166 @@
+package pizzeria.food.domain.catalog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pizzeria.food.domain.ingredient.Ingredient;
+import pizzeria.food.domain.ingredient.IngredientRepository;
+import pizzeria.food.domain.recipe.Recipe;
+import pizzeria.food.domain.recipe.RecipeRepository;
+import pizzeria.food.models.catalog.CatalogChangeModel;
+import pizzeria.food.models.catalog.CatalogFeedResponseModel;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@ExtendWith(SpringExtension.class)
+// activate profiles to have spring use mocks during auto-injection of certain beans.
+@ActiveProfiles({"test"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class CatalogChangeFeedTests {
+
+    @Autowired
+    private transient CatalogChangeFeed feed;
+
+    @Autowired
+    private transient RecipeRepository recipeRepository;
+
+    @Autowired
+    private transient IngredientRepository ingredientRepository;
+
+    @Autowired
+    private transient PlatformTransactionManager transactionManager;
+
+    @Test
+    void savedItems_appearInSnapshot() {
+        Ingredient ingredient = ingredientRepository.save(new Ingredient("cheese", 1.5));
+        Recipe recipe = recipeRepository.save(new Recipe("margherita", List.of(ingredient.getId()), 8.0));
+
+        CatalogFeedResponseModel snapshot = feed.snapshot();
+
+        assertThat(snapshot.getEpoch()).isEqualTo(feed.getEpoch());
+        assertThat(snapshot.getVersion()).isEqualTo(feed.getVersion());
+        assertThat(snapshot.getChanges()).extracting(CatalogChangeModel::getType, CatalogChangeModel::getId)
+                .contains(tuple(CatalogItemType.INGREDIENT, ingredient.getId()),
+                        tuple(CatalogItemType.RECIPE, recipe.getId()));
+    }
+
+    @Test
+    void prices_areSentAsCents() throws Exception {
+        ingredientRepository.save(new Ingredient("cheese", 1.15));
+
+        String json = new ObjectMapper().writeValueAsString(feed.snapshot());
+
+        assertThat(json).contains("\"priceInMinorUnits\":115").doesNotContain("1.15");
+    }
+
+    @Test
+    void changesSince_onlyReturnsNewerChanges() {
+        Ingredient ingredient = ingredientRepository.save(new Ingredient("cheese", 1.5));
+        long version = feed.getVersion();
+
+        ingredient.setPrice(2.0);
+        ingredientRepository.save(ingredient);
+
+        CatalogFeedResponseModel changes = feed.changesSince(version);
+        assertThat(changes.getChanges()).hasSize(1);
+        assertThat(changes.getChanges().get(0).getPriceInMinorUnits()).isEqualTo(200);
+        assertThat(changes.getChanges().get(0).getVersion()).isGreaterThan(version);
+        assertThat(feed.changesSince(feed.getVersion()).getChanges()).isEmpty();
+    }
+
+    @Test
+    void olderChangesOfAnItem_areCompacted() {
+        Ingredient ingredient = ingredientRepository.save(new Ingredient("cheese", 1.5));
+        long version = feed.getVersion() - 1;
+        for (int i = 0; i < 5; i++) {
+            ingredient.setPrice(i);
+            ingredientRepository.save(ingredient);
+        }
+
+        List<CatalogChangeModel> changes = feed.changesSince(version).getChanges();
+        assertThat(changes).hasSize(1);
+        assertThat(changes.get(0).getPriceInMinorUnits()).isEqualTo(400);
+    }
+
+    @Test
+    void deletedItems_areTombstones() {
+        Recipe recipe = recipeRepository.save(new Recipe("margherita", List.of(), 8.0));
+        long version = feed.getVersion();
+
+        recipeRepository.delete(recipe);
+
+        List<CatalogChangeModel> changes = feed.changesSince(version).getChanges();
+        assertThat(changes).hasSize(1);
+        assertThat(changes.get(0).isDeleted()).isTrue();
+        assertThat(changes.get(0).getId()).isEqualTo(recipe.getId());
+        assertThat(feed.snapshot().getChanges()).noneMatch(c -> c.getId() == recipe.getId()
+                && c.getType() == CatalogItemType.RECIPE);
+    }
+
+    @Test
+    void rolledBackWrites_areNotPublished() {
+        long version = feed.getVersion();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            ingredientRepository.saveAndFlush(new Ingredient("truffle", 9.5));
+            status.setRollbackOnly();
+        });
+
+        assertThat(feed.getVersion()).isEqualTo(version);
+        assertThat(feed.changesSince(version).getChanges()).isEmpty();
+    }
+
+    @Test
+    void committedWrites_arePublishedAfterCommit() {
+        long version = feed.getVersion();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            ingredientRepository.saveAndFlush(new Ingredient("truffle", 9.5));
+            // flushed, but not committed yet
+            assertThat(feed.getVersion()).isEqualTo(version);
+        });
+
+        assertThat(feed.changesSince(version).getChanges()).hasSize(1);
+    }
+
+    @Test
+    void changeAppliedAfterANewerOne_keepsTheCommittedRow() {
+        Ingredient ingredient = ingredientRepository.save(new Ingredient("cheese", 1.5));
+        long version = feed.getVersion();
+        ingredient.setPrice(2.0);
+        ingredientRepository.save(ingredient);
+
+        // the listener of the first save runs last, as it can when both transactions commit at the same time
+        feed.onCatalogChanged(new CatalogChangedEvent(CatalogItemType.INGREDIENT, ingredient.getId(), "cheese", 150, false));
+
+        List<CatalogChangeModel> changes = feed.changesSince(version).getChanges();
+        assertThat(changes).hasSize(1);
+        assertThat(changes.get(0).getPriceInMinorUnits()).isEqualTo(200);
+    }
+
+    @Test
+    void changeAppliedAfterADelete_staysATombstone() {
+        Recipe recipe = recipeRepository.save(new Recipe("margherita", List.of(), 8.0));
+        recipeRepository.delete(recipe);
+        long version = feed.getVersion();
+
+        feed.onCatalogChanged(new CatalogChangedEvent(CatalogItemType.RECIPE, recipe.getId(), "margherita", 800, false));
+
+        List<CatalogChangeModel> changes = feed.changesSince(version).getChanges();
+        assertThat(changes).hasSize(1);
+        assertThat(changes.get(0).isDeleted()).isTrue();
+        assertThat(feed.snapshot().getChanges()).noneMatch(c -> c.getId() == recipe.getId()
+                && c.getType() == CatalogItemType.RECIPE);
+    }
+}
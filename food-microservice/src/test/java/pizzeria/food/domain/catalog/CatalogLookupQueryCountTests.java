@@ -0,0 +1,116 @@
+package pizzeria.food.domain.catalog;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import pizzeria.food.domain.ingredient.Ingredient;
+import pizzeria.food.domain.ingredient.IngredientRepository;
+import pizzeria.food.domain.ingredient.IngredientService;
+import pizzeria.food.domain.recipe.Recipe;
+import pizzeria.food.domain.recipe.RecipeNotFoundException;
+import pizzeria.food.domain.recipe.RecipeRepository;
+import pizzeria.food.domain.recipe.RecipeServiceResponseInformation;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that resolving the ids of an order costs the same number of queries, whatever the size of the order.
+ * The latency per order size is measured by the CatalogLookupBenchmark of the benchmarks module.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ExtendWith(SpringExtension.class)
+// activate profiles to have spring use mocks during auto-injection of certain beans.
+@ActiveProfiles({"test"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class CatalogLookupQueryCountTests {
+    private static final int[] ORDER_SIZES = {1, 10, 50};
+
+    @Autowired
+    private transient IngredientRepository ingredientRepository;
+
+    @Autowired
+    private transient RecipeRepository recipeRepository;
+
+    @Autowired
+    private transient IngredientService ingredientService;
+
+    @Autowired
+    private transient RecipeServiceResponseInformation recipeServiceResponseInformation;
+
+    @Autowired
+    private transient EntityManagerFactory entityManagerFactory;
+
+    private transient Statistics statistics;
+    private transient List<Long> ingredientIds;
+    private transient List<Long> recipeIds;
+
+    @BeforeEach
+    void setup() {
+        ingredientIds = new ArrayList<>();
+        recipeIds = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ingredientIds.add(ingredientRepository.save(
+                    new Ingredient("ingredient" + i, 1.0 + i, new ArrayList<>(List.of("allergen" + i)))).getId());
+        }
+        for (int i = 0; i < 50; i++) {
+            recipeIds.add(recipeRepository.save(new Recipe("recipe" + i, ingredientIds, 10.0 + i)).getId());
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void getPrices_usesOneQueryForEveryOrderSize() throws Exception {
+        for (int size : ORDER_SIZES) {
+            statistics.clear();
+            assertThat(recipeServiceResponseInformation.getPrices(recipeIds.subList(0, size))).hasSize(size);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void getDetails_usesOneQueryForEveryOrderSize() throws Exception {
+        for (int size : ORDER_SIZES) {
+            statistics.clear();
+            assertThat(ingredientService.getDetails(ingredientIds.subList(0, size))).hasSize(size);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void checkForIngredientsExistence_usesOneQuery() throws Exception {
+        statistics.clear();
+        ingredientService.checkForIngredientsExistence(ingredientIds);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getBaseToppings_fetchesToppingsAndAllergensTogether() throws Exception {
+        statistics.clear();
+        List<Ingredient> toppings = recipeServiceResponseInformation.getBaseToppings(recipeIds.get(0));
+        assertThat(toppings).extracting(Ingredient::getId).containsExactlyElementsOf(ingredientIds);
+        assertThat(toppings.get(49).getAllergens()).containsExactly("allergen49");
+        // one query for the recipe, one for the toppings with their allergens
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void getPrices_reportsEveryMissingId() {
+        long missing1 = recipeIds.get(49) + 1;
+        long missing2 = recipeIds.get(49) + 2;
+        RecipeNotFoundException exception = assertThrows(RecipeNotFoundException.class, () ->
+                recipeServiceResponseInformation.getPrices(List.of(missing2, recipeIds.get(0), missing1)));
+        assertThat(exception.getMissingIds()).containsExactly(missing2, missing1);
+    }
+}
@@ -2,6 +2,8 @@ package pizzeria.food.domain.ingredient;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class IngredientNotFoundExceptionTest {
@@ -34,4 +36,18 @@ class IngredientNotFoundExceptionTest {
             assertEquals("The ingredient was not found in the database", e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testConstructorWithMissingIds(){
+        IngredientNotFoundException ingredientNotFoundException = new IngredientNotFoundException(List.of(4L, 7L));
+        assertEquals(List.of(4L, 7L), ingredientNotFoundException.getMissingIds());
+        assertEquals("The Ingredients with ids [4, 7] were not found in the database", ingredientNotFoundException.getMessage());
+    }
+
+    @Test
+    void testConstructorWithOneMissingId(){
+        IngredientNotFoundException ingredientNotFoundException = new IngredientNotFoundException(List.of(4L));
+        assertEquals(List.of(4L), ingredientNotFoundException.getMissingIds());
+        assertEquals("The Ingredient with id 4 was not found in the database", ingredientNotFoundException.getMessage());
+    }
+}
@@ -157,6 +157,16 @@ public class IngredientServiceTests {
         });
     }
 
+    @Test
+    void getDetailsReportsAllMissingIds(){
+        repo.save(new Ingredient("test", 1.0, new ArrayList<>()));
+        repo.save(new Ingredient("test1", 2.0, new ArrayList<>()));
+        IngredientNotFoundException exception = assertThrows(IngredientNotFoundException.class, () -> {
+            ingredientService.getDetails(List.of(9L, 1L, 7L, 9L));
+        });
+        assertThat(exception.getMissingIds()).containsExactly(9L, 7L);
+    }
+
     @Test
     void getDetails2() {
         repo.save(new Ingredient("test", 1.0, new ArrayList<>()));
@@ -2,6 +2,8 @@ package pizzeria.food.domain.recipe;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class RecipeNotFoundExceptionTest {
@@ -33,4 +35,18 @@ class RecipeNotFoundExceptionTest {
             assertEquals("The recipe could not be found in the database", e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testConstructorWithMissingIds(){
+        RecipeNotFoundException recipeNotFoundException = new RecipeNotFoundException(List.of(4L, 7L));
+        assertEquals(List.of(4L, 7L), recipeNotFoundException.getMissingIds());
+        assertEquals("The Recipes with ids [4, 7] were not found in the database", recipeNotFoundException.getMessage());
+    }
+
+    @Test
+    void testConstructorWithOneMissingId(){
+        RecipeNotFoundException recipeNotFoundException = new RecipeNotFoundException(List.of(4L));
+        assertEquals(List.of(4L), recipeNotFoundException.getMissingIds());
+        assertEquals("The Recipe with id 4 was not found in the database", recipeNotFoundException.getMessage());
+    }
+}
@@ -1,8 +1,10 @@
 package pizzeria.food.domain.recipe;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import pizzeria.food.domain.ingredient.Ingredient;
+import pizzeria.food.models.prices.Tuple;
 
 import java.util.List;
 
@@ -133,4 +135,25 @@ class RecipeTest {
         ingredient.setId(1L);
         assertNotEquals(recipe, ingredient);
     }
-}
\ No newline at end of file
+
+    @Test
+    void prices_areKeptInCents() {
+        assertThat(new Ingredient("cheese", 0.7 + 0.1).getPrice()).isEqualTo(0.8);
+        assertThat(new Recipe("margherita", List.of(), 0.1 + 0.2).getBasePrice()).isEqualTo(0.3);
+        assertThat(new Recipe("margherita", List.of(), 8.5).getBasePriceInMinorUnits()).isEqualTo(850);
+    }
+
+    @Test
+    void json_priceIsDecimalWithTwoDigits() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        Recipe recipe = new Recipe("margherita", List.of(1L), 8.5);
+
+        String json = mapper.writeValueAsString(recipe);
+
+        assertThat(json).contains("\"basePrice\":8.50");
+        assertThat(mapper.readValue(json, Recipe.class).getBasePrice()).isEqualTo(8.5);
+        assertThat(mapper.writeValueAsString(new Tuple(2.0, "cheese"))).contains("\"price\":2.00");
+        assertThat(mapper.readValue("{\"name\":\"cheese\",\"price\":1.1}", Ingredient.class).getPrice())
+                .isEqualTo(1.1);
+    }
+}
@@ -14,8 +14,9 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import pizzeria.commons.authentication.JwtTokenVerifier;
+import pizzeria.commons.authentication.VerifiedToken;
 import pizzeria.food.authentication.AuthManager;
-import pizzeria.food.authentication.JwtTokenVerifier;
 import pizzeria.food.communication.HttpRequestService;
 import pizzeria.food.domain.ingredient.Ingredient;
 import pizzeria.food.domain.ingredient.IngredientRepository;
@@ -24,6 +25,7 @@ import pizzeria.food.domain.recipe.RecipeRepository;
 import pizzeria.food.integration.utils.JsonUtil;
 import pizzeria.food.models.allergens.FilterMenuRequestModel;
 import pizzeria.food.models.allergens.FilterMenuResponseModel;
+import pizzeria.food.models.allergens.InvalidateAllergiesRequestModel;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -32,8 +34,11 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -65,9 +70,7 @@ public class AllergenIntegrationTestController {
     public void init() {
         when(mockAuthManager.getNetId()).thenReturn("ExampleUser");
         when(mockAuthManager.getRole()).thenReturn("[ROLE_MANAGER]");
-        when(mockJwtTokenVerifier.validateToken(anyString())).thenReturn(true);
-        when(mockJwtTokenVerifier.getNetIdFromToken(anyString())).thenReturn("ExampleUser");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_MANAGER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_MANAGER")), null));
 
         //add ingredients to the repo
         Ingredient tomato = new Ingredient("tomato", 0.5);
@@ -191,4 +194,45 @@ public class AllergenIntegrationTestController {
 
         resultActions.andExpect(status().isBadRequest());
     }
+
+    @Test
+    void filterMenu_servesAllergiesFromCacheUntilInvalidated() throws Exception{
+        when(httpRequestService.getUserAllergens(any())).thenReturn(Optional.of(List.of("dairy")));
+
+        mockMvc.perform(get("/allergens/menu").header("Authorization", "Bearer MockedToken"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/allergens/menu").header("Authorization", "Bearer MockedToken"))
+                .andExpect(status().isOk());
+        verify(httpRequestService, times(1)).getUserAllergens(any());
+
+        when(mockJwtTokenVerifier.verify("ServiceToken")).thenReturn(new VerifiedToken("user-microservice", List.of(new SimpleGrantedAuthority("ROLE_SERVICE")), null));
+        mockMvc.perform(post("/allergens/invalidate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonUtil.serialize(new InvalidateAllergiesRequestModel("ExampleUser")))
+                .header("Authorization", "Bearer ServiceToken"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/allergens/menu").header("Authorization", "Bearer MockedToken"))
+                .andExpect(status().isOk());
+        verify(httpRequestService, times(2)).getUserAllergens(any());
+    }
+
+    @Test
+    void invalidateAllergies_isForbiddenForManagers() throws Exception {
+        mockMvc.perform(post("/allergens/invalidate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonUtil.serialize(new InvalidateAllergiesRequestModel("ExampleUser")))
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void invalidateAllergies_isForbiddenForCustomers() throws Exception {
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")), null));
+
+        mockMvc.perform(post("/allergens/invalidate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonUtil.serialize(new InvalidateAllergiesRequestModel("ExampleUser")))
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(status().isForbidden());
+    }
 }
@@ -17,8 +17,9 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import pizzeria.commons.authentication.JwtTokenVerifier;
+import pizzeria.commons.authentication.VerifiedToken;
 import pizzeria.food.authentication.AuthManager;
-import pizzeria.food.authentication.JwtTokenVerifier;
 import pizzeria.food.domain.ingredient.Ingredient;
 import pizzeria.food.domain.ingredient.IngredientRepository;
 import pizzeria.food.integration.utils.JsonUtil;
@@ -60,9 +61,7 @@ public class IngredientIntegrationTest {
     public void init() {
         when(mockAuthManager.getNetId()).thenReturn("ExampleUser");
         when(mockAuthManager.getRole()).thenReturn("[ROLE_MANAGER]");
-        when(mockJwtTokenVerifier.validateToken(anyString())).thenReturn(true);
-        when(mockJwtTokenVerifier.getNetIdFromToken(anyString())).thenReturn("ExampleUser");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_MANAGER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_MANAGER")), null));
     }
 
 
@@ -99,7 +98,7 @@ public class IngredientIntegrationTest {
     void saveIngredient_noAuthorization() throws Exception{
         //set up the wrong role
         when(mockAuthManager.getRole()).thenReturn("[ROLE_CUSTOMER]");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")), null));
 
         SaveIngredientRequestModel request = new SaveIngredientRequestModel();
         Ingredient testIngredient = new Ingredient("Pepperoni", 1.5, List.of("pig"));
@@ -168,7 +167,7 @@ public class IngredientIntegrationTest {
 
         //set up the wrong role
         when(mockAuthManager.getRole()).thenReturn("[ROLE_CUSTOMER]");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")), null));
 
         UpdateIngredientRequestModel request2 = new UpdateIngredientRequestModel();
         Ingredient testIngredient2 = new Ingredient("Olive", 1.0);
@@ -237,7 +236,7 @@ public class IngredientIntegrationTest {
 
         //set up the wrong role
         when(mockAuthManager.getRole()).thenReturn("[ROLE_CUSTOMER]");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")), null));
 
         UpdateIngredientRequestModel request2 = new UpdateIngredientRequestModel();
         request2.setId(1L);
@@ -323,7 +322,7 @@ public class IngredientIntegrationTest {
 
         //set up the customer role
         when(mockAuthManager.getRole()).thenReturn("[ROLE_CUSTOMER]");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")), null));
 
         //test that everything is given back
         ResultActions resultActions = mockMvc.perform(get("/ingredient/extraToppings")
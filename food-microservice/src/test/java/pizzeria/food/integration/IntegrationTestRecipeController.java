@@ -7,6 +7,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.annotation.DirtiesContext;
@@ -15,8 +16,9 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import pizzeria.commons.authentication.JwtTokenVerifier;
+import pizzeria.commons.authentication.VerifiedToken;
 import pizzeria.food.authentication.AuthManager;
-import pizzeria.food.authentication.JwtTokenVerifier;
 import pizzeria.food.domain.ingredient.Ingredient;
 import pizzeria.food.domain.ingredient.IngredientRepository;
 import pizzeria.food.domain.recipe.Recipe;
@@ -31,6 +33,7 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -60,9 +63,7 @@ public class IntegrationTestRecipeController {
     public void init() {
         when(mockAuthManager.getNetId()).thenReturn("ExampleUser");
         when(mockAuthManager.getRole()).thenReturn("[ROLE_MANAGER]");
-        when(mockJwtTokenVerifier.validateToken(anyString())).thenReturn(true);
-        when(mockJwtTokenVerifier.getNetIdFromToken(anyString())).thenReturn("ExampleUser");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_MANAGER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_MANAGER")), null));
 
         Ingredient ingredient1 = new Ingredient("ingredient1", 1.0);
         Ingredient ingredient2 = new Ingredient("ingredient2", 2.0);
@@ -117,7 +118,7 @@ public class IntegrationTestRecipeController {
     @Test
     void saveRecipeNoAuthorization() throws Exception {
         when(mockAuthManager.getRole()).thenReturn("[ROLE_CUSTOMER]");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")), null));
 
         SaveFoodRequestModel request = new SaveFoodRequestModel();
         Recipe recipe = new Recipe("name", List.of(1L, 5L, 3L), 10.0);
@@ -199,7 +200,7 @@ public class IntegrationTestRecipeController {
     @Test
     void updateRecipeUnAuthorized() throws Exception {
         when(mockAuthManager.getRole()).thenReturn("[ROLE_CUSTOMER]");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")), null));
 
         UpdateFoodRequestModel request = new UpdateFoodRequestModel();
         Recipe recipe = new Recipe("name", List.of(1L, 5L, 3L), 10.0);
@@ -257,7 +258,7 @@ public class IntegrationTestRecipeController {
     @Test
     void deleteFoodUnauthorized() throws Exception{
         when(mockAuthManager.getRole()).thenReturn("[ROLE_CUSTOMER]");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")), null));
 
         SaveFoodRequestModel request = new SaveFoodRequestModel();
         Recipe recipe = new Recipe("name", List.of(1L, 5L, 3L), 10.0);
@@ -289,4 +290,49 @@ public class IntegrationTestRecipeController {
         assertThat(responseModel.getMenu()).containsExactlyInAnyOrderElementsOf(List.of(recipe1, recipe2, recipe3));
 
     }
+
+    @Test
+    void getMenu_notModifiedUntilTheMenuChanges() throws Exception {
+        recipeRepository.save(new Recipe("name1", List.of(1L, 5L, 3L), 10.0));
+
+        String etag = mockMvc.perform(get("/recipe/menu"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+
+        mockMvc.perform(get("/recipe/menu").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        recipeRepository.save(new Recipe("name2", List.of(1L, 5L, 3L, 4L), 10.0));
+
+        ResultActions resultActions = mockMvc.perform(get("/recipe/menu").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        MenuResponseModel responseModel = JsonUtil.deserialize(resultActions.andReturn().getResponse().getContentAsString(), MenuResponseModel.class);
+        assertThat(responseModel.getMenu()).extracting(Recipe::getName).containsExactlyInAnyOrder("name1", "name2");
+    }
+
+    @Test
+    void getMenu_gzipBodyHasATagOfItsOwn() throws Exception {
+        recipeRepository.save(new Recipe("name1", List.of(1L, 5L, 3L), 10.0));
+
+        String identity = mockMvc.perform(get("/recipe/menu"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String gzip = mockMvc.perform(get("/recipe/menu").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(gzip).isNotNull().isNotEqualTo(identity);
+
+        // either tag is current, and the 304 tells caches that it depends on the encoding
+        mockMvc.perform(get("/recipe/menu").header(HttpHeaders.IF_NONE_MATCH, gzip))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, identity))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING));
+        mockMvc.perform(get("/recipe/menu").header(HttpHeaders.IF_NONE_MATCH, identity)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, gzip))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING));
+    }
 }
@@ -2,6 +2,7 @@ package pizzeria.order;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -9,6 +10,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 @SpringBootApplication(scanBasePackages = {"pizzeria.order"})
+@EnableScheduling
 public class Application {
     @Retention(RetentionPolicy.RUNTIME)
     @Target(ElementType.METHOD)
@@ -4,18 +4,19 @@ import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import pizzeria.commons.authentication.JwtTokenVerifier;
+import pizzeria.commons.authentication.VerifiedToken;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.Collection;
+import java.util.Date;
 
 /**
  * Request filter for JWT security.
@@ -64,13 +65,12 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                 String token = directives[1];
 
                 try {
-                    if (jwtTokenVerifier.validateToken(token)) {
-                        String netId = jwtTokenVerifier.getNetIdFromToken(token);
-                        Collection<? extends GrantedAuthority> role = jwtTokenVerifier.getRoleFromToken(token);
-
+                    // parse and verify the token once, the claims come from the same verification
+                    VerifiedToken verified = jwtTokenVerifier.verify(token);
+                    if (verified != null && !verified.isExpired(new Date())) {
                         UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-                                netId,
-                                null, role // no credentials and no authorities
+                                verified.getNetId(),
+                                null, verified.getRoles() // no credentials and no authorities
                         );
                         authenticationToken.setDetails(new WebAuthenticationDetailsSource()
                                 .buildDetails(request));
@@ -0,0 +1,80 @@
+package pizzeria.order.config;
+
+import lombok.Getter;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import java.time.Duration;
+
+/**
+ * The cache config.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Getter
+    private final Environment environment;
+
+    public CacheConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Set up the second-level cache of the stores and the coupons, which are read on every order but rarely change.
+     * Hibernate updates the cached entities when they are saved or deleted, and drops the cached coupon queries
+     * whenever a coupon is written, so the time to live only bounds how long a change made outside this service is missed.
+     *
+     * @return The cache manager of the second-level cache.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager referenceDataCacheManager() {
+        // a provider of its own keeps the manager apart from those of other application contexts, such as the test
+        // contexts, any other URI than the default one would be read as the location of an XML configuration
+        EhcacheCachingProvider cachingProvider = new EhcacheCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager(cachingProvider.getDefaultURI(),
+                getClass().getClassLoader());
+
+        createRegion(cacheManager, "stores", "jpa.cache.stores");
+        createRegion(cacheManager, "coupons", "jpa.cache.coupons");
+        createRegion(cacheManager, "default-query-results-region", "jpa.cache.queries");
+        // the timestamps tell which cached query results are outdated, so they must not expire before those results
+        cacheManager.createCache("default-update-timestamps-region", Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                        ResourcePoolsBuilder.heap(1000))));
+        return cacheManager;
+    }
+
+    /**
+     * Turns on the second-level cache and the query cache, and hands the cache manager to Hibernate.
+     *
+     * @param referenceDataCacheManager the cache manager of the second-level cache
+     * @return The customizer of the Hibernate properties.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager referenceDataCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true");
+            properties.put(AvailableSettings.USE_QUERY_CACHE, "true");
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, referenceDataCacheManager);
+        };
+    }
+
+    private void createRegion(CacheManager cacheManager, String region, String prefix) {
+        cacheManager.createCache(region, Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                        ResourcePoolsBuilder.heap(environment.getProperty(prefix + ".max-entries", Long.class, 1000L)))
+                        .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofMillis(
+                                environment.getProperty(prefix + ".ttl-ms", Long.class, 600000L))))));
+    }
+}
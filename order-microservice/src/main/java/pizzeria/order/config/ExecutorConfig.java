@@ -0,0 +1,66 @@
+package pizzeria.order.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.Getter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * The executor config.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Getter
+    private final Environment environment;
+
+    public ExecutorConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Set up the threads that run the database lookups of an order that is placed or edited,
+     * so the request thread is released while they run.
+     *
+     * @param meterRegistry the registry the pool statistics are reported to
+     * @return The executor of the lookups.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor orderLookupExecutor(MeterRegistry meterRegistry) {
+        return executor("order-lookup", "order.placement.lookup", meterRegistry);
+    }
+
+    /**
+     * Set up the threads that wait for the prices of the food microservice while an order is placed or edited.
+     * They are separate from the database lookups, so a slow food microservice does not hold those up.
+     *
+     * @param meterRegistry the registry the pool statistics are reported to
+     * @return The executor of the price lookups.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor priceLookupExecutor(MeterRegistry meterRegistry) {
+        return executor("price-lookup", "order.placement.price", meterRegistry);
+    }
+
+    private ThreadPoolTaskExecutor executor(String name, String prefix, MeterRegistry meterRegistry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        int threads = environment.getProperty(prefix + "-threads", Integer.class, 8);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(environment.getProperty(prefix + "-queue-capacity", Integer.class, 200));
+        executor.setThreadNamePrefix(name + "-");
+        executor.setDaemon(true);
+        // when the queue is full the request thread does the work itself, which slows down new requests
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), name, Tags.empty()).bindTo(meterRegistry);
+        return executor;
+    }
+}
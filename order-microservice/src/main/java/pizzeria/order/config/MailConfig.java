@@ -0,0 +1,53 @@
+package pizzeria.order.config;
+
+import lombok.Getter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import pizzeria.order.Application;
+
+import javax.mail.Authenticator;
+import javax.mail.PasswordAuthentication;
+import javax.mail.Session;
+import java.util.Properties;
+
+/**
+ * The mail config.
+ */
+@Configuration
+public class MailConfig {
+
+    @Getter
+    private final Environment environment;
+
+    public MailConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Set up the session used to connect to the SMTP server.
+     *
+     * @return The mail session.
+     */
+    @Bean
+    public Session mailSession() {
+        Properties properties = new Properties();
+        properties.put("mail.smtp.host", environment.getProperty("mail.smtp.host", "smtp.gmail.com"));
+        properties.put("mail.smtp.port", environment.getProperty("mail.smtp.port", "465"));
+        properties.put("mail.smtp.ssl.enable", environment.getProperty("mail.smtp.ssl.enable", "true"));
+        properties.put("mail.smtp.auth", environment.getProperty("mail.smtp.auth", "true"));
+        properties.put("mail.smtp.connectiontimeout", environment.getProperty("mail.smtp.connectiontimeout", "10000"));
+        properties.put("mail.smtp.timeout", environment.getProperty("mail.smtp.timeout", "10000"));
+
+        String username = environment.getProperty("mail.username", "fivenightsatandys7b@gmail.com");
+        String password = environment.getProperty("mail.password", "ycgmcwdcuopnrbrd");
+
+        // the authenticator is also used when a pooled connection (re)connects
+        return Session.getInstance(properties, new Authenticator() {
+            @Application.ExcludeFromJacocoGeneratedReport
+            protected PasswordAuthentication getPasswordAuthentication() {
+                return new PasswordAuthentication(username, password);
+            }
+        });
+    }
+}
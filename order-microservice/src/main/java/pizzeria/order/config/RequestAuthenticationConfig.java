@@ -1,10 +1,12 @@
 package pizzeria.order.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import pizzeria.commons.authentication.JwtTokenVerifier;
 import pizzeria.order.authentication.JwtAuthenticationEntryPoint;
 import pizzeria.order.authentication.JwtRequestFilter;
 
@@ -12,6 +14,8 @@ import pizzeria.order.authentication.JwtRequestFilter;
  * The type Web security config.
  */
 @Configuration
+// the verifier of the tokens, shared with the other microservices
+@Import(JwtTokenVerifier.class)
 public class RequestAuthenticationConfig extends WebSecurityConfigurerAdapter {
 
     private final transient JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
@@ -34,8 +38,10 @@ public class RequestAuthenticationConfig extends WebSecurityConfigurerAdapter {
                 .antMatchers("/order/list").authenticated()
                 .antMatchers("/order/delete").authenticated()
                 .antMatchers("/order/edit").authenticated()
+                .antMatchers("/order/status/**").authenticated()
                 .antMatchers("/order/listAll").hasAuthority(authorizedRole)
                 .antMatchers("/coupon/create").hasAuthority(authorizedRole)
+                .antMatchers("/coupon/bulk").hasAuthority(authorizedRole)
                 .antMatchers("/store/create").hasAuthority(authorizedRole)
                 .antMatchers("/store/edit").hasAuthority(authorizedRole)
                 .antMatchers("/store/delete").hasAuthority(authorizedRole)
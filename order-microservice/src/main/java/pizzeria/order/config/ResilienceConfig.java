@@ -0,0 +1,57 @@
+package pizzeria.order.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import org.apache.http.client.HttpClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
+import pizzeria.commons.communication.CircuitBreaker;
+import pizzeria.commons.communication.ServiceGuard;
+import pizzeria.commons.config.HttpClientConfig;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * The resilience config.
+ */
+@Configuration
+// the pooled client the guarded calls share
+@Import(HttpClientConfig.class)
+public class ResilienceConfig {
+
+    @Getter
+    private final Environment environment;
+
+    public ResilienceConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Set up the timeouts, bulkhead and circuit breaker of the calls to the food microservice.
+     *
+     * @param meterRegistry the registry the circuit state and the rejections are reported to
+     * @param httpClient the pooled client that makes the calls
+     * @return The guard of the food microservice.
+     */
+    @Bean
+    public ServiceGuard foodServiceGuard(MeterRegistry meterRegistry, HttpClient httpClient) {
+        return serviceGuard("food", meterRegistry, httpClient);
+    }
+
+    private ServiceGuard serviceGuard(String target, MeterRegistry meterRegistry, HttpClient httpClient) {
+        String prefix = "resilience." + target + ".";
+        CircuitBreaker circuitBreaker = new CircuitBreaker(target,
+                environment.getProperty(prefix + "failure-threshold", Integer.class, 5),
+                environment.getProperty(prefix + "open-ms", Long.class, 10000L),
+                Clock.systemUTC(), meterRegistry);
+        return new ServiceGuard(target,
+                Duration.ofMillis(environment.getProperty(prefix + "connect-timeout-ms", Long.class, 500L)),
+                Duration.ofMillis(environment.getProperty(prefix + "read-timeout-ms", Long.class, 2000L)),
+                environment.getProperty(prefix + "max-concurrent-calls", Integer.class, 20),
+                environment.getProperty(prefix + "max-wait-ms", Long.class, 0L),
+                circuitBreaker, meterRegistry, httpClient);
+    }
+}
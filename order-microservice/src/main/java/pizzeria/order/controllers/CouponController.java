@@ -1,15 +1,27 @@
 package pizzeria.order.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pizzeria.order.domain.coupon.CouponGenerator;
 import pizzeria.order.domain.coupon.CouponService;
+import pizzeria.order.models.CouponBulkModel;
 import pizzeria.order.models.CouponModel;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
 /**
  * The type Coupon controller
  * Responsible for handling endpoints related to the coupons in the order microservice
@@ -17,16 +29,22 @@ import pizzeria.order.models.CouponModel;
 @RestController
 @RequestMapping("/coupon")
 public class CouponController {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
     private final transient CouponService couponService;
+    private final transient CouponGenerator couponGenerator;
 
     /**
      * Instantiates a new Coupon controller with the coupon service.
      *
      * @param couponService the coupon service
+     * @param couponGenerator the generator of coupons in bulk
      */
     @Autowired
-    public CouponController(CouponService couponService) {
+    public CouponController(CouponService couponService, CouponGenerator couponGenerator) {
         this.couponService = couponService;
+        this.couponGenerator = couponGenerator;
     }
 
     /**
@@ -43,4 +61,45 @@ public class CouponController {
         //else bad request if any errors
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Generates coupons with new random codes, all stored at once, and streams their codes back
+     * as one JSON object per line, or as CSV
+     *
+     * @param request the number of coupons and what they are like
+     * @param format ndjson or csv
+     * @return the codes of the new coupons, bad request if the request is not valid,
+     *         conflict if there are not enough free codes left
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<StreamingResponseBody> generateCoupons(@RequestBody CouponBulkModel request,
+                                                                 @RequestParam(defaultValue = "ndjson") String format) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        List<String> codes;
+        try {
+            codes = couponGenerator.generate(request);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (IllegalStateException | DuplicateKeyException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        //the coupons are stored already, only the codes are written while the client reads them
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            if (csv) {
+                writer.write("id\n");
+            }
+            for (String code : codes) {
+                writer.write(csv ? code + "\n" : "{\"id\":\"" + code + "\"}\n");
+            }
+            writer.flush();
+        };
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .contentType(csv ? CSV : NDJSON)
+                .body(body);
+    }
+}
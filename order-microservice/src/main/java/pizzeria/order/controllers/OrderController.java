@@ -1,6 +1,8 @@
 package pizzeria.order.controllers;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -12,6 +14,7 @@ import pizzeria.order.domain.order.Order;
 import pizzeria.order.domain.order.OrderOperationService;
 import pizzeria.order.domain.order.OrderService;
 import pizzeria.order.models.DeleteModel;
+import pizzeria.order.models.OrderTicketModel;
 import pizzeria.order.models.OrdersResponse;
 
 /**
@@ -46,34 +49,53 @@ public class OrderController {
     /**
      * Place an order endpoint, persists the order to the database if valid
      * Includes validation of user and processes order in the order service
+     * The request thread is released while the order is processed
+     * When the asynchronous intake is enabled the order is queued instead, and 202 with a ticket is returned
      *
      * @param incoming the incoming order
-     * @return the response entity
+     * @return the future of the response entity
      */
     @PostMapping("/place")
-    public ResponseEntity<Order> placeOrder(@RequestBody Order incoming) {
+    public CompletableFuture<ResponseEntity<?>> placeOrder(@RequestBody Order incoming) {
         try {
-            return orderOperationService.placeOrder(incoming, authManager.getNetId());
+            String userId = authManager.getNetId();
+            if (orderOperationService.isIntakeAsync()) {
+                return CompletableFuture.completedFuture(orderOperationService.queueOrder(incoming, userId));
+            }
+            return orderOperationService.placeOrder(incoming, userId)
+                    .<ResponseEntity<?>>thenApply(response -> response)
+                    .exceptionally(OrderController::badRequest);
         } catch (Exception e) {
-            //return bad request with whatever validation has failed
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).header(HttpHeaders.WARNING, e.getMessage()).build();
+            return CompletableFuture.completedFuture(badRequest(e));
         }
     }
 
+    /**
+     * Order status endpoint, tells what happened to an order that was queued by the asynchronous intake
+     *
+     * @param ticket the ticket that was returned when the order was placed
+     * @return the response entity
+     */
+    @GetMapping("/status/{ticket}")
+    public ResponseEntity<OrderTicketModel> orderStatus(@PathVariable String ticket) {
+        return orderOperationService.orderStatus(ticket, authManager.getNetId(), authManager.getRole());
+    }
+
     /**
      * Edit an order endpoint, updates the order in the database if valid
      * Includes validation of user and processes order in order service
+     * The request thread is released while the order is processed
      *
      * @param incoming the incoming order
-     * @return the response entity
+     * @return the future of the response entity
      */
     @PostMapping("/edit")
-    public ResponseEntity<Order> editOrder(@RequestBody Order incoming) {
+    public CompletableFuture<ResponseEntity<Order>> editOrder(@RequestBody Order incoming) {
         try {
-            return orderOperationService.editOrder(incoming, authManager.getNetId());
+            return orderOperationService.editOrder(incoming, authManager.getNetId())
+                    .exceptionally(OrderController::badRequest);
         } catch (Exception e) {
-            //return bad request with whatever validation has failed
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).header(HttpHeaders.WARNING, e.getMessage()).build();
+            return CompletableFuture.completedFuture(badRequest(e));
         }
     }
 
@@ -115,4 +137,10 @@ public class OrderController {
         List<Order> orders = orderService.listAllOrders();
         return ResponseEntity.status(HttpStatus.OK).body(new OrdersResponse(orders));
     }
+
+    private static ResponseEntity<Order> badRequest(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        //return bad request with whatever validation has failed
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).header(HttpHeaders.WARNING, cause.getMessage()).build();
+    }
 }
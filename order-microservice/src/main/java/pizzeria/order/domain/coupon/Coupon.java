@@ -1,20 +1,39 @@
 package pizzeria.order.domain.coupon;
 
 import com.sun.istack.NotNull;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import pizzeria.commons.money.Money;
 import pizzeria.order.domain.order.Order;
+import pizzeria.order.domain.order.RecipeHistogram;
 import pizzeria.order.models.GetPricesResponseModel;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
+import javax.persistence.DiscriminatorColumn;
+import javax.persistence.DiscriminatorType;
+import javax.persistence.Entity;
 import javax.persistence.Id;
-import javax.persistence.MappedSuperclass;
+import javax.persistence.Inheritance;
+import javax.persistence.InheritanceType;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
 import java.util.Objects;
 
 /**
  * The type Coupon.
+ * Every type of coupon is stored in the same table, the type column tells them apart,
+ * so the coupons of an order are loaded with one query on the primary key whatever their type.
  */
-@MappedSuperclass
+@Entity
+@Table(name = "coupons")
+@Inheritance(strategy = InheritanceType.SINGLE_TABLE)
+@DiscriminatorColumn(name = "couponType", discriminatorType = DiscriminatorType.STRING, length = 20)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "coupons")
 public abstract class Coupon {
 
     /**
@@ -28,22 +47,74 @@ public abstract class Coupon {
     @NotNull
     protected String id;
 
+    /**
+     * The first moment the coupon can be redeemed, null if it can be redeemed right away
+     */
+    @Getter
+    @Setter
+    private LocalDateTime validFrom;
+
+    /**
+     * The moment the coupon expires, null if it never expires
+     */
+    @Getter
+    @Setter
+    private LocalDateTime validUntil;
+
+    /**
+     * The number of orders that can redeem the coupon, null if there is no limit
+     */
+    @Getter
+    @Setter
+    private Integer maxRedemptions;
+
+    /**
+     * The number of orders that redeemed the coupon, only counted for coupons with a limit
+     * It is only written by the CouponLedger, so saving a coupon never overwrites the count
+     * A coupon that replaces one of another type is inserted with the count of the one it replaces
+     */
+    @Getter
+    @Setter(AccessLevel.PACKAGE)
+    @Column(updatable = false)
+    private long redemptions;
+
     /**
      * Empty constructor for database purposes
      */
     public Coupon() {
     }
 
+    /**
+     * @return true iff the coupon has a validity window or a redemption limit
+     */
+    public boolean isLimited() {
+        return validFrom != null || validUntil != null || maxRedemptions != null;
+    }
+
     /**
      * Calculate the price of an order using this coupon
+     *
+     * @param order     the order
+     * @param prices    the prices of ingredients and recipes
+     * @param basePrice the base price of the order in euros
+     * @return the price in euros
+     */
+    public double calculatePrice(Order order, GetPricesResponseModel prices, double basePrice) {
+        return Money.toMajor(calculatePriceInMinorUnits(order, order.countRecipes(), prices, Money.toMinor(basePrice)));
+    }
+
+    /**
+     * Calculate the price of an order using this coupon, on whole cents
      * needs to be implemented by each subclass
      *
      * @param order     the order
+     * @param recipes   the number of foods per recipe in the order
      * @param prices    the prices of ingredients and recipes
-     * @param basePrice the base price of the order
-     * @return the double
+     * @param basePrice the base price of the order in cents
+     * @return the price in cents
      */
-    public abstract double calculatePrice(Order order, GetPricesResponseModel prices, double basePrice);
+    public abstract long calculatePriceInMinorUnits(Order order, RecipeHistogram recipes,
+                                                    GetPricesResponseModel prices, long basePrice);
 
     @Override
     public boolean equals(Object o) {
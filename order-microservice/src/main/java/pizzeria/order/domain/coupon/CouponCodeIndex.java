@@ -0,0 +1,159 @@
+package pizzeria.order.domain.coupon;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The type Coupon code index
+ * Keeps one bit for every possible coupon code, set when a coupon with that code exists,
+ * so codes that cannot belong to a coupon are turned away without asking the database.
+ * A code is 4 letters followed by 2 digits, which makes 26^4 * 100 codes and a bitmap of about 5.7 MB.
+ * Letters are indexed without their case, so a set bit only means the code may exist and the database has the last word,
+ * a cleared bit always means there is no such coupon.
+ */
+@Component
+public class CouponCodeIndex {
+    /**
+     * The number of possible coupon codes
+     */
+    public static final int CODE_COUNT = 26 * 26 * 26 * 26 * 100;
+
+    private final transient CouponRepository couponRepository;
+    private final transient AtomicLongArray bits = new AtomicLongArray((CODE_COUNT + 63) / 64);
+
+    /**
+     * Instantiates a new Coupon code index
+     *
+     * @param couponRepository the repository the codes of the existing coupons are read from
+     */
+    @Autowired
+    public CouponCodeIndex(CouponRepository couponRepository) {
+        this.couponRepository = couponRepository;
+    }
+
+    /**
+     * Sets the bits of the coupons in the database, at startup and every refresh interval after that,
+     * so the coupons created by other instances are picked up. Bits are never cleared, coupons are not deleted.
+     */
+    @PostConstruct
+    @Scheduled(initialDelayString = "${coupon.index.refresh-interval-ms:300000}",
+            fixedDelayString = "${coupon.index.refresh-interval-ms:300000}")
+    public void load() {
+        for (String code : couponRepository.findAllCodes()) {
+            add(code);
+        }
+    }
+
+    /**
+     * Marks the code as belonging to a coupon
+     *
+     * @param code the code of the coupon
+     * @return true iff the code has the format of a coupon code
+     */
+    public boolean add(String code) {
+        int index = indexOf(code);
+        if (index < 0) {
+            return false;
+        }
+        reserve(index);
+        return true;
+    }
+
+    /**
+     * Sets the bit of a code, if it was not set yet
+     * Only one caller can see a bit go from cleared to set, so a code that is reserved is not handed out twice
+     * and does not belong to an existing coupon.
+     *
+     * @param index the index of the bit of the code
+     * @return true iff the bit was cleared before
+     */
+    public boolean reserve(int index) {
+        int word = index >>> 6;
+        long mask = 1L << index;
+        long current = bits.get(word);
+        while ((current & mask) == 0) {
+            if (bits.compareAndSet(word, current, current | mask)) {
+                return true;
+            }
+            current = bits.get(word);
+        }
+        return false;
+    }
+
+    /**
+     * @param code the code to check
+     * @return false when there is certainly no coupon with the code, true when there may be one
+     */
+    public boolean mightExist(String code) {
+        int index = indexOf(code);
+        return index >= 0 && (bits.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * @param codes the codes a client sent
+     * @return the codes that may belong to a coupon, in the same order
+     */
+    public List<String> filterKnown(List<String> codes) {
+        List<String> known = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            if (mightExist(code)) {
+                known.add(code);
+            }
+        }
+        return known;
+    }
+
+    /**
+     * Maps a bit back to its code, in capitals
+     *
+     * @param index the index of the bit, between 0 and CODE_COUNT
+     * @return the code of the bit
+     */
+    public static String codeOf(int index) {
+        char[] code = new char[6];
+        for (int i = 5; i >= 4; i--) {
+            code[i] = (char) ('0' + index % 10);
+            index /= 10;
+        }
+        for (int i = 3; i >= 0; i--) {
+            code[i] = (char) ('A' + index % 26);
+            index /= 26;
+        }
+        return new String(code);
+    }
+
+    /**
+     * Maps a coupon code to its bit, every code of the right format has its own bit
+     *
+     * @param code the code
+     * @return the index of the bit of the code, or -1 if it does not have the format of a coupon code
+     */
+    public static int indexOf(String code) {
+        if (code == null || code.length() != 6) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < 4; i++) {
+            // folding the case maps 'A'..'Z' onto 'a'..'z' and leaves them the only characters in that range
+            int letter = (code.charAt(i) | 0x20) - 'a';
+            if (letter < 0 || letter >= 26) {
+                return -1;
+            }
+            index = index * 26 + letter;
+        }
+        for (int i = 4; i < 6; i++) {
+            int digit = code.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            index = index * 10 + digit;
+        }
+        return index;
+    }
+}
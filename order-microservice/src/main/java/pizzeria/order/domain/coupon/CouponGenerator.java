@@ -0,0 +1,168 @@
+package pizzeria.order.domain.coupon;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import pizzeria.order.models.CouponBulkModel;
+import pizzeria.order.models.CouponModel;
+
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The type Coupon generator
+ * Creates many coupons with new random codes at once, for campaigns.
+ * The codes are reserved in the code index, which knows every existing code, so they never collide with each other
+ * or with existing coupons. All coupons are inserted in one transaction, with JDBC batches.
+ */
+@Service
+public class CouponGenerator {
+    private static final String INSERT = "insert into coupons (coupon_type, coupon_id, percentage, valid_from, valid_until, "
+            + "max_redemptions, redemptions) values (?, ?, ?, ?, ?, ?, 0)";
+    // after this many taken codes in a row the code space is considered full
+    private static final int MAX_ATTEMPTS = 1000;
+
+    private final transient CouponCodeIndex couponCodeIndex;
+    private final transient CouponLedger couponLedger;
+    private final transient JdbcTemplate jdbcTemplate;
+    private final transient TransactionTemplate transactionTemplate;
+    private final transient int maxCount;
+    private final transient int batchSize;
+    private final transient Random random;
+
+    /**
+     * Instantiates a new Coupon generator
+     *
+     * @param couponCodeIndex the index the new codes are reserved in
+     * @param couponLedger the ledger the limits of the new coupons are tracked in
+     * @param jdbcTemplate the template the coupons are inserted with
+     * @param transactionTemplate the template of the transaction of the inserts
+     * @param maxCount the maximum number of coupons generated at once
+     * @param batchSize the number of coupons in one JDBC batch
+     */
+    @Autowired
+    public CouponGenerator(CouponCodeIndex couponCodeIndex, CouponLedger couponLedger, JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${coupon.bulk.max-count:200000}") int maxCount,
+                           @Value("${coupon.bulk.batch-size:1000}") int batchSize) {
+        this(couponCodeIndex, couponLedger, jdbcTemplate, transactionTemplate, maxCount, batchSize, new SecureRandom());
+    }
+
+    /**
+     * Instantiates a new Coupon generator, used for testing purposes
+     *
+     * @param couponCodeIndex the index the new codes are reserved in
+     * @param couponLedger the ledger the limits of the new coupons are tracked in
+     * @param jdbcTemplate the template the coupons are inserted with
+     * @param transactionTemplate the template of the transaction of the inserts
+     * @param maxCount the maximum number of coupons generated at once
+     * @param batchSize the number of coupons in one JDBC batch
+     * @param random the source of the codes
+     */
+    public CouponGenerator(CouponCodeIndex couponCodeIndex, CouponLedger couponLedger, JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate, int maxCount, int batchSize, Random random) {
+        this.couponCodeIndex = couponCodeIndex;
+        this.couponLedger = couponLedger;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.maxCount = maxCount;
+        this.batchSize = batchSize;
+        this.random = random;
+    }
+
+    /**
+     * Generates and stores coupons with new codes
+     *
+     * @param request the number of coupons and what they are like
+     * @return the codes of the new coupons
+     * @throws IllegalArgumentException the count, type, percentage or limits are not valid
+     * @throws IllegalStateException there are not enough free codes left
+     */
+    public List<String> generate(CouponBulkModel request) {
+        if (request.getCount() < 1 || request.getCount() > maxCount) {
+            throw new IllegalArgumentException("The number of coupons has to be between 1 and " + maxCount);
+        }
+        if (request.getMaxRedemptions() != null && request.getMaxRedemptions() < 0
+                || request.getValidFrom() != null && request.getValidUntil() != null
+                && !request.getValidUntil().isAfter(request.getValidFrom())) {
+            throw new IllegalArgumentException("The limits of the coupons are not valid");
+        }
+        if (request.getType() == null) {
+            throw new IllegalArgumentException("The type of the coupons is missing");
+        }
+        CouponType type = CouponType.valueOf(request.getType());
+        CouponModel template = new CouponModel();
+        template.setType(request.getType());
+        template.setPercentage(request.getPercentage());
+        // checks the percentage before any code is taken
+        type.create(template);
+
+        List<Coupon> coupons = new ArrayList<>(request.getCount());
+        for (String code : reserveCodes(request.getCount())) {
+            Coupon coupon = type.create(template);
+            coupon.setId(code);
+            coupon.setValidFrom(request.getValidFrom());
+            coupon.setValidUntil(request.getValidUntil());
+            coupon.setMaxRedemptions(request.getMaxRedemptions());
+            coupons.add(coupon);
+        }
+
+        // written past the entity manager, nothing is cached for these codes since no coupon had them
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int from = 0; from < coupons.size(); from += batchSize) {
+                insert(type, coupons.subList(from, Math.min(from + batchSize, coupons.size())));
+            }
+        });
+        couponLedger.registerNew(coupons);
+
+        List<String> codes = new ArrayList<>(coupons.size());
+        for (Coupon coupon : coupons) {
+            codes.add(coupon.getId());
+        }
+        return codes;
+    }
+
+    private List<String> reserveCodes(int count) {
+        List<String> codes = new ArrayList<>(count);
+        int attempts = 0;
+        while (codes.size() < count) {
+            int index = random.nextInt(CouponCodeIndex.CODE_COUNT);
+            if (couponCodeIndex.reserve(index)) {
+                codes.add(CouponCodeIndex.codeOf(index));
+                attempts = 0;
+            } else if (++attempts >= MAX_ATTEMPTS) {
+                // the codes reserved so far stay taken, they only cost a database lookup when a client tries them
+                throw new IllegalStateException("There are not enough free coupon codes left");
+            }
+        }
+        return codes;
+    }
+
+    private void insert(CouponType type, List<Coupon> batch) {
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (Coupon coupon : batch) {
+            rows.add(new Object[] {
+                type.name(),
+                coupon.getId(),
+                coupon instanceof PercentageCoupon ? ((PercentageCoupon) coupon).getPercentage() : null,
+                timestamp(coupon.getValidFrom()),
+                timestamp(coupon.getValidUntil()),
+                coupon.getMaxRedemptions()
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows, new int[] {
+            Types.VARCHAR, Types.VARCHAR, Types.DOUBLE, Types.TIMESTAMP, Types.TIMESTAMP, Types.INTEGER
+        });
+    }
+
+    private static Timestamp timestamp(LocalDateTime time) {
+        return time == null ? null : Timestamp.valueOf(time);
+    }
+}
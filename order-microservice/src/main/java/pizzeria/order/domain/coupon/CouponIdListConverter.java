@@ -0,0 +1,57 @@
+package pizzeria.order.domain.coupon;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores the coupon ids of an order as one comma separated column instead of rows in a separate table.
+ * Coupon ids are chosen by the managers, so commas and backslashes in them are escaped with a backslash.
+ */
+@Converter
+public class CouponIdListConverter implements AttributeConverter<List<String>, String> {
+    private static final char SEPARATOR = ',';
+    private static final char ESCAPE = '\\';
+
+    @Override
+    public String convertToDatabaseColumn(List<String> ids) {
+        if (ids == null) return null;
+        StringBuilder packed = new StringBuilder();
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                packed.append(SEPARATOR);
+            }
+            String id = ids.get(i);
+            for (int c = 0; c < id.length(); c++) {
+                char ch = id.charAt(c);
+                if (ch == SEPARATOR || ch == ESCAPE) {
+                    packed.append(ESCAPE);
+                }
+                packed.append(ch);
+            }
+        }
+        return packed.toString();
+    }
+
+    @Override
+    public List<String> convertToEntityAttribute(String packed) {
+        List<String> ids = new ArrayList<>();
+        // an order that was saved without a list, or with an empty one, has no ids
+        if (packed == null || packed.isEmpty()) return ids;
+        StringBuilder id = new StringBuilder();
+        for (int c = 0; c < packed.length(); c++) {
+            char ch = packed.charAt(c);
+            if (ch == ESCAPE && c + 1 < packed.length()) {
+                id.append(packed.charAt(++c));
+            } else if (ch == SEPARATOR) {
+                ids.add(id.toString());
+                id.setLength(0);
+            } else {
+                id.append(ch);
+            }
+        }
+        ids.add(id.toString());
+        return ids;
+    }
+}
@@ -0,0 +1,425 @@
+package pizzeria.order.domain.coupon;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The type Coupon ledger
+ * Keeps track of the coupons with a validity window or a redemption limit, the other coupons can always be redeemed.
+ * Redemptions take a permit from striped counters in memory, so many orders can redeem the same coupon at once
+ * without handing out more than the limit, and the counts are written to the database in batches.
+ * Coupons leave the ledger in the order they expire, after which they are never evaluated again.
+ */
+@Component
+public class CouponLedger {
+    private static final String ADD_REDEMPTIONS = "update coupons set redemptions = redemptions + ? where coupon_id = ?";
+
+    // the value of Limits.replacedAt while the row of the coupon is not being replaced
+    private static final long NOT_REPLACED = -1;
+
+    private final transient CouponRepository couponRepository;
+    private final transient JdbcTemplate jdbcTemplate;
+    private final transient int stripes;
+    private final transient Clock clock;
+
+    private final transient Map<String, Limits> limits = new ConcurrentHashMap<>();
+    private final transient Set<String> expired = ConcurrentHashMap.newKeySet();
+    // the limited coupons with an end date, the first one expires first
+    private final transient ConcurrentSkipListSet<Expiry> expiries = new ConcurrentSkipListSet<>();
+
+    /**
+     * Instantiates a new Coupon ledger
+     *
+     * @param couponRepository the repository the limited coupons are loaded from
+     * @param jdbcTemplate the template the redemption counts are written with
+     * @param stripes the number of counters the redemptions of one coupon are spread over
+     */
+    @Autowired
+    public CouponLedger(CouponRepository couponRepository, JdbcTemplate jdbcTemplate,
+                        @Value("${coupon.redemption.stripes:16}") int stripes) {
+        this(couponRepository, jdbcTemplate, stripes, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Instantiates a new Coupon ledger, used for testing purposes
+     *
+     * @param couponRepository the repository the limited coupons are loaded from
+     * @param jdbcTemplate the template the redemption counts are written with
+     * @param stripes the number of counters the redemptions of one coupon are spread over
+     * @param clock the clock the validity windows are checked against
+     */
+    public CouponLedger(CouponRepository couponRepository, JdbcTemplate jdbcTemplate, int stripes, Clock clock) {
+        this.couponRepository = couponRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.stripes = stripes;
+        this.clock = clock;
+    }
+
+    /**
+     * Loads the limited coupons with the number of times they were redeemed
+     */
+    @PostConstruct
+    public synchronized void load() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        for (Coupon coupon : couponRepository.findAllLimited()) {
+            if (coupon.getValidUntil() != null && !coupon.getValidUntil().isAfter(now)) {
+                expired.add(coupon.getId());
+            } else {
+                track(new Limits(coupon, coupon.getRedemptions(), stripes));
+            }
+        }
+    }
+
+    /**
+     * Counts the redemptions a row that replaces the row of a coupon starts from, in the transaction that replaces it
+     * The redemptions of the coupon are not flushed until the transaction is over, then register or cancelReplace
+     * has to be called, so they are neither written to the row that is deleted nor counted twice in the new one.
+     *
+     * @param code the code of the coupon
+     * @param stored the redemptions in the row that is replaced
+     * @return the redemptions to insert the new row with
+     */
+    public synchronized long replace(String code, long stored) {
+        Limits previous = limits.get(code);
+        if (previous == null) {
+            return stored;
+        }
+        previous.replacedAt = previous.redeemed.sum();
+        return previous.stored + previous.replacedAt;
+    }
+
+    /**
+     * Flushes the redemptions of a coupon again after the transaction that would have replaced its row rolled back
+     *
+     * @param code the code of the coupon
+     */
+    public synchronized void cancelReplace(String code) {
+        Limits previous = limits.get(code);
+        if (previous != null) {
+            previous.replacedAt = NOT_REPLACED;
+        }
+    }
+
+    /**
+     * Starts tracking a coupon that was created or changed, the redemptions counted so far are kept
+     * Only called once the coupon is committed, so concurrent orders never see limits that may still roll back.
+     * A changed coupon of the same type keeps its count, the count of a replaced row was inserted with the new one.
+     *
+     * @param coupon the committed coupon
+     */
+    public synchronized void register(Coupon coupon) {
+        String code = coupon.getId();
+        Limits previous = limits.get(code);
+        long stored;
+        if (previous == null) {
+            stored = couponRepository.findRedemptions(code).orElse(0L);
+        } else {
+            stored = previous.stored;
+            if (previous.replacedAt != NOT_REPLACED) {
+                // the new row holds every redemption up to the replacement
+                previous.flushed = previous.replacedAt;
+                previous.replacedAt = NOT_REPLACED;
+            }
+        }
+
+        expired.remove(code);
+        if (!coupon.isLimited()) {
+            limits.remove(code);
+            writeUnflushed(previous);
+        } else if (coupon.getValidUntil() != null && !coupon.getValidUntil().isAfter(LocalDateTime.now(clock))) {
+            limits.remove(code);
+            expired.add(code);
+            writeUnflushed(previous);
+        } else {
+            // replaces the previous limits in one step, so the coupon is never seen without them
+            track(previous == null
+                    ? new Limits(coupon, stored, stripes)
+                    : new Limits(coupon, previous, previous.flushed));
+        }
+    }
+
+    /**
+     * Starts tracking coupons that were just inserted, so have not been redeemed yet
+     *
+     * @param coupons the new coupons
+     */
+    public synchronized void registerNew(List<Coupon> coupons) {
+        for (Coupon coupon : coupons) {
+            if (coupon.isLimited()) {
+                track(new Limits(coupon, 0, stripes));
+            }
+        }
+    }
+
+    /**
+     * @param codes the codes of coupons
+     * @return the codes of the coupons that have not expired and have started, in the same order
+     */
+    public List<String> filterLive(List<String> codes) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<String> live = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            if (!expired.contains(code)) {
+                Limits coupon = limits.get(code);
+                if (coupon == null || coupon.isInWindow(now)) {
+                    live.add(code);
+                }
+            }
+        }
+        return live;
+    }
+
+    /**
+     * @param code the code of the coupon
+     * @return true iff the coupon has no redemption limit or has not reached it yet
+     */
+    public boolean hasRedemptionsLeft(String code) {
+        return remaining(code) != 0;
+    }
+
+    /**
+     * Redeems a coupon for an order
+     * Only a redemption that was counted may be given back, the order has to remember which of its coupons were
+     *
+     * @param code the code of the coupon
+     * @return REFUSED if the coupon expired, has not started or reached its limit, COUNTED if the redemption
+     *         took a permit, UNCOUNTED if the coupon has no limits, so there is nothing to give back
+     */
+    public Redemption tryRedeem(String code) {
+        Limits coupon = limits.get(code);
+        if (coupon == null) {
+            return expired.contains(code) ? Redemption.REFUSED : Redemption.UNCOUNTED;
+        }
+        if (!coupon.isInWindow(LocalDateTime.now(clock)) || !coupon.permits.tryAcquire()) {
+            return Redemption.REFUSED;
+        }
+        coupon.redeemed.increment();
+        return Redemption.COUNTED;
+    }
+
+    /**
+     * Gives a counted redemption back, when the order that redeemed the coupon was not stored, was edited or was removed
+     * The count of a coupon never drops below zero and its permits never exceed its limit,
+     * whatever is given back
+     *
+     * @param code the code of the coupon, for which tryRedeem returned COUNTED
+     */
+    public synchronized void release(String code) {
+        Limits coupon = limits.get(code);
+        if (coupon == null || coupon.stored + coupon.redeemed.sum() <= 0
+                || coupon.maxRedemptions != null && coupon.permits.available() >= coupon.maxRedemptions) {
+            return;
+        }
+        coupon.permits.release();
+        coupon.redeemed.decrement();
+    }
+
+    /**
+     * @param code the code of the coupon
+     * @return the number of times the coupon can still be redeemed, -1 if there is no limit
+     */
+    public long remaining(String code) {
+        if (expired.contains(code)) {
+            return 0;
+        }
+        Limits coupon = limits.get(code);
+        return coupon == null || coupon.maxRedemptions == null ? -1 : coupon.permits.available();
+    }
+
+    /**
+     * Writes the redemptions counted since the last flush to the database, in one batch
+     */
+    @Scheduled(fixedDelayString = "${coupon.redemption.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        List<Limits> changed = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (Limits coupon : limits.values()) {
+            long delta = coupon.unflushed();
+            // the row of a coupon that is being replaced may be deleted, register writes its redemptions to the new one
+            if (delta != 0 && coupon.replacedAt == NOT_REPLACED) {
+                changed.add(coupon);
+                updates.add(new Object[] {delta, coupon.code});
+            }
+        }
+        if (updates.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(ADD_REDEMPTIONS, updates);
+        for (int i = 0; i < changed.size(); i++) {
+            changed.get(i).flushed += (long) updates.get(i)[0];
+        }
+    }
+
+    /**
+     * Writes the last redemptions to the database when the application stops,
+     * otherwise the limits would be loaded from a count that misses them on the next start
+     */
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    /**
+     * Takes the coupons that expired off the ledger, their last redemptions are written to the database first
+     */
+    @Scheduled(fixedDelayString = "${coupon.expiry.sweep-interval-ms:60000}")
+    public synchronized void removeExpired() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        Expiry first;
+        while ((first = expiries.pollFirst()) != null) {
+            if (first.validUntil.isAfter(now)) {
+                expiries.add(first);
+                return;
+            }
+            Limits coupon = limits.get(first.code);
+            // the coupon may have been changed since, then this is not its end date anymore
+            if (coupon != null && first.validUntil.equals(coupon.validUntil)) {
+                expired.add(first.code);
+                limits.remove(first.code);
+                if (coupon.replacedAt == NOT_REPLACED) {
+                    writeUnflushed(coupon);
+                }
+            }
+        }
+    }
+
+    private void writeUnflushed(Limits coupon) {
+        long delta = coupon == null ? 0 : coupon.unflushed();
+        if (delta != 0) {
+            jdbcTemplate.update(ADD_REDEMPTIONS, delta, coupon.code);
+        }
+    }
+
+    private void track(Limits coupon) {
+        limits.put(coupon.code, coupon);
+        if (coupon.validUntil != null) {
+            expiries.add(new Expiry(coupon.validUntil, coupon.code));
+        }
+    }
+
+    /**
+     * The outcome of a redemption
+     */
+    public enum Redemption {
+        /**
+         * The coupon expired, has not started or reached its limit
+         */
+        REFUSED,
+        /**
+         * The coupon is not on the ledger, so the redemption was not counted and must not be given back
+         */
+        UNCOUNTED,
+        /**
+         * The redemption took a permit, it is given back with release
+         */
+        COUNTED
+    }
+
+    /**
+     * The validity window and the redemptions of a coupon
+     */
+    private static final class Limits {
+        // the permits of a coupon without a redemption limit, more than can ever be taken,
+        // so a limit that is set later can be applied to the same permits
+        private static final long UNLIMITED = Long.MAX_VALUE / 4;
+
+        private final String code;
+        private final LocalDateTime validFrom;
+        private final LocalDateTime validUntil;
+        // null when the number of redemptions is not limited
+        private final Integer maxRedemptions;
+        // shared with the limits this replaced, so a redemption still under way on those counts against these
+        private final StripedPermits permits;
+        // the redemptions in the database when the coupon was loaded
+        private final long stored;
+        // the redemptions since the coupon was loaded, minus the ones given back
+        private final LongAdder redeemed;
+        // the part of redeemed that is in the database, only used while holding the lock of the ledger
+        private long flushed;
+        // the part of redeemed a new row was inserted with, while the transaction that replaces the row is open
+        private long replacedAt = NOT_REPLACED;
+
+        Limits(Coupon coupon, long stored, int stripes) {
+            // a coupon that can be redeemed a few times does not need more stripes than that, single-use ones get one
+            this(coupon, stored, new LongAdder(), 0, new StripedPermits(cap(coupon.getMaxRedemptions()) - stored,
+                    (int) Math.max(1, Math.min(stripes, cap(coupon.getMaxRedemptions())))));
+        }
+
+        /**
+         * The limits of a changed coupon, which keep counting on the counter and the permits of the previous limits,
+         * so a redemption that still reaches the previous limits after they were replaced is neither lost
+         * nor handed out on top of the new limit
+         */
+        Limits(Coupon coupon, Limits previous, long flushed) {
+            this(coupon, previous.stored, previous.redeemed, flushed, previous.permits);
+            permits.add(cap(maxRedemptions) - cap(previous.maxRedemptions));
+        }
+
+        private Limits(Coupon coupon, long stored, LongAdder redeemed, long flushed, StripedPermits permits) {
+            this.code = coupon.getId();
+            this.validFrom = coupon.getValidFrom();
+            this.validUntil = coupon.getValidUntil();
+            this.maxRedemptions = coupon.getMaxRedemptions();
+            this.stored = stored;
+            this.redeemed = redeemed;
+            this.flushed = flushed;
+            this.permits = permits;
+        }
+
+        private static long cap(Integer maxRedemptions) {
+            return maxRedemptions == null ? UNLIMITED : maxRedemptions;
+        }
+
+        boolean isInWindow(LocalDateTime now) {
+            return (validFrom == null || !now.isBefore(validFrom)) && (validUntil == null || now.isBefore(validUntil));
+        }
+
+        long unflushed() {
+            return redeemed.sum() - flushed;
+        }
+    }
+
+    /**
+     * The end date of a coupon, ordered by the date
+     */
+    private static final class Expiry implements Comparable<Expiry> {
+        private final LocalDateTime validUntil;
+        private final String code;
+
+        Expiry(LocalDateTime validUntil, String code) {
+            this.validUntil = validUntil;
+            this.code = code;
+        }
+
+        @Override
+        public int compareTo(Expiry other) {
+            int byDate = validUntil.compareTo(other.validUntil);
+            return byDate != 0 ? byDate : code.compareTo(other.code);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Expiry && compareTo((Expiry) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return validUntil.hashCode() * 31 + code.hashCode();
+        }
+    }
+}
@@ -1,13 +1,47 @@
 package pizzeria.order.domain.coupon;
 
+import org.hibernate.annotations.QueryHints;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
 
-@NoRepositoryBean
-public interface CouponRepository<T extends Coupon> extends JpaRepository<T, String> {
+@Transactional
+public interface CouponRepository extends JpaRepository<Coupon, String> {
 
-    Optional<T> findById(String id);
-}
+    /**
+     * Loads the coupons with the given codes, whatever their type, the result is kept in the query cache
+     * until a coupon is saved or deleted
+     *
+     * @param ids the codes of the coupons
+     * @return the coupons that exist
+     */
+    @Override
+    @org.springframework.data.jpa.repository.QueryHints(@QueryHint(name = QueryHints.CACHEABLE, value = "true"))
+    List<Coupon> findAllById(Iterable<String> ids);
+
+    /**
+     * @return the codes of all coupons, without loading the coupons themselves
+     */
+    @Query("select c.id from Coupon c")
+    List<String> findAllCodes();
 
+    /**
+     * @return the coupons with a validity window or a redemption limit
+     */
+    @Query("select c from Coupon c where c.validFrom is not null or c.validUntil is not null or c.maxRedemptions is not null")
+    List<Coupon> findAllLimited();
+
+    /**
+     * Reads the redemption count from the database, it is written past the entity so a cached coupon may be behind
+     *
+     * @param id the code of the coupon
+     * @return the number of times the coupon was redeemed, empty if it does not exist
+     */
+    @Query("select c.redemptions from Coupon c where c.id = :id")
+    Optional<Long> findRedemptions(@Param("id") String id);
+}
@@ -2,53 +2,97 @@ package pizzeria.order.domain.coupon;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import pizzeria.order.models.CouponModel;
 
+import java.util.Optional;
+
 /**
  * The type Coupon service.
  */
 @Service
 public class CouponService {
-    private transient final Coupon_percentage_Repository coupon_percentage_Repository;
-    private transient final Coupon_2for1_Repository coupon_2for1_Repository;
+    private transient final CouponRepository couponRepository;
+    private transient final CouponCodeIndex couponCodeIndex;
+    private transient final CouponLedger couponLedger;
 
     /**
-     * Instantiates a new Coupon service with the respective repositories
+     * Instantiates a new Coupon service with the coupon repository
      *
-     * @param coupon_percentage_Repository the percentage coupon repository (JpaRepo)
-     * @param coupon_2for1_Repository the 2for1 coupon repository (JpaRepo)
+     * @param couponRepository the coupon repository (JpaRepo), which holds every type of coupon
+     * @param couponCodeIndex the index of the codes that belong to a coupon
+     * @param couponLedger the ledger of the validity windows and redemption limits
      */
     @Autowired
-    public CouponService(Coupon_percentage_Repository coupon_percentage_Repository, Coupon_2for1_Repository coupon_2for1_Repository) {
-        this.coupon_percentage_Repository = coupon_percentage_Repository;
-        this.coupon_2for1_Repository = coupon_2for1_Repository;
+    public CouponService(CouponRepository couponRepository, CouponCodeIndex couponCodeIndex, CouponLedger couponLedger) {
+        this.couponRepository = couponRepository;
+        this.couponCodeIndex = couponCodeIndex;
+        this.couponLedger = couponLedger;
     }
 
     /**
      * Creates a coupon in the database
+     * The code has to be 4 letters followed by 2 digits, the validity window and the redemption limit are optional
+     * A coupon it replaces is only deleted together with the save of the new one
+     * The coupon is only looked up by its code and counted against its limits once it is committed
      *
      * @param coupon the coupon to be created
      * @return the boolean
      */
+    @Transactional
     public boolean createCoupon(CouponModel coupon) {
+        if (CouponCodeIndex.indexOf(coupon.getId()) < 0 || !hasValidLimits(coupon)) {
+            return false;
+        }
         try {
+            Coupon created = CouponType.valueOf(coupon.getType()).create(coupon);
+            created.setValidFrom(coupon.getValidFrom());
+            created.setValidUntil(coupon.getValidUntil());
+            created.setMaxRedemptions(coupon.getMaxRedemptions());
+
+            //the index and the ledger only learn about the coupon once it is committed
+            registerAfterCommit(created);
 
             //we save the coupon in the database (if the same id is provided, the existing coupon get updated)
-            switch (coupon.getType()) {
-                case "PERCENTAGE":
-                    PercentageCoupon percentageCoupon = new PercentageCoupon(coupon.getId(), coupon.getPercentage());
-                    coupon_percentage_Repository.save(percentageCoupon);
-                    break;
-                case "TWO_FOR_ONE":
-                    TwoForOneCoupon twoForOneCoupon = new TwoForOneCoupon(coupon.getId());
-                    coupon_2for1_Repository.save(twoForOneCoupon);
-                    break;
-                default:
-                    return false;
+            //a coupon of another type with the same id is replaced, as a row can only hold one type
+            //the new row is inserted with the redemptions of the one it replaces, in this transaction
+            Optional<Coupon> existing = couponRepository.findById(created.getId());
+            if (existing.isPresent() && existing.get().getClass() != created.getClass()) {
+                long stored = couponRepository.findRedemptions(created.getId()).orElse(0L);
+                couponRepository.delete(existing.get());
+                created.setRedemptions(couponLedger.replace(created.getId(), stored));
             }
+            couponRepository.saveAndFlush(created);
         } catch (Exception e) {
+            //nothing is written, the coupon that would have been replaced is kept
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return false;
         }
         return true;
     }
+
+    private void registerAfterCommit(Coupon coupon) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    couponCodeIndex.add(coupon.getId());
+                    couponLedger.register(coupon);
+                } else {
+                    couponLedger.cancelReplace(coupon.getId());
+                }
+            }
+        });
+    }
+
+    private static boolean hasValidLimits(CouponModel coupon) {
+        if (coupon.getMaxRedemptions() != null && coupon.getMaxRedemptions() < 0) {
+            return false;
+        }
+        return coupon.getValidFrom() == null || coupon.getValidUntil() == null
+                || coupon.getValidUntil().isAfter(coupon.getValidFrom());
+    }
 }
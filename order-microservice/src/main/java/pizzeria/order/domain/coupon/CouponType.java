@@ -0,0 +1,32 @@
+package pizzeria.order.domain.coupon;
+
+import pizzeria.order.models.CouponModel;
+
+/**
+ * The types of coupon
+ * The name of a type is what clients send when they create a coupon, and what is stored in the type column of the coupon.
+ * A new type of coupon only needs a subclass of Coupon and a constant here.
+ */
+public enum CouponType {
+    PERCENTAGE {
+        @Override
+        public Coupon create(CouponModel coupon) {
+            return new PercentageCoupon(coupon.getId(), coupon.getPercentage());
+        }
+    },
+    TWO_FOR_ONE {
+        @Override
+        public Coupon create(CouponModel coupon) {
+            return new TwoForOneCoupon(coupon.getId());
+        }
+    };
+
+    /**
+     * Creates the coupon described by the model
+     *
+     * @param coupon the model of the coupon
+     * @return the coupon of this type
+     * @throws IllegalArgumentException the model does not describe a valid coupon of this type
+     */
+    public abstract Coupon create(CouponModel coupon);
+}
@@ -1,8 +0,0 @@
-package pizzeria.order.domain.coupon;
-
-import org.springframework.transaction.annotation.Transactional;
-
-@Transactional
-public interface Coupon_percentage_Repository extends CouponRepository<PercentageCoupon> {
-    // auto generated methods
-}
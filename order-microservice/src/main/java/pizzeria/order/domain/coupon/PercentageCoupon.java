@@ -3,14 +3,17 @@ package pizzeria.order.domain.coupon;
 import lombok.Getter;
 import lombok.Setter;
 import pizzeria.order.domain.order.Order;
+import pizzeria.order.domain.order.RecipeHistogram;
 import pizzeria.order.models.GetPricesResponseModel;
 
+import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
 
 /**
  * The type Percentage coupon.
  */
 @Entity
+@DiscriminatorValue("PERCENTAGE")
 public class PercentageCoupon extends Coupon {
 
     @Getter
@@ -41,13 +44,15 @@ public class PercentageCoupon extends Coupon {
      * Validates that the percentage is within 0 and 1
      *
      * @param order     the order to evaluate price on
+     * @param recipes   the number of foods per recipe in the order
      * @param prices    the prices of ingredients and recipes
-     * @param basePrice the base price of the order
-     * @return the final price of the order after applying the coupon
+     * @param basePrice the base price of the order in cents
+     * @return the final price of the order in cents after applying the coupon
      */
     @Override
-    public double calculatePrice(Order order, GetPricesResponseModel prices, double basePrice) {
-        //makes the percentage reduction on the base price
-        return basePrice - basePrice * percentage;
+    public long calculatePriceInMinorUnits(Order order, RecipeHistogram recipes,
+                                           GetPricesResponseModel prices, long basePrice) {
+        //makes the percentage reduction on the base price, the reduction is rounded to the nearest cent
+        return basePrice - Math.round(basePrice * percentage);
     }
 }
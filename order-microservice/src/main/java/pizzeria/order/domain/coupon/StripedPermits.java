@@ -0,0 +1,140 @@
+package pizzeria.order.domain.coupon;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The type Striped permits
+ * A fixed number of permits spread over stripes, every thread starts at its own stripe,
+ * so threads redeeming the same coupon rarely compete for the same counter.
+ * Permits are only taken from a stripe that still has some, so no more than the total are ever handed out.
+ * The total can be changed while permits are handed out, permits that are taken away but were already
+ * handed out are owed, and the next permits that are given back or found in a stripe pay them off.
+ */
+final class StripedPermits {
+    // every stripe gets its own cache line, so updates of one stripe do not slow down the others
+    private static final int PADDING = 8;
+
+    private final transient AtomicLongArray cells;
+    private final transient int mask;
+    // the permits that were taken away while they were handed out, normally 0
+    private final transient AtomicLong owed = new AtomicLong();
+
+    /**
+     * Instantiates new Striped permits
+     *
+     * @param permits the number of permits, a negative number is owed
+     * @param stripes the number of stripes, rounded up to a power of two
+     */
+    StripedPermits(long permits, int stripes) {
+        int count = 1;
+        while (count < stripes) {
+            count <<= 1;
+        }
+        this.mask = count - 1;
+        this.cells = new AtomicLongArray(count * PADDING);
+        long share = Math.max(0, permits) / count;
+        long remainder = Math.max(0, permits) % count;
+        for (int i = 0; i < count; i++) {
+            cells.set(i * PADDING, share + (i < remainder ? 1 : 0));
+        }
+        owed.set(Math.max(0, -permits));
+    }
+
+    /**
+     * Takes a permit, from the stripe of this thread if it has one left, from the other stripes otherwise
+     *
+     * @return true iff a permit was taken
+     */
+    boolean tryAcquire() {
+        int start = probe();
+        for (int i = 0; i <= mask; i++) {
+            int cell = ((start + i) & mask) * PADDING;
+            long current = cells.get(cell);
+            while (current > 0) {
+                if (cells.compareAndSet(cell, current, current - 1)) {
+                    if (pay(1) == 0) {
+                        // the permit paid off one that was taken away, look for another one
+                        current = cells.get(cell);
+                        continue;
+                    }
+                    return true;
+                }
+                current = cells.get(cell);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gives a permit back
+     */
+    void release() {
+        if (pay(1) > 0) {
+            cells.incrementAndGet((probe() & mask) * PADDING);
+        }
+    }
+
+    /**
+     * Changes the total number of permits, the permits that are handed out at the moment keep counting against it
+     *
+     * @param permits the number of permits to add, negative to take permits away
+     */
+    void add(long permits) {
+        if (permits >= 0) {
+            long left = pay(permits);
+            if (left > 0) {
+                cells.addAndGet(0, left);
+            }
+            return;
+        }
+        long taking = -permits;
+        for (int i = 0; i <= mask && taking > 0; i++) {
+            int cell = i * PADDING;
+            long current = cells.get(cell);
+            while (current > 0 && taking > 0) {
+                long taken = Math.min(current, taking);
+                if (cells.compareAndSet(cell, current, current - taken)) {
+                    taking -= taken;
+                }
+                current = cells.get(cell);
+            }
+        }
+        if (taking > 0) {
+            owed.addAndGet(taking);
+        }
+    }
+
+    /**
+     * @return the number of permits left, exact when no permits are taken or given back at the same time
+     */
+    long available() {
+        long sum = -owed.get();
+        for (int i = 0; i <= mask; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return Math.max(0, sum);
+    }
+
+    /**
+     * Pays off owed permits
+     *
+     * @param permits the number of permits to pay with
+     * @return the permits that were left after paying
+     */
+    private long pay(long permits) {
+        long current = owed.get();
+        while (current > 0) {
+            long paid = Math.min(current, permits);
+            if (owed.compareAndSet(current, current - paid)) {
+                return permits - paid;
+            }
+            current = owed.get();
+        }
+        return permits;
+    }
+
+    private static int probe() {
+        return Long.hashCode(Thread.currentThread().getId() * 0x9E3779B97F4A7C15L);
+    }
+}
@@ -1,17 +1,18 @@
 package pizzeria.order.domain.coupon;
 
-import pizzeria.order.domain.food.Food;
 import pizzeria.order.domain.order.Order;
+import pizzeria.order.domain.order.RecipeHistogram;
 import pizzeria.order.models.GetPricesResponseModel;
+import pizzeria.order.models.PriceTable;
 
+import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * The type Two for one coupon.
  */
 @Entity
+@DiscriminatorValue("TWO_FOR_ONE")
 public class TwoForOneCoupon extends Coupon {
 
     /**
@@ -30,31 +31,24 @@ public class TwoForOneCoupon extends Coupon {
      * Calculates the price of an order using the 2for1 coupon
      *
      * @param order     the order to evaluate price on
+     * @param recipes   the number of foods per recipe in the order
      * @param prices    the prices of ingredients and recipes
-     * @param basePrice the base price of the order
-     * @return the final price of the order after applying the coupon
+     * @param basePrice the base price of the order in cents
+     * @return the final price of the order in cents after applying the coupon
      */
     @Override
-    public double calculatePrice(Order order, GetPricesResponseModel prices, double basePrice) {
-        //make a hashmap that keeps track of every food in the list with its occurrences
-
-        Map<Long, Integer> foodMap = new HashMap<>();
-        for (Food f : order.getFoods()){
-            //if this recipe is already in the choices, add an occurrence else put it with 1 occurrence
-            if (!foodMap.containsKey(f.getRecipeId())){
-                foodMap.put(f.getRecipeId(), 1);
-            }else {
-                foodMap.put(f.getRecipeId(), foodMap.get(f.getRecipeId()) + 1);
-            }
-        }
-
+    public long calculatePriceInMinorUnits(Order order, RecipeHistogram recipes,
+                                           GetPricesResponseModel prices, long basePrice) {
         //now every time we have 2 times an item we only charge it once
         //so essentially we subtract from the price (occurrences)/2 per recipe
         //this coupon could be made a little more interesting if we add a recipe id (like margherita pizza)
-        double reduction = 0.0;
-        for (Long key : foodMap.keySet()){
-            int reduced_times = foodMap.get(key) / 2;
-            reduction += (double) reduced_times * prices.getFoodPrices().get(key).getPrice();
+        PriceTable foodPrices = prices.getFoodPrices();
+        long reduction = 0;
+        for (int i = 0; i < recipes.size(); i++) {
+            int reduced_times = recipes.countAt(i) / 2;
+            if (reduced_times > 0) {
+                reduction += reduced_times * foodPrices.priceOf(recipes.recipeAt(i));
+            }
         }
 
         //return the base price - the reduction
@@ -0,0 +1,214 @@
+package pizzeria.order.domain.food;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import pizzeria.commons.communication.ServiceGuard;
+import pizzeria.commons.money.Money;
+import pizzeria.order.models.CatalogChangeModel;
+import pizzeria.order.models.CatalogFeedResponseModel;
+import pizzeria.order.models.GetPricesResponseModel;
+import pizzeria.order.models.PriceTable;
+import pizzeria.order.models.Tuple;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The type Catalog replica
+ * Keeps an in-memory copy of the recipe and ingredient prices of the food microservice.
+ * The replica is built from a full snapshot and kept current by polling the change feed,
+ * so orders can be priced without a network call as long as the replica is fresh.
+ */
+@Component
+public class CatalogReplica {
+    private final transient RestTemplate restTemplate;
+    private final transient String feedUrl;
+    private final transient long maxStalenessMillis;
+    private final transient boolean enabled;
+    private final transient Clock clock;
+
+    // replaced as a whole on every sync, so readers never see a half applied change set
+    private transient volatile State state = State.EMPTY;
+
+    /**
+     * Instantiates a new Catalog replica with the settings from the properties
+     *
+     * @param restTemplateBuilder the rest template builder
+     * @param foodServiceGuard the guard of the food microservice, whose timeouts and pooled connections the sync uses
+     * @param feedUrl the base url of the catalog feed of the food microservice
+     * @param maxStalenessMillis how long after the last successful sync the replica may be used
+     * @param enabled whether the replica should be used at all
+     */
+    @Autowired
+    public CatalogReplica(RestTemplateBuilder restTemplateBuilder,
+                          ServiceGuard foodServiceGuard,
+                          @Value("${catalog.replica.url:http://localhost:8084/catalog}") String feedUrl,
+                          @Value("${catalog.replica.max-staleness-ms:5000}") long maxStalenessMillis,
+                          @Value("${catalog.replica.enabled:true}") boolean enabled) {
+        this(foodServiceGuard.restTemplate(restTemplateBuilder), feedUrl, maxStalenessMillis, enabled, Clock.systemUTC());
+    }
+
+    /**
+     * Instantiates a new Catalog replica, used for testing purposes
+     *
+     * @param restTemplate the rest template used to reach the feed
+     * @param feedUrl the base url of the catalog feed of the food microservice
+     * @param maxStalenessMillis how long after the last successful sync the replica may be used
+     * @param enabled whether the replica should be used at all
+     * @param clock the clock used to decide whether the replica is stale
+     */
+    public CatalogReplica(RestTemplate restTemplate, String feedUrl, long maxStalenessMillis,
+                          boolean enabled, Clock clock) {
+        this.restTemplate = restTemplate;
+        this.feedUrl = feedUrl;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.enabled = enabled;
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a replica that never holds any data, so every lookup goes to the food microservice
+     *
+     * @return the disabled replica
+     */
+    public static CatalogReplica disabled() {
+        return new CatalogReplica(null, null, 0, false, Clock.systemUTC());
+    }
+
+    /**
+     * Brings the replica up to date with the food microservice
+     * A full snapshot is loaded the first time and whenever the food microservice restarted,
+     * otherwise only the changes since the last applied version are fetched.
+     */
+    @Scheduled(fixedDelayString = "${catalog.replica.sync-interval-ms:1000}")
+    public void sync() {
+        if (!enabled) return;
+        try {
+            State current = state;
+            if (current.epoch == null) {
+                state = fromSnapshot(fetch(feedUrl + "/snapshot"));
+                return;
+            }
+            CatalogFeedResponseModel changes = fetch(feedUrl + "/changes?since=" + current.version);
+            if (changes == null) return;
+            if (!current.epoch.equals(changes.getEpoch())) {
+                //the food microservice restarted, its versions are not comparable to ours anymore
+                state = fromSnapshot(fetch(feedUrl + "/snapshot"));
+                return;
+            }
+            state = current.apply(changes, clock.millis());
+        } catch (RestClientException e) {
+            //keep the old state, it will become stale and lookups fall back to the food microservice
+        }
+    }
+
+    /**
+     * Looks up the prices of the given recipes and ingredients in the replica
+     *
+     * @param recipeIds     the recipe ids we want the prices of
+     * @param ingredientIds the ingredient ids we want the prices of
+     * @return the prices, or empty if the replica is stale or does not know one of the ids
+     */
+    public Optional<GetPricesResponseModel> getPrices(Collection<Long> recipeIds, Collection<Long> ingredientIds) {
+        State current = state;
+        if (!isFresh(current)) return Optional.empty();
+
+        PriceTable foodPrices = select(current.recipes, recipeIds);
+        PriceTable ingredientPrices = select(current.ingredients, ingredientIds);
+        if (foodPrices == null || ingredientPrices == null) return Optional.empty();
+
+        return Optional.of(new GetPricesResponseModel(foodPrices, ingredientPrices));
+    }
+
+    /**
+     * Checks whether the replica has been synced recently enough to be used for pricing
+     *
+     * @return true iff the replica is enabled and fresh
+     */
+    public boolean isFresh() {
+        return isFresh(state);
+    }
+
+    /**
+     * @return the version of the catalog that has been applied to the replica
+     */
+    public long getVersion() {
+        return state.version;
+    }
+
+    private boolean isFresh(State current) {
+        return enabled && current.epoch != null && clock.millis() - current.syncedAt <= maxStalenessMillis;
+    }
+
+    private static PriceTable select(Map<Long, Tuple> source, Collection<Long> ids) {
+        PriceTable selected = new PriceTable(ids.size());
+        for (Long id : ids) {
+            Tuple tuple = source.get(id);
+            //an unknown id may have been added after our last sync, let the food microservice decide
+            if (tuple == null) return null;
+            selected.put(id, tuple.getPriceInMinorUnits(), tuple.getName());
+        }
+        return selected;
+    }
+
+    private CatalogFeedResponseModel fetch(String url) {
+        ResponseEntity<CatalogFeedResponseModel> response = restTemplate.getForEntity(url, CatalogFeedResponseModel.class);
+        if (response.getStatusCode() != HttpStatus.OK) return null;
+        return response.getBody();
+    }
+
+    private State fromSnapshot(CatalogFeedResponseModel snapshot) {
+        if (snapshot == null) return state;
+        return new State(snapshot.getEpoch(), 0, new HashMap<>(), new HashMap<>(), 0).apply(snapshot, clock.millis());
+    }
+
+    /**
+     * Immutable view of the replicated catalog
+     */
+    private static final class State {
+        static final State EMPTY = new State(null, 0, Collections.emptyMap(), Collections.emptyMap(), 0);
+
+        final String epoch;
+        final long version;
+        final Map<Long, Tuple> recipes;
+        final Map<Long, Tuple> ingredients;
+        final long syncedAt;
+
+        State(String epoch, long version, Map<Long, Tuple> recipes, Map<Long, Tuple> ingredients, long syncedAt) {
+            this.epoch = epoch;
+            this.version = version;
+            this.recipes = recipes;
+            this.ingredients = ingredients;
+            this.syncedAt = syncedAt;
+        }
+
+        State apply(CatalogFeedResponseModel feed, long now) {
+            if (feed.getChanges() == null || feed.getChanges().isEmpty()) {
+                return new State(epoch, Math.max(version, feed.getVersion()), recipes, ingredients, now);
+            }
+            Map<Long, Tuple> newRecipes = new HashMap<>(recipes);
+            Map<Long, Tuple> newIngredients = new HashMap<>(ingredients);
+            for (CatalogChangeModel change : feed.getChanges()) {
+                Map<Long, Tuple> target = change.getType() == CatalogChangeModel.ItemType.RECIPE
+                        ? newRecipes : newIngredients;
+                if (change.isDeleted()) {
+                    target.remove(change.getId());
+                } else {
+                    target.put(change.getId(), new Tuple(Money.ofMinor(change.getPriceInMinorUnits()), change.getName()));
+                }
+            }
+            return new State(epoch, Math.max(version, feed.getVersion()), newRecipes, newIngredients, now);
+        }
+    }
+}
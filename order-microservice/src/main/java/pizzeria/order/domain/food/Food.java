@@ -4,10 +4,9 @@ import com.sun.istack.NotNull;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.hibernate.annotations.LazyCollection;
-import org.hibernate.annotations.LazyCollectionOption;
 
 import javax.persistence.*;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -15,9 +14,20 @@ import java.util.Objects;
 @Table(name="food")
 @NoArgsConstructor
 public class Food {
+    /**
+     * The length of the columns that hold the packed ingredient ids
+     */
+    public static final int PACKED_IDS_LENGTH = 2000;
+
+    /**
+     * The most base or extra ingredients one line may have: a packed id takes at most 19 digits
+     * and a comma, so the ids of a line always fit their column
+     */
+    public static final int MAX_INGREDIENTS = PACKED_IDS_LENGTH / 20;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "food_sequence")
+    @SequenceGenerator(name = "food_sequence", sequenceName = "food_sequence", allocationSize = 50)
     @NotNull
     @Column(name="id")
     @Getter
@@ -28,20 +38,29 @@ public class Food {
     @Setter
     private long recipeId;
 
-    @ElementCollection
-    @Column(name = "baseIngredients")
-    @LazyCollection(LazyCollectionOption.FALSE)
+    @Column(name = "baseIngredients", length = PACKED_IDS_LENGTH)
+    @Convert(converter = IdListConverter.class)
     @Getter
     @Setter
     private List<Long> baseIngredients;
 
-    @ElementCollection
-    @LazyCollection(LazyCollectionOption.FALSE)
-    @Column(name = "extraIngredients")
+    @Column(name = "extraIngredients", length = PACKED_IDS_LENGTH)
+    @Convert(converter = IdListConverter.class)
     @Getter
     @Setter
     private List<Long> extraIngredients;
 
+    /**
+     * The largest quantity a client may order in one line
+     */
+    public static final int MAX_QUANTITY = 100;
+
+    // the number of identical foods this line stands for, 1 when a client leaves it out
+    @Column(name = "quantity", nullable = false, columnDefinition = "integer default 1")
+    @Getter
+    @Setter
+    private int quantity = 1;
+
     //private enum foodType {PIZZA};
 
     /**
@@ -60,6 +79,18 @@ public class Food {
         this.extraIngredients = extra;
     }
 
+    /**
+     * @param quantity the quantity of the copy
+     * @return a copy of this food with the same id and ingredients, but another quantity
+     */
+    public Food withQuantity(int quantity) {
+        Food copy = new Food(id, recipeId, 0L,
+                baseIngredients == null ? null : new ArrayList<>(baseIngredients),
+                extraIngredients == null ? null : new ArrayList<>(extraIngredients));
+        copy.quantity = quantity;
+        return copy;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -4,57 +4,134 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import pizzeria.commons.communication.ServiceGuard;
 import pizzeria.order.domain.order.Order;
 import pizzeria.order.models.GetPricesResponseModel;
+import pizzeria.order.models.PriceTable;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * The type Food price service
- * Handles the communication with the food microservice to get prices and validate foods
+ * Handles the communication with the food microservice to get prices and validate foods.
+ * When the food microservice cannot be reached, the last prices it returned for the ids are used.
  */
 @Service
 public class FoodPriceService {
+    // the same for every request, so they are built once
+    private static final HttpHeaders JSON_HEADERS = jsonHeaders();
+
     private final transient RestTemplate restTemplate;
+    private final transient CatalogReplica catalogReplica;
+    private final transient PriceRequestCoalescer priceRequestCoalescer;
+    private final transient ServiceGuard foodServiceGuard;
+
+    // every price the food microservice returned, used when it cannot be reached; guarded by this
+    private final transient PriceTable lastKnownFoodPrices = new PriceTable();
+    private final transient PriceTable lastKnownIngredientPrices = new PriceTable();
 
     @Autowired
     /**
      * Instantiates a new Food price service.
      *
      * @param restTemplateBuilder the rest template builder
+     * @param catalogReplica the local replica of the food catalog
+     * @param priceRequestCoalescer merges concurrent lookups that miss the replica into one call
+     * @param foodServiceGuard the timeouts, bulkhead and circuit breaker of the food microservice
      */
-    public FoodPriceService(RestTemplateBuilder restTemplateBuilder) {
-        this.restTemplate = restTemplateBuilder.build();
+    public FoodPriceService(RestTemplateBuilder restTemplateBuilder, CatalogReplica catalogReplica,
+                            PriceRequestCoalescer priceRequestCoalescer, ServiceGuard foodServiceGuard) {
+        this(foodServiceGuard.restTemplate(restTemplateBuilder), catalogReplica, priceRequestCoalescer, foodServiceGuard);
     }
 
     public FoodPriceService(RestTemplate restTemplate) {
+        this(restTemplate, CatalogReplica.disabled());
+    }
+
+    public FoodPriceService(RestTemplate restTemplate, CatalogReplica catalogReplica) {
+        this(restTemplate, catalogReplica, PriceRequestCoalescer.disabled(), ServiceGuard.unguarded("food"));
+    }
+
+    public FoodPriceService(RestTemplate restTemplate, CatalogReplica catalogReplica,
+                            PriceRequestCoalescer priceRequestCoalescer, ServiceGuard foodServiceGuard) {
         this.restTemplate = restTemplate;
+        this.catalogReplica = catalogReplica;
+        this.priceRequestCoalescer = priceRequestCoalescer;
+        this.foodServiceGuard = foodServiceGuard;
     }
 
     /**
-     * Gets food prices from the food microservice
+     * Gets food prices from the local catalog replica,
+     * or from the food microservice when the replica is stale or misses one of the ids.
+     * Concurrent lookups that go to the food microservice share their calls through the coalescer.
      *
      * @param order the order that we want the prices of
      * @return the food prices
      */
     public GetPricesResponseModel getFoodPrices(Order order) {
-        List<Long> ingredients = new ArrayList<>();
+        // every id is asked for once, however many foods use it
+        Set<Long> distinctIngredients = new LinkedHashSet<>();
+        Set<Long> distinctRecipes = new LinkedHashSet<>();
 
         for (Food f: order.getFoods()) {
-            ingredients.addAll(f.getExtraIngredients());
-            ingredients.addAll(f.getBaseIngredients());
+            distinctIngredients.addAll(f.getExtraIngredients());
+            distinctIngredients.addAll(f.getBaseIngredients());
+            distinctRecipes.add(f.getRecipeId());
+        }
+
+        List<Long> ingredients = new ArrayList<>(distinctIngredients);
+        List<Long> recipes = new ArrayList<>(distinctRecipes);
+
+        Optional<GetPricesResponseModel> replicated = catalogReplica.getPrices(recipes, ingredients);
+        if (replicated.isPresent()) {
+            return replicated.get();
         }
 
-        List<Long> recipes = order.getFoods().stream()
-                .map(Food::getRecipeId).collect(Collectors.toList());
+        try {
+            GetPricesResponseModel prices = priceRequestCoalescer.getPrices(recipes, ingredients, this::requestPrices);
+            if (prices != null) {
+                remember(prices);
+            }
+            return prices;
+        } catch (ServiceGuard.RejectedException | ResourceAccessException | HttpServerErrorException e) {
+            // the food microservice is down or overloaded, an answer it gave before is better than no answer
+            Optional<GetPricesResponseModel> lastKnown = lastKnownPrices(recipes, ingredients);
+            if (lastKnown.isPresent()) {
+                return lastKnown.get();
+            }
+            throw e;
+        }
+    }
 
-        ResponseEntity<GetPricesResponseModel> response = getResponse(ingredients, recipes);
+    private GetPricesResponseModel requestPrices(List<Long> recipes, List<Long> ingredients) {
+        ResponseEntity<GetPricesResponseModel> response =
+                foodServiceGuard.call(() -> getResponse(ingredients, recipes));
 
         return extractPriceResponseModel(response);
     }
 
+    private synchronized void remember(GetPricesResponseModel prices) {
+        lastKnownFoodPrices.putAll(prices.getFoodPrices());
+        lastKnownIngredientPrices.putAll(prices.getIngredientPrices());
+    }
+
+    /**
+     * @return the last prices the food microservice returned for the ids, or empty when one of them was never returned
+     */
+    private synchronized Optional<GetPricesResponseModel> lastKnownPrices(List<Long> recipes, List<Long> ingredients) {
+        for (Long recipe : recipes) {
+            if (!lastKnownFoodPrices.containsId(recipe)) return Optional.empty();
+        }
+        for (Long ingredient : ingredients) {
+            if (!lastKnownIngredientPrices.containsId(ingredient)) return Optional.empty();
+        }
+        return Optional.of(new GetPricesResponseModel(lastKnownFoodPrices.subset(recipes),
+                lastKnownIngredientPrices.subset(ingredients)));
+    }
+
     private GetPricesResponseModel extractPriceResponseModel(ResponseEntity<GetPricesResponseModel> response) {
         // check response status code
         if (response.getStatusCode() != HttpStatus.OK) return null;
@@ -72,24 +149,23 @@ public class FoodPriceService {
     }
 
     private ResponseEntity<GetPricesResponseModel> getResponse(List<Long> ingredients, List<Long> recipes) {
-        // create headers
-        HttpHeaders headers = new HttpHeaders();
-        // set `content-type` header
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        // set `accept` header
-        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-
-        // create headers
         // create a map for post parameters
         Map<String, Object> map = new HashMap<>();
         map.put("foodIds", recipes);
         map.put("ingredientIds", ingredients);
 
         // build the request
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(map, headers);
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(map, JSON_HEADERS);
 
         // send POST request
         return restTemplate.postForEntity("http://localhost:8084/price/ids", entity, GetPricesResponseModel.class);
     }
 
+    private static HttpHeaders jsonHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        return HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
 }
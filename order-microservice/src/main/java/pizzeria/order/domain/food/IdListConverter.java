@@ -0,0 +1,43 @@
+package pizzeria.order.domain.food;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores a list of recipe or ingredient ids as one comma separated column, e.g. "1,4,4,12",
+ * so the ingredients of a food are part of its row instead of rows in a separate table.
+ */
+@Converter
+public class IdListConverter implements AttributeConverter<List<Long>, String> {
+    @Override
+    public String convertToDatabaseColumn(List<Long> ids) {
+        if (ids == null) return null;
+        StringBuilder packed = new StringBuilder(ids.size() * 4);
+        for (Long id : ids) {
+            if (packed.length() > 0) {
+                packed.append(',');
+            }
+            packed.append(id.longValue());
+        }
+        return packed.toString();
+    }
+
+    @Override
+    public List<Long> convertToEntityAttribute(String packed) {
+        // a food that was saved without a list has no ids
+        if (packed == null) return new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        int start = 0;
+        while (start < packed.length()) {
+            int end = packed.indexOf(',', start);
+            if (end < 0) {
+                end = packed.length();
+            }
+            ids.add(Long.parseLong(packed, start, end, 10));
+            start = end + 1;
+        }
+        return ids;
+    }
+}
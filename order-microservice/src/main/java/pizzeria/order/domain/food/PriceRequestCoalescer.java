@@ -0,0 +1,260 @@
+package pizzeria.order.domain.food;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import pizzeria.order.models.GetPricesResponseModel;
+import pizzeria.order.models.PriceTable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Price request coalescer
+ * Merges the price lookups that arrive within a short batching window into one call to the food microservice.
+ * The first lookup of a window waits for the window to end and then makes the call for the ids of every lookup
+ * that joined, a lookup whose ids are all part of a call that is already in flight waits for that call instead.
+ * Every caller gets the prices of its own ids back. When the food microservice rejects a merged call (4xx)
+ * or leaves out the price of an id, every caller retries on its own, so an invalid id in one order does not fail
+ * the orders it was merged with. Any other failure of a merged call, a transport error, a 5xx or an open circuit,
+ * is passed to every caller, so a failing food microservice does not get a call per caller on top of it.
+ */
+@Component
+public class PriceRequestCoalescer {
+    private final transient boolean enabled;
+    private final transient long windowMillis;
+    private final transient int maxBatchIds;
+
+    private final transient Object lock = new Object();
+    // the batch that lookups can still join, null when no window is open
+    private transient Batch collecting;
+    // the batches whose call has been made but not answered yet
+    private final transient List<Batch> inFlight = new ArrayList<>();
+
+    private final transient Counter lookups;
+    private final transient Counter calls;
+    private final transient Timer windowWait;
+
+    /**
+     * The call that looks up the prices of a set of ids at the food microservice
+     */
+    @FunctionalInterface
+    public interface PriceLookup {
+        /**
+         * @param recipeIds the ids of the recipes
+         * @param ingredientIds the ids of the ingredients
+         * @return the prices, or null when the food microservice did not answer with the prices
+         */
+        GetPricesResponseModel lookup(List<Long> recipeIds, List<Long> ingredientIds);
+    }
+
+    /**
+     * Instantiates a new Price request coalescer with the settings from the properties
+     *
+     * @param meterRegistry the registry the number of lookups and calls and the window wait are reported to
+     * @param enabled whether lookups are merged at all
+     * @param windowMillis how long the first lookup of a batch waits for others to join
+     * @param maxBatchIds the number of ids after which a batch is not joined anymore
+     */
+    @Autowired
+    public PriceRequestCoalescer(MeterRegistry meterRegistry,
+                                 @Value("${price.coalescing.enabled:true}") boolean enabled,
+                                 @Value("${price.coalescing.window-ms:5}") long windowMillis,
+                                 @Value("${price.coalescing.max-batch-ids:500}") int maxBatchIds) {
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.maxBatchIds = maxBatchIds;
+
+        this.lookups = Counter.builder("prices.lookups")
+                .description("Price lookups that missed the catalog replica")
+                .register(meterRegistry);
+        this.calls = Counter.builder("prices.lookups.calls")
+                .description("Calls made to the food microservice for those lookups")
+                .register(meterRegistry);
+        Gauge.builder("prices.lookups.coalescing.ratio", this, PriceRequestCoalescer::getCoalescingRatio)
+                .description("Lookups per call to the food microservice")
+                .register(meterRegistry);
+        this.windowWait = Timer.builder("prices.lookups.window.wait")
+                .description("Time a lookup waits before the call it is part of is made")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Creates a coalescer that makes a call for every lookup
+     *
+     * @return the disabled coalescer
+     */
+    public static PriceRequestCoalescer disabled() {
+        return new PriceRequestCoalescer(new SimpleMeterRegistry(), false, 0, 0);
+    }
+
+    /**
+     * Looks up the prices of the ids, sharing the call with the concurrent lookups
+     *
+     * @param recipeIds the distinct ids of the recipes
+     * @param ingredientIds the distinct ids of the ingredients
+     * @param lookup the call to the food microservice
+     * @return the prices of the given ids, or null when the food microservice did not answer with the prices
+     */
+    public GetPricesResponseModel getPrices(List<Long> recipeIds, List<Long> ingredientIds, PriceLookup lookup) {
+        lookups.increment();
+        if (!enabled) {
+            calls.increment();
+            return lookup.lookup(recipeIds, ingredientIds);
+        }
+
+        long joinedAt = System.nanoTime();
+        Batch batch;
+        boolean leader = false;
+        synchronized (lock) {
+            batch = coveringCall(recipeIds, ingredientIds);
+            if (batch == null) {
+                if (collecting == null || collecting.isFullWith(recipeIds, ingredientIds, maxBatchIds)) {
+                    collecting = new Batch();
+                    leader = true;
+                }
+                batch = collecting;
+                batch.add(recipeIds, ingredientIds);
+            }
+            batch.callers++;
+        }
+
+        if (leader) {
+            call(batch, lookup);
+        }
+
+        GetPricesResponseModel prices;
+        try {
+            prices = batch.result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof HttpClientErrorException && sharedWithOthers(batch)) {
+                return retryAlone(recipeIds, ingredientIds, lookup, joinedAt, batch);
+            }
+            recordWait(joinedAt, batch);
+            throw e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the prices", e);
+        }
+
+        recordWait(joinedAt, batch);
+        if (!sharedWithOthers(batch)) {
+            return prices;
+        }
+        if (prices == null || !hasAll(prices.getFoodPrices(), recipeIds) || !hasAll(prices.getIngredientPrices(), ingredientIds)) {
+            return retryAlone(recipeIds, ingredientIds, lookup, joinedAt, batch);
+        }
+        return new GetPricesResponseModel(prices.getFoodPrices().subset(recipeIds),
+                prices.getIngredientPrices().subset(ingredientIds));
+    }
+
+    /**
+     * @return the number of lookups per call to the food microservice, 1 when nothing was merged
+     */
+    public double getCoalescingRatio() {
+        double made = calls.count();
+        return made == 0 ? 1.0 : lookups.count() / made;
+    }
+
+    private static boolean hasAll(PriceTable prices, List<Long> ids) {
+        for (Long id : ids) {
+            if (!prices.containsId(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private GetPricesResponseModel retryAlone(List<Long> recipeIds, List<Long> ingredientIds, PriceLookup lookup,
+                                              long joinedAt, Batch batch) {
+        recordWait(joinedAt, batch);
+        calls.increment();
+        return lookup.lookup(recipeIds, ingredientIds);
+    }
+
+    /**
+     * Waits for the window to end, closes the batch and makes the call for all its ids
+     */
+    private void call(Batch batch, PriceLookup lookup) {
+        if (windowMillis > 0) {
+            try {
+                Thread.sleep(windowMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (lock) {
+            if (collecting == batch) {
+                collecting = null;
+            }
+            inFlight.add(batch);
+            batch.calledAt = System.nanoTime();
+        }
+        calls.increment();
+        try {
+            batch.result.complete(lookup.lookup(new ArrayList<>(batch.recipeIds), new ArrayList<>(batch.ingredientIds)));
+        } catch (RuntimeException e) {
+            batch.result.completeExceptionally(e);
+        } finally {
+            synchronized (lock) {
+                inFlight.remove(batch);
+            }
+        }
+    }
+
+    /**
+     * @return a call in flight that asks for all the given ids, or null when there is none
+     */
+    private Batch coveringCall(List<Long> recipeIds, List<Long> ingredientIds) {
+        for (Batch batch : inFlight) {
+            if (batch.recipeIds.containsAll(recipeIds) && batch.ingredientIds.containsAll(ingredientIds)) {
+                return batch;
+            }
+        }
+        return null;
+    }
+
+    private boolean sharedWithOthers(Batch batch) {
+        synchronized (lock) {
+            return batch.callers > 1;
+        }
+    }
+
+    private void recordWait(long joinedAt, Batch batch) {
+        windowWait.record(Math.max(0, batch.calledAt - joinedAt), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * The ids of the lookups that share one call, and the answer to that call
+     */
+    private static final class Batch {
+        final Set<Long> recipeIds = new HashSet<>();
+        final Set<Long> ingredientIds = new HashSet<>();
+        final CompletableFuture<GetPricesResponseModel> result = new CompletableFuture<>();
+        // guarded by the lock of the coalescer
+        int callers;
+        // written under the lock before the result is completed, so every caller sees it
+        long calledAt;
+
+        void add(List<Long> recipes, List<Long> ingredients) {
+            recipeIds.addAll(recipes);
+            ingredientIds.addAll(ingredients);
+        }
+
+        boolean isFullWith(List<Long> recipes, List<Long> ingredients, int maxIds) {
+            return recipeIds.size() + ingredientIds.size() + recipes.size() + ingredients.size() > maxIds;
+        }
+    }
+}
@@ -3,20 +3,16 @@ package pizzeria.order.domain.mailing;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import pizzeria.order.Application;
 import javax.mail.*;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Properties;
 
 @Service
 public class MailingService {
     // The email we use to send messages from
     final transient String fromEmail = "fivenightsatandys7b@gmail.com";
-    // The authentication password we use
-    final transient String fromPassword = "ycgmcwdcuopnrbrd";
 
     final transient MessageTransport messageTransport;
 
@@ -36,32 +32,13 @@ public class MailingService {
             "Order has been edited!",
             "Order has been deleted!"
     };
+    private final transient String digestSubject = "Orders have been updated!";
+
     @Autowired
-    public MailingService(MessageTransport messageTransport) {
+    public MailingService(MessageTransport messageTransport, Session session) {
         this.messageTransport = messageTransport;
+        this.session = session;
         logg = new ArrayList<>();
-
-        String host = "smtp.gmail.com";
-
-        // Get system properties
-        Properties properties = System.getProperties();
-
-        // Setup mail server
-        properties.put("mail.smtp.host", host);
-        properties.put("mail.smtp.port", "465");
-        properties.put("mail.smtp.ssl.enable", "true");
-        properties.put("mail.smtp.auth", "true");
-
-        // Get the Session object.// and pass username and password
-        session = Session.getInstance(properties, new javax.mail.Authenticator() {
-            @Application.ExcludeFromJacocoGeneratedReport
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(fromEmail, fromPassword);
-            }
-        });
-
-        // Used to debug SMTP issues
-        //session.setDebug(true);
     }
 
     private String getMessageText(Long orderId, int index) {
@@ -75,6 +52,7 @@ public class MailingService {
 
     /**
      * Notify the store about the creation/edit/deletion of an order with the current orderId
+     * Failures are only recorded in the log, use deliver when the caller wants to retry.
      * @param orderId ID of the order
      * @param recipientEmail Email of the store
      * @param processType Type of the process CREATED/EDITED/DELETED
@@ -82,27 +60,63 @@ public class MailingService {
     @SuppressWarnings("PMD")
     public void sendEmail(Long orderId, String recipientEmail, ProcessType processType) {
         try {
-            // Create a default MimeMessage object.
-            MimeMessage message = new MimeMessage(session);
+            deliver(orderId, recipientEmail, processType);
+        } catch (MessagingException mex) {
+            logg.add("Couldn't send email to " + recipientEmail);
+        }
+    }
 
-            // Set From: header field of the header.
-            message.setFrom(new InternetAddress(fromEmail));
+    /**
+     * Sends the notification about an order to the store
+     * @param orderId ID of the order
+     * @param recipientEmail Email of the store
+     * @param processType Type of the process CREATED/EDITED/DELETED
+     * @throws MessagingException when the message could not be built or sent
+     */
+    public void deliver(Long orderId, String recipientEmail, ProcessType processType) throws MessagingException {
+        messageTransport.sendMessage(compose(orderId, recipientEmail, processType));
+    }
 
-            // Set To: header field of the header.
-            message.addRecipient(Message.RecipientType.TO, new InternetAddress(recipientEmail));
+    /**
+     * Sends a digest that summarizes several order events to the store
+     * @param recipientEmail Email of the store
+     * @param digest the summary of the order events
+     * @throws MessagingException when the message could not be built or sent
+     */
+    public void deliverDigest(String recipientEmail, String digest) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress(fromEmail));
+        message.addRecipient(Message.RecipientType.TO, new InternetAddress(recipientEmail));
+        message.setSubject(digestSubject);
+        message.setText(digest);
+        messageTransport.sendMessage(message);
+    }
 
-            int messageTypeToNumber = processType.ordinal();
-            //System.out.println(messageTypeToNumber + " " + messageSubject[messageTypeToNumber]);
+    /**
+     * Builds the message that notifies the store about an order
+     * @param orderId ID of the order
+     * @param recipientEmail Email of the store
+     * @param processType Type of the process CREATED/EDITED/DELETED
+     * @return the message, ready to be sent
+     * @throws MessagingException when one of the addresses is invalid
+     */
+    public MimeMessage compose(Long orderId, String recipientEmail, ProcessType processType) throws MessagingException {
+        // Create a default MimeMessage object.
+        MimeMessage message = new MimeMessage(session);
 
-            // Set Subject: header field
-            message.setSubject(messageSubject[messageTypeToNumber]);
-            // Now set the actual message
-            message.setText(getMessageText(orderId, messageTypeToNumber));
-            // Send message
-            messageTransport.sendMessage(message);
-        } catch (MessagingException mex) {
-            logg.add("Couldn't send email to " + recipientEmail);
-        }
+        // Set From: header field of the header.
+        message.setFrom(new InternetAddress(fromEmail));
+
+        // Set To: header field of the header.
+        message.addRecipient(Message.RecipientType.TO, new InternetAddress(recipientEmail));
+
+        int messageTypeToNumber = processType.ordinal();
+
+        // Set Subject: header field
+        message.setSubject(messageSubject[messageTypeToNumber]);
+        // Now set the actual message
+        message.setText(getMessageText(orderId, messageTypeToNumber));
+        return message;
     }
 
 }
@@ -1,15 +1,48 @@
 package pizzeria.order.domain.mailing;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import pizzeria.order.Application;
 import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
 import javax.mail.Transport;
 import javax.mail.internet.MimeMessage;
 
 @Component
 public class MessageTransport {
-    @Application.ExcludeFromJacocoGeneratedReport
+    private final transient SmtpConnectionPool connectionPool;
+
+    @Autowired
+    public MessageTransport(SmtpConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Sends the message over a pooled SMTP connection
+     * A pooled connection can be dropped by the server between its health check and its use,
+     * so a failed send is tried once more over a new connection.
+     * @param message the message to send
+     * @throws MessagingException when the message could not be sent
+     */
     public void sendMessage(MimeMessage message) throws MessagingException {
-        Transport.send(message);
+        message.saveChanges();
+        try {
+            send(message);
+        } catch (SendFailedException e) {
+            //the server rejected the message itself, a new connection will not help
+            throw e;
+        } catch (MessagingException e) {
+            send(message);
+        }
+    }
+
+    private void send(MimeMessage message) throws MessagingException {
+        Transport transport = connectionPool.borrow();
+        boolean broken = true;
+        try {
+            transport.sendMessage(message, message.getAllRecipients());
+            broken = false;
+        } finally {
+            connectionPool.release(transport, broken);
+        }
     }
 }
@@ -0,0 +1,115 @@
+package pizzeria.order.domain.mailing;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+
+/**
+ * A store notification in the outbox
+ * Notifications are written here in the transaction of the order they are about, before they are handed to the dispatcher,
+ * so a notification is stored if and only if the change to the order is.
+ * A notification that could not be sent after the last attempt stays here as a dead letter, with the reason of the last failure.
+ * When digests are enabled the order events are held here until the digest of the store is composed from them.
+ */
+@Entity
+@Table(name = "notification_outbox")
+@NoArgsConstructor
+@Getter
+@Setter
+public class Notification {
+    /**
+     * The length of the column that holds the body of a digest
+     */
+    public static final int DIGEST_LENGTH = 10000;
+
+    public enum Status {
+        PENDING,
+        // collected for the next digest of the store, not sent on its own
+        HELD,
+        // given up on after the last attempt, kept for inspection
+        DEAD_LETTER
+    }
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private long id;
+
+    @Column(name = "order_id")
+    private long orderId;
+
+    @Column(name = "recipient")
+    private String recipientEmail;
+
+    @Column(name = "process_type")
+    @Enumerated(EnumType.STRING)
+    private MailingService.ProcessType processType;
+
+    @Column(name = "status")
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    @Column(name = "attempts")
+    private int attempts;
+
+    // body of a digest that summarizes several order events, null for a single event
+    @Column(name = "digest", length = DIGEST_LENGTH)
+    private String digest;
+
+    // why the last attempt failed, null while no attempt failed
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    // epoch millis at which the notification was written
+    @Column(name = "created_at")
+    private long createdAt;
+
+    // epoch millis before which the notification should not be retried
+    @Column(name = "next_attempt_at")
+    private long nextAttemptAt;
+
+    /**
+     * Instantiates a new pending notification
+     *
+     * @param orderId the id of the order the notification is about
+     * @param recipientEmail the email of the store
+     * @param processType what happened to the order
+     * @param createdAt the current time in epoch millis
+     */
+    public Notification(long orderId, String recipientEmail, MailingService.ProcessType processType, long createdAt) {
+        this.orderId = orderId;
+        this.recipientEmail = recipientEmail;
+        this.processType = processType;
+        this.status = Status.PENDING;
+        this.attempts = 0;
+        this.createdAt = createdAt;
+        this.nextAttemptAt = createdAt;
+    }
+
+    /**
+     * Instantiates a new pending digest notification
+     *
+     * @param recipientEmail the email of the store
+     * @param digest the summary of the order events
+     * @param createdAt the current time in epoch millis
+     */
+    public Notification(String recipientEmail, String digest, long createdAt) {
+        this.recipientEmail = recipientEmail;
+        this.digest = digest;
+        this.status = Status.PENDING;
+        this.attempts = 0;
+        this.createdAt = createdAt;
+        this.nextAttemptAt = createdAt;
+    }
+
+    /**
+     * @param failure the reason an attempt failed
+     * @return a description of the failure that fits in the last_error column
+     */
+    static String describe(Exception failure) {
+        String description = failure.toString();
+        return description.length() > 1000 ? description.substring(0, 1000) : description;
+    }
+}
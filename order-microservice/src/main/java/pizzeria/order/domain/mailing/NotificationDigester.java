@@ -0,0 +1,307 @@
+package pizzeria.order.domain.mailing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The type Notification digester
+ * When digests are enabled, the order events of a store are collected for a time window
+ * (or until the batch is full) and sent as one summary email instead of one email per event.
+ * An order that is created and deleted within the same window is left out of the summary.
+ * The collected events are held in the outbox, written in the transaction of the order they are about,
+ * so they survive a restart; the digest is composed from them and replaces them in one transaction.
+ * Which stores hold events, since when and how many, is kept in memory, so neither an order nor a check
+ * queries the outbox for it; it is read from the outbox once, on start.
+ * A digest that does not fit its column is sent in several parts.
+ * When digests are disabled every event is handed to the dispatcher straight away.
+ */
+@Service
+public class NotificationDigester {
+    private final transient NotificationDispatcher dispatcher;
+    private final transient NotificationRepository outbox;
+    private final transient TransactionTemplate transactionTemplate;
+    private final transient boolean enabled;
+    private final transient long windowMillis;
+    private final transient int maxBatch;
+    private final transient Clock clock;
+
+    // a store is flushed by one thread at a time, so its held events end up in a single digest
+    private final transient Object flushLock = new Object();
+    // the stores with committed held events, guarded by itself
+    private final transient Map<String, Window> windows = new HashMap<>();
+
+    /**
+     * Instantiates a new Notification digester with the settings from the properties
+     *
+     * @param dispatcher the dispatcher the notifications and digests are handed to
+     * @param outbox the repository in which the collected events are held
+     * @param transactionTemplate the template of the transactions the digests are composed in
+     * @param enabled whether events should be collected into digests
+     * @param windowMillis how long the events of a store are collected before the digest is sent
+     * @param maxBatch the number of events after which the digest is sent, even if the window is still open
+     */
+    @Autowired
+    public NotificationDigester(NotificationDispatcher dispatcher, NotificationRepository outbox,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${notification.digest.enabled:false}") boolean enabled,
+                                @Value("${notification.digest.window-ms:60000}") long windowMillis,
+                                @Value("${notification.digest.max-batch:50}") int maxBatch) {
+        this(dispatcher, outbox, transactionTemplate, enabled, windowMillis, maxBatch, Clock.systemUTC());
+    }
+
+    /**
+     * Instantiates a new Notification digester, used for testing purposes
+     *
+     * @param dispatcher the dispatcher the notifications and digests are handed to
+     * @param outbox the repository in which the collected events are held
+     * @param transactionTemplate the template of the transactions the digests are composed in
+     * @param enabled whether events should be collected into digests
+     * @param windowMillis how long the events of a store are collected before the digest is sent
+     * @param maxBatch the number of events after which the digest is sent, even if the window is still open
+     * @param clock the clock used to decide when a window is over
+     */
+    public NotificationDigester(NotificationDispatcher dispatcher, NotificationRepository outbox,
+                                TransactionTemplate transactionTemplate,
+                                boolean enabled, long windowMillis, int maxBatch, Clock clock) {
+        this.dispatcher = dispatcher;
+        this.outbox = outbox;
+        // a full batch is flushed right after the order committed, where only a new transaction can still write
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager(), transactionTemplate);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.maxBatch = maxBatch;
+        this.clock = clock;
+    }
+
+    /**
+     * Picks up the events that were held before a restart
+     */
+    @PostConstruct
+    public void load() {
+        for (Notification event : outbox.findAllByStatusOrderByIdAsc(Notification.Status.HELD)) {
+            hold(event.getRecipientEmail(), event.getCreatedAt());
+        }
+    }
+
+    /**
+     * Records that something happened to an order, the store is notified now or with the next digest
+     * Called in the transaction that changed the order, the notification or the held event is written to the outbox in it.
+     *
+     * @param orderId ID of the order
+     * @param recipientEmail Email of the store
+     * @param processType Type of the process CREATED/EDITED/DELETED
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void submit(long orderId, String recipientEmail, MailingService.ProcessType processType) {
+        if (!enabled) {
+            dispatcher.enqueue(orderId, recipientEmail, processType);
+            return;
+        }
+        if (recipientEmail == null) return;
+
+        Notification event = new Notification(orderId, recipientEmail, processType, clock.millis());
+        event.setStatus(Notification.Status.HELD);
+        outbox.save(event);
+        // the event only counts once it is committed, before that the digest cannot see it
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                if (hold(recipientEmail, event.getCreatedAt()) >= maxBatch) {
+                    NotificationDigester.this.flush(recipientEmail);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sends the digests of the stores whose window is over
+     * The first check is one interval after the start, like the later ones, instead of right away.
+     */
+    @Scheduled(initialDelayString = "${notification.digest.check-interval-ms:1000}",
+            fixedDelayString = "${notification.digest.check-interval-ms:1000}")
+    public void flushDue() {
+        long cutoff = clock.millis() - windowMillis;
+        List<String> due = new ArrayList<>();
+        synchronized (windows) {
+            windows.forEach((recipientEmail, window) -> {
+                if (window.openedAt <= cutoff) {
+                    due.add(recipientEmail);
+                }
+            });
+        }
+        due.forEach(this::flush);
+    }
+
+    /**
+     * Sends the digests of every store that has held events, whether its window is over or not
+     */
+    public void flushAll() {
+        List<String> stores;
+        synchronized (windows) {
+            stores = new ArrayList<>(windows.keySet());
+        }
+        stores.forEach(this::flush);
+    }
+
+    /**
+     * @return the number of stores that have an open digest
+     */
+    public int getOpenBatches() {
+        synchronized (windows) {
+            return windows.size();
+        }
+    }
+
+    /**
+     * Counts a committed held event of a store
+     *
+     * @return the number of events the store holds now
+     */
+    private int hold(String recipientEmail, long createdAt) {
+        synchronized (windows) {
+            Window window = windows.computeIfAbsent(recipientEmail, store -> new Window(createdAt));
+            window.openedAt = Math.min(window.openedAt, createdAt);
+            return ++window.held;
+        }
+    }
+
+    /**
+     * Takes the events that went into a digest off the count of the store
+     * The events committed while the digest was composed stay held, in a window that opens now.
+     */
+    private void release(String recipientEmail, int sent) {
+        synchronized (windows) {
+            Window window = windows.get(recipientEmail);
+            if (window == null) return;
+            window.held -= sent;
+            // no events were left to send, so an event counted after it was sent does not keep the window open
+            if (sent == 0 || window.held <= 0) {
+                windows.remove(recipientEmail);
+            } else {
+                window.openedAt = clock.millis();
+            }
+        }
+    }
+
+    @SuppressWarnings("PMD")
+    private void flush(String recipientEmail) {
+        synchronized (flushLock) {
+            try {
+                Integer sent = transactionTemplate.execute(status -> send(recipientEmail));
+                release(recipientEmail, sent == null ? 0 : sent);
+            } catch (RuntimeException e) {
+                //the events stay held and the next check composes the digest again
+            }
+        }
+    }
+
+    /**
+     * @return the number of held events the digest was composed from
+     */
+    private int send(String recipientEmail) {
+        List<Notification> held = outbox.findAllByRecipientEmailAndStatusOrderByIdAsc(
+                recipientEmail, Notification.Status.HELD);
+        if (held.isEmpty()) return 0;
+        outbox.deleteAll(held);
+
+        Batch batch = new Batch();
+        held.forEach(event -> batch.add(event.getOrderId(), event.getProcessType()));
+        if (batch.transitions.isEmpty()) return held.size();
+        if (batch.transitions.size() == 1) {
+            Map.Entry<Long, List<MailingService.ProcessType>> only = batch.transitions.entrySet().iterator().next();
+            if (only.getValue().size() == 1) {
+                //a single event does not need a summary
+                dispatcher.enqueue(only.getKey(), recipientEmail, only.getValue().get(0));
+                return held.size();
+            }
+        }
+        for (String part : split(batch.render(), Notification.DIGEST_LENGTH)) {
+            dispatcher.enqueueDigest(recipientEmail, part);
+        }
+        return held.size();
+    }
+
+    /**
+     * Splits a digest into parts that fit the digest column, after the last whole line that fits
+     * A single line that is longer than a part is cut.
+     *
+     * @param digest the text of the digest
+     * @param maxLength the most characters a part may have
+     * @return the parts, in order
+     */
+    static List<String> split(String digest, int maxLength) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        while (digest.length() - start > maxLength) {
+            int end = digest.lastIndexOf('\n', start + maxLength - 1) + 1;
+            if (end <= start) {
+                end = start + maxLength;
+            }
+            parts.add(digest.substring(start, end));
+            start = end;
+        }
+        if (start < digest.length()) {
+            parts.add(digest.substring(start));
+        }
+        return parts;
+    }
+
+    /**
+     * The held events of one store: since when and how many, guarded by the windows map
+     */
+    private static final class Window {
+        long openedAt;
+        int held;
+
+        Window(long openedAt) {
+            this.openedAt = openedAt;
+        }
+    }
+
+    /**
+     * The events of one store within a window, per order in the order they happened
+     */
+    private static final class Batch {
+        final Map<Long, List<MailingService.ProcessType>> transitions = new LinkedHashMap<>();
+
+        void add(long orderId, MailingService.ProcessType processType) {
+            List<MailingService.ProcessType> history = transitions.computeIfAbsent(orderId, id -> new ArrayList<>());
+            if (processType == MailingService.ProcessType.DELETED
+                    && !history.isEmpty() && history.get(0) == MailingService.ProcessType.CREATED) {
+                //the store never needs to hear about an order that no longer exists
+                transitions.remove(orderId);
+                return;
+            }
+            history.add(processType);
+        }
+
+        String render() {
+            StringBuilder text = new StringBuilder();
+            transitions.forEach((orderId, history) -> text
+                    .append(String.format("Order with orderId : %d has been ", orderId))
+                    .append(history.stream().map(type -> type.name().toLowerCase(Locale.ROOT))
+                            .collect(Collectors.joining(", then ")))
+                    .append('\n'));
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package pizzeria.order.domain.mailing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Notification dispatcher
+ * Sends the store notifications in the background, so placing/editing/deleting an order
+ * does not wait for the mail server. Every notification is stored in the outbox first,
+ * in the transaction of the order it is about, and once that transaction committed its id is put on a bounded queue
+ * that is drained by a pool of workers. The outbox is kept when the microservice stops,
+ * the notifications that were still pending are queued by the sweep on the next start.
+ * Failed deliveries are retried with exponential backoff, a notification that still fails after the maximum number
+ * of attempts is kept in the outbox as a dead letter and is not tried again.
+ */
+@Service
+public class NotificationDispatcher {
+    private final transient MailingService mailingService;
+    private final transient NotificationRepository outbox;
+    private final transient BlockingQueue<Long> queue;
+    // ids that are on the queue or waiting for a retry, so the outbox sweep does not add them twice
+    private final transient Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final transient ExecutorService workers;
+    private final transient ScheduledExecutorService retries;
+    private final transient int maxAttempts;
+    private final transient long initialBackoffMillis;
+    private final transient long maxBackoffMillis;
+
+    private final transient Timer sendLatency;
+    private final transient Counter sendFailures;
+    private final transient Counter gaveUp;
+
+    private transient volatile boolean running = true;
+
+    /**
+     * Instantiates a new Notification dispatcher and starts the workers
+     *
+     * @param mailingService the service that composes and sends the emails
+     * @param outbox the repository in which pending notifications are kept
+     * @param meterRegistry the registry the queue depth, send latency and failures are reported to
+     * @param capacity the maximum number of notifications waiting on the queue
+     * @param workerCount the number of threads sending emails
+     * @param maxAttempts how many times a notification is tried before it becomes a dead letter
+     * @param initialBackoffMillis the delay before the first retry, doubled on every following retry
+     * @param maxBackoffMillis the upper bound of the delay between retries
+     */
+    @Autowired
+    public NotificationDispatcher(MailingService mailingService,
+                                  NotificationRepository outbox,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${notification.queue.capacity:1000}") int capacity,
+                                  @Value("${notification.workers:2}") int workerCount,
+                                  @Value("${notification.retry.max-attempts:5}") int maxAttempts,
+                                  @Value("${notification.retry.initial-backoff-ms:1000}") long initialBackoffMillis,
+                                  @Value("${notification.retry.max-backoff-ms:60000}") long maxBackoffMillis) {
+        this.mailingService = mailingService;
+        this.outbox = outbox;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+
+        Gauge.builder("notifications.queue.depth", queue, BlockingQueue::size)
+                .description("Notifications waiting to be sent")
+                .register(meterRegistry);
+        this.sendLatency = Timer.builder("notifications.send.latency")
+                .description("Time it takes to hand a notification to the mail server")
+                .register(meterRegistry);
+        this.sendFailures = Counter.builder("notifications.send.failures")
+                .description("Delivery attempts that failed")
+                .register(meterRegistry);
+        this.gaveUp = Counter.builder("notifications.failed")
+                .description("Notifications that became dead letters after the last retry")
+                .register(meterRegistry);
+
+        this.retries = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "notification-retry"));
+        this.workers = Executors.newFixedThreadPool(workerCount, r -> daemon(r, "notification-worker"));
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::work);
+        }
+    }
+
+    /**
+     * Stores the notification in the outbox, in the transaction of the caller, and queues it for sending once that committed
+     * If the queue is full the notification stays in the outbox and is picked up by the next sweep.
+     *
+     * @param orderId ID of the order
+     * @param recipientEmail Email of the store
+     * @param processType Type of the process CREATED/EDITED/DELETED
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(long orderId, String recipientEmail, MailingService.ProcessType processType) {
+        if (recipientEmail == null) return;
+        Notification notification = outbox.save(
+                new Notification(orderId, recipientEmail, processType, System.currentTimeMillis()));
+        offerAfterCommit(notification.getId());
+    }
+
+    /**
+     * Stores a digest in the outbox, in the transaction of the caller, and queues it for sending once that committed
+     *
+     * @param recipientEmail Email of the store
+     * @param digest the summary of the order events
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueDigest(String recipientEmail, String digest) {
+        if (recipientEmail == null) return;
+        Notification notification = outbox.save(
+                new Notification(recipientEmail, digest, System.currentTimeMillis()));
+        offerAfterCommit(notification.getId());
+    }
+
+    /**
+     * Queues every pending notification in the outbox that is due, the ones that did not fit on the queue included
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${notification.sweep-interval-ms:5000}")
+    public void sweep() {
+        for (Notification notification : outbox.findAllByStatusAndNextAttemptAtLessThanEqual(
+                Notification.Status.PENDING, System.currentTimeMillis())) {
+            offer(notification.getId());
+        }
+    }
+
+    /**
+     * @return the number of notifications waiting on the queue
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Stops the workers, pending notifications stay in the outbox
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        workers.shutdownNow();
+        retries.shutdownNow();
+    }
+
+    private void offerAfterCommit(long id) {
+        // a worker that picked the id up before the commit would not find the notification yet
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                offer(id);
+            }
+        });
+    }
+
+    private void offer(long id) {
+        if (!inFlight.add(id)) return;
+        if (!queue.offer(id)) {
+            inFlight.remove(id);
+        }
+    }
+
+    private void work() {
+        while (running) {
+            Long id;
+            try {
+                id = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (id != null) {
+                process(id);
+            }
+        }
+    }
+
+    @SuppressWarnings("PMD")
+    private void process(long id) {
+        Notification notification;
+        try {
+            Optional<Notification> found = outbox.findById(id);
+            if (found.isEmpty() || found.get().getStatus() != Notification.Status.PENDING) {
+                inFlight.remove(id);
+                return;
+            }
+            notification = found.get();
+        } catch (RuntimeException e) {
+            //the outbox could not be read, the notification stays there and the sweep will try it again
+            inFlight.remove(id);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (notification.getDigest() != null) {
+                mailingService.deliverDigest(notification.getRecipientEmail(), notification.getDigest());
+            } else {
+                mailingService.deliver(notification.getOrderId(), notification.getRecipientEmail(),
+                        notification.getProcessType());
+            }
+        } catch (MessagingException | RuntimeException e) {
+            //every failure of the notification itself counts as an attempt, so one that can never be sent is not tried forever
+            sendLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            sendFailures.increment();
+            retryLater(notification, e);
+            return;
+        }
+        sendLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        try {
+            outbox.deleteById(id);
+        } catch (RuntimeException e) {
+            //the notification was sent, if it stays in the outbox the store gets it once more
+        } finally {
+            inFlight.remove(id);
+        }
+    }
+
+    @SuppressWarnings("PMD")
+    private void retryLater(Notification notification, Exception failure) {
+        long id = notification.getId();
+        int attempts = notification.getAttempts() + 1;
+        notification.setAttempts(attempts);
+        notification.setLastError(Notification.describe(failure));
+        try {
+            if (attempts >= maxAttempts) {
+                notification.setStatus(Notification.Status.DEAD_LETTER);
+                outbox.save(notification);
+                inFlight.remove(id);
+                gaveUp.increment();
+                return;
+            }
+            long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempts - 1, 30));
+            notification.setNextAttemptAt(System.currentTimeMillis() + backoff);
+            outbox.save(notification);
+
+            retries.schedule(() -> {
+                if (!queue.offer(id)) {
+                    inFlight.remove(id);
+                }
+            }, backoff, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            //the attempt could not be recorded, the notification stays pending and the sweep will try it again
+            inFlight.remove(id);
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,20 @@
+package pizzeria.order.domain.mailing;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface NotificationRepository extends JpaRepository<Notification, Long> {
+
+    List<Notification> findAllByStatusAndNextAttemptAtLessThanEqual(Notification.Status status, long time);
+
+    long countByStatus(Notification.Status status);
+
+    List<Notification> findAllByStatusOrderByIdAsc(Notification.Status status);
+
+    List<Notification> findAllByRecipientEmailAndStatusOrderByIdAsc(String recipientEmail, Notification.Status status);
+
+    long countByRecipientEmailAndStatus(String recipientEmail, Notification.Status status);
+}
@@ -0,0 +1,181 @@
+package pizzeria.order.domain.mailing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Smtp connection pool
+ * Keeps a small number of authenticated SMTP connections open, so sending a message
+ * does not pay for a TLS handshake and a login every time.
+ * Connections are checked before they are handed out, and closed when they have been idle for too long.
+ */
+@Component
+public class SmtpConnectionPool {
+    private final transient Session session;
+    private final transient long idleTimeoutMillis;
+    private final transient long borrowTimeoutMillis;
+    // limits the number of open connections, idle and borrowed together
+    private final transient Semaphore permits;
+    // most recently released first, so the least used connections become idle and get reaped
+    private final transient Deque<PooledTransport> idle = new ArrayDeque<>();
+    private transient boolean closed;
+
+    /**
+     * Instantiates a new Smtp connection pool
+     *
+     * @param session the mail session the connections are created from
+     * @param maxSize the maximum number of open connections
+     * @param idleTimeoutMillis how long a connection may stay unused before it is closed
+     * @param borrowTimeoutMillis how long to wait for a connection when all of them are in use
+     */
+    @Autowired
+    public SmtpConnectionPool(Session session,
+                              @Value("${mail.pool.size:4}") int maxSize,
+                              @Value("${mail.pool.idle-timeout-ms:60000}") long idleTimeoutMillis,
+                              @Value("${mail.pool.borrow-timeout-ms:10000}") long borrowTimeoutMillis) {
+        this.session = session;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Hands out a healthy connection, opening a new one if no idle connection is available
+     * Every borrowed connection must be given back with release.
+     *
+     * @return a connected transport
+     * @throws MessagingException when no connection became available in time or connecting failed
+     */
+    public Transport borrow() throws MessagingException {
+        acquirePermit();
+        try {
+            PooledTransport pooled;
+            while ((pooled = pollIdle()) != null) {
+                // isConnected sends a NOOP when the connection has been quiet for a while
+                if (pooled.transport.isConnected()) {
+                    return pooled.transport;
+                }
+                closeQuietly(pooled.transport);
+            }
+            Transport transport = session.getTransport("smtp");
+            transport.connect();
+            return transport;
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Gives a borrowed connection back to the pool
+     *
+     * @param transport the connection that was borrowed
+     * @param broken whether sending over the connection failed, in which case it is closed
+     */
+    public void release(Transport transport, boolean broken) {
+        try {
+            synchronized (idle) {
+                if (!broken && !closed) {
+                    idle.push(new PooledTransport(transport, System.currentTimeMillis()));
+                    return;
+                }
+            }
+            closeQuietly(transport);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes the connections that have not been used for longer than the idle timeout
+     */
+    @Scheduled(fixedDelayString = "${mail.pool.reap-interval-ms:30000}")
+    public void reapIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        List<Transport> expired = new ArrayList<>();
+        synchronized (idle) {
+            Iterator<PooledTransport> it = idle.iterator();
+            while (it.hasNext()) {
+                PooledTransport pooled = it.next();
+                if (pooled.releasedAt <= cutoff) {
+                    it.remove();
+                    expired.add(pooled.transport);
+                }
+            }
+        }
+        expired.forEach(SmtpConnectionPool::closeQuietly);
+    }
+
+    /**
+     * @return the number of open connections that are not in use
+     */
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * Closes every idle connection, connections that are in use are closed when they are released
+     */
+    @PreDestroy
+    public void close() {
+        List<PooledTransport> open;
+        synchronized (idle) {
+            closed = true;
+            open = new ArrayList<>(idle);
+            idle.clear();
+        }
+        open.forEach(pooled -> closeQuietly(pooled.transport));
+    }
+
+    private PooledTransport pollIdle() {
+        synchronized (idle) {
+            return idle.poll();
+        }
+    }
+
+    private void acquirePermit() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("No SMTP connection available");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+    }
+
+    @SuppressWarnings("PMD")
+    private static void closeQuietly(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            //the connection is discarded anyway
+        }
+    }
+
+    private static final class PooledTransport {
+        final Transport transport;
+        final long releasedAt;
+
+        PooledTransport(Transport transport, long releasedAt) {
+            this.transport = transport;
+            this.releasedAt = releasedAt;
+        }
+    }
+}
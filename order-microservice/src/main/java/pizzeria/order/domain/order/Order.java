@@ -1,14 +1,19 @@
 package pizzeria.order.domain.order;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.sun.istack.NotNull;
 import lombok.Getter;
 import lombok.Setter;
-import org.hibernate.annotations.LazyCollection;
-import org.hibernate.annotations.LazyCollectionOption;
+import org.hibernate.annotations.BatchSize;
 import pizzeria.order.domain.coupon.Coupon;
+import pizzeria.order.domain.coupon.CouponIdListConverter;
 import pizzeria.order.domain.food.Food;
+import pizzeria.commons.money.Money;
+import pizzeria.commons.money.MoneyConverter;
 import pizzeria.order.models.GetPricesResponseModel;
+import pizzeria.order.models.PriceTable;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -17,17 +22,24 @@ import java.util.*;
 @Entity
 @Table(name="orders")
 public class Order {
+    /**
+     * The length of the column that holds the packed coupon ids
+     */
+    public static final int PACKED_COUPON_IDS_LENGTH = 1000;
 
     @Id
     @Column(name = "orderId")
     @NotNull
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    // ids are reserved 50 at a time, so saving orders does not cost a sequence call per order
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_sequence")
+    @SequenceGenerator(name = "order_sequence", sequenceName = "order_sequence", allocationSize = 50)
     @Getter
     @Setter
     protected Long orderId;
 
+    // only loaded when they are used, the queries that need the foods of an order fetch them with it
     @ManyToMany(fetch = FetchType.LAZY, cascade=CascadeType.ALL)
-    @LazyCollection(LazyCollectionOption.FALSE)
+    @BatchSize(size = 50)
     @Getter
     @Setter
     private List<Food> foods;
@@ -49,15 +61,27 @@ public class Order {
     private LocalDateTime pickupTime;
 
     @Column(name = "price")
+    @Convert(converter = MoneyConverter.class)
+    @JsonProperty("price")
+    protected Money price = Money.ZERO;
+
+    @Column(name = "couponIds", length = PACKED_COUPON_IDS_LENGTH)
+    @Convert(converter = CouponIdListConverter.class)
     @Getter
     @Setter
-    protected double price;
+    protected List<String> couponIds;
 
-    @ElementCollection
-    @Column(name = "couponIds")
+    // the coupons whose redemption the CouponLedger counted, only these are given back when the order changes
+    @Column(name = "redeemedCouponIds", length = PACKED_COUPON_IDS_LENGTH)
+    @Convert(converter = CouponIdListConverter.class)
+    @JsonIgnore
     @Getter
     @Setter
-    protected List<String> couponIds;
+    private List<String> redeemedCouponIds = new ArrayList<>();
+
+    // reused every time the order is priced, so pricing does not allocate a new one
+    @Transient
+    private transient RecipeHistogram recipeHistogram;
 
     //default constructor
     public Order() {}
@@ -79,10 +103,34 @@ public class Order {
         this.storeId = storeId;
         this.userId = userId;
         this.pickupTime = pickup;
-        this.price = price;
+        this.price = Money.of(price);
         this.couponIds = coupons;
     }
 
+    /**
+     * @return the price of the order in euros
+     */
+    @JsonIgnore
+    public double getPrice() {
+        return price.toDouble();
+    }
+
+    /**
+     * @param price the price of the order in euros, rounded to the nearest cent
+     */
+    @JsonIgnore
+    public void setPrice(double price) {
+        this.price = Money.of(price);
+    }
+
+    /**
+     * @return the price of the order in cents
+     */
+    @JsonIgnore
+    public long getPriceInMinorUnits() {
+        return price.getMinorUnits();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -96,30 +144,103 @@ public class Order {
         return Objects.hash(orderId);
     }
 
+    /**
+     * Calculates the price of the order with the best of the given coupons
+     *
+     * @param prices the prices of the recipes and ingredients of the order
+     * @param coupons the valid coupons the client applied
+     * @return the price in euros
+     */
     public double calculatePrice(GetPricesResponseModel prices, List<Coupon> coupons) {
-        double sum = 0.0;
+        return Money.toMajor(calculatePriceInMinorUnits(prices, coupons));
+    }
+
+    /**
+     * Calculates the price of the order with the best of the given coupons.
+     * All the arithmetic is done on whole cents, so the result is exact.
+     *
+     * @param prices the prices of the recipes and ingredients of the order
+     * @param coupons the valid coupons the client applied
+     * @return the price in cents
+     */
+    public long calculatePriceInMinorUnits(GetPricesResponseModel prices, List<Coupon> coupons) {
+        RecipeHistogram recipes = countRecipes();
+        PriceTable foodPrices = prices.getFoodPrices();
+        PriceTable ingredientPrices = prices.getIngredientPrices();
+        long sum = 0;
+        //every recipe is looked up once, however many foods of it are in the order
+        for (int i = 0; i < recipes.size(); i++) {
+            sum += recipes.countAt(i) * foodPrices.priceOf(recipes.recipeAt(i));
+        }
         for (Food f: getFoods()) {
-            sum += prices.getFoodPrices().get(f.getRecipeId()).getPrice();
+            long extras = 0;
             for (long l: f.getExtraIngredients()) {
-                sum += prices.getIngredientPrices().get(l).getPrice();
+                extras += ingredientPrices.priceOf(l);
+            }
+            sum += f.getQuantity() * extras;
+        }
+        return calculatePriceWithCoupons(prices, recipes, coupons, sum);
+    }
+
+    /**
+     * Counts the foods of every recipe in this order, taking the quantity of every line into account.
+     * The returned histogram is reused by the next call, so it is only valid until then.
+     *
+     * @return the number of foods per recipe
+     */
+    public RecipeHistogram countRecipes() {
+        int foodCount = foods == null ? 0 : foods.size();
+        if (recipeHistogram == null) {
+            recipeHistogram = new RecipeHistogram(foodCount);
+        }
+        recipeHistogram.clear();
+        for (int i = 0; i < foodCount; i++) {
+            Food food = foods.get(i);
+            recipeHistogram.add(food.getRecipeId(), food.getQuantity());
+        }
+        return recipeHistogram;
+    }
+
+    /**
+     * Folds identical foods into one line with their summed quantity, so 12 margheritas are stored and priced once.
+     * The foods of the order are not modified, merged lines are copies.
+     *
+     * @throws ArithmeticException when the summed quantity of a line does not fit in an int
+     */
+    public void foldFoods() {
+        if (foods == null || foods.size() < 2) {
+            return;
+        }
+        List<Food> lines = new ArrayList<>(foods.size());
+        // recipe and ingredients of a line -> its index in lines
+        Map<List<Object>, Integer> indices = new HashMap<>();
+        for (Food food : foods) {
+            Integer line = indices.putIfAbsent(
+                    Arrays.asList(food.getRecipeId(), food.getBaseIngredients(), food.getExtraIngredients()), lines.size());
+            if (line == null) {
+                lines.add(food);
+            } else {
+                Food merged = lines.get(line);
+                lines.set(line, merged.withQuantity(Math.addExact(merged.getQuantity(), food.getQuantity())));
             }
         }
-        return calculatePriceWithCoupons(prices, coupons, sum);
+        foods = lines;
     }
 
     @SuppressWarnings("PMD")
-    private double calculatePriceWithCoupons(GetPricesResponseModel prices, List<Coupon> coupons, double sum) {
+    private long calculatePriceWithCoupons(GetPricesResponseModel prices, RecipeHistogram recipes,
+                                           List<Coupon> coupons, long sum) {
         if (coupons.isEmpty()) {
             return sum;
         }
-        final double priceWithoutCoupons = sum;
+        final long priceWithoutCoupons = sum;
         couponIds.add("0");
 
         for (Coupon c: coupons) {
             //iterate over the list of valid coupons
-            double price = c.calculatePrice(this, prices, priceWithoutCoupons);
+            long price = c.calculatePriceInMinorUnits(this, recipes, prices, priceWithoutCoupons);
 
-            if (Double.compare(price, sum) < 0) {
+            if (price < sum) {
                 sum = price;
                 //set the first element in the coupon ids to the coupon used
                 //order.couponIds.clear();
@@ -0,0 +1,373 @@
+package pizzeria.order.domain.order;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Order intake
+ * Accepts placed orders when the asynchronous intake is enabled, so a client does not wait for the order to be priced and stored.
+ * The checks that need no lookup are done right away, then the order is put on a bounded queue and the client gets a ticket.
+ * Workers take the orders off the queue in batches and process them, the outcome can be looked up with the ticket
+ * until it has been kept for the retention time.
+ * On shutdown no more orders are accepted and the workers go on with the queued ones for at most the shutdown timeout,
+ * the orders still queued after that are not processed and their tickets are FAILED.
+ * The tickets are kept in memory, so none of them can be looked up after a restart.
+ */
+@Service
+public class OrderIntake {
+    private static final Logger LOG = LoggerFactory.getLogger(OrderIntake.class);
+
+    private final transient OrderService orderService;
+    private final transient boolean enabled;
+    private final transient int batchSize;
+    private final transient long retentionMillis;
+    private final transient long shutdownTimeoutMillis;
+    private final transient Clock clock;
+
+    private final transient BlockingQueue<Ticket> queue;
+    private final transient Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final transient ExecutorService workers;
+
+    private final transient Counter accepted;
+    private final transient Counter rejected;
+    private final transient Timer queueWait;
+
+    private transient volatile boolean running = true;
+
+    /**
+     * The states of a ticket, an order that is still queued when the intake shuts down is FAILED
+     */
+    public enum Status { QUEUED, PROCESSING, DONE, FAILED }
+
+    /**
+     * Instantiates a new Order intake with the settings from the properties, the workers only run when it is enabled
+     *
+     * @param orderService the service that processes the orders
+     * @param meterRegistry the registry the queue depth and the time orders wait on the queue are reported to
+     * @param enabled whether placed orders are queued instead of processed right away
+     * @param capacity the maximum number of orders waiting on the queue
+     * @param workerCount the number of threads that process the queued orders
+     * @param batchSize the maximum number of orders a worker takes off the queue at once
+     * @param retentionMillis how long the outcome of an order can be looked up
+     * @param shutdownTimeoutMillis how long the queued orders are still processed on shutdown
+     */
+    @Autowired
+    public OrderIntake(OrderService orderService, MeterRegistry meterRegistry,
+                       @Value("${order.intake.async:false}") boolean enabled,
+                       @Value("${order.intake.queue-capacity:1000}") int capacity,
+                       @Value("${order.intake.workers:2}") int workerCount,
+                       @Value("${order.intake.batch-size:20}") int batchSize,
+                       @Value("${order.intake.retention-ms:600000}") long retentionMillis,
+                       @Value("${order.intake.shutdown-timeout-ms:10000}") long shutdownTimeoutMillis) {
+        this(orderService, meterRegistry, enabled, capacity,
+                enabled ? workerCount : 0, batchSize, retentionMillis, shutdownTimeoutMillis, Clock.systemUTC());
+    }
+
+    /**
+     * Instantiates a new Order intake, used for testing purposes
+     *
+     * @param orderService the service that processes the orders
+     * @param meterRegistry the registry the queue depth and the time orders wait on the queue are reported to
+     * @param enabled whether placed orders are queued instead of processed right away
+     * @param capacity the maximum number of orders waiting on the queue
+     * @param workerCount the number of threads that process the queued orders, 0 to process them only through processNextBatch
+     * @param batchSize the maximum number of orders a worker takes off the queue at once
+     * @param retentionMillis how long the outcome of an order can be looked up
+     * @param shutdownTimeoutMillis how long the workers still process the queued orders on shutdown
+     * @param clock the clock used for the waiting time and the retention
+     */
+    public OrderIntake(OrderService orderService, MeterRegistry meterRegistry, boolean enabled, int capacity,
+                       int workerCount, int batchSize, long retentionMillis, long shutdownTimeoutMillis, Clock clock) {
+        this.orderService = orderService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.retentionMillis = retentionMillis;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.clock = clock;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        Gauge.builder("orders.intake.queue.depth", queue, BlockingQueue::size)
+                .description("Placed orders waiting to be processed")
+                .register(meterRegistry);
+        this.accepted = Counter.builder("orders.intake.accepted")
+                .description("Placed orders that were put on the queue")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("orders.intake.rejected")
+                .description("Placed orders that were turned away because the queue was full")
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("orders.intake.queue.wait")
+                .description("Time a placed order waits on the queue before it is processed")
+                .register(meterRegistry);
+
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerCount), r -> {
+            Thread thread = new Thread(r, "order-intake-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::work);
+        }
+    }
+
+    /**
+     * @return true iff placed orders are queued instead of processed right away
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Checks the order without lookups and puts it on the queue
+     *
+     * @param order the order that is placed
+     * @param userId the id of the user that places the order
+     * @return the ticket of the order
+     * @throws OrderServiceExceptions.IntakeFullException too many orders are waiting already, or the intake is shutting down
+     * @throws OrderServiceExceptions.CouldNotStoreException a field of the order is missing
+     * @throws OrderServiceExceptions.TimeInvalidException the selected pickup time does not pass the criteria
+     */
+    public Ticket submit(Order order, String userId) throws Exception {
+        orderService.validateWithoutLookups(order);
+
+        Ticket ticket = new Ticket(UUID.randomUUID().toString(), userId, order, clock.millis());
+        tickets.put(ticket.getId(), ticket);
+        // an order queued after the shutdown started could be left without an outcome
+        if (!running || !queue.offer(ticket)) {
+            tickets.remove(ticket.getId());
+            rejected.increment();
+            throw new OrderServiceExceptions.IntakeFullException();
+        }
+        accepted.increment();
+        return ticket;
+    }
+
+    /**
+     * @param id the id of the ticket
+     * @param userId the id of the user that asks for it
+     * @param isManager whether the user is a manager, who may see every ticket
+     * @return the ticket, or empty if it does not exist, has expired or belongs to someone else
+     */
+    public Optional<Ticket> find(String id, String userId, boolean isManager) {
+        Ticket ticket = tickets.get(id);
+        if (ticket == null || !(isManager || ticket.getUserId().equals(userId))) {
+            return Optional.empty();
+        }
+        return Optional.of(ticket);
+    }
+
+    /**
+     * @return the number of orders waiting on the queue
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Forgets the outcome of the orders that were finished longer than the retention time ago
+     */
+    @Scheduled(fixedDelayString = "${order.intake.cleanup-interval-ms:60000}")
+    public void removeExpiredTickets() {
+        long now = clock.millis();
+        tickets.values().removeIf(ticket -> ticket.isFinished() && ticket.getFinishedAt() + retentionMillis <= now);
+    }
+
+    /**
+     * Stops accepting orders and lets the workers process the queued ones for at most the shutdown timeout,
+     * then stops the workers and fails the orders that are still queued
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        List<Ticket> leftOver = new ArrayList<>();
+        queue.drainTo(leftOver);
+        if (!leftOver.isEmpty()) {
+            LOG.warn("{} queued orders were not processed before the shutdown", leftOver.size());
+        }
+        for (Ticket ticket : leftOver) {
+            finish(ticket, CompletableFuture.failedFuture(new OrderServiceExceptions.IntakeShutDownException()));
+        }
+    }
+
+    /**
+     * Takes up to a batch of orders off the queue and processes them, their lookups run at the same time
+     *
+     * @param timeoutMillis how long to wait for the first order
+     * @return the number of orders that were processed
+     */
+    @SuppressWarnings("PMD")
+    int processNextBatch(long timeoutMillis) throws InterruptedException {
+        Ticket first = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return 0;
+        }
+        List<Ticket> batch = new ArrayList<>(batchSize);
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+
+        try {
+            long now = clock.millis();
+            List<CompletableFuture<Order>> processed = new ArrayList<>(batch.size());
+            for (Ticket ticket : batch) {
+                queueWait.record(now - ticket.getEnqueuedAt(), TimeUnit.MILLISECONDS);
+                ticket.status = Status.PROCESSING;
+                processed.add(startProcessing(ticket.getOrder()));
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                finish(batch.get(i), processed.get(i));
+            }
+        } catch (RuntimeException e) {
+            // the orders of this batch are taken off the queue, they must not stay processing forever
+            for (Ticket ticket : batch) {
+                if (!ticket.isFinished()) {
+                    finish(ticket, CompletableFuture.failedFuture(e));
+                }
+            }
+            throw e;
+        }
+        return batch.size();
+    }
+
+    @SuppressWarnings("PMD")
+    private CompletableFuture<Order> startProcessing(Order order) {
+        try {
+            return orderService.processOrderAsync(order);
+        } catch (RuntimeException e) {
+            // only this order fails, the others of the batch are still processed
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @SuppressWarnings("PMD")
+    private void finish(Ticket ticket, CompletableFuture<Order> processed) {
+        Status outcome;
+        try {
+            // the store was notified in the transaction that stored the order
+            ticket.result = processed.join();
+            outcome = Status.DONE;
+        } catch (CompletionException e) {
+            ticket.failure = e.getCause() == null ? e.getMessage() : e.getCause().getMessage();
+            outcome = Status.FAILED;
+        } catch (RuntimeException e) {
+            ticket.failure = e.getMessage();
+            outcome = Status.FAILED;
+        }
+        ticket.finishedAt = clock.millis();
+        // written last, so a finished ticket is always seen with its outcome
+        ticket.status = outcome;
+    }
+
+    @SuppressWarnings("PMD")
+    private void work() {
+        // once the shutdown started the queued orders are still processed, until the queue is empty or the worker is interrupted
+        while ((running || !queue.isEmpty()) && !Thread.currentThread().isInterrupted()) {
+            try {
+                processNextBatch(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // the batch was failed, the worker goes on with the next one instead of dying
+                LOG.error("Could not process a batch of queued orders", e);
+            }
+        }
+    }
+
+    /**
+     * An order on the queue, and its outcome once it has been processed
+     */
+    public static final class Ticket {
+        private final String id;
+        private final String userId;
+        private final Order order;
+        private final long enqueuedAt;
+        // written by the worker, read by the status requests
+        private volatile Status status = Status.QUEUED;
+        private volatile Order result;
+        private volatile String failure;
+        private volatile long finishedAt;
+
+        Ticket(String id, String userId, Order order, long enqueuedAt) {
+            this.id = id;
+            this.userId = userId;
+            this.order = order;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        Order getOrder() {
+            return order;
+        }
+
+        long getEnqueuedAt() {
+            return enqueuedAt;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the stored order once it is done, null before that or when it failed
+         */
+        public Order getResult() {
+            return result;
+        }
+
+        /**
+         * @return the reason the order failed, null when it did not fail
+         */
+        public String getFailure() {
+            return failure;
+        }
+
+        long getFinishedAt() {
+            return finishedAt;
+        }
+
+        boolean isFinished() {
+            Status current = status;
+            return current == Status.DONE || current == Status.FAILED;
+        }
+    }
+}
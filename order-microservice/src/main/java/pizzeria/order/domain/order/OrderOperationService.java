@@ -5,58 +5,120 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import pizzeria.order.domain.mailing.MailingService;
-import pizzeria.order.domain.store.StoreService;
 import pizzeria.order.models.DeleteModel;
+import pizzeria.order.models.OrderTicketModel;
 
+import java.net.URI;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class OrderOperationService {
     private transient OrderService orderService;
-    private transient StoreService storeService;
-    private transient MailingService mailingService;
+    private transient OrderIntake orderIntake;
 
     @Autowired
-    public OrderOperationService(OrderService orderService, StoreService storeService, MailingService mailingService) {
+    public OrderOperationService(OrderService orderService, OrderIntake orderIntake) {
         this.orderService = orderService;
-        this.storeService = storeService;
-        this.mailingService = mailingService;
+        this.orderIntake = orderIntake;
     }
 
-    public ResponseEntity placeOrder(Order incoming, String userId) throws Exception {
-        //check if the order that is trying to be placed is by the user the request comes from
-        //if not then we deny the operation, else we process the order (and validate everything else)
+    /**
+     * @return true iff placed orders are queued and processed later instead of right away
+     */
+    public boolean isIntakeAsync() {
+        return orderIntake.isEnabled();
+    }
 
+    /**
+     * Puts the order of the user on the intake queue after the checks that need no lookup
+     * @param incoming the order to be placed
+     * @param userId the id of the user that places the order
+     * @return 202 with the ticket of the order, 400 when a check failed or 503 when the queue is full
+     */
+    public ResponseEntity<OrderTicketModel> queueOrder(Order incoming, String userId) {
         if (!userId.equals(incoming.getUserId())) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).header(HttpHeaders.WARNING, "You are trying to place an order for someone else").build();
         }
 
-        //return the order we just processed to the user
-        Order processed = orderService.processOrder(incoming);
+        try {
+            OrderIntake.Ticket ticket = orderIntake.submit(incoming, userId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .location(URI.create("/order/status/" + ticket.getId()))
+                    .body(toModel(ticket));
+        } catch (OrderServiceExceptions.IntakeFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .header(HttpHeaders.WARNING, e.getMessage()).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).header(HttpHeaders.WARNING, e.getMessage()).build();
+        }
+    }
 
-        Long storeId = processed.getStoreId();
-        String recipientEmail = storeService.getEmailById(storeId);
+    /**
+     * Looks up what happened to a queued order
+     * @param ticketId the ticket of the order
+     * @param userId the id of the user that asks
+     * @param roleString the role of the user, a manager can see every ticket
+     * @return 202 while the order waits, 200 with the stored order, 400 with the reason it failed, 404 for an unknown ticket
+     */
+    public ResponseEntity<OrderTicketModel> orderStatus(String ticketId, String userId, String roleString) {
+        boolean isManager = roleString.equals("[ROLE_MANAGER]");
+        Optional<OrderIntake.Ticket> found = orderIntake.find(ticketId, userId, isManager);
+        if (found.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
 
-        sendEmail(processed.getOrderId(), recipientEmail, MailingService.ProcessType.CREATED);
+        OrderTicketModel model = toModel(found.get());
+        switch (model.getStatus()) {
+            case DONE:
+                return ResponseEntity.status(HttpStatus.OK).body(model);
+            case FAILED:
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).header(HttpHeaders.WARNING, model.getFailure()).body(model);
+            default:
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(model);
+        }
+    }
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(processed);
+    private static OrderTicketModel toModel(OrderIntake.Ticket ticket) {
+        // the status is read first, the outcome is set before a ticket becomes DONE or FAILED
+        OrderIntake.Status status = ticket.getStatus();
+        return new OrderTicketModel(ticket.getId(), status, ticket.getResult(), ticket.getFailure());
     }
 
-    public ResponseEntity editOrder(Order incoming, String userId) throws Exception {
-        if (!userId.equals(incoming.getUserId())){
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).header(HttpHeaders.WARNING, "You are trying to edit an order from someone else").build();
-        }
+    /**
+     * Places the order of the user, the processing does not block the calling thread
+     * @param incoming the order to be placed
+     * @param userId the id of the user that places the order
+     * @return the future of the response, completed exceptionally when the order is not valid
+     */
+    public CompletableFuture<ResponseEntity<Order>> placeOrder(Order incoming, String userId) {
+        //check if the order that is trying to be placed is by the user the request comes from
+        //if not then we deny the operation, else we process the order (and validate everything else)
 
-        //return the order we just processed to the user
-        Order processed = orderService.processOrder(incoming);
+        if (!userId.equals(incoming.getUserId())) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).header(HttpHeaders.WARNING, "You are trying to place an order for someone else").build());
+        }
 
-        Long storeId = processed.getStoreId();
-        String recipientEmail = storeService.getEmailById(storeId);
+        //return the order we just processed to the user, the store was notified when it was stored
+        return orderService.processOrderAsync(incoming)
+                .thenApply(processed -> ResponseEntity.status(HttpStatus.CREATED).body(processed));
+    }
 
-        sendEmail(processed.getOrderId(), recipientEmail, MailingService.ProcessType.EDITED);
+    /**
+     * Edits the order of the user, the processing does not block the calling thread
+     * @param incoming the edited order
+     * @param userId the id of the user that edits the order
+     * @return the future of the response, completed exceptionally when the order is not valid
+     */
+    public CompletableFuture<ResponseEntity<Order>> editOrder(Order incoming, String userId) {
+        if (!userId.equals(incoming.getUserId())){
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).header(HttpHeaders.WARNING, "You are trying to edit an order from someone else").build());
+        }
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(processed);
+        //return the order we just processed to the user, the store was notified when it was stored
+        return orderService.processOrderAsync(incoming)
+                .thenApply(processed -> ResponseEntity.status(HttpStatus.CREATED).body(processed));
     }
 
     @SuppressWarnings("PMD")
@@ -64,25 +126,11 @@ public class OrderOperationService {
         //check if the user is a manager
         boolean isManager = roleString.equals("[ROLE_MANAGER]");
 
-        Optional<Order> orderToBeDeleted = orderService.findOrder(deleteModel.getOrderId());
-
-        if (orderToBeDeleted.isPresent()) {
-            Long storeId = orderToBeDeleted.get().getStoreId();
-            String recipientEmail = storeService.getEmailById(storeId);
-
-            if (!orderService.removeOrder(deleteModel.getOrderId(), userId, isManager)) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
-            }
-
-            sendEmail(deleteModel.getOrderId(), recipientEmail, MailingService.ProcessType.DELETED);
-            //validate if we can delete this order, if we can ok else bad request
-            return ResponseEntity.status(HttpStatus.OK).build();
+        //validate if we can delete this order, if we can ok else bad request
+        //the store is notified in the transaction that deletes the order
+        if (!orderService.removeOrder(deleteModel.getOrderId(), userId, isManager)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
-
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
-    }
-
-    public void sendEmail(long id, String recipientEmail, MailingService.ProcessType processType) {
-        mailingService.sendEmail(id, recipientEmail, processType);
+        return ResponseEntity.status(HttpStatus.OK).build();
     }
 }
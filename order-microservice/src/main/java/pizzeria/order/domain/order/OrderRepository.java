@@ -2,6 +2,8 @@ package pizzeria.order.domain.order;
 
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -9,7 +11,34 @@ import java.util.Optional;
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
-    Optional<Order> findByOrderId(Long orderId);
+    /**
+     * Loads an order together with its foods in one query,
+     * the orders that findById returns only load their foods when they are used
+     *
+     * @param orderId the id of the order
+     * @return the order, empty if there is no such order
+     */
+    @Query("select o from Order o left join fetch o.foods where o.orderId = :orderId")
+    Optional<Order> findByOrderId(@Param("orderId") Long orderId);
 
     List<Order> findByUserId(String userId);
+
+    /**
+     * Loads the orders of a user together with their foods in one query,
+     * the ingredient ids of a food are columns of its row, so no further queries are needed
+     *
+     * @param userId the id of the user
+     * @return the orders of the user, ordered by id
+     */
+    @Query("select distinct o from Order o left join fetch o.foods where o.userId = :userId order by o.orderId")
+    List<Order> findAllWithFoodsByUserId(@Param("userId") String userId);
+
+    /**
+     * Loads all orders together with their foods in one query,
+     * the ingredient ids of a food are columns of its row, so no further queries are needed
+     *
+     * @return all orders, ordered by id
+     */
+    @Query("select distinct o from Order o left join fetch o.foods order by o.orderId")
+    List<Order> findAllWithFoods();
 }
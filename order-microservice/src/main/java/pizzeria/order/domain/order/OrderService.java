@@ -1,18 +1,26 @@
 package pizzeria.order.domain.order;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
-import pizzeria.order.domain.coupon.Coupon_2for1_Repository;
-import pizzeria.order.domain.coupon.Coupon_percentage_Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 import pizzeria.order.domain.coupon.Coupon;
+import pizzeria.order.domain.coupon.CouponCodeIndex;
+import pizzeria.order.domain.coupon.CouponLedger;
+import pizzeria.order.domain.coupon.CouponRepository;
+import pizzeria.order.domain.food.Food;
 import pizzeria.order.domain.food.FoodPriceService;
 import pizzeria.order.domain.mailing.MailingService;
+import pizzeria.order.domain.mailing.NotificationDigester;
 import pizzeria.order.domain.store.StoreService;
 import pizzeria.order.models.GetPricesResponseModel;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * The type Order service
@@ -22,13 +30,18 @@ import java.util.Optional;
 public class OrderService {
     private final transient OrderRepository orderRepo;
     private final transient FoodPriceService foodPriceService;
-    private transient final Coupon_percentage_Repository coupon_percentage_repository;
-    private transient final Coupon_2for1_Repository coupon_2for1_repository;
+    private transient final CouponRepository couponRepository;
+    private transient final CouponCodeIndex couponCodeIndex;
+    private transient final CouponLedger couponLedger;
     private transient final ClockWrapper clockWrapper;
 
     private final transient StoreService storeService;
 
-    private final transient MailingService mailingService;
+    private final transient NotificationDigester notificationDigester;
+    private final transient TransactionTemplate transactionTemplate;
+
+    private final transient Executor lookupExecutor;
+    private final transient Executor priceExecutor;
 
     /**
      * Instantiates a new Order service with the respective repositories and services
@@ -37,22 +50,34 @@ public class OrderService {
      * @param foodPriceService the food price service
      * @param clockWrapper     clock wrapper for time
      * @param storeService     the store service
-     * @param coupon_percentage_repository the percentage coupon repository
-     * @param coupon_2for1_repository the 2for1 coupon repository
+     * @param couponRepository the coupon repository, which holds every type of coupon
+     * @param couponCodeIndex  the index of the codes that belong to a coupon
+     * @param couponLedger     the ledger of the validity windows and redemption limits of the coupons
+     * @param notificationDigester the digester the store notifications are written to, with the order
+     * @param transactionTemplate the template of the transactions that store an order together with its notification
+     * @param lookupExecutor   the executor of the database lookups of an order
+     * @param priceExecutor    the executor of the price lookups at the food microservice
      */
     @Autowired
     public OrderService(OrderRepository orderRepo, FoodPriceService foodPriceService,
                         ClockWrapper clockWrapper, StoreService storeService,
-                        Coupon_2for1_Repository coupon_2for1_repository,
-                        Coupon_percentage_Repository coupon_percentage_repository,
-                        MailingService mailingService){
+                        CouponRepository couponRepository, CouponCodeIndex couponCodeIndex,
+                        CouponLedger couponLedger,
+                        NotificationDigester notificationDigester,
+                        TransactionTemplate transactionTemplate,
+                        @Qualifier("orderLookupExecutor") Executor lookupExecutor,
+                        @Qualifier("priceLookupExecutor") Executor priceExecutor){
         this.orderRepo = orderRepo;
         this.foodPriceService = foodPriceService;
         this.clockWrapper = clockWrapper;
         this.storeService = storeService;
-        this.coupon_percentage_repository = coupon_percentage_repository;
-        this.coupon_2for1_repository = coupon_2for1_repository;
-        this.mailingService = mailingService;
+        this.couponRepository = couponRepository;
+        this.couponCodeIndex = couponCodeIndex;
+        this.couponLedger = couponLedger;
+        this.notificationDigester = notificationDigester;
+        this.transactionTemplate = transactionTemplate;
+        this.lookupExecutor = lookupExecutor;
+        this.priceExecutor = priceExecutor;
     }
 
     /**
@@ -66,45 +91,170 @@ public class OrderService {
      * @throws OrderServiceExceptions.CouldNotStoreException there was an error with the order passed so it cannot be stored in the database
      * @throws OrderServiceExceptions.FoodInvalidException there are invalid or non-existing foods in the order placed
      * @throws OrderServiceExceptions.InvalidEditException exclusively when editing an order, the order does not belong to the user
+     * @throws OrderServiceExceptions.CouponNotRedeemableException the applied coupon expired or reached its limit while the order was processed
      *
      */
     @SuppressWarnings("PMD")
     public Order processOrder(Order order) throws Exception {
-        validateInput(order);
+        try {
+            return processOrderAsync(order).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
 
-        validateOrderTime(order);
+    /**
+     * Process an order without blocking the calling thread
+     * The lookups that do not depend on each other run at the same time: the owner of an edited order,
+     * the store and the coupons on the lookup executor, the prices of the food microservice on the price executor.
+     * When several checks fail, the order fails with the exception processOrder has always checked for first.
+     * The order is stored together with the notification of its store, in one transaction.
+     *
+     * @param order the order to be processed
+     * @return the future of the order after processing, completed exceptionally with the exceptions of processOrder
+     */
+    public CompletableFuture<Order> processOrderAsync(Order order) {
+        try {
+            validateInput(order);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        boolean onTime = isOnTime(order);
+
+        CompletableFuture<Optional<Order>> storedOrder = order.orderId == null
+                ? CompletableFuture.completedFuture(Optional.empty())
+                : CompletableFuture.supplyAsync(() -> orderRepo.findById(order.orderId), lookupExecutor);
+        // the email of the store is null when there is no such store, otherwise the store is notified with it
+        CompletableFuture<String> storeEmail = CompletableFuture.supplyAsync(
+                () -> storeService.getEmailById(order.getStoreId()), lookupExecutor);
+        // codes without a coupon, typos and guesses included, and coupons that expired or have not started
+        // are dropped before the database is asked, the remaining coupons of every type come from the same table, in one query
+        List<String> knownCodes = couponLedger.filterLive(couponCodeIndex.filterKnown(order.couponIds));
+        CompletableFuture<List<Coupon>> coupons = knownCodes.isEmpty()
+                ? CompletableFuture.completedFuture(List.of())
+                : CompletableFuture.supplyAsync(() -> couponRepository.findAllById(knownCodes), lookupExecutor);
+        // an order that is too late fails before the prices are looked at, so they are not asked for
+        CompletableFuture<GetPricesResponseModel> prices = onTime
+                ? CompletableFuture.supplyAsync(() -> foodPriceService.getFoodPrices(order), priceExecutor)
+                : CompletableFuture.completedFuture(null);
 
-        GetPricesResponseModel prices = foodPriceService.getFoodPrices(order); // get prices
-        if (prices == null)
-            //some food does not exist or something else went wrong in the food ms communication
-            throw new OrderServiceExceptions.FoodInvalidException();
+        return CompletableFuture.allOf(storedOrder, storeEmail, coupons, prices)
+                // wait for every stage, the failures are looked at in the order they were always checked in
+                .handle((ignored, error) -> null)
+                .thenApplyAsync(ignored -> {
+                    try {
+                        Optional<Order> stored = storedOrder.join();
+                        validateStoredOrder(order, stored);
+                        String recipientEmail = storeEmail.join();
+                        if (recipientEmail == null) {
+                            throw new OrderServiceExceptions.InvalidStoreIdException();
+                        }
+                        if (!onTime) {
+                            throw new OrderServiceExceptions.TimeInvalidException();
+                        }
+                        GetPricesResponseModel response = prices.join();
+                        if (response == null)
+                            //some food does not exist or something else went wrong in the food ms communication
+                            throw new OrderServiceExceptions.FoodInvalidException();
 
-        return calculatePrice(order, prices);
+                        return calculatePrice(order, response, coupons.join(),
+                                stored.map(Order::getCouponIds).orElse(List.of()),
+                                stored.map(Order::getRedeemedCouponIds).orElse(List.of()), recipientEmail);
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, lookupExecutor);
+    }
+
+    /**
+     * Checks the parts of an order that do not need a lookup: the fields and the pickup time
+     *
+     * @param order the order to be checked
+     * @throws OrderServiceExceptions.CouldNotStoreException a field of the order is missing
+     * @throws OrderServiceExceptions.TimeInvalidException the selected pickup time does not pass the criteria
+     */
+    void validateWithoutLookups(Order order) throws Exception {
+        validateInput(order);
+        validateOrderTime(order);
     }
 
     @SuppressWarnings("PMD")
-    private Order calculatePrice(Order order, GetPricesResponseModel prices) throws OrderServiceExceptions.PriceNotRightException {
-        ArrayList<Coupon> coupons = new ArrayList<>(coupon_percentage_repository.findAllById(order.couponIds));
-        coupons.addAll(coupon_2for1_repository.findAllById(order.couponIds));
+    private Order calculatePrice(Order order, GetPricesResponseModel prices, List<Coupon> coupons,
+                                 List<String> previousCoupons, List<String> previousRedeemed,
+                                 String recipientEmail) throws Exception {
+        // coupons that reached their redemption limit only count for an edited order that already redeemed them
+        List<Coupon> usable = new ArrayList<>(coupons.size());
+        for (Coupon coupon : coupons) {
+            if (previousCoupons.contains(coupon.getId()) || couponLedger.hasRedemptionsLeft(coupon.getId())) {
+                usable.add(coupon);
+            }
+        }
         // this list only contains validated coupons, no need for additional checks
         order.couponIds.clear(); // clear the list, so we can send only the used one back
         //get the base price of the order
-        double sum = order.calculatePrice(prices, coupons);
+        long sum = order.calculatePriceInMinorUnits(prices, usable);
 
-        //sum = calculatePriceWithCoupons(order, prices, coupons);
-        final double EPS = 1e-6;
-        if (Math.abs(order.price - sum) > EPS) {
+        //both prices are whole cents, so they have to match exactly
+        if (order.getPriceInMinorUnits() != sum) {
             throw new OrderServiceExceptions.PriceNotRightException("Price is not right");
         }
-        return orderRepo.save(order);
+
+        // an edited order keeps the redemption of a coupon it already used,
+        // only the redemptions the ledger counted are given back later
+        List<String> redeemed = new ArrayList<>();
+        List<String> counted = new ArrayList<>();
+        for (String code : order.couponIds) {
+            if (previousCoupons.contains(code)) {
+                if (previousRedeemed.contains(code)) {
+                    counted.add(code);
+                }
+                continue;
+            }
+            CouponLedger.Redemption redemption = couponLedger.tryRedeem(code);
+            if (redemption == CouponLedger.Redemption.REFUSED) {
+                redeemed.forEach(couponLedger::release);
+                throw new OrderServiceExceptions.CouponNotRedeemableException();
+            }
+            if (redemption == CouponLedger.Redemption.COUNTED) {
+                redeemed.add(code);
+                counted.add(code);
+            }
+        }
+        order.setRedeemedCouponIds(counted);
+        MailingService.ProcessType processType = order.orderId == null
+                ? MailingService.ProcessType.CREATED : MailingService.ProcessType.EDITED;
+        Order saved;
+        try {
+            // the notification of the store is part of the transaction of the order, so neither is stored without the other
+            saved = transactionTemplate.execute(status -> {
+                Order result = orderRepo.save(order);
+                notificationDigester.submit(result.getOrderId(), recipientEmail, processType);
+                return result;
+            });
+        } catch (RuntimeException e) {
+            redeemed.forEach(couponLedger::release);
+            throw e;
+        }
+        for (String code : previousRedeemed) {
+            if (!saved.getCouponIds().contains(code)) {
+                couponLedger.release(code);
+            }
+        }
+        return saved;
     }
 
     private void validateOrderTime(Order order) throws OrderServiceExceptions.TimeInvalidException {
+        if (!isOnTime(order))
+            throw new OrderServiceExceptions.TimeInvalidException();
+    }
+
+    private boolean isOnTime(Order order) {
         //check if the selected pickup time is 30 minutes or more in the future
         LocalDateTime current = clockWrapper.getNow();
 
-        if (order.getPickupTime().isBefore(current.plusMinutes(30)))
-            throw new OrderServiceExceptions.TimeInvalidException();
+        return !order.getPickupTime().isBefore(current.plusMinutes(30));
     }
 
     private void validateInput(Order order) throws Exception {
@@ -112,23 +262,43 @@ public class OrderService {
         if (order == null || order.getFoods() == null || order.getUserId() == null
                 || order.getPickupTime() == null || order.getCouponIds() == null)
             throw new OrderServiceExceptions.CouldNotStoreException();
+        for (Food food : order.getFoods()) {
+            if (food == null || food.getQuantity() < 1
+                    || tooManyIngredients(food.getBaseIngredients()) || tooManyIngredients(food.getExtraIngredients()))
+                throw new OrderServiceExceptions.CouldNotStoreException();
+        }
+        // clients may still send every food separately, identical ones are stored and priced as one line
+        try {
+            order.foldFoods();
+        } catch (ArithmeticException e) {
+            throw new OrderServiceExceptions.CouldNotStoreException();
+        }
+        // the limit holds for the merged lines, so a stored order can always be edited again
+        for (Food food : order.getFoods()) {
+            if (food.getQuantity() > Food.MAX_QUANTITY)
+                throw new OrderServiceExceptions.CouldNotStoreException();
+        }
+    }
+
+    private static boolean tooManyIngredients(List<Long> ingredients) {
+        // the ids of a line are packed into one column, more of them would not fit
+        return ingredients != null && ingredients.size() > Food.MAX_INGREDIENTS;
+    }
+
+    private void validateStoredOrder(Order order, Optional<Order> stored) throws OrderServiceExceptions.InvalidEditException {
         // check if we are in 'edit mode' (the orderId is specified in the Order object)
         // then check if the order belongs to the user
         //when we find by id we return an optional, if for some reason this optional does not exist return new order, which has null fields for non-primitives
         //essentially check if the order is in the repo and belongs to the person trying to edit
-        if (order.orderId != null && !order.getUserId().equals(orderRepo.findById(order.orderId).orElse(new Order()).getUserId())) {
-            //System.out.println(order.getUserId() + " " + orderRepo.findByOrderId(order.orderId));
+        if (order.orderId != null && !order.getUserId().equals(stored.orElse(new Order()).getUserId())) {
             throw new OrderServiceExceptions.InvalidEditException();
         }
-
-        if (!storeService.getStoreRepo().existsById(order.getStoreId())) {
-            throw new OrderServiceExceptions.InvalidStoreIdException();
-        }
     }
 
     /**
      * Remove an order
      * Includes user validation or check if we have a manager requesting this, also check time constraint
+     * The order is deleted together with storing the notification of its store, in one transaction.
      *
      * @param orderId   the order id
      * @param userId    the user id
@@ -153,7 +323,12 @@ public class OrderService {
         //check if we have a manager or the order belongs to the user
         //we already check above that the order exists, so now we only check if the user ids match
         if (isManager || userId.equals(toDelete.getUserId())) {
-            orderRepo.deleteById(orderId);
+            String recipientEmail = storeService.getEmailById(toDelete.getStoreId());
+            transactionTemplate.executeWithoutResult(status -> {
+                orderRepo.deleteById(orderId);
+                notificationDigester.submit(orderId, recipientEmail, MailingService.ProcessType.DELETED);
+            });
+            toDelete.getRedeemedCouponIds().forEach(couponLedger::release);
             return true;
         }
 
@@ -176,7 +351,7 @@ public class OrderService {
      * @return the list of orders
      */
     public List<Order> listOrders(String userId) {
-        return orderRepo.findByUserId(userId);
+        return orderRepo.findAllWithFoodsByUserId(userId);
     }
 
     /**
@@ -185,6 +360,6 @@ public class OrderService {
      * @return the list of orders
      */
     public List<Order> listAllOrders() {
-        return orderRepo.findAll();
+        return orderRepo.findAllWithFoods();
     }
 }
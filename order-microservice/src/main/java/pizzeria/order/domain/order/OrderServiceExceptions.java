@@ -40,6 +40,17 @@ public class OrderServiceExceptions {
         }
     }
 
+    /**
+     * The coupon expired or reached its redemption limit while the order was processed
+     */
+    @SuppressWarnings("PMD")
+    public static class CouponNotRedeemableException extends Exception {
+        @Override
+        public String getMessage(){
+            return "The coupon can no longer be redeemed.";
+        }
+    }
+
     /**
      * The type Could not store exception.
      */
@@ -72,4 +83,26 @@ public class OrderServiceExceptions {
             return "The order does not belong to the same user.";
         }
     }
+
+    /**
+     * The queue of the asynchronous order intake is full, or the intake is shutting down.
+     */
+    @SuppressWarnings("PMD")
+    public static class IntakeFullException extends Exception {
+        @Override
+        public String getMessage(){
+            return "Too many orders are waiting to be processed, try again later.";
+        }
+    }
+
+    /**
+     * The asynchronous order intake shut down while the order was still queued.
+     */
+    @SuppressWarnings("PMD")
+    public static class IntakeShutDownException extends Exception {
+        @Override
+        public String getMessage(){
+            return "The service shut down before the order was processed, place it again.";
+        }
+    }
 }
@@ -0,0 +1,126 @@
+package pizzeria.order.domain.order;
+
+import java.util.Arrays;
+
+/**
+ * The number of foods per recipe in an order, in the order the recipes first appear.
+ * It is filled once per pricing of an order and shared by the price calculation and every coupon,
+ * and the arrays are reused the next time the same order is priced.
+ */
+public class RecipeHistogram {
+    private static final int MIN_CAPACITY = 8;
+
+    // slot -> index + 1 into recipes/counts, 0 when the slot is empty
+    private int[] slots;
+    private long[] recipes;
+    private int[] counts;
+    private int size;
+
+    /**
+     * Instantiates a new, empty Recipe histogram
+     *
+     * @param expectedRecipes the number of distinct recipes that fit without growing
+     */
+    public RecipeHistogram(int expectedRecipes) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedRecipes * 2) {
+            capacity <<= 1;
+        }
+        slots = new int[capacity];
+        recipes = new long[capacity / 2];
+        counts = new int[capacity / 2];
+    }
+
+    /**
+     * Removes every count, keeping the arrays
+     */
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(slots, 0);
+            size = 0;
+        }
+    }
+
+    /**
+     * Counts one more food of the recipe
+     *
+     * @param recipeId the id of the recipe
+     */
+    public void add(long recipeId) {
+        add(recipeId, 1);
+    }
+
+    /**
+     * Counts more foods of the recipe
+     *
+     * @param recipeId the id of the recipe
+     * @param count the number of foods
+     * @throws ArithmeticException when the number of foods of the recipe does not fit in an int
+     */
+    public void add(long recipeId, int count) {
+        int slot = slotOf(recipeId);
+        if (slots[slot] != 0) {
+            counts[slots[slot] - 1] = Math.addExact(counts[slots[slot] - 1], count);
+            return;
+        }
+        if (size == recipes.length) {
+            grow();
+            slot = slotOf(recipeId);
+        }
+        recipes[size] = recipeId;
+        counts[size] = count;
+        size++;
+        slots[slot] = size;
+    }
+
+    /**
+     * @return the number of distinct recipes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index index of a distinct recipe, between 0 and size()
+     * @return the id of the recipe
+     */
+    public long recipeAt(int index) {
+        return recipes[index];
+    }
+
+    /**
+     * @param index index of a distinct recipe, between 0 and size()
+     * @return the number of foods of the recipe
+     */
+    public int countAt(int index) {
+        return counts[index];
+    }
+
+    /**
+     * @param recipeId the id of the recipe
+     * @return the number of foods of the recipe
+     */
+    public int count(long recipeId) {
+        int index = slots[slotOf(recipeId)];
+        return index == 0 ? 0 : counts[index - 1];
+    }
+
+    private int slotOf(long recipeId) {
+        int mask = slots.length - 1;
+        long h = recipeId * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while (slots[slot] != 0 && recipes[slots[slot] - 1] != recipeId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        recipes = Arrays.copyOf(recipes, recipes.length * 2);
+        counts = Arrays.copyOf(counts, counts.length * 2);
+        slots = new int[slots.length * 2];
+        for (int i = 0; i < size; i++) {
+            slots[slotOf(recipes[i])] = i + 1;
+        }
+    }
+}
@@ -8,6 +8,11 @@ import java.util.regex.Pattern;
 
 @Service
 public class StoreService {
+    // compiled once instead of on every added or edited store
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^(?=.{1,64}@)[A-Za-z0-9_-]+(\\.[A-Za-z0-9_-]+)*@"
+            + "[^-][A-Za-z0-9-]+(\\.[A-Za-z0-9-]+)*(\\.[A-Za-z]{2,})$");
+    private static final Pattern LOCATION_PATTERN = Pattern.compile("^(?:NL-)?(\\d{4})\\s*([A-Z]{2})$");
+
     @Getter
     private final transient StoreRepository storeRepo;
 
@@ -46,31 +51,22 @@ public class StoreService {
     }
 
     /**
-     * Get the email corresponding to the storeID
+     * Get the email corresponding to the storeID, OrderService also uses it to check that the store exists
      * @param id ID of the store
-     * @return Email of the corresponding store
+     * @return Email of the corresponding store, null if there is no such store
      */
     public String getEmailById(Long id) {
-        if (!storeRepo.existsById(id)) {
-            return null;
-        }
-        return storeRepo.findById(id).orElse(new Store(null, null)).getContact();
+        // the inherited findById(Long) goes through the second-level cache, existsById and findById(long) always query
+        return storeRepo.findById(id).map(Store::getContact).orElse(null);
     }
 
     private void verifyEmailFormat(String testEmail) throws InvalidEmailException {
-        String regexPattern = "^(?=.{1,64}@)[A-Za-z0-9_-]+(\\.[A-Za-z0-9_-]+)*@"
-                + "[^-][A-Za-z0-9-]+(\\.[A-Za-z0-9-]+)*(\\.[A-Za-z]{2,})$";
-
-        Pattern pattern = Pattern.compile(regexPattern);
-        if (!pattern.matcher(testEmail).matches())
+        if (!EMAIL_PATTERN.matcher(testEmail).matches())
             throw new InvalidEmailException();
     }
 
     private void verifyLocationFormat(String testLocation) throws InvalidLocationException {
-        String regexPattern = "^(?:NL-)?(\\d{4})\\s*([A-Z]{2})$";
-
-        Pattern pattern = Pattern.compile(regexPattern);
-        if (!pattern.matcher(testLocation).matches())
+        if (!LOCATION_PATTERN.matcher(testLocation).matches())
             throw new InvalidLocationException();
     }
 
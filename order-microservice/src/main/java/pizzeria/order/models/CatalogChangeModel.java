@@ -0,0 +1,28 @@
+package pizzeria.order.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single entry of the catalog change feed of the food microservice, the price is sent as a whole number of cents
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogChangeModel {
+    private long version;
+    private ItemType type;
+    private long id;
+    private String name;
+    private long priceInMinorUnits;
+    private boolean deleted;
+
+    /**
+     * The kind of catalog item the change refers to
+     */
+    public enum ItemType {
+        RECIPE,
+        INGREDIENT
+    }
+}
@@ -0,0 +1,19 @@
+package pizzeria.order.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The type Catalog feed response model, either a full snapshot or the changes since a version
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogFeedResponseModel {
+    private String epoch;
+    private long version;
+    private List<CatalogChangeModel> changes;
+}
@@ -0,0 +1,21 @@
+package pizzeria.order.models;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+
+@Data
+@NoArgsConstructor
+public class CouponBulkModel {
+
+    int count;
+    double percentage;
+    String type;
+    LocalDateTime validFrom;
+    LocalDateTime validUntil;
+    // the generated codes are single-use unless another limit is given
+    Integer maxRedemptions = 1;
+
+}
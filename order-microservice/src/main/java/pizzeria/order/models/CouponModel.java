@@ -3,6 +3,8 @@ package pizzeria.order.models;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 
 @Data
 @NoArgsConstructor
@@ -11,5 +13,8 @@ public class CouponModel {
     String id;
     double percentage;
     String type;
+    LocalDateTime validFrom;
+    LocalDateTime validUntil;
+    Integer maxRedemptions;
 
 }
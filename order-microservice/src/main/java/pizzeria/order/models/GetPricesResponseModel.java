@@ -1,5 +1,7 @@
 package pizzeria.order.models;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -8,15 +10,34 @@ import java.util.Map;
 
 /**
  * The type Get prices response model.
+ * The prices are kept in PriceTables, maps that are given to the constructor or setters are copied into one.
  */
 @Data
 @NoArgsConstructor
 public class GetPricesResponseModel {
-    private Map<Long, Tuple> foodPrices;
-    private Map<Long, Tuple> ingredientPrices;
+    @JsonSerialize(using = PriceTable.Serializer.class)
+    private PriceTable foodPrices;
+    @JsonSerialize(using = PriceTable.Serializer.class)
+    private PriceTable ingredientPrices;
 
     public GetPricesResponseModel(Map<Long, Tuple> f, Map<Long, Tuple> i) {
-        foodPrices = f;
-        ingredientPrices = i;
+        setFoodPrices(f);
+        setIngredientPrices(i);
+    }
+
+    /**
+     * @param foodPrices the prices of the recipes, keyed by recipe id
+     */
+    @JsonDeserialize(using = PriceTable.Deserializer.class)
+    public void setFoodPrices(Map<Long, Tuple> foodPrices) {
+        this.foodPrices = foodPrices == null ? null : PriceTable.of(foodPrices);
+    }
+
+    /**
+     * @param ingredientPrices the prices of the ingredients, keyed by ingredient id
+     */
+    @JsonDeserialize(using = PriceTable.Deserializer.class)
+    public void setIngredientPrices(Map<Long, Tuple> ingredientPrices) {
+        this.ingredientPrices = ingredientPrices == null ? null : PriceTable.of(ingredientPrices);
     }
 }
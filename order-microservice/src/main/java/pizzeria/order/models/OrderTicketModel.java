@@ -0,0 +1,19 @@
+package pizzeria.order.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pizzeria.order.domain.order.Order;
+import pizzeria.order.domain.order.OrderIntake;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderTicketModel {
+    String ticket;
+    OrderIntake.Status status;
+    // the stored order once the status is DONE
+    Order order;
+    // the reason the order was not stored once the status is FAILED
+    String failure;
+}
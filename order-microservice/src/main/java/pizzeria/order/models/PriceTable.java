@@ -0,0 +1,290 @@
+package pizzeria.order.models;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import pizzeria.commons.money.Money;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The prices and names of recipes or ingredients, keyed by their id.
+ * The ids and the prices in cents are kept in primitive arrays with open addressing,
+ * so looking up a price while pricing an order does not box the id or allocate a Tuple.
+ * It is still a Map of Tuples for the code that does not price orders, and in JSON it is the same
+ * object of id to {price, name} that the food microservice sends.
+ */
+@JsonSerialize(using = PriceTable.Serializer.class)
+@JsonDeserialize(using = PriceTable.Deserializer.class)
+public class PriceTable extends AbstractMap<Long, Tuple> {
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] ids;
+    private long[] prices;
+    private String[] names;
+    private boolean[] used;
+    private int size;
+
+    /**
+     * Instantiates a new, empty Price table
+     */
+    public PriceTable() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * Instantiates a new, empty Price table
+     *
+     * @param expectedSize the number of prices that fit without growing the table
+     */
+    public PriceTable(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * @param prices the prices per id
+     * @return the given table, or a table with a copy of the given prices
+     */
+    public static PriceTable of(Map<Long, Tuple> prices) {
+        if (prices instanceof PriceTable) {
+            return (PriceTable) prices;
+        }
+        PriceTable table = new PriceTable(prices.size());
+        table.putAll(prices);
+        return table;
+    }
+
+    /**
+     * Adds or replaces the price of an id
+     *
+     * @param id the id of the recipe/ingredient
+     * @param priceInMinorUnits the price in cents
+     * @param name the name of the recipe/ingredient
+     */
+    public void put(long id, long priceInMinorUnits, String name) {
+        int slot = slotOf(id);
+        if (!used[slot]) {
+            if ((size + 1) * 2 > ids.length) {
+                grow();
+                slot = slotOf(id);
+            }
+            used[slot] = true;
+            ids[slot] = id;
+            size++;
+        }
+        prices[slot] = priceInMinorUnits;
+        names[slot] = name;
+    }
+
+    /**
+     * @param id the id of the recipe/ingredient
+     * @return the price in cents
+     * @throws NoSuchElementException when there is no price for the id
+     */
+    public long priceOf(long id) {
+        int slot = slotOf(id);
+        if (!used[slot]) {
+            throw new NoSuchElementException("No price for id " + id);
+        }
+        return prices[slot];
+    }
+
+    /**
+     * @param id the id of the recipe/ingredient
+     * @return true iff there is a price for the id
+     */
+    public boolean containsId(long id) {
+        return used[slotOf(id)];
+    }
+
+    /**
+     * @param ids the ids of the recipes/ingredients
+     * @return a new table with the prices of the given ids, ids without a price are left out
+     */
+    public PriceTable subset(Collection<Long> ids) {
+        PriceTable subset = new PriceTable(ids.size());
+        for (Long id : ids) {
+            int slot = slotOf(id);
+            if (used[slot]) {
+                subset.put(id, prices[slot], names[slot]);
+            }
+        }
+        return subset;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Long && containsId((Long) key);
+    }
+
+    @Override
+    public Tuple get(Object key) {
+        if (!(key instanceof Long)) return null;
+        int slot = slotOf((Long) key);
+        return used[slot] ? new Tuple(Money.ofMinor(prices[slot]), names[slot]) : null;
+    }
+
+    @Override
+    public Tuple put(Long key, Tuple value) {
+        Tuple previous = get(key);
+        put(key.longValue(), value.getPriceInMinorUnits(), value.getName());
+        return previous;
+    }
+
+    @Override
+    public Set<Entry<Long, Tuple>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Long, Tuple>> iterator() {
+                return new Iterator<>() {
+                    private int next = advance(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < ids.length;
+                    }
+
+                    @Override
+                    public Entry<Long, Tuple> next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        int slot = next;
+                        next = advance(slot + 1);
+                        return new SimpleImmutableEntry<>(ids[slot], new Tuple(Money.ofMinor(prices[slot]), names[slot]));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int advance(int from) {
+        int slot = from;
+        while (slot < ids.length && !used[slot]) {
+            slot++;
+        }
+        return slot;
+    }
+
+    /**
+     * @return the slot that holds the id, or the empty slot where it would be stored
+     */
+    private int slotOf(long id) {
+        int mask = ids.length - 1;
+        int slot = mix(id) & mask;
+        while (used[slot] && ids[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldIds = ids;
+        long[] oldPrices = prices;
+        String[] oldNames = names;
+        boolean[] oldUsed = used;
+        allocate(oldIds.length * 2);
+        size = 0;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldUsed[i]) {
+                put(oldIds[i], oldPrices[i], oldNames[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        prices = new long[capacity];
+        names = new String[capacity];
+        used = new boolean[capacity];
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        // keep the table at most half full, so probe sequences stay short
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int mix(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Writes the table as an object of id to {price, name}, without creating Tuples
+     */
+    public static class Serializer extends JsonSerializer<PriceTable> {
+        @Override
+        public void serialize(PriceTable table, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            for (int slot = table.advance(0); slot < table.ids.length; slot = table.advance(slot + 1)) {
+                gen.writeFieldName(Long.toString(table.ids[slot]));
+                gen.writeStartObject();
+                gen.writeFieldName("price");
+                gen.writeNumber(BigDecimal.valueOf(table.prices[slot], 2));
+                gen.writeStringField("name", table.names[slot]);
+                gen.writeEndObject();
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * Reads an object of id to {price, name} straight into a table, without creating Tuples
+     */
+    public static class Deserializer extends JsonDeserializer<PriceTable> {
+        @Override
+        public PriceTable deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() != JsonToken.START_OBJECT) {
+                return (PriceTable) ctxt.handleUnexpectedToken(PriceTable.class, p);
+            }
+            PriceTable table = new PriceTable();
+            for (String key = p.nextFieldName(); key != null; key = p.nextFieldName()) {
+                long id = Long.parseLong(key);
+                if (p.nextToken() != JsonToken.START_OBJECT) {
+                    p.skipChildren();
+                    continue;
+                }
+                long price = 0;
+                String name = null;
+                for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+                    JsonToken value = p.nextToken();
+                    if ("price".equals(field) && value != JsonToken.VALUE_NULL) {
+                        price = Money.of(p.getDecimalValue()).getMinorUnits();
+                    } else if ("name".equals(field) && value != JsonToken.VALUE_NULL) {
+                        name = p.getValueAsString();
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+                table.put(id, price, name);
+            }
+            return table;
+        }
+    }
+}
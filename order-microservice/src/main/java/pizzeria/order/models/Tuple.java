@@ -1,7 +1,10 @@
 package pizzeria.order.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import pizzeria.commons.money.Money;
 
 /**
  * The type Tuple to store price matched with a name
@@ -10,7 +13,8 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 public class Tuple {
-    private double price;
+    @JsonProperty("price")
+    private Money price = Money.ZERO;
     private String name;
 
     /**
@@ -20,7 +24,41 @@ public class Tuple {
      * @param name  the name of the recipe/ingredient
      */
     public Tuple(double price, String name) {
+        this(Money.of(price), name);
+    }
+
+    /**
+     * Instantiates a new Tuple.
+     *
+     * @param price the price of the recipe/ingredient
+     * @param name  the name of the recipe/ingredient
+     */
+    public Tuple(Money price, String name) {
         this.price = price;
         this.name = name;
     }
+
+    /**
+     * @return the price in euros
+     */
+    @JsonIgnore
+    public double getPrice() {
+        return price.toDouble();
+    }
+
+    /**
+     * @param price the price in euros, rounded to the nearest cent
+     */
+    @JsonIgnore
+    public void setPrice(double price) {
+        this.price = Money.of(price);
+    }
+
+    /**
+     * @return the price in cents
+     */
+    @JsonIgnore
+    public long getPriceInMinorUnits() {
+        return price.getMinorUnits();
+    }
 }
@@ -0,0 +1,36 @@
+package pizzeria.order.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import javax.cache.CacheManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CacheConfigTests {
+    @Test
+    void referenceDataCacheManager_hasTheRegions() {
+        CacheManager cacheManager = new CacheConfig(new MockEnvironment()).referenceDataCacheManager();
+        try {
+            assertThat(cacheManager.getCacheNames()).containsExactlyInAnyOrder("stores", "coupons",
+                    "default-query-results-region", "default-update-timestamps-region");
+        } finally {
+            cacheManager.close();
+        }
+    }
+
+    @Test
+    void referenceDataCacheManager_isNotSharedBetweenContexts() {
+        CacheManager first = new CacheConfig(new MockEnvironment()).referenceDataCacheManager();
+        CacheManager second = new CacheConfig(new MockEnvironment()).referenceDataCacheManager();
+        try {
+            first.getCache("stores").put(1L, "store");
+
+            assertThat(second).isNotSameAs(first);
+            assertThat(second.getCache("stores").get(1L)).isNull();
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package pizzeria.order.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.client.RestTemplate;
+import pizzeria.commons.communication.ServiceGuard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {
+        "http.client.max-total=7"
+})
+// activate profiles to have spring use mocks during auto-injection of certain beans.
+@ActiveProfiles({"test"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class HttpClientConfigTests {
+    @Autowired
+    private transient ServiceGuard foodServiceGuard;
+
+    @Autowired
+    private transient MeterRegistry meterRegistry;
+
+    @Test
+    void restTemplates_usePooledClient() {
+        RestTemplate first = foodServiceGuard.restTemplate(new RestTemplateBuilder());
+        RestTemplate second = foodServiceGuard.restTemplate(new RestTemplateBuilder());
+
+        assertThat(first.getRequestFactory()).isInstanceOf(HttpComponentsClientHttpRequestFactory.class);
+        assertThat(((HttpComponentsClientHttpRequestFactory) first.getRequestFactory()).getHttpClient())
+                .isSameAs(((HttpComponentsClientHttpRequestFactory) second.getRequestFactory()).getHttpClient());
+    }
+
+    @Test
+    void poolMetrics_arePublished() {
+        assertThat(meterRegistry.get("http.client.pool.max").tag("pool", "order").gauge().value()).isEqualTo(7.0);
+        assertThat(meterRegistry.get("http.client.pool.leased").gauge().value()).isEqualTo(0.0);
+        assertThat(meterRegistry.get("http.client.pool.available").gauge()).isNotNull();
+        assertThat(meterRegistry.get("http.client.pool.pending").gauge()).isNotNull();
+    }
+}
@@ -0,0 +1,59 @@
+package pizzeria.order.domain.coupon;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class CouponCodeIndexTests {
+    private transient CouponRepository couponRepository;
+    private transient CouponCodeIndex index;
+
+    @BeforeEach
+    void setup() {
+        couponRepository = Mockito.mock(CouponRepository.class);
+        index = new CouponCodeIndex(couponRepository);
+    }
+
+    @Test
+    void indexOf_mapsEveryCodeToItsOwnBit() {
+        assertThat(CouponCodeIndex.indexOf("AAAA00")).isEqualTo(0);
+        assertThat(CouponCodeIndex.indexOf("AAAA01")).isEqualTo(1);
+        assertThat(CouponCodeIndex.indexOf("AAAB00")).isEqualTo(100);
+        assertThat(CouponCodeIndex.indexOf("ZZZZ99")).isEqualTo(CouponCodeIndex.CODE_COUNT - 1);
+        assertThat(CouponCodeIndex.indexOf("abcd12")).isEqualTo(CouponCodeIndex.indexOf("ABCD12"));
+    }
+
+    @Test
+    void indexOf_rejectsMalformedCodes() {
+        for (String code : new String[] {null, "", "ABCD1", "ABCD123", "ABC123", "ABCDE1", "AB@D12", "AB[D12",
+                "ABCD1A", "ABCD/1", "AB\u00c7D12", "ABCD\u0661\u0662", "\u0101BCD12"}) {
+            assertThat(CouponCodeIndex.indexOf(code)).as(code).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void mightExist_onlyForAddedCodes() {
+        assertThat(index.add("ABCD12")).isTrue();
+        assertThat(index.add("invalid")).isFalse();
+
+        assertThat(index.mightExist("ABCD12")).isTrue();
+        assertThat(index.mightExist("ABCD13")).isFalse();
+        assertThat(index.mightExist("ABCE12")).isFalse();
+        assertThat(index.mightExist("invalid")).isFalse();
+    }
+
+    @Test
+    void load_setsTheBitsOfStoredCoupons() {
+        when(couponRepository.findAllCodes()).thenReturn(List.of("ABCD12", "ZZZZ99", "legacy"));
+
+        index.load();
+
+        assertThat(index.filterKnown(List.of("ZZZZ99", "legacy", "AAAA00", "ABCD12")))
+                .containsExactly("ZZZZ99", "ABCD12");
+    }
+}
@@ -0,0 +1,133 @@
+package pizzeria.order.domain.coupon;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pizzeria.order.domain.coupon.CouponLedger.Redemption;
+import pizzeria.order.models.CouponBulkModel;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class CouponGeneratorTests {
+    private transient CouponCodeIndex index;
+    private transient CouponLedger ledger;
+    private transient JdbcTemplate jdbcTemplate;
+    private transient PlatformTransactionManager transactionManager;
+    private transient CouponGenerator generator;
+
+    @BeforeEach
+    void setup() {
+        CouponRepository couponRepository = Mockito.mock(CouponRepository.class);
+        index = new CouponCodeIndex(couponRepository);
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        ledger = new CouponLedger(couponRepository, jdbcTemplate, 4);
+        transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        generator = new CouponGenerator(index, ledger, jdbcTemplate, new TransactionTemplate(transactionManager),
+                1000, 100, new Random(42));
+    }
+
+    private static CouponBulkModel request(int count, String type) {
+        CouponBulkModel request = new CouponBulkModel();
+        request.setCount(count);
+        request.setType(type);
+        request.setPercentage(0.2);
+        return request;
+    }
+
+    @Test
+    void generate_uniqueCodesInBatches() {
+        List<String> codes = generator.generate(request(250, "PERCENTAGE"));
+
+        assertThat(codes).hasSize(250);
+        assertThat(new HashSet<>(codes)).hasSize(250);
+        for (String code : codes) {
+            assertThat(CouponCodeIndex.indexOf(code)).isGreaterThanOrEqualTo(0);
+            assertThat(index.mightExist(code)).isTrue();
+        }
+        // 250 coupons in batches of 100, all in one transaction
+        verify(jdbcTemplate, times(3)).batchUpdate(anyString(), anyList(), any(int[].class));
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void generate_skipsExistingCodes() {
+        Random random = new Random(7);
+        int taken = random.nextInt(CouponCodeIndex.CODE_COUNT);
+        index.add(CouponCodeIndex.codeOf(taken));
+        generator = new CouponGenerator(index, ledger, jdbcTemplate, new TransactionTemplate(transactionManager),
+                1000, 100, new Random(7));
+
+        List<String> codes = generator.generate(request(5, "TWO_FOR_ONE"));
+
+        assertThat(codes).hasSize(5).doesNotContain(CouponCodeIndex.codeOf(taken));
+    }
+
+    @Test
+    void generate_singleUseByDefault() {
+        List<String> codes = generator.generate(request(3, "PERCENTAGE"));
+
+        for (String code : codes) {
+            assertThat(ledger.remaining(code)).isEqualTo(1);
+            assertThat(ledger.tryRedeem(code)).isEqualTo(Redemption.COUNTED);
+            assertThat(ledger.tryRedeem(code)).isEqualTo(Redemption.REFUSED);
+        }
+    }
+
+    @Test
+    void generate_unlimitedWhenNoMaximum() {
+        CouponBulkModel request = request(2, "PERCENTAGE");
+        request.setMaxRedemptions(null);
+
+        for (String code : generator.generate(request)) {
+            assertThat(ledger.remaining(code)).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void generate_rejectsInvalidRequests() {
+        assertThatThrownBy(() -> generator.generate(request(0, "PERCENTAGE")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> generator.generate(request(1001, "PERCENTAGE")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> generator.generate(request(10, "FREE_MEAL")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> generator.generate(request(10, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        CouponBulkModel tooMuch = request(10, "PERCENTAGE");
+        tooMuch.setPercentage(1.5);
+        assertThatThrownBy(() -> generator.generate(tooMuch))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList(), any(int[].class));
+    }
+
+    @Test
+    void generate_failsWhenCodesRunOut() {
+        // a source that keeps returning the same code
+        generator = new CouponGenerator(index, ledger, jdbcTemplate, new TransactionTemplate(transactionManager),
+                1000, 100, new Random() {
+                    @Override
+                    public int nextInt(int bound) {
+                        return 0;
+                    }
+                });
+
+        assertThatThrownBy(() -> generator.generate(request(2, "PERCENTAGE")))
+                .isInstanceOf(IllegalStateException.class);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList(), any(int[].class));
+    }
+}
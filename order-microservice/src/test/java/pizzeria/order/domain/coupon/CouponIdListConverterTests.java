@@ -0,0 +1,37 @@
+package pizzeria.order.domain.coupon;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CouponIdListConverterTests {
+    private final transient CouponIdListConverter converter = new CouponIdListConverter();
+
+    @Test
+    void ids_arePackedInOrder() {
+        assertThat(converter.convertToDatabaseColumn(List.of("percentage", "2for1"))).isEqualTo("percentage,2for1");
+        assertThat(converter.convertToEntityAttribute("percentage,2for1")).containsExactly("percentage", "2for1");
+    }
+
+    @Test
+    void separatorsInIds_surviveTheRoundTrip() {
+        List<String> ids = List.of("a,b", "c\\", "", "d");
+        assertThat(converter.convertToEntityAttribute(converter.convertToDatabaseColumn(ids))).isEqualTo(ids);
+    }
+
+    @Test
+    void empty_isAnEmptyColumn() {
+        assertThat(converter.convertToEntityAttribute(converter.convertToDatabaseColumn(List.of()))).isEmpty();
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+    }
+
+    @Test
+    void nullColumn_isAnEmptyList() {
+        List<String> ids = converter.convertToEntityAttribute(null);
+        assertThat(ids).isEmpty();
+        ids.add("a");
+        assertThat(ids).containsExactly("a");
+    }
+}
@@ -0,0 +1,73 @@
+package pizzeria.order.domain.coupon;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ConfigurableApplicationContext;
+import pizzeria.order.domain.coupon.CouponLedger.Redemption;
+import pizzeria.order.integration.utils.Restarts;
+import pizzeria.order.models.CouponModel;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CouponLedgerRestartTests {
+    @TempDir
+    transient Path directory;
+
+    @Test
+    void partlyRedeemedLimit_isKeptAfterARestart() {
+        try (ConfigurableApplicationContext before = Restarts.start(directory)) {
+            Coupon coupon = new TwoForOneCoupon("PROM10");
+            coupon.setMaxRedemptions(5);
+            before.getBean(CouponRepository.class).save(coupon);
+            CouponLedger ledger = before.getBean(CouponLedger.class);
+            ledger.register(coupon);
+            for (int i = 0; i < 3; i++) {
+                assertThat(ledger.tryRedeem("PROM10")).isEqualTo(Redemption.COUNTED);
+            }
+        }
+
+        try (ConfigurableApplicationContext after = Restarts.start(directory)) {
+            CouponLedger ledger = after.getBean(CouponLedger.class);
+            assertThat(ledger.remaining("PROM10")).isEqualTo(2);
+            assertThat(ledger.tryRedeem("PROM10")).isEqualTo(Redemption.COUNTED);
+            assertThat(ledger.tryRedeem("PROM10")).isEqualTo(Redemption.COUNTED);
+            assertThat(ledger.tryRedeem("PROM10")).isEqualTo(Redemption.REFUSED);
+        }
+    }
+
+    @Test
+    void partlyRedeemedLimit_isKeptAfterAChangeOfTypeAndARestart() {
+        try (ConfigurableApplicationContext before = Restarts.start(directory)) {
+            CouponService couponService = before.getBean(CouponService.class);
+            assertThat(couponService.createCoupon(model("PERCENTAGE"))).isTrue();
+            CouponLedger ledger = before.getBean(CouponLedger.class);
+            for (int i = 0; i < 3; i++) {
+                assertThat(ledger.tryRedeem("PROM10")).isEqualTo(Redemption.COUNTED);
+            }
+
+            // the row of the percentage coupon is replaced by one of the new type
+            assertThat(couponService.createCoupon(model("TWO_FOR_ONE"))).isTrue();
+            assertThat(ledger.remaining("PROM10")).isEqualTo(2);
+        }
+
+        try (ConfigurableApplicationContext after = Restarts.start(directory)) {
+            assertThat(after.getBean(CouponRepository.class).findById("PROM10")).get().isInstanceOf(TwoForOneCoupon.class);
+            CouponLedger ledger = after.getBean(CouponLedger.class);
+            assertThat(ledger.remaining("PROM10")).isEqualTo(2);
+            assertThat(ledger.tryRedeem("PROM10")).isEqualTo(Redemption.COUNTED);
+            assertThat(ledger.tryRedeem("PROM10")).isEqualTo(Redemption.COUNTED);
+            assertThat(ledger.tryRedeem("PROM10")).isEqualTo(Redemption.REFUSED);
+        }
+    }
+
+    private static CouponModel model(String type) {
+        CouponModel coupon = new CouponModel();
+        coupon.setId("PROM10");
+        coupon.setPercentage(0.1);
+        coupon.setType(type);
+        coupon.setMaxRedemptions(5);
+        return coupon;
+    }
+}
@@ -0,0 +1,358 @@
+package pizzeria.order.domain.coupon;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pizzeria.order.domain.coupon.CouponLedger.Redemption;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CouponLedgerTests {
+    private static final LocalDateTime NOW = LocalDateTime.of(2023, 1, 10, 12, 0);
+
+    private transient CouponRepository couponRepository;
+    private transient JdbcTemplate jdbcTemplate;
+    private transient Clock clock;
+    private transient CouponLedger ledger;
+
+    @BeforeEach
+    void setup() {
+        couponRepository = Mockito.mock(CouponRepository.class);
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        clock = Mockito.mock(Clock.class);
+        setTime(NOW);
+        when(couponRepository.findRedemptions(anyString())).thenReturn(Optional.of(0L));
+        when(jdbcTemplate.update(anyString(), Mockito.<Object>any(), Mockito.<Object>any())).thenReturn(1);
+        ledger = new CouponLedger(couponRepository, jdbcTemplate, 4, clock);
+    }
+
+    private void setTime(LocalDateTime time) {
+        when(clock.instant()).thenReturn(time.toInstant(ZoneOffset.UTC));
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+    }
+
+    private static Coupon coupon(String code, LocalDateTime from, LocalDateTime until, Integer max) {
+        Coupon coupon = new PercentageCoupon(code, 0.1);
+        coupon.setValidFrom(from);
+        coupon.setValidUntil(until);
+        coupon.setMaxRedemptions(max);
+        return coupon;
+    }
+
+    @Test
+    void unlimitedCoupon_alwaysRedeemable() {
+        assertThat(ledger.tryRedeem("FREE10")).isEqualTo(Redemption.UNCOUNTED);
+        assertThat(ledger.hasRedemptionsLeft("FREE10")).isTrue();
+        assertThat(ledger.remaining("FREE10")).isEqualTo(-1);
+    }
+
+    @Test
+    void filterLive_dropsCouponsOutsideTheirWindow() {
+        ledger.register(coupon("LATE10", NOW.plusDays(1), null, null));
+        ledger.register(coupon("GONE10", null, NOW.minusDays(1), null));
+        ledger.register(coupon("LIVE10", NOW.minusDays(1), NOW.plusDays(1), null));
+
+        assertThat(ledger.filterLive(List.of("LATE10", "GONE10", "LIVE10", "FREE10")))
+                .containsExactly("LIVE10", "FREE10");
+        assertThat(ledger.tryRedeem("LATE10")).isEqualTo(Redemption.REFUSED);
+        assertThat(ledger.tryRedeem("GONE10")).isEqualTo(Redemption.REFUSED);
+    }
+
+    @Test
+    void tryRedeem_stopsAtTheLimitAndReleaseGivesBack() {
+        ledger.register(coupon("PROM10", null, null, 2));
+
+        assertThat(ledger.tryRedeem("PROM10")).isEqualTo(Redemption.COUNTED);
+        assertThat(ledger.tryRedeem("PROM10")).isEqualTo(Redemption.COUNTED);
+        assertThat(ledger.tryRedeem("PROM10")).isEqualTo(Redemption.REFUSED);
+        assertThat(ledger.hasRedemptionsLeft("PROM10")).isFalse();
+
+        ledger.release("PROM10");
+        assertThat(ledger.remaining("PROM10")).isEqualTo(1);
+    }
+
+    @Test
+    void release_neverGivesBackMoreThanWasCounted() {
+        // redeemed before the coupon had a limit, so the ledger did not count it
+        assertThat(ledger.tryRedeem("PROM10")).isEqualTo(Redemption.UNCOUNTED);
+        ledger.register(coupon("PROM10", null, null, 1));
+
+        ledger.release("PROM10");
+
+        assertThat(ledger.remaining("PROM10")).isEqualTo(1);
+        ledger.flush();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), Mockito.<List<Object[]>>any());
+    }
+
+    @Test
+    void load_tracksLimitedCoupons() {
+        when(couponRepository.findAllLimited()).thenReturn(List.of(
+                coupon("PROM10", null, null, 5), coupon("GONE10", null, NOW, null)));
+
+        ledger.load();
+
+        assertThat(ledger.remaining("PROM10")).isEqualTo(5);
+        assertThat(ledger.remaining("GONE10")).isEqualTo(0);
+        assertThat(ledger.filterLive(List.of("PROM10", "GONE10"))).containsExactly("PROM10");
+    }
+
+    @Test
+    void register_countsStoredRedemptions() {
+        when(couponRepository.findRedemptions("PROM10")).thenReturn(Optional.of(3L));
+
+        ledger.register(coupon("PROM10", null, null, 5));
+
+        assertThat(ledger.remaining("PROM10")).isEqualTo(2);
+    }
+
+    @Test
+    void flush_writesTheRedemptionsSinceTheLastFlushInOneBatch() {
+        ledger.register(coupon("PROM10", null, null, 10));
+        ledger.register(coupon("PROM20", null, NOW.plusDays(1), null));
+        ledger.register(coupon("IDLE10", null, null, 10));
+        ledger.tryRedeem("PROM10");
+        ledger.tryRedeem("PROM10");
+        ledger.tryRedeem("PROM20");
+
+        ledger.flush();
+        verify(jdbcTemplate).batchUpdate(anyString(), Mockito.<List<Object[]>>argThat(updates ->
+                updates.size() == 2
+                        && updates.stream().anyMatch(u -> u[0].equals(2L) && u[1].equals("PROM10"))
+                        && updates.stream().anyMatch(u -> u[0].equals(1L) && u[1].equals("PROM20"))));
+
+        // nothing changed since, so nothing is written
+        Mockito.clearInvocations(jdbcTemplate);
+        ledger.flush();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), Mockito.<List<Object[]>>any());
+    }
+
+    @Test
+    void register_keepsTheCountOfAChangedCoupon() {
+        ledger.register(coupon("PROM10", null, null, 2));
+        ledger.tryRedeem("PROM10");
+
+        ledger.register(coupon("PROM10", null, null, 5));
+
+        // the row is the same, so the redemption is left to the next flush
+        verify(jdbcTemplate, never()).update(anyString(), Mockito.<Object>any(), Mockito.<Object>any());
+        assertThat(ledger.remaining("PROM10")).isEqualTo(4);
+        ledger.flush();
+        verify(jdbcTemplate).batchUpdate(anyString(), Mockito.<List<Object[]>>argThat(updates ->
+                updates.size() == 1 && updates.get(0)[0].equals(1L) && updates.get(0)[1].equals("PROM10")));
+    }
+
+    @Test
+    void replace_insertsTheNewRowWithTheWholeCount() {
+        when(couponRepository.findRedemptions("PROM10")).thenReturn(Optional.of(3L));
+        ledger.register(coupon("PROM10", null, null, 10));
+        ledger.tryRedeem("PROM10");
+        ledger.tryRedeem("PROM10");
+
+        assertThat(ledger.replace("PROM10", 3)).isEqualTo(5);
+        // the row that is replaced may already be deleted, so nothing is written to it until the replacement is over
+        ledger.flush();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), Mockito.<List<Object[]>>any());
+
+        ledger.tryRedeem("PROM10");
+        ledger.register(coupon("PROM10", null, null, 10));
+        assertThat(ledger.remaining("PROM10")).isEqualTo(4);
+        // only the redemption after the replacement is missing from the new row
+        ledger.flush();
+        verify(jdbcTemplate).batchUpdate(anyString(), Mockito.<List<Object[]>>argThat(updates ->
+                updates.size() == 1 && updates.get(0)[0].equals(1L) && updates.get(0)[1].equals("PROM10")));
+    }
+
+    @Test
+    void cancelReplace_flushesToTheKeptRow() {
+        ledger.register(coupon("PROM10", null, null, 10));
+        ledger.tryRedeem("PROM10");
+        ledger.replace("PROM10", 0);
+
+        ledger.cancelReplace("PROM10");
+        ledger.flush();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), Mockito.<List<Object[]>>argThat(updates ->
+                updates.size() == 1 && updates.get(0)[0].equals(1L) && updates.get(0)[1].equals("PROM10")));
+        assertThat(ledger.remaining("PROM10")).isEqualTo(9);
+    }
+
+    @Test
+    void replace_ofAnUntrackedCoupon_keepsTheStoredCount() {
+        assertThat(ledger.replace("FREE10", 7)).isEqualTo(7);
+    }
+
+    @Test
+    void register_keepsRedemptionsThatReachTheReplacedLimits() throws Exception {
+        // stands in for the redemptions column of the coupon
+        AtomicLong column = new AtomicLong();
+        JdbcTemplate database = new JdbcTemplate() {
+            @Override
+            public int update(String sql, Object... args) {
+                column.addAndGet((long) args[0]);
+                return 1;
+            }
+
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                batchArgs.forEach(args -> column.addAndGet((long) args[0]));
+                return new int[batchArgs.size()];
+            }
+        };
+        CouponLedger changing = new CouponLedger(couponRepository, database, 4, clock);
+        changing.register(coupon("PROM10", null, NOW.plusDays(1), 100000));
+
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger redeemed = new AtomicInteger();
+        for (int i = 0; i < 8; i++) {
+            threads.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int j = 0; j < 2000; j++) {
+                    if (changing.tryRedeem("PROM10") == Redemption.COUNTED) {
+                        redeemed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        for (int i = 0; i < 200; i++) {
+            if (i % 2 == 1) {
+                // the row is replaced by one of another type, inserted with the count the ledger hands out,
+                // while the flusher runs
+                long inserted = changing.replace("PROM10", column.get());
+                changing.flush();
+                column.set(inserted);
+            }
+            changing.register(coupon("PROM10", null, NOW.plusDays(1), 100000 + i));
+        }
+        threads.shutdown();
+        assertThat(threads.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        changing.close();
+
+        assertThat(column.get()).isEqualTo(redeemed.get());
+    }
+
+    @Test
+    void register_countsRedemptionsOnTheReplacedLimitsAgainstTheNewLimit() throws Exception {
+        ledger.register(coupon("PROM10", null, NOW.plusDays(1), 1000));
+
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger redeemed = new AtomicInteger();
+        for (int i = 0; i < 8; i++) {
+            threads.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int j = 0; j < 2000; j++) {
+                    if (ledger.tryRedeem("PROM10") == Redemption.COUNTED) {
+                        redeemed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        // the limit stays the same, but every change replaces the limits while orders redeem the coupon
+        for (int i = 0; i < 200; i++) {
+            ledger.register(coupon("PROM10", null, NOW.plusDays(1), 1000));
+        }
+        threads.shutdown();
+        assertThat(threads.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(redeemed.get()).isEqualTo(1000);
+        assertThat(ledger.remaining("PROM10")).isEqualTo(0);
+    }
+
+    @Test
+    void register_limitOfACouponThatHadNone() {
+        ledger.register(coupon("PROM10", null, NOW.plusDays(1), null));
+        ledger.tryRedeem("PROM10");
+        ledger.tryRedeem("PROM10");
+        assertThat(ledger.remaining("PROM10")).isEqualTo(-1);
+
+        ledger.register(coupon("PROM10", null, NOW.plusDays(1), 3));
+
+        assertThat(ledger.remaining("PROM10")).isEqualTo(1);
+        assertThat(ledger.tryRedeem("PROM10")).isEqualTo(Redemption.COUNTED);
+        assertThat(ledger.tryRedeem("PROM10")).isEqualTo(Redemption.REFUSED);
+    }
+
+    @Test
+    void close_writesTheRedemptionsSinceTheLastFlush() {
+        ledger.register(coupon("PROM10", null, null, 10));
+        ledger.tryRedeem("PROM10");
+        ledger.tryRedeem("PROM10");
+
+        ledger.close();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), Mockito.<List<Object[]>>argThat(updates ->
+                updates.size() == 1 && updates.get(0)[0].equals(2L) && updates.get(0)[1].equals("PROM10")));
+    }
+
+    @Test
+    void removeExpired_takesExpiredCouponsOffInOrder() {
+        ledger.register(coupon("SOON10", null, NOW.plusHours(1), 5));
+        ledger.register(coupon("LATE10", null, NOW.plusHours(2), 5));
+        ledger.tryRedeem("SOON10");
+
+        setTime(NOW.plusHours(1));
+        ledger.removeExpired();
+
+        assertThat(ledger.filterLive(List.of("SOON10", "LATE10"))).containsExactly("LATE10");
+        assertThat(ledger.remaining("SOON10")).isEqualTo(0);
+        // the last redemption is written before the coupon is forgotten
+        verify(jdbcTemplate).update(anyString(), Mockito.<Object>eq(1L), Mockito.<Object>eq("SOON10"));
+    }
+
+    @Test
+    void tryRedeem_neverExceedsLimitUnderConcurrentOrders() throws Exception {
+        ledger.register(coupon("PROM10", null, null, 500));
+        ExecutorService threads = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger redeemed = new AtomicInteger();
+        for (int i = 0; i < 2000; i++) {
+            threads.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (ledger.tryRedeem("PROM10") == Redemption.COUNTED) {
+                    redeemed.incrementAndGet();
+                }
+            });
+        }
+        start.countDown();
+        threads.shutdown();
+        assertThat(threads.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(redeemed.get()).isEqualTo(500);
+        assertThat(ledger.remaining("PROM10")).isEqualTo(0);
+    }
+}
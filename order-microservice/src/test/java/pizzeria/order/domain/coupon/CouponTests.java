@@ -96,6 +96,17 @@ public class CouponTests {
         assertThat(actualPrice).isEqualTo(expectedPrice);
     }
 
+    @Test
+    void percentageCoupon_roundsReductionToCents() {
+        PercentageCoupon coupon = new PercentageCoupon("TestCoupon", 0.2);
+
+        //20% of 10.99 is 2.198, which is rounded to 2.20
+        Order order = new Order();
+        assertThat(coupon.calculatePriceInMinorUnits(order, order.countRecipes(), new GetPricesResponseModel(), 1099))
+                .isEqualTo(879);
+        assertThat(coupon.calculatePrice(new Order(), new GetPricesResponseModel(), 10.99)).isEqualTo(8.79);
+    }
+
     static Stream<Arguments> couponTestSuite() {
         return Stream.of(
           Arguments.of(1.0, 100, 0.0),
@@ -0,0 +1,117 @@
+package pizzeria.order.domain.coupon;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StripedPermitsTests {
+
+    @Test
+    void tryAcquire_handsOutEveryPermitOnce() {
+        StripedPermits permits = new StripedPermits(5, 4);
+        assertThat(permits.available()).isEqualTo(5);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(permits.tryAcquire()).isTrue();
+        }
+        // the permits of the other stripes are taken when the own stripe is empty
+        assertThat(permits.tryAcquire()).isFalse();
+        assertThat(permits.available()).isEqualTo(0);
+    }
+
+    @Test
+    void release_makesPermitAvailableAgain() {
+        StripedPermits permits = new StripedPermits(1, 16);
+        assertThat(permits.tryAcquire()).isTrue();
+
+        permits.release();
+
+        assertThat(permits.available()).isEqualTo(1);
+        assertThat(permits.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void negativePermits_noneAvailable() {
+        StripedPermits permits = new StripedPermits(-3, 3);
+        assertThat(permits.available()).isEqualTo(0);
+        assertThat(permits.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void add_changesTheTotal() {
+        StripedPermits permits = new StripedPermits(2, 4);
+        assertThat(permits.tryAcquire()).isTrue();
+
+        permits.add(3);
+        assertThat(permits.available()).isEqualTo(4);
+
+        permits.add(-2);
+        assertThat(permits.available()).isEqualTo(2);
+    }
+
+    @Test
+    void add_permitsTakenAwayWhileHandedOutAreOwed() {
+        StripedPermits permits = new StripedPermits(5, 4);
+        for (int i = 0; i < 3; i++) {
+            assertThat(permits.tryAcquire()).isTrue();
+        }
+
+        // the total becomes 1, while 3 are handed out
+        permits.add(-4);
+        assertThat(permits.available()).isEqualTo(0);
+        assertThat(permits.tryAcquire()).isFalse();
+
+        // the first two that come back pay off what is owed
+        permits.release();
+        permits.release();
+        assertThat(permits.available()).isEqualTo(0);
+        permits.release();
+        assertThat(permits.available()).isEqualTo(1);
+        assertThat(permits.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void negativePermits_arePaidByAdd() {
+        StripedPermits permits = new StripedPermits(-3, 3);
+        permits.add(4);
+        assertThat(permits.available()).isEqualTo(1);
+    }
+
+    @Test
+    void tryAcquire_neverExceedsLimitUnderContention() throws Exception {
+        StripedPermits permits = new StripedPermits(1000, 16);
+        ExecutorService threads = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> acquired = new ArrayList<>();
+        for (int t = 0; t < 32; t++) {
+            acquired.add(threads.submit(() -> {
+                start.await();
+                int count = 0;
+                for (int i = 0; i < 100; i++) {
+                    if (permits.tryAcquire()) {
+                        count++;
+                    }
+                }
+                return count;
+            }));
+        }
+        start.countDown();
+
+        int total = 0;
+        for (Future<Integer> count : acquired) {
+            total += count.get(10, TimeUnit.SECONDS);
+        }
+        threads.shutdown();
+
+        assertThat(total).isEqualTo(1000);
+        assertThat(permits.available()).isEqualTo(0);
+    }
+}
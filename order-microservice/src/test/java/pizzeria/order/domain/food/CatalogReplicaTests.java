@@ -0,0 +1,140 @@
+package pizzeria.order.domain.food;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import pizzeria.order.models.CatalogChangeModel;
+import pizzeria.order.models.CatalogFeedResponseModel;
+import pizzeria.order.models.GetPricesResponseModel;
+import pizzeria.order.models.Tuple;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class CatalogReplicaTests {
+    private static final String URL = "http://food/catalog";
+
+    private transient RestTemplate restTemplate;
+    private transient Clock clock;
+    private transient CatalogReplica replica;
+
+    @BeforeEach
+    void setup() {
+        restTemplate = Mockito.mock(RestTemplate.class);
+        clock = Mockito.mock(Clock.class);
+        when(clock.millis()).thenReturn(1_000L);
+        replica = new CatalogReplica(restTemplate, URL, 500, true, clock);
+    }
+
+    private static CatalogChangeModel recipe(long version, long id, long priceInMinorUnits, boolean deleted) {
+        return new CatalogChangeModel(version, CatalogChangeModel.ItemType.RECIPE, id, "recipe" + id, priceInMinorUnits, deleted);
+    }
+
+    private static CatalogChangeModel ingredient(long version, long id, long priceInMinorUnits, boolean deleted) {
+        return new CatalogChangeModel(version, CatalogChangeModel.ItemType.INGREDIENT, id, "ingredient" + id,
+                priceInMinorUnits, deleted);
+    }
+
+    private void respond(String url, CatalogFeedResponseModel model) {
+        when(restTemplate.getForEntity(eq(url), eq(CatalogFeedResponseModel.class))).thenReturn(ResponseEntity.ok(model));
+    }
+
+    @Test
+    void emptyReplica_isNeverUsed() {
+        assertThat(replica.isFresh()).isFalse();
+        assertThat(replica.getPrices(List.of(1L), List.of())).isEmpty();
+    }
+
+    @Test
+    void snapshot_servesPricesWithoutFurtherCalls() {
+        respond(URL + "/snapshot", new CatalogFeedResponseModel("e1", 2,
+                List.of(recipe(1, 1L, 1000, false), ingredient(2, 5L, 150, false))));
+
+        replica.sync();
+        Optional<GetPricesResponseModel> prices = replica.getPrices(List.of(1L, 1L), List.of(5L));
+
+        assertThat(prices).isPresent();
+        assertThat(prices.get().getFoodPrices().get(1L)).isEqualTo(new Tuple(10.0, "recipe1"));
+        assertThat(prices.get().getIngredientPrices().get(5L)).isEqualTo(new Tuple(1.5, "ingredient5"));
+        assertThat(replica.getVersion()).isEqualTo(2);
+        verify(restTemplate, times(1)).getForEntity(any(String.class), eq(CatalogFeedResponseModel.class));
+    }
+
+    @Test
+    void prices_areReadAsCents() throws Exception {
+        respond(URL + "/snapshot", new ObjectMapper().readValue("{\"epoch\":\"e1\",\"version\":1,\"changes\":[{\"version\":1,"
+                + "\"type\":\"INGREDIENT\",\"id\":5,\"name\":\"ingredient5\",\"priceInMinorUnits\":115,\"deleted\":false}]}",
+                CatalogFeedResponseModel.class));
+
+        replica.sync();
+
+        assertThat(replica.getPrices(List.of(), List.of(5L)).get().getIngredientPrices().get(5L).getPriceInMinorUnits())
+                .isEqualTo(115);
+    }
+
+    @Test
+    void changes_areAppliedIncludingTombstones() {
+        respond(URL + "/snapshot", new CatalogFeedResponseModel("e1", 2,
+                List.of(recipe(1, 1L, 1000, false), ingredient(2, 5L, 150, false))));
+        replica.sync();
+
+        respond(URL + "/changes?since=2", new CatalogFeedResponseModel("e1", 4,
+                List.of(recipe(3, 1L, 1200, false), ingredient(4, 5L, 150, true))));
+        replica.sync();
+
+        assertThat(replica.getVersion()).isEqualTo(4);
+        assertThat(replica.getPrices(List.of(1L), List.of()).get().getFoodPrices().get(1L).getPrice()).isEqualTo(12.0);
+        //the deleted ingredient is unknown, so the lookup has to go to the food microservice
+        assertThat(replica.getPrices(List.of(1L), List.of(5L))).isEmpty();
+    }
+
+    @Test
+    void newEpoch_reloadsSnapshot() {
+        respond(URL + "/snapshot", new CatalogFeedResponseModel("e1", 2, List.of(recipe(2, 1L, 1000, false))));
+        replica.sync();
+
+        respond(URL + "/changes?since=2", new CatalogFeedResponseModel("e2", 1, List.of()));
+        respond(URL + "/snapshot", new CatalogFeedResponseModel("e2", 1, List.of(recipe(1, 7L, 900, false))));
+        replica.sync();
+
+        assertThat(replica.getPrices(List.of(7L), List.of())).isPresent();
+        assertThat(replica.getPrices(List.of(1L), List.of())).isEmpty();
+        assertThat(replica.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void staleReplica_isNotUsed() {
+        respond(URL + "/snapshot", new CatalogFeedResponseModel("e1", 1, List.of(recipe(1, 1L, 1000, false))));
+        replica.sync();
+        assertThat(replica.isFresh()).isTrue();
+
+        //the food microservice becomes unreachable and time passes
+        when(restTemplate.getForEntity(eq(URL + "/changes?since=1"), eq(CatalogFeedResponseModel.class)))
+                .thenThrow(new ResourceAccessException("down"));
+        when(clock.millis()).thenReturn(2_000L);
+        replica.sync();
+
+        assertThat(replica.isFresh()).isFalse();
+        assertThat(replica.getPrices(List.of(1L), List.of())).isEmpty();
+    }
+
+    @Test
+    void disabledReplica_neverCallsTheFeed() {
+        CatalogReplica disabled = new CatalogReplica(restTemplate, URL, 500, false, clock);
+
+        disabled.sync();
+
+        verifyNoInteractions(restTemplate);
+        assertThat(disabled.getPrices(List.of(), List.of())).isEmpty();
+    }
+}
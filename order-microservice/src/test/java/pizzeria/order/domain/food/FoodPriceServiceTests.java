@@ -7,10 +7,13 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.Mockito;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import pizzeria.order.domain.order.Order;
 import pizzeria.order.models.GetPricesResponseModel;
@@ -20,9 +23,11 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -93,4 +98,91 @@ public class FoodPriceServiceTests {
 
         assertThat(actualModel).isEqualTo(null);
     }
+
+    @Test
+    void getFoodPrice_usesFreshReplica() {
+        Order order = new Order(1L, List.of(new Food(1, 3, 4, List.of(), List.of(2L))), 3L, "Mocked id", LocalDateTime.now(), 134.0, List.of());
+
+        RestTemplate restTemplate = Mockito.mock(RestTemplate.class);
+        CatalogReplica replica = Mockito.mock(CatalogReplica.class);
+
+        GetPricesResponseModel model = new GetPricesResponseModel(Map.of(3L, new Tuple(12.0, "DAS")), Map.of(2L, new Tuple(1.0, "DAS2")));
+        when(replica.getPrices(List.of(3L), List.of(2L))).thenReturn(Optional.of(model));
+
+        FoodPriceService foodPriceService = new FoodPriceService(restTemplate, replica);
+
+        assertThat(foodPriceService.getFoodPrices(order)).isEqualTo(model);
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    void getFoodPrice_asksForEveryIdOnce() {
+        Food margherita = new Food(1, 3, 4, List.of(1L), List.of(2L));
+        Food second = new Food(2, 3, 4, List.of(1L), List.of(2L, 1L));
+        Order order = new Order(1L, List.of(margherita, second), 3L, "Mocked id", LocalDateTime.now(), 134.0, List.of());
+
+        RestTemplate restTemplate = Mockito.mock(RestTemplate.class);
+        CatalogReplica replica = Mockito.mock(CatalogReplica.class);
+
+        GetPricesResponseModel model = new GetPricesResponseModel(Map.of(3L, new Tuple(12.0, "DAS")),
+                Map.of(1L, new Tuple(1.0, "DAS2"), 2L, new Tuple(1.0, "DAS3")));
+        when(replica.getPrices(List.of(3L), List.of(2L, 1L))).thenReturn(Optional.of(model));
+
+        FoodPriceService foodPriceService = new FoodPriceService(restTemplate, replica);
+
+        assertThat(foodPriceService.getFoodPrices(order)).isEqualTo(model);
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    void getFoodPrice_staleReplicaFallsBackToFoodMicroservice() {
+        Order order = new Order(1L, List.of(new Food(1, 3, 4, List.of(), List.of())), 3L, "Mocked id", LocalDateTime.now(), 134.0, List.of());
+
+        RestTemplate restTemplate = Mockito.mock(RestTemplate.class);
+        CatalogReplica replica = Mockito.mock(CatalogReplica.class);
+        when(replica.getPrices(any(), any())).thenReturn(Optional.empty());
+
+        GetPricesResponseModel model = new GetPricesResponseModel(Map.of(3L, new Tuple(12.0, "DAS")), Map.of());
+        when(restTemplate.postForEntity(anyString(), any(), any())).thenReturn(ResponseEntity.ok().body(model));
+
+        FoodPriceService foodPriceService = new FoodPriceService(restTemplate, replica);
+
+        assertThat(foodPriceService.getFoodPrices(order)).isEqualTo(model);
+        verify(restTemplate, times(1)).postForEntity(anyString(), any(), any());
+    }
+
+    @Test
+    void getFoodPrice_unreachableFoodMicroserviceUsesLastKnownPrices() {
+        Order order = new Order(1L, List.of(new Food(1, 3, 4, List.of(), List.of(2L))), 3L, "Mocked id", LocalDateTime.now(), 134.0, List.of());
+        Order unknown = new Order(1L, List.of(new Food(1, 5, 4, List.of(), List.of())), 3L, "Mocked id", LocalDateTime.now(), 134.0, List.of());
+
+        RestTemplate restTemplate = Mockito.mock(RestTemplate.class);
+        GetPricesResponseModel model = new GetPricesResponseModel(Map.of(3L, new Tuple(12.0, "DAS")), Map.of(2L, new Tuple(1.0, "DAS2")));
+        when(restTemplate.postForEntity(anyString(), any(), any()))
+                .thenReturn(ResponseEntity.ok().body(model))
+                .thenThrow(new ResourceAccessException("Read timed out"));
+
+        FoodPriceService foodPriceService = new FoodPriceService(restTemplate);
+
+        assertThat(foodPriceService.getFoodPrices(order)).isEqualTo(model);
+        assertThat(foodPriceService.getFoodPrices(order)).isEqualTo(model);
+        // prices that were never returned cannot be made up
+        assertThrows(ResourceAccessException.class, () -> foodPriceService.getFoodPrices(unknown));
+    }
+
+    @Test
+    void getFoodPrice_rejectedIdsDoNotUseLastKnownPrices() {
+        Order order = new Order(1L, List.of(new Food(1, 3, 4, List.of(), List.of())), 3L, "Mocked id", LocalDateTime.now(), 134.0, List.of());
+
+        RestTemplate restTemplate = Mockito.mock(RestTemplate.class);
+        GetPricesResponseModel model = new GetPricesResponseModel(Map.of(3L, new Tuple(12.0, "DAS")), Map.of());
+        when(restTemplate.postForEntity(anyString(), any(), any()))
+                .thenReturn(ResponseEntity.ok().body(model))
+                .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+
+        FoodPriceService foodPriceService = new FoodPriceService(restTemplate);
+
+        foodPriceService.getFoodPrices(order);
+        assertThrows(HttpClientErrorException.class, () -> foodPriceService.getFoodPrices(order));
+    }
 }
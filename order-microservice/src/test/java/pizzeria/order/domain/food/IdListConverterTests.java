@@ -0,0 +1,46 @@
+package pizzeria.order.domain.food;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IdListConverterTests {
+    private final transient IdListConverter converter = new IdListConverter();
+
+    @Test
+    void ids_arePackedInOrder() {
+        assertThat(converter.convertToDatabaseColumn(List.of(1L, 4L, 4L, 12L))).isEqualTo("1,4,4,12");
+        assertThat(converter.convertToEntityAttribute("1,4,4,12")).containsExactly(1L, 4L, 4L, 12L);
+    }
+
+    @Test
+    void empty_isAnEmptyColumn() {
+        assertThat(converter.convertToDatabaseColumn(List.of())).isEmpty();
+        assertThat(converter.convertToEntityAttribute("")).isEmpty();
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+    }
+
+    @Test
+    void nullColumn_isAnEmptyList() {
+        List<Long> ids = converter.convertToEntityAttribute(null);
+        assertThat(ids).isEmpty();
+        ids.add(1L);
+        assertThat(ids).containsExactly(1L);
+    }
+
+    @Test
+    void unpackedList_isMutable() {
+        List<Long> ids = converter.convertToEntityAttribute(Long.MAX_VALUE + ",-1");
+        ids.add(3L);
+        assertThat(ids).containsExactly(Long.MAX_VALUE, -1L, 3L);
+    }
+
+    @Test
+    void mostIngredients_fitTheColumn() {
+        String packed = converter.convertToDatabaseColumn(Collections.nCopies(Food.MAX_INGREDIENTS, Long.MAX_VALUE));
+        assertThat(packed.length()).isLessThanOrEqualTo(Food.PACKED_IDS_LENGTH);
+    }
+}
@@ -0,0 +1,220 @@
+package pizzeria.order.domain.food;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import pizzeria.commons.communication.ServiceGuard;
+import pizzeria.order.models.GetPricesResponseModel;
+import pizzeria.order.models.PriceTable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PriceRequestCoalescerTests {
+    private transient SimpleMeterRegistry meterRegistry;
+    private transient ExecutorService callers;
+    // the ids of every call that reached the "food microservice"
+    private transient List<List<Long>> calls;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        callers = Executors.newFixedThreadPool(3);
+        calls = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @AfterEach
+    void teardown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void disabled_makesACallForEveryLookup() {
+        PriceRequestCoalescer coalescer = PriceRequestCoalescer.disabled();
+
+        coalescer.getPrices(List.of(1L), List.of(), this::prices);
+        coalescer.getPrices(List.of(1L), List.of(), this::prices);
+
+        assertThat(calls).hasSize(2);
+        assertThat(coalescer.getCoalescingRatio()).isEqualTo(1.0);
+    }
+
+    @Test
+    void lookupsInOneWindow_shareOneCall() throws Exception {
+        PriceRequestCoalescer coalescer = new PriceRequestCoalescer(meterRegistry, true, 300, 500);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<GetPricesResponseModel>> results = new ArrayList<>();
+        for (long recipe = 1; recipe <= 3; recipe++) {
+            List<Long> recipes = List.of(recipe, 10L);
+            results.add(callers.submit(() -> {
+                start.await();
+                return coalescer.getPrices(recipes, List.of(20L), this::prices);
+            }));
+        }
+        start.countDown();
+
+        for (int i = 0; i < 3; i++) {
+            GetPricesResponseModel prices = results.get(i).get(5, TimeUnit.SECONDS);
+            // every caller only gets the prices it asked for
+            assertThat(prices.getFoodPrices().keySet()).containsExactlyInAnyOrder(i + 1L, 10L);
+            assertThat(prices.getIngredientPrices().priceOf(20L)).isEqualTo(2000L);
+        }
+        assertThat(calls).hasSize(1);
+        assertThat(calls.get(0)).containsExactlyInAnyOrder(1L, 2L, 3L, 10L, 20L);
+        assertThat(coalescer.getCoalescingRatio()).isEqualTo(3.0);
+        assertThat(meterRegistry.get("prices.lookups.window.wait").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void lookupCoveredByACallInFlight_waitsForThatCall() throws Exception {
+        PriceRequestCoalescer coalescer = new PriceRequestCoalescer(meterRegistry, true, 0, 500);
+        CountDownLatch called = new CountDownLatch(1);
+        CountDownLatch answer = new CountDownLatch(1);
+        PriceRequestCoalescer.PriceLookup slow = (recipes, ingredients) -> {
+            called.countDown();
+            await(answer);
+            return prices(recipes, ingredients);
+        };
+
+        Future<GetPricesResponseModel> first = callers.submit(() -> coalescer.getPrices(List.of(1L, 2L), List.of(3L), slow));
+        assertThat(called.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<GetPricesResponseModel> second = callers.submit(() -> coalescer.getPrices(List.of(2L), List.of(3L), slow));
+        // give the second lookup the time to join the call
+        Thread.sleep(100);
+        answer.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getFoodPrices()).hasSize(2);
+        assertThat(second.get(5, TimeUnit.SECONDS).getFoodPrices().keySet()).containsExactly(2L);
+        assertThat(calls).hasSize(1);
+    }
+
+    @Test
+    void rejectedSharedCall_isRetriedPerLookup() throws Exception {
+        PriceRequestCoalescer coalescer = new PriceRequestCoalescer(meterRegistry, true, 300, 500);
+        PriceRequestCoalescer.PriceLookup rejectsUnknown = (recipes, ingredients) -> {
+            GetPricesResponseModel prices = prices(recipes, ingredients);
+            if (recipes.contains(99L)) {
+                throw new HttpClientErrorException(HttpStatus.BAD_REQUEST, "Unknown recipe");
+            }
+            return prices;
+        };
+
+        List<Future<GetPricesResponseModel>> results = lookUpTogether(coalescer, rejectsUnknown, 1L, 99L);
+
+        assertThat(results.get(0).get(5, TimeUnit.SECONDS).getFoodPrices().keySet()).containsExactly(1L);
+        Exception exception = assertThrows(Exception.class, () -> results.get(1).get(5, TimeUnit.SECONDS));
+        assertThat(exception).hasCauseInstanceOf(HttpClientErrorException.class);
+        // the merged call and one retry per lookup
+        assertThat(calls).hasSize(3);
+    }
+
+    @Test
+    void sharedCallWithoutThePriceOfAnId_isRetriedPerLookup() throws Exception {
+        PriceRequestCoalescer coalescer = new PriceRequestCoalescer(meterRegistry, true, 300, 500);
+        PriceRequestCoalescer.PriceLookup leavesOutUnknown = (recipes, ingredients) -> {
+            GetPricesResponseModel prices = prices(recipes, ingredients);
+            if (recipes.size() > 1) {
+                prices.setFoodPrices(prices.getFoodPrices().subset(List.of(1L)));
+            }
+            return prices;
+        };
+
+        List<Future<GetPricesResponseModel>> results = lookUpTogether(coalescer, leavesOutUnknown, 1L, 99L);
+
+        assertThat(results.get(0).get(5, TimeUnit.SECONDS).getFoodPrices().keySet()).containsExactly(1L);
+        assertThat(results.get(1).get(5, TimeUnit.SECONDS).getFoodPrices().keySet()).containsExactly(99L);
+        // the merged call and the retry of the lookup whose price was left out
+        assertThat(calls).hasSize(2);
+    }
+
+    @Test
+    void sharedCallToAFailingService_failsEveryLookupWithoutRetries() throws Exception {
+        for (RuntimeException failure : List.of(new ResourceAccessException("Connection refused"),
+                new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE),
+                new ServiceGuard.RejectedException("The circuit to food is open"))) {
+            calls.clear();
+            PriceRequestCoalescer coalescer = new PriceRequestCoalescer(meterRegistry, true, 300, 500);
+            PriceRequestCoalescer.PriceLookup failing = (recipes, ingredients) -> {
+                prices(recipes, ingredients);
+                throw failure;
+            };
+
+            List<Future<GetPricesResponseModel>> results = lookUpTogether(coalescer, failing, 1L, 2L);
+
+            for (Future<GetPricesResponseModel> result : results) {
+                Exception exception = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertThat(exception).hasCause(failure);
+            }
+            assertThat(calls).hasSize(1);
+        }
+    }
+
+    @Test
+    void failedCallOfOneLookup_isNotRetried() {
+        PriceRequestCoalescer coalescer = new PriceRequestCoalescer(meterRegistry, true, 0, 500);
+
+        assertThat(coalescer.getPrices(List.of(1L), List.of(), (recipes, ingredients) -> {
+            prices(recipes, ingredients);
+            return null;
+        })).isNull();
+        assertThat(calls).hasSize(1);
+    }
+
+    /**
+     * Looks up the prices of each recipe in a lookup of its own, at the same time, so they share one call
+     */
+    private List<Future<GetPricesResponseModel>> lookUpTogether(PriceRequestCoalescer coalescer,
+                                                               PriceRequestCoalescer.PriceLookup lookup, Long... recipes) {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<GetPricesResponseModel>> results = new ArrayList<>();
+        for (Long recipe : recipes) {
+            results.add(callers.submit(() -> {
+                start.await();
+                return coalescer.getPrices(List.of(recipe), List.of(), lookup);
+            }));
+        }
+        start.countDown();
+        return results;
+    }
+
+    /**
+     * Prices every recipe and ingredient at its id in euros, and remembers the ids of the call
+     */
+    private GetPricesResponseModel prices(List<Long> recipes, List<Long> ingredients) {
+        List<Long> ids = new ArrayList<>(recipes);
+        ids.addAll(ingredients);
+        calls.add(ids);
+        PriceTable foodPrices = new PriceTable();
+        for (Long recipe : recipes) {
+            foodPrices.put(recipe, recipe * 100, "recipe" + recipe);
+        }
+        PriceTable ingredientPrices = new PriceTable();
+        for (Long ingredient : ingredients) {
+            ingredientPrices.put(ingredient, ingredient * 100, "ingredient" + ingredient);
+        }
+        return new GetPricesResponseModel(foodPrices, ingredientPrices);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -86,4 +86,18 @@ public class MailingServiceTests {
                 Arguments.of(MailingService.ProcessType.EDITED, "Order has been edited!", "Order with orderId : 1 has been edited")
         );
     }
+
+    @Test
+    public void digest() throws MessagingException, IOException {
+        ArgumentCaptor<MimeMessage> messageArgumentCaptor = ArgumentCaptor.forClass(MimeMessage.class);
+
+        mailingService.deliverDigest("mockedEmail", "Order with orderId : 1 has been created, then edited\n");
+        verify(messageTransport, times(1)).sendMessage(messageArgumentCaptor.capture());
+
+        MimeMessage message = messageArgumentCaptor.getValue();
+
+        assertThat(message.getAllRecipients()[0]).isEqualTo(new InternetAddress("mockedEmail"));
+        assertThat(message.getSubject()).isEqualTo("Orders have been updated!");
+        assertThat(message.getContent().toString()).isEqualTo("Order with orderId : 1 has been created, then edited\n");
+    }
 }
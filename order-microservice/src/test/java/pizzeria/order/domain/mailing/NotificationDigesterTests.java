@@ -0,0 +1,225 @@
+package pizzeria.order.domain.mailing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+// the digester of the context must not flush the events of the digester under test
+@SpringBootTest(properties = "notification.digest.check-interval-ms=3600000")
+@ActiveProfiles({"test", "mockMessageTransport"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class NotificationDigesterTests {
+    private static final String STORE = "store@pizza.nl";
+
+    @Autowired
+    private transient NotificationRepository notificationRepository;
+
+    @Autowired
+    private transient TransactionTemplate transactionTemplate;
+
+    private transient NotificationDispatcher dispatcher;
+    private transient Clock clock;
+    private transient NotificationDigester digester;
+
+    @BeforeEach
+    void setup() {
+        dispatcher = Mockito.mock(NotificationDispatcher.class);
+        clock = Mockito.mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        digester = digester(true);
+    }
+
+    private NotificationDigester digester(boolean enabled) {
+        return new NotificationDigester(dispatcher, notificationRepository, transactionTemplate, enabled, 1000, 5, clock);
+    }
+
+    private void submit(NotificationDigester target, long orderId, String recipientEmail,
+                        MailingService.ProcessType processType) {
+        // the order transaction the events are submitted in
+        transactionTemplate.executeWithoutResult(status -> target.submit(orderId, recipientEmail, processType));
+    }
+
+    @Test
+    void disabled_forwardsEveryEvent() {
+        NotificationDigester disabled = digester(false);
+
+        submit(disabled, 1L, STORE, MailingService.ProcessType.CREATED);
+        submit(disabled, 1L, STORE, MailingService.ProcessType.DELETED);
+
+        verify(dispatcher).enqueue(1L, STORE, MailingService.ProcessType.CREATED);
+        verify(dispatcher).enqueue(1L, STORE, MailingService.ProcessType.DELETED);
+        assertThat(disabled.getOpenBatches()).isEqualTo(0);
+    }
+
+    @Test
+    void events_areHeldUntilTheWindowIsOver() {
+        submit(digester, 1L, STORE, MailingService.ProcessType.CREATED);
+        submit(digester, 2L, STORE, MailingService.ProcessType.CREATED);
+
+        digester.flushDue();
+        verifyNoInteractions(dispatcher);
+
+        when(clock.millis()).thenReturn(1000L);
+        digester.flushDue();
+
+        verify(dispatcher).enqueueDigest(STORE,
+                "Order with orderId : 1 has been created\nOrder with orderId : 2 has been created\n");
+        assertThat(digester.getOpenBatches()).isEqualTo(0);
+    }
+
+    @Test
+    void transitions_areListedPerOrder() {
+        submit(digester, 1L, STORE, MailingService.ProcessType.CREATED);
+        submit(digester, 2L, STORE, MailingService.ProcessType.EDITED);
+        submit(digester, 1L, STORE, MailingService.ProcessType.EDITED);
+        submit(digester, 2L, STORE, MailingService.ProcessType.DELETED);
+
+        digester.flushAll();
+
+        verify(dispatcher).enqueueDigest(STORE,
+                "Order with orderId : 1 has been created, then edited\n"
+                        + "Order with orderId : 2 has been edited, then deleted\n");
+    }
+
+    @Test
+    void createdThenDeleted_collapsesToNothing() {
+        submit(digester, 1L, STORE, MailingService.ProcessType.CREATED);
+        submit(digester, 1L, STORE, MailingService.ProcessType.EDITED);
+        submit(digester, 1L, STORE, MailingService.ProcessType.DELETED);
+
+        digester.flushAll();
+
+        verifyNoInteractions(dispatcher);
+    }
+
+    @Test
+    void singleEvent_isSentAsNormalNotification() {
+        submit(digester, 1L, STORE, MailingService.ProcessType.EDITED);
+
+        digester.flushAll();
+
+        verify(dispatcher).enqueue(1L, STORE, MailingService.ProcessType.EDITED);
+        verify(dispatcher, never()).enqueueDigest(anyString(), anyString());
+    }
+
+    @Test
+    void fullBatch_isSentImmediately() {
+        for (long id = 1; id <= 5; id++) {
+            submit(digester, id, STORE, MailingService.ProcessType.CREATED);
+        }
+
+        ArgumentCaptor<String> digest = ArgumentCaptor.forClass(String.class);
+        verify(dispatcher).enqueueDigest(eq(STORE), digest.capture());
+        assertThat(digest.getValue().split("\n")).hasSize(5);
+        assertThat(digester.getOpenBatches()).isEqualTo(0);
+    }
+
+    @Test
+    void stores_haveSeparateDigests() {
+        submit(digester, 1L, STORE, MailingService.ProcessType.CREATED);
+        submit(digester, 2L, "other@pizza.nl", MailingService.ProcessType.CREATED);
+        assertThat(digester.getOpenBatches()).isEqualTo(2);
+
+        digester.flushAll();
+
+        verify(dispatcher).enqueue(1L, STORE, MailingService.ProcessType.CREATED);
+        verify(dispatcher).enqueue(2L, "other@pizza.nl", MailingService.ProcessType.CREATED);
+    }
+
+    @Test
+    void unknownStore_isIgnored() {
+        submit(digester, 1L, null, MailingService.ProcessType.CREATED);
+
+        digester.flushAll();
+
+        verify(dispatcher, never()).enqueue(anyLong(), any(), any());
+        assertThat(digester.getOpenBatches()).isEqualTo(0);
+    }
+
+    @Test
+    void heldEvents_areStoredInTheOutbox() {
+        submit(digester, 1L, STORE, MailingService.ProcessType.CREATED);
+        submit(digester, 2L, STORE, MailingService.ProcessType.CREATED);
+
+        assertThat(notificationRepository.countByRecipientEmailAndStatus(STORE, Notification.Status.HELD)).isEqualTo(2);
+
+        digester.flushAll();
+
+        assertThat(notificationRepository.countByRecipientEmailAndStatus(STORE, Notification.Status.HELD)).isEqualTo(0);
+    }
+
+    @Test
+    void heldEvents_areReadFromTheOutbox() {
+        submit(digester, 1L, STORE, MailingService.ProcessType.CREATED);
+        submit(digester, 2L, STORE, MailingService.ProcessType.CREATED);
+
+        // a new digester only knows the events from the outbox, see OutboxRestartTests for a restart
+        NotificationDigester restarted = digester(true);
+        restarted.load();
+        assertThat(restarted.getOpenBatches()).isEqualTo(1);
+        when(clock.millis()).thenReturn(1000L);
+        restarted.flushDue();
+
+        verify(dispatcher).enqueueDigest(STORE,
+                "Order with orderId : 1 has been created\nOrder with orderId : 2 has been created\n");
+    }
+
+    @Test
+    void longDigest_isSentInPartsThatFitTheColumn() {
+        NotificationDigester large = new NotificationDigester(dispatcher, notificationRepository, transactionTemplate,
+                true, 1000, 1000, clock);
+        for (long id = 1; id <= 300; id++) {
+            submit(large, id, STORE, MailingService.ProcessType.CREATED);
+        }
+
+        large.flushAll();
+
+        ArgumentCaptor<String> digests = ArgumentCaptor.forClass(String.class);
+        verify(dispatcher, times(2)).enqueueDigest(eq(STORE), digests.capture());
+        assertThat(digests.getAllValues()).allSatisfy(digest -> {
+            assertThat(digest.length()).isLessThanOrEqualTo(Notification.DIGEST_LENGTH);
+            assertThat(digest).endsWith("\n");
+        });
+        assertThat(String.join("", digests.getAllValues()).split("\n")).hasSize(300);
+        assertThat(large.getOpenBatches()).isEqualTo(0);
+    }
+
+    @Test
+    void split_cutsAfterTheLastWholeLineThatFits() {
+        assertThat(NotificationDigester.split("ab\ncd\nef\n", 7)).containsExactly("ab\ncd\n", "ef\n");
+        assertThat(NotificationDigester.split("ab\n", 7)).containsExactly("ab\n");
+        // a line longer than a part is cut
+        assertThat(NotificationDigester.split("abcdefghij\nk\n", 4)).containsExactly("abcd", "efgh", "ij\n", "k\n");
+    }
+
+    @Test
+    void rolledBackEvents_areNotHeld() {
+        transactionTemplate.executeWithoutResult(status -> {
+            digester.submit(1L, STORE, MailingService.ProcessType.CREATED);
+            status.setRollbackOnly();
+        });
+
+        digester.flushAll();
+
+        assertThat(digester.getOpenBatches()).isEqualTo(0);
+        verifyNoInteractions(dispatcher);
+    }
+}
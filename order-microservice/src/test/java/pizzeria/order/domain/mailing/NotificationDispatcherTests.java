@@ -0,0 +1,161 @@
+package pizzeria.order.domain.mailing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {
+        "notification.retry.max-attempts=3",
+        "notification.retry.initial-backoff-ms=10",
+        "notification.retry.max-backoff-ms=20"
+})
+// activate profiles to have spring use mocks during auto-injection of certain beans.
+@ActiveProfiles({"test", "mockMessageTransport"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class NotificationDispatcherTests {
+    @Autowired
+    private transient MessageTransport messageTransport;
+
+    @Autowired
+    private transient NotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    private transient NotificationRepository notificationRepository;
+
+    @Autowired
+    private transient MeterRegistry meterRegistry;
+
+    @Autowired
+    private transient TransactionTemplate transactionTemplate;
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    @Test
+    public void enqueue_sendsInBackgroundAndClearsOutbox() throws Exception {
+        ArgumentCaptor<MimeMessage> captor = ArgumentCaptor.forClass(MimeMessage.class);
+
+        transactionTemplate.executeWithoutResult(status ->
+                notificationDispatcher.enqueue(5L, "store@pizza.nl", MailingService.ProcessType.CREATED));
+
+        verify(messageTransport, timeout(5000).times(1)).sendMessage(captor.capture());
+        assertThat(captor.getValue().getAllRecipients()[0]).isEqualTo(new InternetAddress("store@pizza.nl"));
+        assertThat(captor.getValue().getSubject()).isEqualTo("Order has been created!");
+        await(() -> notificationRepository.count() == 0);
+        assertThat(meterRegistry.get("notifications.send.latency").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void enqueue_withoutRecipientIsIgnored() throws Exception {
+        transactionTemplate.executeWithoutResult(status ->
+                notificationDispatcher.enqueue(5L, null, MailingService.ProcessType.CREATED));
+
+        assertThat(notificationRepository.count()).isEqualTo(0);
+        verify(messageTransport, after(100).never()).sendMessage(any());
+    }
+
+    @Test
+    public void failedDelivery_isRetriedWithBackoff() throws Exception {
+        doThrow(new MessagingException()).doNothing().when(messageTransport).sendMessage(any());
+
+        transactionTemplate.executeWithoutResult(status ->
+                notificationDispatcher.enqueue(5L, "store@pizza.nl", MailingService.ProcessType.EDITED));
+
+        verify(messageTransport, timeout(5000).times(2)).sendMessage(any());
+        await(() -> notificationRepository.count() == 0);
+        assertThat(meterRegistry.get("notifications.send.failures").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void failedDelivery_isDeadLetterAfterMaxAttempts() throws Exception {
+        doThrow(new MessagingException()).when(messageTransport).sendMessage(any());
+
+        transactionTemplate.executeWithoutResult(status ->
+                notificationDispatcher.enqueue(5L, "store@pizza.nl", MailingService.ProcessType.DELETED));
+
+        await(() -> notificationRepository.countByStatus(Notification.Status.DEAD_LETTER) == 1);
+        verify(messageTransport, times(3)).sendMessage(any());
+        assertThat(notificationRepository.findAll().get(0).getAttempts()).isEqualTo(3);
+        assertThat(meterRegistry.get("notifications.failed").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void sweep_picksUpPendingNotificationsFromOutbox() throws Exception {
+        //a notification that was still pending when the microservice stopped
+        notificationRepository.save(new Notification(7L, "store@pizza.nl",
+                MailingService.ProcessType.CREATED, System.currentTimeMillis()));
+
+        notificationDispatcher.sweep();
+
+        verify(messageTransport, timeout(5000).times(1)).sendMessage(any());
+        await(() -> notificationRepository.count() == 0);
+    }
+
+    @Test
+    public void enqueueDigest_sendsSummary() throws Exception {
+        ArgumentCaptor<MimeMessage> captor = ArgumentCaptor.forClass(MimeMessage.class);
+
+        transactionTemplate.executeWithoutResult(status ->
+                notificationDispatcher.enqueueDigest("store@pizza.nl", "Order with orderId : 1 has been created, then edited\n"));
+
+        verify(messageTransport, timeout(5000).times(1)).sendMessage(captor.capture());
+        assertThat(captor.getValue().getSubject()).isEqualTo("Orders have been updated!");
+        await(() -> notificationRepository.count() == 0);
+    }
+
+    @Test
+    public void poisonNotification_isDeadLetterAfterMaxAttempts() throws Exception {
+        doThrow(new IllegalStateException("cannot be sent")).when(messageTransport).sendMessage(any());
+
+        transactionTemplate.executeWithoutResult(status ->
+                notificationDispatcher.enqueue(5L, "store@pizza.nl", MailingService.ProcessType.CREATED));
+
+        await(() -> notificationRepository.countByStatus(Notification.Status.DEAD_LETTER) == 1);
+        verify(messageTransport, after(200).times(3)).sendMessage(any());
+        Notification deadLetter = notificationRepository.findAll().get(0);
+        assertThat(deadLetter.getAttempts()).isEqualTo(3);
+        assertThat(deadLetter.getLastError()).contains("cannot be sent");
+    }
+
+    @Test
+    public void enqueue_outsideTransactionIsRejected() {
+        assertThatThrownBy(() -> notificationDispatcher.enqueue(5L, "store@pizza.nl", MailingService.ProcessType.CREATED))
+                .isInstanceOf(IllegalTransactionStateException.class);
+        assertThat(notificationRepository.count()).isEqualTo(0);
+    }
+
+    @Test
+    public void enqueue_inRolledBackTransactionIsNeverSent() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> {
+            notificationDispatcher.enqueue(5L, "store@pizza.nl", MailingService.ProcessType.CREATED);
+            status.setRollbackOnly();
+        });
+
+        assertThat(notificationRepository.count()).isEqualTo(0);
+        verify(messageTransport, after(200).never()).sendMessage(any());
+    }
+}
@@ -0,0 +1,59 @@
+package pizzeria.order.domain.mailing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import pizzeria.order.integration.utils.Restarts;
+
+import javax.mail.internet.MimeMessage;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class OutboxRestartTests {
+    private static final String STORE = "store@pizza.nl";
+
+    @TempDir
+    transient Path directory;
+
+    @Test
+    void pendingNotification_isSentAfterARestart() throws Exception {
+        try (ConfigurableApplicationContext before = Restarts.start(directory)) {
+            before.getBean(NotificationRepository.class).save(
+                    new Notification(5L, STORE, MailingService.ProcessType.CREATED, System.currentTimeMillis()));
+        }
+
+        try (ConfigurableApplicationContext after = Restarts.start(directory)) {
+            ArgumentCaptor<MimeMessage> captor = ArgumentCaptor.forClass(MimeMessage.class);
+            verify(after.getBean(MessageTransport.class), timeout(5000)).sendMessage(captor.capture());
+            assertThat(captor.getValue().getSubject()).isEqualTo("Order has been created!");
+        }
+    }
+
+    @Test
+    void heldEvents_areDigestedAfterARestart() throws Exception {
+        String[] digests = {"--notification.digest.enabled=true", "--notification.digest.window-ms=600000"};
+        try (ConfigurableApplicationContext before = Restarts.start(directory, digests)) {
+            NotificationDigester digester = before.getBean(NotificationDigester.class);
+            before.getBean(TransactionTemplate.class).executeWithoutResult(status -> {
+                digester.submit(1L, STORE, MailingService.ProcessType.CREATED);
+                digester.submit(2L, STORE, MailingService.ProcessType.CREATED);
+            });
+        }
+
+        try (ConfigurableApplicationContext after = Restarts.start(directory, digests)) {
+            NotificationDigester digester = after.getBean(NotificationDigester.class);
+            assertThat(digester.getOpenBatches()).isEqualTo(1);
+            digester.flushAll();
+
+            ArgumentCaptor<MimeMessage> captor = ArgumentCaptor.forClass(MimeMessage.class);
+            verify(after.getBean(MessageTransport.class), timeout(5000)).sendMessage(captor.capture());
+            assertThat(captor.getValue().getContent().toString())
+                    .isEqualTo("Order with orderId : 1 has been created\nOrder with orderId : 2 has been created\n");
+        }
+    }
+}
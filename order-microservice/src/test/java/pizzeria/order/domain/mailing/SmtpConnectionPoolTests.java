@@ -0,0 +1,136 @@
+package pizzeria.order.domain.mailing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.IOException;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SmtpConnectionPoolTests {
+    private transient FakeSmtpServer server;
+    private transient SmtpConnectionPool pool;
+
+    private Session startServer(long connectDelayMillis) throws IOException {
+        server = new FakeSmtpServer(connectDelayMillis);
+        Properties properties = new Properties();
+        properties.put("mail.smtp.host", "localhost");
+        properties.put("mail.smtp.port", String.valueOf(server.getPort()));
+        properties.put("mail.smtp.auth", "false");
+        return Session.getInstance(properties);
+    }
+
+    private static MimeMessage message(Session session, int index) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("pizzeria@localhost"));
+        message.addRecipient(Message.RecipientType.TO, new InternetAddress("store@localhost"));
+        message.setSubject("Order has been created!");
+        message.setText("Order with orderId : " + index + " has been created");
+        return message;
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (pool != null) pool.close();
+        if (server != null) server.close();
+    }
+
+    @Test
+    void connectionsAreReused() throws Exception {
+        Session session = startServer(0);
+        pool = new SmtpConnectionPool(session, 2, 60_000, 1_000);
+        MessageTransport transport = new MessageTransport(pool);
+
+        for (int i = 0; i < 20; i++) {
+            transport.sendMessage(message(session, i));
+        }
+
+        assertThat(server.getMessages()).isEqualTo(20);
+        assertThat(server.getConnections()).isEqualTo(1);
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+    }
+
+    @Test
+    void droppedConnectionIsReplaced() throws Exception {
+        Session session = startServer(0);
+        pool = new SmtpConnectionPool(session, 1, 60_000, 1_000);
+        MessageTransport transport = new MessageTransport(pool);
+
+        transport.sendMessage(message(session, 1));
+        server.dropConnections();
+        transport.sendMessage(message(session, 2));
+
+        assertThat(server.getMessages()).isEqualTo(2);
+        assertThat(server.getConnections()).isEqualTo(2);
+    }
+
+    @Test
+    void idleConnectionsAreClosed() throws Exception {
+        Session session = startServer(0);
+        pool = new SmtpConnectionPool(session, 1, 0, 1_000);
+        MessageTransport transport = new MessageTransport(pool);
+
+        transport.sendMessage(message(session, 1));
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+
+        pool.reapIdle();
+
+        assertThat(pool.getIdleCount()).isEqualTo(0);
+        transport.sendMessage(message(session, 2));
+        assertThat(server.getConnections()).isEqualTo(2);
+    }
+
+    @Test
+    void exhaustedPoolTimesOut() throws Exception {
+        Session session = startServer(0);
+        pool = new SmtpConnectionPool(session, 1, 60_000, 50);
+
+        Transport borrowed = pool.borrow();
+
+        assertThrows(MessagingException.class, () -> pool.borrow());
+        pool.release(borrowed, false);
+        pool.release(pool.borrow(), false);
+        assertThat(server.getConnections()).isEqualTo(1);
+    }
+
+    @Test
+    void brokenConnectionIsNotReturned() throws Exception {
+        Session session = startServer(0);
+        pool = new SmtpConnectionPool(session, 1, 60_000, 1_000);
+
+        pool.release(pool.borrow(), true);
+
+        assertThat(pool.getIdleCount()).isEqualTo(0);
+    }
+
+    @Test
+    void pooledTransportOpensOneConnectionInsteadOfOnePerMessage() throws Exception {
+        // the throughput of both is compared in the SmtpTransportBenchmark of the benchmarks module
+        Session session = startServer(0);
+        int count = 100;
+
+        for (int i = 0; i < count; i++) {
+            Transport.send(message(session, i));
+        }
+        int perMessageConnections = server.getConnections();
+
+        pool = new SmtpConnectionPool(session, 1, 60_000, 1_000);
+        MessageTransport transport = new MessageTransport(pool);
+        for (int i = 0; i < count; i++) {
+            transport.sendMessage(message(session, i));
+        }
+        int pooledConnections = server.getConnections() - perMessageConnections;
+
+        assertThat(server.getMessages()).isEqualTo(2 * count);
+        assertThat(perMessageConnections).isEqualTo(count);
+        assertThat(pooledConnections).isEqualTo(1);
+    }
+}
@@ -0,0 +1,199 @@
+package pizzeria.order.domain.order;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OrderIntakeTests {
+    private transient OrderService orderService;
+    private transient Clock clock;
+    private transient SimpleMeterRegistry meterRegistry;
+    private transient OrderIntake intake;
+
+    @BeforeEach
+    void setup() {
+        orderService = Mockito.mock(OrderService.class);
+        clock = Mockito.mock(Clock.class);
+        when(clock.millis()).thenReturn(1000L);
+        meterRegistry = new SimpleMeterRegistry();
+        // no workers, the tests take the batches off the queue themselves
+        intake = new OrderIntake(orderService, meterRegistry, true, 3, 0, 2, 60000, 0, clock);
+    }
+
+    private Order order(String userId) {
+        return new Order(null, new ArrayList<>(), 1L, userId, LocalDateTime.now().plusHours(1), 10, new ArrayList<>(List.of()));
+    }
+
+    @Test
+    void submit_queuesOrder() throws Exception {
+        OrderIntake.Ticket ticket = intake.submit(order("uid"), "uid");
+
+        assertThat(ticket.getStatus()).isEqualTo(OrderIntake.Status.QUEUED);
+        assertThat(intake.getQueueDepth()).isEqualTo(1);
+        assertThat(meterRegistry.get("orders.intake.queue.depth").gauge().value()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("orders.intake.accepted").counter().count()).isEqualTo(1.0);
+        verify(orderService, never()).processOrderAsync(any());
+    }
+
+    @Test
+    void submit_invalidOrderIsNotQueued() throws Exception {
+        Order late = order("uid");
+        doThrow(new OrderServiceExceptions.TimeInvalidException()).when(orderService).validateWithoutLookups(late);
+
+        assertThatThrownBy(() -> intake.submit(late, "uid"))
+                .isInstanceOf(OrderServiceExceptions.TimeInvalidException.class);
+        assertThat(intake.getQueueDepth()).isEqualTo(0);
+    }
+
+    @Test
+    void submit_fullQueueIsRejected() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            intake.submit(order("uid"), "uid");
+        }
+
+        assertThatThrownBy(() -> intake.submit(order("uid"), "uid"))
+                .isInstanceOf(OrderServiceExceptions.IntakeFullException.class);
+        assertThat(meterRegistry.get("orders.intake.rejected").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void processNextBatch_storesOrders() throws Exception {
+        Order order = order("uid");
+        Order stored = order("uid");
+        stored.setOrderId(7L);
+        when(orderService.processOrderAsync(order)).thenReturn(CompletableFuture.completedFuture(stored));
+        OrderIntake.Ticket ticket = intake.submit(order, "uid");
+
+        when(clock.millis()).thenReturn(1250L);
+        assertThat(intake.processNextBatch(0)).isEqualTo(1);
+
+        assertThat(ticket.getStatus()).isEqualTo(OrderIntake.Status.DONE);
+        assertThat(ticket.getResult()).isSameAs(stored);
+        assertThat(meterRegistry.get("orders.intake.queue.wait").timer().totalTime(TimeUnit.MILLISECONDS))
+                .isEqualTo(250.0);
+    }
+
+    @Test
+    void processNextBatch_recordsFailure() throws Exception {
+        Order order = order("uid");
+        when(orderService.processOrderAsync(order))
+                .thenReturn(CompletableFuture.failedFuture(new OrderServiceExceptions.FoodInvalidException()));
+        OrderIntake.Ticket ticket = intake.submit(order, "uid");
+
+        intake.processNextBatch(0);
+
+        assertThat(ticket.getStatus()).isEqualTo(OrderIntake.Status.FAILED);
+        assertThat(ticket.getFailure()).isEqualTo(new OrderServiceExceptions.FoodInvalidException().getMessage());
+    }
+
+    @Test
+    void processNextBatch_failsOnlyTheOrderThatThrows() throws Exception {
+        Order broken = order("uid");
+        broken.setOrderId(1L);
+        Order order = order("uid");
+        order.setOrderId(2L);
+        when(orderService.processOrderAsync(broken)).thenThrow(new IllegalStateException("broken"));
+        when(orderService.processOrderAsync(order)).thenReturn(CompletableFuture.completedFuture(order));
+        OrderIntake.Ticket brokenTicket = intake.submit(broken, "uid");
+        OrderIntake.Ticket ticket = intake.submit(order, "uid");
+
+        assertThat(intake.processNextBatch(0)).isEqualTo(2);
+
+        assertThat(brokenTicket.getStatus()).isEqualTo(OrderIntake.Status.FAILED);
+        assertThat(brokenTicket.getFailure()).isEqualTo("broken");
+        assertThat(ticket.getStatus()).isEqualTo(OrderIntake.Status.DONE);
+    }
+
+    @Test
+    void processNextBatch_takesAtMostOneBatch() throws Exception {
+        when(orderService.processOrderAsync(any())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(invocation.getArgument(0)));
+        for (int i = 0; i < 3; i++) {
+            intake.submit(order("uid"), "uid");
+        }
+
+        assertThat(intake.processNextBatch(0)).isEqualTo(2);
+        assertThat(intake.processNextBatch(0)).isEqualTo(1);
+        assertThat(intake.processNextBatch(0)).isEqualTo(0);
+    }
+
+    @Test
+    void find_onlyShowsTicketToOwnerOrManager() throws Exception {
+        OrderIntake.Ticket ticket = intake.submit(order("uid"), "uid");
+
+        assertThat(intake.find(ticket.getId(), "uid", false)).contains(ticket);
+        assertThat(intake.find(ticket.getId(), "other", false)).isEmpty();
+        assertThat(intake.find(ticket.getId(), "manager", true)).contains(ticket);
+        assertThat(intake.find("unknown", "uid", false)).isEmpty();
+    }
+
+    @Test
+    void removeExpiredTickets_keepsUnfinishedAndRecentTickets() throws Exception {
+        when(orderService.processOrderAsync(any())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(invocation.getArgument(0)));
+        OrderIntake.Ticket finished = intake.submit(order("uid"), "uid");
+        intake.processNextBatch(0);
+        OrderIntake.Ticket queued = intake.submit(order("uid"), "uid");
+
+        when(clock.millis()).thenReturn(60999L);
+        intake.removeExpiredTickets();
+        assertThat(intake.find(finished.getId(), "uid", false)).isPresent();
+
+        when(clock.millis()).thenReturn(61000L);
+        intake.removeExpiredTickets();
+        assertThat(intake.find(finished.getId(), "uid", false)).isEmpty();
+        assertThat(intake.find(queued.getId(), "uid", false)).isPresent();
+    }
+
+    @Test
+    void shutdown_processesQueuedOrders() throws Exception {
+        when(orderService.processOrderAsync(any())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(invocation.getArgument(0)));
+        OrderIntake withWorkers = new OrderIntake(orderService, new SimpleMeterRegistry(), true, 3, 1, 2, 60000, 5000, clock);
+        OrderIntake.Ticket first = withWorkers.submit(order("uid"), "uid");
+        OrderIntake.Ticket second = withWorkers.submit(order("uid"), "uid");
+
+        withWorkers.shutdown();
+
+        assertThat(first.getStatus()).isEqualTo(OrderIntake.Status.DONE);
+        assertThat(second.getStatus()).isEqualTo(OrderIntake.Status.DONE);
+        assertThat(withWorkers.getQueueDepth()).isEqualTo(0);
+    }
+
+    @Test
+    void shutdown_failsOrdersLeftAfterTheTimeout() throws Exception {
+        OrderIntake.Ticket ticket = intake.submit(order("uid"), "uid");
+
+        intake.shutdown();
+
+        assertThat(ticket.getStatus()).isEqualTo(OrderIntake.Status.FAILED);
+        assertThat(ticket.getFailure()).isEqualTo(new OrderServiceExceptions.IntakeShutDownException().getMessage());
+        assertThat(intake.getQueueDepth()).isEqualTo(0);
+        verify(orderService, never()).processOrderAsync(any());
+    }
+
+    @Test
+    void submit_afterShutdownIsRejected() throws Exception {
+        intake.shutdown();
+
+        assertThatThrownBy(() -> intake.submit(order("uid"), "uid"))
+                .isInstanceOf(OrderServiceExceptions.IntakeFullException.class);
+        assertThat(intake.getQueueDepth()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,125 @@
+package pizzeria.order.domain.order;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import pizzeria.order.domain.food.Food;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that listing, loading and saving orders costs the same number of queries, whatever the number of orders and foods.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ExtendWith(SpringExtension.class)
+// activate profiles to have spring use mocks during auto-injection of certain beans.
+@ActiveProfiles({"test"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class OrderQueryCountTests {
+    private static final int[] ORDER_COUNTS = {1, 5, 15};
+    private static final int FOODS_PER_ORDER = 3;
+
+    @Autowired
+    private transient OrderRepository orderRepository;
+
+    @Autowired
+    private transient OrderService orderService;
+
+    @Autowired
+    private transient EntityManagerFactory entityManagerFactory;
+
+    private transient Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+        for (int count : ORDER_COUNTS) {
+            for (int i = 0; i < count; i++) {
+                orderRepository.save(order("user" + count, FOODS_PER_ORDER));
+            }
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void listOrders_usesOneQueryForEveryNumberOfOrders() {
+        for (int count : ORDER_COUNTS) {
+            statistics.clear();
+            List<Order> orders = orderService.listOrders("user" + count);
+            assertThat(orders).hasSize(count);
+            assertThat(orders.get(count - 1).getFoods()).hasSize(FOODS_PER_ORDER);
+            assertThat(orders.get(count - 1).getFoods().get(0).getBaseIngredients()).containsExactly(1L, 2L);
+            // the ingredients are columns of the foods, so the orders and their foods come in one query
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void listAllOrders_usesOneQuery() {
+        statistics.clear();
+        List<Order> orders = orderService.listAllOrders();
+        assertThat(orders).hasSize(21);
+        assertThat(orders).extracting(Order::getOrderId).isSorted();
+        assertThat(orders.get(20).getFoods().get(2).getExtraIngredients()).containsExactly(3L);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findById_doesNotLoadTheFoods() {
+        Long orderId = orderService.listOrders("user5").get(0).getOrderId();
+
+        statistics.clear();
+        assertThat(orderRepository.findById(orderId)).isPresent();
+        // checking the owner or the coupons of an order does not need its foods
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getCollectionLoadCount()).isEqualTo(0);
+    }
+
+    @Test
+    void findOrder_loadsTheFoodsInTheSameQuery() {
+        Long orderId = orderService.listOrders("user5").get(0).getOrderId();
+
+        statistics.clear();
+        Order order = orderService.findOrder(orderId).orElseThrow();
+        assertThat(order.getFoods()).hasSize(FOODS_PER_ORDER);
+        assertThat(order.getFoods().get(0).getBaseIngredients()).containsExactly(1L, 2L);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void save_batchesTheInsertsOfAllFoods() {
+        statistics.clear();
+        orderRepository.save(order("single", 1));
+        long single = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        orderRepository.save(order("many", 10));
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(11);
+        // the order, the foods and the join table rows
+        assertThat(single).isEqualTo(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(single);
+    }
+
+    private static Order order(String userId, int foods) {
+        List<Food> lines = new ArrayList<>();
+        for (int i = 0; i < foods; i++) {
+            Food food = new Food();
+            food.setRecipeId(i);
+            food.setBaseIngredients(new ArrayList<>(List.of(1L, 2L)));
+            food.setExtraIngredients(new ArrayList<>(List.of(3L)));
+            lines.add(food);
+        }
+        return new Order(null, lines, 1L, userId, LocalDateTime.now().plusHours(1), 10.0, new ArrayList<>());
+    }
+}
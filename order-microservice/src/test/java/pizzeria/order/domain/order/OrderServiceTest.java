@@ -11,8 +11,10 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import pizzeria.order.domain.coupon.*;
 import pizzeria.order.domain.food.Food;
 import pizzeria.order.domain.food.FoodPriceService;
+import pizzeria.order.domain.mailing.MessageTransport;
 import pizzeria.order.domain.store.Store;
 import pizzeria.order.domain.store.StoreService;
+import pizzeria.order.models.CouponModel;
 import pizzeria.order.models.GetPricesResponseModel;
 import pizzeria.order.models.Tuple;
 
@@ -21,17 +23,23 @@ import java.time.Month;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest
 // activate profiles to have spring use mocks during auto-injection of certain beans.
-@ActiveProfiles({"test", "restTemplateProfile", "mockPriceService", "clockWrapper"})
+@ActiveProfiles({"test", "restTemplateProfile", "mockPriceService", "clockWrapper", "mockMessageTransport"})
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
 public class OrderServiceTest {
     @Autowired
@@ -47,9 +55,16 @@ public class OrderServiceTest {
     private transient ClockWrapper clockWrapper;
 
     @Autowired
-    private transient Coupon_2for1_Repository coupon_2for1_repository;
+    private transient MessageTransport messageTransport;
+
+    @Autowired
+    private transient CouponRepository couponRepository;
+    @Autowired
+    private transient CouponCodeIndex couponCodeIndex;
     @Autowired
-    private transient Coupon_percentage_Repository coupon_percentage_repository;
+    private transient CouponService couponService;
+    @Autowired
+    private transient CouponLedger couponLedger;
 
     private transient Order order_invalidTime;
     private transient Order order_invalidFood; // references non-existent recipes and ingredients
@@ -94,15 +109,16 @@ public class OrderServiceTest {
         ingredientPrices.put(2L, new Tuple(1, "Mushrooms"));
         pricesResponseModel = new GetPricesResponseModel(recipePrices, ingredientPrices);
 
-        coupon_percentage_repository.save(new PercentageCoupon("percentage", 0.5));
-        coupon_2for1_repository.save( new TwoForOneCoupon("2for1"));
+        couponRepository.save(new PercentageCoupon("HALF50", 0.5));
+        couponRepository.save( new TwoForOneCoupon("TWOF01"));
+        couponCodeIndex.load();
 
         order_invalidTime = new Order(null, foodList, 1L, "uid", LocalDateTime.now(), 36, new ArrayList<String>(List.of()));
         order_invalidFood = new Order(null, invalidFoodList, 1L, "uid", LocalDateTime.now().plusHours(1), 36, new ArrayList<String>(List.of()));
         order_invalidCoupons = new Order(null, foodList, 1L, "uid", LocalDateTime.now().plusHours(1), 37, new ArrayList<String>(List.of("invalid")));
-        order_invalidPrice = new Order(null, foodList, 1L, "uid", LocalDateTime.now().plusHours(1), 26, new ArrayList<String>(List.of("percentage", "2for1")));
-        order_valid = new Order(null, foodList, 1L, "uid", LocalDateTime.now().plusHours(1), 18.5, new ArrayList<String>(List.of("percentage", "2for1", "invalid")));
-        order_valid_copy = new Order(null, foodList, 1L, "uid", LocalDateTime.now().plusHours(1), 18.5, new ArrayList<String>(List.of("percentage", "2for1", "invalid")));
+        order_invalidPrice = new Order(null, foodList, 1L, "uid", LocalDateTime.now().plusHours(1), 26, new ArrayList<String>(List.of("HALF50", "TWOF01")));
+        order_valid = new Order(null, foodList, 1L, "uid", LocalDateTime.now().plusHours(1), 18.5, new ArrayList<String>(List.of("HALF50", "TWOF01", "invalid")));
+        order_valid_copy = new Order(null, foodList, 1L, "uid", LocalDateTime.now().plusHours(1), 18.5, new ArrayList<String>(List.of("HALF50", "TWOF01", "invalid")));
 
         when(clockWrapper.getNow()).thenReturn(LocalDateTime.now());
     }
@@ -131,6 +147,69 @@ public class OrderServiceTest {
         assertEquals(orders.size(), 1);
     }
 
+    @Test
+    void testProcessOrder_foldsIdenticalFoods() throws Exception {
+        when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
+
+        orderService.processOrder(order_valid);
+
+        List<Food> lines = orderService.listAllOrders().get(0).getFoods();
+        assertThat(lines).hasSize(2);
+        assertThat(lines).extracting(Food::getQuantity).containsExactlyInAnyOrder(1, 2);
+    }
+
+    @Test
+    void testProcessOrder_invalidQuantity() throws Exception {
+        order_valid.getFoods().get(0).setQuantity(0);
+
+        assertThatThrownBy(() -> {
+            orderService.processOrder(order_valid);
+        }).isInstanceOf(OrderServiceExceptions.CouldNotStoreException.class);
+    }
+
+    @Test
+    void testProcessOrder_quantityAboveMaximum() throws Exception {
+        order_valid.getFoods().get(0).setQuantity(Food.MAX_QUANTITY + 1);
+
+        assertThatThrownBy(() -> {
+            orderService.processOrder(order_valid);
+        }).isInstanceOf(OrderServiceExceptions.CouldNotStoreException.class);
+    }
+
+    @Test
+    void testProcessOrder_foldedQuantityAboveMaximum() throws Exception {
+        // both lines are within the limit, the line they are merged into is not
+        Food first = new Food();
+        first.setRecipeId(1L);
+        first.setBaseIngredients(List.of());
+        first.setExtraIngredients(List.of());
+        first.setQuantity(60);
+        Food second = new Food();
+        second.setRecipeId(1L);
+        second.setBaseIngredients(List.of());
+        second.setExtraIngredients(List.of());
+        second.setQuantity(60);
+        order_valid.setFoods(new ArrayList<>(List.of(first, second)));
+
+        assertThatThrownBy(() -> {
+            orderService.processOrder(order_valid);
+        }).isInstanceOf(OrderServiceExceptions.CouldNotStoreException.class);
+        assertThat(orderService.listAllOrders()).isEmpty();
+    }
+
+    @Test
+    void testProcessOrder_tooManyIngredients() throws Exception {
+        List<Long> extras = new ArrayList<>();
+        for (long id = 0; id <= Food.MAX_INGREDIENTS; id++) {
+            extras.add(id);
+        }
+        order_valid.getFoods().get(0).setExtraIngredients(extras);
+
+        assertThatThrownBy(() -> {
+            orderService.processOrder(order_valid);
+        }).isInstanceOf(OrderServiceExceptions.CouldNotStoreException.class);
+    }
+
     @Test
     void testProcessOrder_invalidTime() throws Exception {
         when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
@@ -139,6 +218,40 @@ public class OrderServiceTest {
         }).isInstanceOf(OrderServiceExceptions.TimeInvalidException.class);
     }
 
+    @Test
+    void testProcessOrder_invalidTimeDoesNotAskForPrices() throws Exception {
+        assertThatThrownBy(() -> {
+            orderService.processOrder(order_invalidTime);
+        }).isInstanceOf(OrderServiceExceptions.TimeInvalidException.class);
+
+        verify(foodPriceService, never()).getFoodPrices(any());
+    }
+
+    @Test
+    void testProcessOrderAsync_doesNotBlockWhileWaitingForPrices() throws Exception {
+        CountDownLatch pricesAnswered = new CountDownLatch(1);
+        when(foodPriceService.getFoodPrices(any())).thenAnswer(invocation -> {
+            pricesAnswered.await(5, TimeUnit.SECONDS);
+            return pricesResponseModel;
+        });
+
+        CompletableFuture<Order> processed = orderService.processOrderAsync(order_valid);
+        assertThat(processed).isNotDone();
+
+        pricesAnswered.countDown();
+        assertThat(processed.get(5, TimeUnit.SECONDS).getOrderId()).isNotNull();
+        assertEquals(orderService.listAllOrders().size(), 1);
+    }
+
+    @Test
+    void testProcessOrderAsync_invalidStoreWinsOverInvalidTime() throws Exception {
+        order_invalidTime.setStoreId(42L);
+
+        CompletableFuture<Order> processed = orderService.processOrderAsync(order_invalidTime);
+
+        assertThatThrownBy(processed::join).hasCauseInstanceOf(OrderServiceExceptions.InvalidStoreIdException.class);
+    }
+
     @Test
     void testProcessOrder_orderIsNull() throws Exception {
         OrderServiceExceptions.CouldNotStoreException exception = assertThrows(OrderServiceExceptions.CouldNotStoreException.class, () -> {
@@ -213,6 +326,16 @@ public class OrderServiceTest {
         assertThat(orderService.removeOrder(order_valid.getOrderId(), order_valid.getUserId(), false)).isTrue();
     }
 
+    @Test
+    void testProcessAndRemoveOrder_notifyStore() throws Exception {
+        when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
+        orderService.processOrder(order_valid);
+        orderService.removeOrder(order_valid.getOrderId(), order_valid.getUserId(), false);
+
+        // both notifications were written with the order and are sent in the background
+        verify(messageTransport, timeout(5000).times(2)).sendMessage(any());
+    }
+
     @Test
     void testRemoveOrder_nullOrderId() throws Exception {
         when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
@@ -237,6 +360,78 @@ public class OrderServiceTest {
         assertThat(orderService.removeOrder(null, null, false)).isFalse();
     }
 
+    @Test
+    void testProcessOrder_couponRedemptionLimit() throws Exception {
+        when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
+        CouponModel once = new CouponModel();
+        once.setId("ONCE50");
+        once.setType("PERCENTAGE");
+        once.setPercentage(0.5);
+        once.setMaxRedemptions(1);
+        assertTrue(couponService.createCoupon(once));
+
+        Order first = new Order(null, foods(), 1L, "uid", LocalDateTime.now().plusHours(1), 18.5, new ArrayList<>(List.of("ONCE50")));
+        orderService.processOrder(first);
+        assertThat(first.getCouponIds()).containsExactly("ONCE50");
+
+        // the limit is reached, so the discounted price is not right anymore
+        Order second = new Order(null, foods(), 1L, "uid", LocalDateTime.now().plusHours(1), 18.5, new ArrayList<>(List.of("ONCE50")));
+        assertThatThrownBy(() -> orderService.processOrder(second))
+                .isInstanceOf(OrderServiceExceptions.PriceNotRightException.class);
+
+        // removing the first order gives the redemption back
+        assertTrue(orderService.removeOrder(first.getOrderId(), "uid", false));
+        // the rejected order was left without its coupons, so it is placed again
+        Order third = new Order(null, foods(), 1L, "uid", LocalDateTime.now().plusHours(1), 18.5, new ArrayList<>(List.of("ONCE50")));
+        orderService.processOrder(third);
+        assertThat(third.getCouponIds()).containsExactly("ONCE50");
+    }
+
+    @Test
+    void testRemoveOrder_couponLimitedAfterTheOrderIsNotGivenBack() throws Exception {
+        when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
+        CouponModel later = new CouponModel();
+        later.setId("LATE50");
+        later.setType("PERCENTAGE");
+        later.setPercentage(0.5);
+        assertTrue(couponService.createCoupon(later));
+
+        // the coupon has no limit yet, so the ledger does not count this redemption
+        Order first = new Order(null, foods(), 1L, "uid", LocalDateTime.now().plusHours(1), 18.5, new ArrayList<>(List.of("LATE50")));
+        orderService.processOrder(first);
+        assertThat(first.getRedeemedCouponIds()).isEmpty();
+
+        later.setMaxRedemptions(1);
+        assertTrue(couponService.createCoupon(later));
+        assertTrue(orderService.removeOrder(first.getOrderId(), "uid", false));
+
+        // nothing was counted for the removed order, so nothing is given back on top of the limit
+        assertThat(couponLedger.remaining("LATE50")).isEqualTo(1);
+        Order second = new Order(null, foods(), 1L, "uid", LocalDateTime.now().plusHours(1), 18.5, new ArrayList<>(List.of("LATE50")));
+        orderService.processOrder(second);
+        assertThat(second.getRedeemedCouponIds()).containsExactly("LATE50");
+        Order third = new Order(null, foods(), 1L, "uid", LocalDateTime.now().plusHours(1), 18.5, new ArrayList<>(List.of("LATE50")));
+        assertThatThrownBy(() -> orderService.processOrder(third))
+                .isInstanceOf(OrderServiceExceptions.PriceNotRightException.class);
+    }
+
+    // the foods of order_valid, as new entities
+    private static List<Food> foods() {
+        Food f1 = new Food();
+        f1.setRecipeId(1L);
+        f1.setBaseIngredients(List.of(1L));
+        f1.setExtraIngredients(List.of(0L, 2L));
+        List<Food> foods = new ArrayList<>(List.of(f1));
+        for (int i = 0; i < 2; i++) {
+            Food margherita = new Food();
+            margherita.setRecipeId(0L);
+            margherita.setBaseIngredients(List.of());
+            margherita.setExtraIngredients(List.of());
+            foods.add(margherita);
+        }
+        return foods;
+    }
+
     @Test
     void testRemoveOrder_noSuchOrder() throws Exception {
         assertThat(orderService.removeOrder(2L, "Mocked Id", false)).isFalse();
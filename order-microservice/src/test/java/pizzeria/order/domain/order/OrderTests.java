@@ -6,16 +6,19 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import pizzeria.order.domain.coupon.PercentageCoupon;
 import pizzeria.order.domain.food.Food;
 import pizzeria.order.models.GetPricesResponseModel;
 import pizzeria.order.models.Tuple;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 
 @ExtendWith(SpringExtension.class)
@@ -45,6 +48,94 @@ public class OrderTests {
         assertThat(order.calculatePrice(rm, List.of())).isEqualTo(10.0);
     }
 
+    @Test
+    public void calculatePrice_isExactInCents() {
+        //ten foods of 0.10 with an extra of 0.20 add up to exactly 3.00, with doubles this drifts
+        Order order = new Order(2L, List.of(), 3L, "Mocked Id", LocalDateTime.now(), 3.0, new ArrayList<>());
+        List<Food> foods = new ArrayList<>();
+        for (long i = 0; i < 10; i++) {
+            foods.add(new Food(i, 1L, 2L, List.of(), List.of(1L)));
+        }
+        order.setFoods(foods);
+        GetPricesResponseModel rm = new GetPricesResponseModel(Map.of(1L, new Tuple(0.1, "dummy_recipe")),
+                Map.of(1L, new Tuple(0.2, "dummy_ingredient")));
+
+        assertThat(order.calculatePriceInMinorUnits(rm, List.of())).isEqualTo(order.getPriceInMinorUnits());
+        assertThat(order.calculatePriceInMinorUnits(rm, List.of(new PercentageCoupon("ABCD12", 0.15))))
+                .isEqualTo(255);
+    }
+
+    @Test
+    public void calculatePrice_multipliesLinesByQuantity() {
+        //one line of 12 margheritas with an extra costs the same as 12 separate foods
+        Food margherita = new Food(1L, 1L, 2L, List.of(), List.of(1L));
+        margherita.setQuantity(12);
+        Order order = new Order(2L, List.of(margherita), 3L, "Mocked Id", LocalDateTime.now(), 0.0, new ArrayList<>());
+        GetPricesResponseModel rm = new GetPricesResponseModel(Map.of(1L, new Tuple(8.5, "margherita")),
+                Map.of(1L, new Tuple(0.75, "basil")));
+
+        assertThat(order.calculatePriceInMinorUnits(rm, List.of())).isEqualTo(12 * 925);
+        assertThat(order.countRecipes().count(1L)).isEqualTo(12);
+    }
+
+    @Test
+    public void foldFoods_mergesIdenticalFoodsWithoutChangingThem() {
+        Food first = new Food(1L, 1L, 2L, List.of(3L), List.of(4L));
+        Food second = new Food(2L, 1L, 2L, List.of(3L), List.of(4L));
+        second.setQuantity(2);
+        Food other = new Food(3L, 1L, 2L, List.of(3L), List.of());
+        Order order = new Order(2L, List.of(first, other, second), 3L, "Mocked Id", LocalDateTime.now(), 0.0, new ArrayList<>());
+
+        order.foldFoods();
+
+        assertThat(order.getFoods()).hasSize(2);
+        assertThat(order.getFoods().get(0).getId()).isEqualTo(1L);
+        assertThat(order.getFoods().get(0).getQuantity()).isEqualTo(3);
+        assertThat(order.getFoods().get(1)).isSameAs(other);
+        assertThat(first.getQuantity()).isEqualTo(1);
+        assertThat(second.getQuantity()).isEqualTo(2);
+    }
+
+    @Test
+    public void foldFoods_rejectsAQuantityThatOverflows() {
+        Food first = new Food(1L, 1L, 2L, List.of(), List.of());
+        first.setQuantity(Integer.MAX_VALUE);
+        Food second = new Food(2L, 1L, 2L, List.of(), List.of());
+        Order order = new Order(2L, List.of(first, second), 3L, "Mocked Id", LocalDateTime.now(), 0.0, new ArrayList<>());
+
+        assertThatThrownBy(order::foldFoods).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    public void countRecipes_rejectsACountThatOverflows() {
+        Food first = new Food(1L, 1L, 2L, List.of(), List.of());
+        first.setQuantity(Integer.MAX_VALUE);
+        Food second = new Food(2L, 1L, 2L, List.of(), List.of(5L));
+        Order order = new Order(2L, List.of(first, second), 3L, "Mocked Id", LocalDateTime.now(), 0.0, new ArrayList<>());
+
+        assertThatThrownBy(order::countRecipes).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    public void countRecipes_isReusedBetweenCalls() {
+        Order order = new Order(2L, new ArrayList<>(), 3L, "Mocked Id", LocalDateTime.now(), 0.0, new ArrayList<>());
+        for (long i = 0; i < 40; i++) {
+            order.getFoods().add(new Food(i, i % 3, 2L, List.of(), List.of()));
+        }
+
+        RecipeHistogram recipes = order.countRecipes();
+        assertThat(recipes.size()).isEqualTo(3);
+        assertThat(recipes.recipeAt(0)).isEqualTo(0L);
+        assertThat(recipes.count(0L)).isEqualTo(14);
+        assertThat(recipes.count(2L)).isEqualTo(13);
+        assertThat(recipes.count(5L)).isEqualTo(0);
+
+        order.setFoods(List.of(new Food(1L, 7L, 2L, List.of(), List.of())));
+        assertThat(order.countRecipes()).isSameAs(recipes);
+        assertThat(recipes.size()).isEqualTo(1);
+        assertThat(recipes.countAt(0)).isEqualTo(1);
+    }
+
     @Test
     public void orderEquals_worksCorrectly() {
         Order order = new Order(2L, List.of(), 3L, "Mocked Id", LocalDateTime.now(), 100.0, List.of());
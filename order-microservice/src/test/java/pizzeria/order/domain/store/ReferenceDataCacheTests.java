@@ -0,0 +1,91 @@
+package pizzeria.order.domain.store;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import pizzeria.order.domain.coupon.Coupon;
+import pizzeria.order.domain.coupon.CouponRepository;
+import pizzeria.order.domain.coupon.PercentageCoupon;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the stores and coupons are read from the second-level cache, and that it follows their changes.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ExtendWith(SpringExtension.class)
+// activate profiles to have spring use mocks during auto-injection of certain beans.
+@ActiveProfiles({"test"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ReferenceDataCacheTests {
+    @Autowired
+    private transient StoreService storeService;
+
+    @Autowired
+    private transient CouponRepository couponRepository;
+
+    @Autowired
+    private transient EntityManagerFactory entityManagerFactory;
+
+    private transient Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void getEmailById_secondLookupUsesNoQuery() throws Exception {
+        Store store = storeService.addStore(new Store("NL-2624ME", "store@pizzeria.nl"));
+        storeService.getEmailById(store.getId());
+
+        statistics.clear();
+        assertThat(storeService.getEmailById(store.getId())).isEqualTo("store@pizzeria.nl");
+        assertThat(storeService.getEmailById(store.getId())).isEqualTo("store@pizzeria.nl");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(0);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void getEmailById_seesEditedAndDeletedStore() throws Exception {
+        Store store = storeService.addStore(new Store("NL-2624ME", "store@pizzeria.nl"));
+        storeService.getEmailById(store.getId());
+
+        storeService.editStore(store.getId(), new Store("NL-2624ME", "other@pizzeria.nl"));
+        assertThat(storeService.getEmailById(store.getId())).isEqualTo("other@pizzeria.nl");
+
+        storeService.deleteStore(store.getId());
+        assertThat(storeService.getEmailById(store.getId())).isNull();
+    }
+
+    @Test
+    void findAllById_repeatedLookupUsesNoQuery() {
+        couponRepository.save(new PercentageCoupon("ABCD12", 0.5));
+        couponRepository.findAllById(List.of("ABCD12"));
+
+        statistics.clear();
+        assertThat(couponRepository.findAllById(List.of("ABCD12"))).hasSize(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(0);
+    }
+
+    @Test
+    void findAllById_seesSavedCoupon() {
+        couponRepository.save(new PercentageCoupon("ABCD12", 0.5));
+        couponRepository.findAllById(List.of("ABCD12"));
+
+        couponRepository.save(new PercentageCoupon("ABCD12", 0.25));
+        List<Coupon> coupons = couponRepository.findAllById(List.of("ABCD12"));
+        assertThat(coupons).hasSize(1);
+        assertThat(((PercentageCoupon) coupons.get(0)).getPercentage()).isEqualTo(0.25);
+    }
+}
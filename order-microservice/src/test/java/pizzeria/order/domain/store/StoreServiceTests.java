@@ -98,6 +98,29 @@ public class StoreServiceTests {
         );
     }
 
+    @ParameterizedTest
+    @MethodSource("validArgumentsSuite")
+    void addStore_validFormats(String location, String email) throws Exception {
+        // a rejected store must not leave state behind in the shared patterns
+        assertThatThrownBy(() -> {
+            storeService.addStore(new Store("NL-ME", "bor@gmail.com"));
+        }).isInstanceOf(StoreService.InvalidLocationException.class);
+
+        Store store = new Store(location, email);
+        storeService.addStore(store);
+
+        assertThat(storeRepository.findById(store.getId())).isPresent();
+    }
+
+    static Stream<Arguments> validArgumentsSuite() {
+        return Stream.of(
+                Arguments.of("NL-2624ME", "borislavsemerdzhiev.02@gmail.com"),
+                Arguments.of("2624ME", "bor@gmail.com"),
+                Arguments.of("NL-2624 ME", "first.second@tudelft.nl"),
+                Arguments.of("2624  ME", "a_b-c@mail-server.co.uk")
+        );
+    }
+
     @Test
     void editStore_worksCorrectly() throws Exception {
         Store newstore = new Store("NL-2624ME", "borislavsemerdzhiev.02@gmail.com");
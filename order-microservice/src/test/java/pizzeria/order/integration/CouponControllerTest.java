@@ -6,32 +6,53 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pizzeria.commons.authentication.JwtTokenVerifier;
+import pizzeria.commons.authentication.VerifiedToken;
 import pizzeria.order.authentication.AuthManager;
-import pizzeria.order.authentication.JwtTokenVerifier;
-import pizzeria.order.domain.coupon.Coupon_2for1_Repository;
-import pizzeria.order.domain.coupon.Coupon_percentage_Repository;
+import pizzeria.order.domain.coupon.Coupon;
+import pizzeria.order.domain.coupon.CouponCodeIndex;
+import pizzeria.order.domain.coupon.CouponLedger;
+import pizzeria.order.domain.coupon.CouponRepository;
+import pizzeria.order.domain.coupon.CouponService;
 import pizzeria.order.domain.coupon.PercentageCoupon;
 import pizzeria.order.domain.coupon.TwoForOneCoupon;
 import pizzeria.order.integration.utils.JsonUtil;
+import pizzeria.order.models.CouponBulkModel;
 import pizzeria.order.models.CouponModel;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @ExtendWith(SpringExtension.class)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
-@ActiveProfiles({"mockAuthenticationManager", "mockTokenVerifier"})
+// the test profile keeps the coupons in an in-memory database that is dropped with each context
+@ActiveProfiles({"test", "mockAuthenticationManager", "mockTokenVerifier"})
 @AutoConfigureMockMvc
 class CouponControllerTest {
 
@@ -39,10 +60,22 @@ class CouponControllerTest {
     private MockMvc mockMvc;
 
     @Autowired
-    private transient Coupon_percentage_Repository coupon_percentage_Repository;
+    private transient CouponRepository couponRepository;
 
     @Autowired
-    private transient Coupon_2for1_Repository coupon_2for1_Repository;
+    private transient JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private transient CouponLedger couponLedger;
+
+    @Autowired
+    private transient CouponCodeIndex couponCodeIndex;
+
+    @Autowired
+    private transient CouponService couponService;
+
+    @Autowired
+    private transient PlatformTransactionManager transactionManager;
 
     @Autowired
     private transient AuthManager mockAuthManager;
@@ -54,15 +87,13 @@ class CouponControllerTest {
     public void init() {
         when(mockAuthManager.getNetId()).thenReturn("ExampleUser");
         when(mockAuthManager.getRole()).thenReturn("ROLE_MANAGER");
-        when(mockJwtTokenVerifier.validateToken(anyString())).thenReturn(true);
-        when(mockJwtTokenVerifier.getNetIdFromToken(anyString())).thenReturn("ExampleUser");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_MANAGER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_MANAGER")), null));
     }
 
     @Test
     public void createPercentageCouponSuccessfully() throws Exception {
 
-        final String id = "COUPON";
+        final String id = "COUP01";
         final double percentage = 0.2;
         final String type = "PERCENTAGE";
 
@@ -80,7 +111,7 @@ class CouponControllerTest {
         resultActions.andExpect(status().isCreated());
 
         //assert that the right coupon was saved
-        PercentageCoupon newSavedCoupon = (PercentageCoupon) coupon_percentage_Repository.findById(id).orElseThrow();
+        PercentageCoupon newSavedCoupon = (PercentageCoupon) couponRepository.findById(id).orElseThrow();
         assertEquals(newSavedCoupon.getId(), id);
         assertEquals(newSavedCoupon.getPercentage(), percentage);
     }
@@ -89,7 +120,7 @@ class CouponControllerTest {
     @Test
     public void createCouponWithIncorrectPercentageAboveOne() throws Exception {
 
-        final String id = "COUPON";
+        final String id = "COUP01";
         final double percentage = 1.4;
         final String type = "PERCENTAGE";
 
@@ -111,7 +142,7 @@ class CouponControllerTest {
     @Test
     public void createCouponWithIncorrectPercentageBelowZero() throws Exception {
 
-        final String id = "COUPON";
+        final String id = "COUP01";
         final double percentage = -0.7;
         final String type = "PERCENTAGE";
 
@@ -132,7 +163,7 @@ class CouponControllerTest {
     @Test
     public void createCouponCheckingBoundariesForPercentage() throws Exception {
 
-        final String id = "COUPON";
+        final String id = "COUP01";
         final double percentage = 0;
         final String type = "PERCENTAGE";
 
@@ -150,12 +181,12 @@ class CouponControllerTest {
         resultActions.andExpect(status().isCreated());
 
         //assert the coupons details were saved correctly
-        PercentageCoupon newSavedCoupon = coupon_percentage_Repository.findById(id).orElseThrow();
+        PercentageCoupon newSavedCoupon = (PercentageCoupon) couponRepository.findById(id).orElseThrow();
         assertEquals(newSavedCoupon.getId(), id);
         assertEquals(newSavedCoupon.getPercentage(), percentage);
 
 
-        final String id2 = "COUPON2";
+        final String id2 = "COUP02";
         final double percentage2 = 1.0;
         final String type2 = "PERCENTAGE";
 
@@ -175,7 +206,7 @@ class CouponControllerTest {
 
     @Test
     public void updateCouponPercentageCorrectly() throws Exception {
-        final String id = "COUPON";
+        final String id = "COUP01";
         final double percentage = 0.75;
         final String type = "PERCENTAGE";
 
@@ -193,7 +224,7 @@ class CouponControllerTest {
         resultActions.andExpect(status().isCreated());
 
         //assert the coupons details were saved correctly
-        PercentageCoupon newSavedCoupon = coupon_percentage_Repository.findById(id).orElseThrow();
+        PercentageCoupon newSavedCoupon = (PercentageCoupon) couponRepository.findById(id).orElseThrow();
         assertEquals(newSavedCoupon.getId(), id);
         assertEquals(newSavedCoupon.getPercentage(), percentage);
 
@@ -213,14 +244,14 @@ class CouponControllerTest {
         //assert that it return 201
         resultActions2.andExpect(status().isCreated());
 
-        PercentageCoupon newSavedCoupon2 = coupon_percentage_Repository.findById(id).orElseThrow();
+        PercentageCoupon newSavedCoupon2 = (PercentageCoupon) couponRepository.findById(id).orElseThrow();
         //assert that the percentage was updated
         assertEquals(newSavedCoupon2.getPercentage(), percentage2);
     }
 
     @Test
     public void createTwoForOneCouponCorrectly() throws Exception {
-        final String id = "COUPON";
+        final String id = "COUP01";
         final String type = "TWO_FOR_ONE";
 
         CouponModel couponModel = new CouponModel();
@@ -236,13 +267,97 @@ class CouponControllerTest {
         resultActions.andExpect(status().isCreated());
 
         // assert the coupon's details were saved correctly
-        TwoForOneCoupon tfo = coupon_2for1_Repository.findById(id).orElseThrow();
+        TwoForOneCoupon tfo = (TwoForOneCoupon) couponRepository.findById(id).orElseThrow();
         assertEquals(tfo.getId(), id);
     }
 
+    @Test
+    public void replaceCouponWithAnotherType() throws Exception {
+        final String id = "COUP01";
+
+        CouponModel percentageCoupon = new CouponModel();
+        percentageCoupon.setId(id);
+        percentageCoupon.setPercentage(0.2);
+        percentageCoupon.setType("PERCENTAGE");
+        mockMvc.perform(post("/coupon/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonUtil.serialize(percentageCoupon))
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(status().isCreated());
+
+        CouponModel twoForOneCoupon = new CouponModel();
+        twoForOneCoupon.setId(id);
+        twoForOneCoupon.setType("TWO_FOR_ONE");
+        mockMvc.perform(post("/coupon/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonUtil.serialize(twoForOneCoupon))
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(status().isCreated());
+
+        //assert that the row of the percentage coupon was replaced, not added to
+        assertEquals(List.of("TWO_FOR_ONE"),
+                jdbcTemplate.queryForList("select coupon_type from coupons where coupon_id = ?", String.class, id));
+        assertTrue(couponRepository.findById(id).orElseThrow() instanceof TwoForOneCoupon);
+    }
+
+    @Test
+    public void failedReplacementKeepsTheCoupon() throws Exception {
+        final String id = "COUP01";
+
+        CouponModel percentageCoupon = new CouponModel();
+        percentageCoupon.setId(id);
+        percentageCoupon.setPercentage(0.2);
+        percentageCoupon.setType("PERCENTAGE");
+        mockMvc.perform(post("/coupon/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonUtil.serialize(percentageCoupon))
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(status().isCreated());
+
+        //the replacement fails after the percentage coupon was deleted, before the new row is saved
+        doThrow(new IllegalStateException()).when(couponLedger).replace(eq(id), anyLong());
+        CouponModel twoForOneCoupon = new CouponModel();
+        twoForOneCoupon.setId(id);
+        twoForOneCoupon.setType("TWO_FOR_ONE");
+        mockMvc.perform(post("/coupon/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonUtil.serialize(twoForOneCoupon))
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(status().isBadRequest());
+
+        //assert that the delete was rolled back with the save
+        assertEquals(List.of(0.2),
+                jdbcTemplate.queryForList("select percentage from coupons where coupon_id = ? and coupon_type = 'PERCENTAGE'",
+                        Double.class, id));
+        PercentageCoupon kept = (PercentageCoupon) couponRepository.findById(id).orElseThrow();
+        assertEquals(0.2, kept.getPercentage());
+    }
+
+    @Test
+    public void couponOfARolledBackTransactionIsNotLookedUp() {
+        CouponModel limited = new CouponModel();
+        limited.setId("ROLL10");
+        limited.setPercentage(0.2);
+        limited.setType("PERCENTAGE");
+        limited.setMaxRedemptions(5);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertTrue(couponService.createCoupon(limited));
+            //orders placed while the coupon may still roll back do not see it yet
+            assertFalse(couponCodeIndex.mightExist("ROLL10"));
+            assertEquals(-1, couponLedger.remaining("ROLL10"));
+            status.setRollbackOnly();
+        });
+
+        //assert that neither the index nor the ledger kept the coupon that was never committed
+        assertFalse(couponCodeIndex.mightExist("ROLL10"));
+        assertEquals(-1, couponLedger.remaining("ROLL10"));
+        assertEquals(0, couponRepository.count());
+    }
+
     @Test
     public void checkThatWrongTypeOfCouponIsABadRequest() throws Exception {
-        final String id = "COUPON";
+        final String id = "COUP01";
         final String type = "FREE_MEAL";
 
         CouponModel couponModel = new CouponModel();
@@ -259,13 +374,32 @@ class CouponControllerTest {
     }
 
     @Test
-    public void createPercentageCouponWhenNoAuthority() throws Exception {
+    public void checkThatMalformedCouponCodeIsABadRequest() throws Exception {
         final String id = "COUPON";
+        final String type = "TWO_FOR_ONE";
+
+        CouponModel couponModel = new CouponModel();
+        couponModel.setId(id);
+        couponModel.setType(type);
+
+        ResultActions resultActions = mockMvc.perform(post("/coupon/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonUtil.serialize(couponModel))
+                .header("Authorization", "Bearer MockedToken"));
+
+        //assert it returns 400 and nothing was stored
+        resultActions.andExpect(status().isBadRequest());
+        assertEquals(couponRepository.findById(id), Optional.empty());
+    }
+
+    @Test
+    public void createPercentageCouponWhenNoAuthority() throws Exception {
+        final String id = "COUP01";
         final double percentage = 0.2;
         final String type = "PERCENTAGE";
 
         when(mockAuthManager.getRole()).thenReturn("ROLE_CUSTOMER");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")), null));
 
         CouponModel couponModel = new CouponModel();
         couponModel.setPercentage(percentage);
@@ -283,11 +417,11 @@ class CouponControllerTest {
 
     @Test
     public void createTwoForOneCouponWhenNoAuthority() throws Exception {
-        final String id = "COUPON";
+        final String id = "COUP01";
         final String type = "TWO_FOR_ONE";
 
         when(mockAuthManager.getRole()).thenReturn("ROLE_CUSTOMER");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")), null));
 
         CouponModel couponModel = new CouponModel();
         couponModel.setId(id);
@@ -302,4 +436,107 @@ class CouponControllerTest {
         resultActions.andExpect(status().isForbidden());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void generateCouponsAsNdjson() throws Exception {
+        CouponBulkModel bulkModel = new CouponBulkModel();
+        bulkModel.setCount(50);
+        bulkModel.setPercentage(0.1);
+        bulkModel.setType("PERCENTAGE");
+
+        MvcResult started = mockMvc.perform(post("/coupon/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonUtil.serialize(bulkModel))
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        ResultActions resultActions = mockMvc.perform(asyncDispatch(started));
+
+        //assert it returns 201 with one code per line
+        resultActions.andExpect(status().isCreated())
+                .andExpect(content().contentType("application/x-ndjson"));
+        String[] lines = resultActions.andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(50, lines.length);
+        assertEquals(50, Arrays.stream(lines).distinct().count());
+
+        //assert every coupon was stored, single-use
+        String code = lines[0].substring("{\"id\":\"".length(), lines[0].length() - "\"}".length());
+        assertTrue(CouponCodeIndex.indexOf(code) >= 0);
+        Coupon stored = couponRepository.findById(code).orElseThrow();
+        assertEquals(Integer.valueOf(1), stored.getMaxRedemptions());
+        assertEquals(50, couponRepository.count());
+    }
+
+    @Test
+    public void generateCouponsAsCsv() throws Exception {
+        CouponBulkModel bulkModel = new CouponBulkModel();
+        bulkModel.setCount(3);
+        bulkModel.setType("TWO_FOR_ONE");
+
+        MvcResult started = mockMvc.perform(post("/coupon/bulk?format=csv")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonUtil.serialize(bulkModel))
+                .header("Authorization", "Bearer MockedToken"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        ResultActions resultActions = mockMvc.perform(asyncDispatch(started));
+
+        //assert it returns 201 with a header line and one code per line
+        resultActions.andExpect(status().isCreated())
+                .andExpect(content().contentType("text/csv"));
+        String[] lines = resultActions.andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("id", lines[0]);
+        assertTrue(couponRepository.findById(lines[1]).isPresent());
+    }
+
+    @Test
+    public void generateCouponsWithInvalidCountIsABadRequest() throws Exception {
+        CouponBulkModel bulkModel = new CouponBulkModel();
+        bulkModel.setCount(0);
+        bulkModel.setType("TWO_FOR_ONE");
+
+        ResultActions resultActions = mockMvc.perform(post("/coupon/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonUtil.serialize(bulkModel))
+                .header("Authorization", "Bearer MockedToken"));
+
+        //assert it returns 400 and nothing was stored
+        resultActions.andExpect(status().isBadRequest());
+        assertEquals(0, couponRepository.count());
+    }
+
+    @Test
+    public void generateCouponsWithUnknownFormatIsABadRequest() throws Exception {
+        CouponBulkModel bulkModel = new CouponBulkModel();
+        bulkModel.setCount(5);
+        bulkModel.setType("TWO_FOR_ONE");
+
+        ResultActions resultActions = mockMvc.perform(post("/coupon/bulk?format=xml")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonUtil.serialize(bulkModel))
+                .header("Authorization", "Bearer MockedToken"));
+
+        //assert it returns 400 and nothing was stored
+        resultActions.andExpect(status().isBadRequest());
+        assertEquals(0, couponRepository.count());
+    }
+
+    @Test
+    public void generateCouponsWhenNoAuthority() throws Exception {
+        when(mockAuthManager.getRole()).thenReturn("ROLE_CUSTOMER");
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")), null));
+
+        CouponBulkModel bulkModel = new CouponBulkModel();
+        bulkModel.setCount(5);
+        bulkModel.setType("TWO_FOR_ONE");
+
+        ResultActions resultActions = mockMvc.perform(post("/coupon/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonUtil.serialize(bulkModel))
+                .header("Authorization", "Bearer MockedToken"));
+
+        //assert the access is forbidden
+        resultActions.andExpect(status().isForbidden());
+    }
+
+}
@@ -14,11 +14,13 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.web.client.RestTemplate;
+import pizzeria.commons.authentication.JwtTokenVerifier;
+import pizzeria.commons.authentication.VerifiedToken;
 import pizzeria.order.authentication.AuthManager;
-import pizzeria.order.authentication.JwtTokenVerifier;
-import pizzeria.order.domain.coupon.Coupon_2for1_Repository;
-import pizzeria.order.domain.coupon.Coupon_percentage_Repository;
+import pizzeria.order.domain.coupon.CouponCodeIndex;
+import pizzeria.order.domain.coupon.CouponRepository;
 import pizzeria.order.domain.coupon.PercentageCoupon;
 import pizzeria.order.domain.coupon.TwoForOneCoupon;
 import pizzeria.order.domain.food.Food;
@@ -42,6 +44,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -83,17 +86,15 @@ public class OrderControllerTests {
     private transient ClockWrapper clockWrapper;
 
     @Autowired
-    private transient Coupon_percentage_Repository coupon_percentage_repository;
+    private transient CouponRepository couponRepository;
     @Autowired
-    private transient Coupon_2for1_Repository coupon_2for1_repository;
+    private transient CouponCodeIndex couponCodeIndex;
 
     @BeforeEach
     public void init() {
         when(mockAuthManager.getNetId()).thenReturn("Mocked Id");
         when(mockAuthManager.getRole()).thenReturn("[ROLE_MANAGER]");
-        when(mockJwtTokenVerifier.validateToken(anyString())).thenReturn(true);
-        when(mockJwtTokenVerifier.getNetIdFromToken(anyString())).thenReturn("Mocked Id");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_MANAGER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("Mocked Id", List.of(new SimpleGrantedAuthority("ROLE_MANAGER")), null));
         when(clockWrapper.getNow()).thenReturn(LocalDateTime.of(2022, Month.JANUARY, 3, 14, 31, 1));
 
         try {
@@ -104,6 +105,14 @@ public class OrderControllerTests {
 
     }
 
+    /**
+     * Performs a request to an endpoint that answers asynchronously, and dispatches the answer once it is there
+     */
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        MvcResult started = mockMvc.perform(requestBuilder).andExpect(request().asyncStarted()).andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+
     @Test
     void placeOrder_worksCorrectly() throws Exception {
         Food firstFood = new Food();
@@ -135,7 +144,7 @@ public class OrderControllerTests {
         when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
 
         // Act
-        ResultActions resultActions = mockMvc.perform(post("/order/place")
+        ResultActions resultActions = performAsync(post("/order/place")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(serializedString)
                 .header("Authorization", "Bearer MockedToken"));
@@ -157,9 +166,10 @@ public class OrderControllerTests {
 
     @Test
     void placeOrder_checkCouponFunctionality() throws Exception {
-        PercentageCoupon percentageCoupon = new PercentageCoupon("Coupon", 0.2);
+        PercentageCoupon percentageCoupon = new PercentageCoupon("COUP01", 0.2);
 
-        coupon_percentage_repository.save(percentageCoupon);
+        couponRepository.save(percentageCoupon);
+        couponCodeIndex.add(percentageCoupon.getId());
 
         Food firstFood = new Food();
         firstFood.setBaseIngredients(List.of(1L));
@@ -168,7 +178,7 @@ public class OrderControllerTests {
 
         OrderPlaceModel order = new OrderPlaceModel();
         order.setUserId("Mocked Id");
-        order.setCouponIds(List.of("Coupon"));
+        order.setCouponIds(List.of("COUP01"));
         order.setFoods(List.of(firstFood));
         order.setPickupTime(LocalDateTime.of(2023, Month.JANUARY, 3, 2, 1, 3));
         order.setPrice(91.44);
@@ -190,7 +200,7 @@ public class OrderControllerTests {
         when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
 
         // Act
-        ResultActions resultActions = mockMvc.perform(post("/order/place")
+        ResultActions resultActions = performAsync(post("/order/place")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(serializedString)
                 .header("Authorization", "Bearer MockedToken"));
@@ -212,13 +222,15 @@ public class OrderControllerTests {
 
     @Test
     void placeOrder_twoCoupons() throws Exception {
-        PercentageCoupon percentageCoupon = new PercentageCoupon("Coupon", 0.2);
+        PercentageCoupon percentageCoupon = new PercentageCoupon("COUP01", 0.2);
 
-        coupon_percentage_repository.save(percentageCoupon);
+        couponRepository.save(percentageCoupon);
+        couponCodeIndex.add(percentageCoupon.getId());
 
-        PercentageCoupon percentageCoupon2 = new PercentageCoupon("Coupon", 0.4);
+        PercentageCoupon percentageCoupon2 = new PercentageCoupon("COUP01", 0.4);
 
-        coupon_percentage_repository.save(percentageCoupon2);
+        couponRepository.save(percentageCoupon2);
+        couponCodeIndex.add(percentageCoupon2.getId());
 
         Food firstFood = new Food();
         firstFood.setBaseIngredients(List.of(1L));
@@ -227,7 +239,7 @@ public class OrderControllerTests {
 
         OrderPlaceModel order = new OrderPlaceModel();
         order.setUserId("Mocked Id");
-        order.setCouponIds(List.of("Coupon"));
+        order.setCouponIds(List.of("COUP01"));
         order.setFoods(List.of(firstFood));
         order.setPickupTime(LocalDateTime.of(2023, Month.JANUARY, 3, 2, 1, 3));
         order.setPrice(68.58);
@@ -249,7 +261,7 @@ public class OrderControllerTests {
         when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
 
         // Act
-        ResultActions resultActions = mockMvc.perform(post("/order/place")
+        ResultActions resultActions = performAsync(post("/order/place")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(serializedString)
                 .header("Authorization", "Bearer MockedToken"));
@@ -271,9 +283,10 @@ public class OrderControllerTests {
 
     @Test
     void placeOrder_twoForOneCoupon() throws Exception {
-        TwoForOneCoupon twoForOneCoupon = new TwoForOneCoupon("Coupon");
+        TwoForOneCoupon twoForOneCoupon = new TwoForOneCoupon("COUP01");
 
-        coupon_2for1_repository.save(twoForOneCoupon);
+        couponRepository.save(twoForOneCoupon);
+        couponCodeIndex.add(twoForOneCoupon.getId());
 
         Food firstFood = new Food();
         firstFood.setBaseIngredients(List.of(1L));
@@ -287,7 +300,7 @@ public class OrderControllerTests {
 
         OrderPlaceModel order = new OrderPlaceModel();
         order.setUserId("Mocked Id");
-        order.setCouponIds(List.of("Coupon"));
+        order.setCouponIds(List.of("COUP01"));
         order.setFoods(List.of(firstFood, secondFood));
         order.setPickupTime(LocalDateTime.of(2023, Month.JANUARY, 3, 2, 1, 3));
         order.setPrice(100.0 + 2*14.3);
@@ -309,7 +322,7 @@ public class OrderControllerTests {
         when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
 
         // Act
-        ResultActions resultActions = mockMvc.perform(post("/order/place")
+        ResultActions resultActions = performAsync(post("/order/place")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(serializedString)
                 .header("Authorization", "Bearer MockedToken"));
@@ -331,13 +344,15 @@ public class OrderControllerTests {
 
     @Test
     void placeOrder_threeCoupon() throws Exception {
-        TwoForOneCoupon twoForOneCoupon = new TwoForOneCoupon("Coupon");
+        TwoForOneCoupon twoForOneCoupon = new TwoForOneCoupon("COUP01");
 
-        coupon_2for1_repository.save(twoForOneCoupon);
+        couponRepository.save(twoForOneCoupon);
+        couponCodeIndex.add(twoForOneCoupon.getId());
 
-        PercentageCoupon percentageCoupon = new PercentageCoupon("Coupon2", 0.05);
+        PercentageCoupon percentageCoupon = new PercentageCoupon("COUP02", 0.05);
 
-        coupon_percentage_repository.save(percentageCoupon);
+        couponRepository.save(percentageCoupon);
+        couponCodeIndex.add(percentageCoupon.getId());
 
         Food firstFood = new Food();
         firstFood.setBaseIngredients(List.of(1L));
@@ -351,7 +366,7 @@ public class OrderControllerTests {
 
         OrderPlaceModel order = new OrderPlaceModel();
         order.setUserId("Mocked Id");
-        order.setCouponIds(List.of("Coupon", "Coupon2"));
+        order.setCouponIds(List.of("COUP01", "COUP02"));
         order.setFoods(List.of(firstFood, secondFood));
         order.setPickupTime(LocalDateTime.of(2023, Month.JANUARY, 3, 2, 1, 3));
         order.setPrice(100.0 + 2*14.3);
@@ -373,7 +388,7 @@ public class OrderControllerTests {
         when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
 
         // Act
-        ResultActions resultActions = mockMvc.perform(post("/order/place")
+        ResultActions resultActions = performAsync(post("/order/place")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(serializedString)
                 .header("Authorization", "Bearer MockedToken"));
@@ -424,7 +439,7 @@ public class OrderControllerTests {
         when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
 
         // Act
-        ResultActions resultActions = mockMvc.perform(post("/order/place")
+        ResultActions resultActions = performAsync(post("/order/place")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(serializedString)
                 .header("Authorization", "Bearer MockedToken"));
@@ -463,7 +478,7 @@ public class OrderControllerTests {
         when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
 
         // Act
-        ResultActions resultActions = mockMvc.perform(post("/order/place")
+        ResultActions resultActions = performAsync(post("/order/place")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(serializedString)
                 .header("Authorization", "Bearer MockedToken"));
@@ -502,7 +517,7 @@ public class OrderControllerTests {
         when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
 
         // Act
-        ResultActions resultActions = mockMvc.perform(post("/order/place")
+        ResultActions resultActions = performAsync(post("/order/place")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(serializedString)
                 .header("Authorization", "Bearer MockedToken"));
@@ -543,7 +558,7 @@ public class OrderControllerTests {
         when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
 
         // Act
-        ResultActions resultActions = mockMvc.perform(post("/order/place")
+        ResultActions resultActions = performAsync(post("/order/place")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(serializedString)
                 .header("Authorization", "Bearer MockedToken"));
@@ -583,7 +598,7 @@ public class OrderControllerTests {
 
         when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
 
-        when(mockJwtTokenVerifier.validateToken(anyString())).thenReturn(false);
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(null);
 
         // Act
         ResultActions resultActions = mockMvc.perform(post("/order/place")
@@ -643,7 +658,7 @@ public class OrderControllerTests {
         when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
 
         // Act
-        ResultActions resultActions = mockMvc.perform(post("/order/edit")
+        ResultActions resultActions = performAsync(post("/order/edit")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(serializedString)
                 .header("Authorization", "Bearer MockedToken"));
@@ -700,7 +715,7 @@ public class OrderControllerTests {
         when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
 
         // Act
-        ResultActions resultActions = mockMvc.perform(post("/order/edit")
+        ResultActions resultActions = performAsync(post("/order/edit")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(serializedString)
                 .header("Authorization", "Bearer MockedToken"));
@@ -757,7 +772,7 @@ public class OrderControllerTests {
         when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
 
         // Act
-        ResultActions resultActions = mockMvc.perform(post("/order/edit")
+        ResultActions resultActions = performAsync(post("/order/edit")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(serializedString)
                 .header("Authorization", "Bearer MockedToken"));
@@ -787,7 +802,7 @@ public class OrderControllerTests {
 
         orderRepository.save(order);
 
-        when(mockJwtTokenVerifier.getNetIdFromToken(anyString())).thenReturn("Mocked Id2");
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("Mocked Id2", List.of(new SimpleGrantedAuthority("ROLE_MANAGER")), null));
 
         OrderEditModel editOrder = new OrderEditModel();
         editOrder.setUserId("Mocked Id2");
@@ -817,7 +832,7 @@ public class OrderControllerTests {
         when(foodPriceService.getFoodPrices(any())).thenReturn(pricesResponseModel);
 
         // Act
-        ResultActions resultActions = mockMvc.perform(post("/order/edit")
+        ResultActions resultActions = performAsync(post("/order/edit")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(serializedString)
                 .header("Authorization", "Bearer MockedToken"));
@@ -941,7 +956,7 @@ public class OrderControllerTests {
         orderRepository.save(order);
 
         when(mockAuthManager.getRole()).thenReturn("ROLE_CUSTOMER");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("Mocked Id", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")), null));
 
         DeleteModel deleteModel = new DeleteModel();
         deleteModel.setOrderId(order.getOrderId());
@@ -975,7 +990,7 @@ public class OrderControllerTests {
         orderRepository.save(order);
 
         when(mockAuthManager.getRole()).thenReturn("ROLE_CUSTOMER");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("Mocked Id", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")), null));
 
         DeleteModel deleteModel = new DeleteModel();
         deleteModel.setOrderId(order.getOrderId());
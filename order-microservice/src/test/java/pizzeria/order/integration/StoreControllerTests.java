@@ -16,8 +16,9 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
+import pizzeria.commons.authentication.JwtTokenVerifier;
+import pizzeria.commons.authentication.VerifiedToken;
 import pizzeria.order.authentication.AuthManager;
-import pizzeria.order.authentication.JwtTokenVerifier;
 import pizzeria.order.domain.store.Store;
 import pizzeria.order.domain.store.StoreRepository;
 import pizzeria.order.integration.utils.JsonUtil;
@@ -56,9 +57,7 @@ public class StoreControllerTests {
     public void init() {
         when(mockAuthManager.getNetId()).thenReturn("ExampleUser");
         when(mockAuthManager.getRole()).thenReturn("[ROLE_MANAGER]");
-        when(mockJwtTokenVerifier.validateToken(anyString())).thenReturn(true);
-        when(mockJwtTokenVerifier.getNetIdFromToken(anyString())).thenReturn("ExampleUser");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_MANAGER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_MANAGER")), null));
     }
     @Test
     void createStore_worksCorrectly() throws Exception {
@@ -152,7 +151,7 @@ public class StoreControllerTests {
         firstStore.setLocation("NL-2624ME");
 
         when(mockAuthManager.getRole()).thenReturn("ROLE_CUSTOMER");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")), null));
 
         // Act
         ResultActions resultActions = mockMvc.perform(post("/store/create")
@@ -296,7 +295,7 @@ public class StoreControllerTests {
 
 
         when(mockAuthManager.getRole()).thenReturn("ROLE_CUSTOMER");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")), null));
 
         // Act
         ResultActions resultActions = mockMvc.perform(post("/store/edit")
@@ -369,7 +368,7 @@ public class StoreControllerTests {
         deleteStoreModel.setId(1L);
 
         when(mockAuthManager.getRole()).thenReturn("ROLE_CUSTOMER");
-        when(mockJwtTokenVerifier.getRoleFromToken(anyString())).thenReturn(List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("ExampleUser", List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")), null));
 
         // Act
         ResultActions resultActions = mockMvc.perform(delete("/store/delete")
@@ -423,7 +422,7 @@ public class StoreControllerTests {
             storeRepo.save(storeToSave);
         }
 
-        when(mockJwtTokenVerifier.validateToken(anyString())).thenReturn(false);
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(null);
 
         // Act
         ResultActions resultActions = mockMvc.perform(get("/store/get_stores")
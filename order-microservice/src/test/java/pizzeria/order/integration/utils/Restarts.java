@@ -0,0 +1,34 @@
+package pizzeria.order.integration.utils;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import pizzeria.order.Application;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the microservice on a database file, so it can be stopped and started again on the same data,
+ * like a redeploy does.
+ */
+public class Restarts {
+    /**
+     * Starts the microservice with the test profile and mocked mail transport.
+     * The outbox sweep only runs on start, so the test decides what is in the outbox after that.
+     *
+     * @param directory the directory of the database file
+     * @param properties further properties, as command line arguments
+     * @return the running microservice, closing it stops it
+     */
+    public static ConfigurableApplicationContext start(Path directory, String... properties) {
+        List<String> args = new ArrayList<>(List.of(
+                "--jdbc.url=jdbc:h2:" + directory.resolve("order_db").toAbsolutePath(),
+                "--spring.jpa.hibernate.ddl-auto=update",
+                "--server.port=0",
+                "--notification.sweep-interval-ms=600000",
+                "--spring.profiles.active=test,mockMessageTransport"));
+        args.addAll(List.of(properties));
+        return new SpringApplicationBuilder(Application.class).run(args.toArray(new String[0]));
+    }
+}
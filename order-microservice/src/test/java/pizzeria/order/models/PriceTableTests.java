@@ -0,0 +1,60 @@
+package pizzeria.order.models;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PriceTableTests {
+    @Test
+    public void priceOf_findsEveryIdAfterGrowing() {
+        PriceTable table = new PriceTable();
+        for (long id = -500; id < 500; id++) {
+            table.put(id * 31, 100 + id, "item" + id);
+        }
+
+        assertThat(table.size()).isEqualTo(1000);
+        for (long id = -500; id < 500; id++) {
+            assertThat(table.priceOf(id * 31)).isEqualTo(100 + id);
+        }
+        assertThat(table.containsId(1)).isFalse();
+        assertThrows(NoSuchElementException.class, () -> table.priceOf(1));
+    }
+
+    @Test
+    public void isAMapOfTuples() {
+        Map<Long, Tuple> prices = new HashMap<>();
+        prices.put(1L, new Tuple(8.5, "margherita"));
+        prices.put(2L, new Tuple(1.25, "cheese"));
+
+        PriceTable table = PriceTable.of(prices);
+        table.put(2L, new Tuple(1.5, "cheese"));
+        prices.put(2L, new Tuple(1.5, "cheese"));
+
+        assertThat(table).isEqualTo(prices);
+        assertThat(table.get(1L)).isEqualTo(new Tuple(8.5, "margherita"));
+        assertThat(table.get(3L)).isNull();
+        assertThat(PriceTable.of(table)).isSameAs(table);
+    }
+
+    @Test
+    public void json_isAnObjectOfIdToTuple() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        GetPricesResponseModel model = new GetPricesResponseModel(Map.of(1L, new Tuple(8.5, "margherita")),
+                Map.of(7L, new Tuple(1.25, "cheese")));
+
+        String json = mapper.writeValueAsString(model);
+        GetPricesResponseModel read = mapper.readValue(json, GetPricesResponseModel.class);
+
+        assertThat(json).contains("\"1\":{\"price\":8.50,\"name\":\"margherita\"}");
+        assertThat(read).isEqualTo(model);
+        assertThat(read.getIngredientPrices().priceOf(7L)).isEqualTo(125);
+        assertThat(mapper.readValue("{\"foodPrices\":{\"3\":{\"name\":\"x\",\"price\":12}},\"ingredientPrices\":null}",
+                GetPricesResponseModel.class).getFoodPrices().priceOf(3L)).isEqualTo(1200);
+    }
+}
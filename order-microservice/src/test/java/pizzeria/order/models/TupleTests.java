@@ -0,0 +1,19 @@
+package pizzeria.order.models;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TupleTests {
+    @Test
+    public void json_priceIsDecimalWithTwoDigits() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String json = mapper.writeValueAsString(new Tuple(8.5, "margherita"));
+
+        assertThat(json).contains("\"price\":8.50");
+        assertThat(mapper.readValue(json, Tuple.class)).isEqualTo(new Tuple(8.5, "margherita"));
+        assertThat(mapper.readValue("{\"price\":8.1,\"name\":\"x\"}", Tuple.class).getPriceInMinorUnits())
+                .isEqualTo(810);
+    }
+}
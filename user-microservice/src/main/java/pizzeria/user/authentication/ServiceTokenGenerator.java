@@ -0,0 +1,55 @@
+package pizzeria.user.authentication;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+
+/**
+ * Generates the JWT token with which the user microservice calls the endpoints of the other microservices
+ * that are meant for the microservices only, like dropping the cached allergies of a user.
+ * The token only carries the service role, so it grants none of the rights of a manager,
+ * is signed with the secret the microservices share, and is only valid for a minute.
+ */
+@Component
+public class ServiceTokenGenerator {
+    /**
+     * Name of the user microservice in the tokens it generates.
+     */
+    public static final String SUBJECT = "user-microservice";
+
+    /**
+     * Role of the microservices in the tokens they generate for each other.
+     */
+    public static final String ROLE = "ROLE_SERVICE";
+
+    /**
+     * Time in milliseconds a service token is valid for.
+     */
+    public static final long SERVICE_TOKEN_VALIDITY = 60 * 1000;
+
+    private final transient String jwtSecret;
+
+    @Autowired
+    public ServiceTokenGenerator(@Value("${jwt.secret}") String jwtSecret) {
+        this.jwtSecret = jwtSecret;
+    }
+
+    /**
+     * Generate a token with the service role for a call from the user microservice to the food microservice.
+     *
+     * @return the JWT token
+     */
+    public String generateToken() {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .claim("role", "[" + ROLE + "]")
+                .setSubject(SUBJECT)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + SERVICE_TOKEN_VALIDITY))
+                .signWith(SignatureAlgorithm.HS512, jwtSecret).compact();
+    }
+}
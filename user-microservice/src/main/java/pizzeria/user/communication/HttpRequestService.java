@@ -1,11 +1,15 @@
 package pizzeria.user.communication;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import pizzeria.commons.communication.ServiceGuard;
+import pizzeria.user.authentication.ServiceTokenGenerator;
 import pizzeria.user.domain.user.User;
 import pizzeria.user.models.AuthenticationResponseModel;
 
@@ -16,20 +20,41 @@ import java.util.Optional;
 
 @Service
 public class HttpRequestService {
-    private final transient RestTemplate restTemplate;
+    // the same for every request, so they are built once
+    private static final HttpHeaders JSON_HEADERS = jsonHeaders();
+
+    private final transient RestTemplate authRestTemplate;
+    private final transient RestTemplate foodRestTemplate;
+    private final transient ServiceGuard authServiceGuard;
+    private final transient ServiceGuard foodServiceGuard;
+    private final transient ServiceTokenGenerator serviceTokenGenerator;
 
     /**
      * Dependency injection
      *
      * @param restTemplateBuilder builder for RestTemplate
+     * @param authServiceGuard the timeouts, bulkhead and circuit breaker of the authentication microservice
+     * @param foodServiceGuard the timeouts, bulkhead and circuit breaker of the food microservice
+     * @param serviceTokenGenerator generator of the token for the endpoints that only the microservices may call
      */
     @Autowired
-    public HttpRequestService(RestTemplateBuilder restTemplateBuilder) {
-        this.restTemplate = restTemplateBuilder.build();
+    public HttpRequestService(RestTemplateBuilder restTemplateBuilder,
+                              @Qualifier("authServiceGuard") ServiceGuard authServiceGuard,
+                              @Qualifier("foodServiceGuard") ServiceGuard foodServiceGuard,
+                              ServiceTokenGenerator serviceTokenGenerator) {
+        this.authRestTemplate = authServiceGuard.restTemplate(restTemplateBuilder);
+        this.foodRestTemplate = foodServiceGuard.restTemplate(restTemplateBuilder);
+        this.authServiceGuard = authServiceGuard;
+        this.foodServiceGuard = foodServiceGuard;
+        this.serviceTokenGenerator = serviceTokenGenerator;
     }
 
-    public HttpRequestService(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    public HttpRequestService(RestTemplate restTemplate, ServiceTokenGenerator serviceTokenGenerator) {
+        this.authRestTemplate = restTemplate;
+        this.foodRestTemplate = restTemplate;
+        this.authServiceGuard = ServiceGuard.unguarded("auth");
+        this.foodServiceGuard = ServiceGuard.unguarded("food");
+        this.serviceTokenGenerator = serviceTokenGenerator;
     }
 
     /**
@@ -39,24 +64,17 @@ public class HttpRequestService {
      * @return True or False depending on the response of the HTTP request
      */
     public boolean registerUser(User user, String password) {
-        // create headers
-        HttpHeaders headers = new HttpHeaders();
-        // set `content-type` header
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        // set `accept` header
-        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-
-        // create headers
         // create a map for post parameters
         Map<String, Object> map = new HashMap<>();
         map.put("id", user.getId());
         map.put("password", password);
 
         // build the request
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(map, headers);
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(map, JSON_HEADERS);
 
         // send POST request
-        ResponseEntity response = this.restTemplate.postForEntity("http://localhost:8081/register", entity, ResponseEntity.class);
+        ResponseEntity response = authServiceGuard.call(() ->
+                this.authRestTemplate.postForEntity("http://localhost:8081/register", entity, ResponseEntity.class));
 
         // check response status code
         return response.getStatusCode() == HttpStatus.CREATED;
@@ -69,27 +87,19 @@ public class HttpRequestService {
      * @return Optional with the jwtToken or none, depending on whether we successfully authenticated
      */
     public Optional<String> loginUser(String id, String password) {
-        // create headers
-        HttpHeaders headers = new HttpHeaders();
-        // set `content-type` header
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        // set `accept` header
-        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-        //headers.setBearerAuth();
-
-        // create headers
         // create a map for post parameters
         Map<String, Object> map = new HashMap<>();
         map.put("id", id);
         map.put("password", password);
 
         // build the request
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(map, headers);
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(map, JSON_HEADERS);
 
         // send POST request
 
         try {
-            ResponseEntity<AuthenticationResponseModel> response = this.restTemplate.postForEntity("http://localhost:8081/authenticate", entity, AuthenticationResponseModel.class);
+            ResponseEntity<AuthenticationResponseModel> response = authServiceGuard.call(() ->
+                    this.authRestTemplate.postForEntity("http://localhost:8081/authenticate", entity, AuthenticationResponseModel.class));
 
             if (response.getStatusCode() == HttpStatus.OK) {
                 String jwtToken = response.getBody().getToken();
@@ -101,4 +111,37 @@ public class HttpRequestService {
             return Optional.empty();
         }
     }
+
+    /**
+     * Sends a http request to the food microservice telling it to drop the cached allergies of a user,
+     * so the next filtered menu uses the allergies that are stored now
+     * @param id ID of the user whose allergies changed or who was deleted
+     * @return True or False depending on whether the food microservice confirmed the invalidation
+     */
+    public boolean invalidateAllergies(String id) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", id);
+
+        // only the microservices may drop cached allergies, the user microservice calls with a service token
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(JSON_HEADERS);
+        headers.setBearerAuth(serviceTokenGenerator.generateToken());
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(map, headers);
+
+        try {
+            ResponseEntity<Void> response = foodServiceGuard.call(() ->
+                    this.foodRestTemplate.postForEntity("http://localhost:8084/allergens/invalidate", entity, Void.class));
+            return response.getStatusCode() == HttpStatus.OK;
+        } catch (RestClientException e) {
+            // the cached allergies expire by themselves, a food microservice that is down should not block the update
+            return false;
+        }
+    }
+    private static HttpHeaders jsonHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        return HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
 }
@@ -1,10 +1,12 @@
 package pizzeria.user.config;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import pizzeria.commons.authentication.JwtTokenVerifier;
 import pizzeria.user.authentication.JwtAuthenticationEntryPoint;
 import pizzeria.user.authentication.JwtRequestFilter;
 
@@ -12,6 +14,8 @@ import pizzeria.user.authentication.JwtRequestFilter;
  * The type Web security config.
  */
 @Configuration
+// the verifier of the tokens, shared with the other microservices
+@Import(JwtTokenVerifier.class)
 public class RequestAuthenticationConfig extends WebSecurityConfigurerAdapter {
     private final transient JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
     private final transient JwtRequestFilter jwtRequestFilter;
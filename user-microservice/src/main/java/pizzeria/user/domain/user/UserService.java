@@ -13,6 +13,10 @@ import java.util.regex.Pattern;
 
 @Service
 public class UserService {
+    // compiled once instead of on every registration
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^(?=.{1,64}@)[A-Za-z0-9_-]+(\\.[A-Za-z0-9_-]+)*@"
+            + "[^-][A-Za-z0-9-]+(\\.[A-Za-z0-9-]+)*(\\.[A-Za-z]{2,})$");
+
     private final transient UserRepository userRepository;
 
     private final transient HttpRequestService httpRequestService;
@@ -42,11 +46,7 @@ public class UserService {
     }
 
     private boolean verifyEmailFormat(String testEmail) {
-        String regexPattern = "^(?=.{1,64}@)[A-Za-z0-9_-]+(\\.[A-Za-z0-9_-]+)*@"
-                + "[^-][A-Za-z0-9-]+(\\.[A-Za-z0-9-]+)*(\\.[A-Za-z]{2,})$";
-
-        Pattern pattern = Pattern.compile(regexPattern);
-        return pattern.matcher(testEmail).matches();
+        return EMAIL_PATTERN.matcher(testEmail).matches();
     }
 
     public ResponseEntity addUser(UserRegisterModel user) throws InvalidEmailException, EmailAlreadyInUseException {
@@ -104,6 +104,7 @@ public class UserService {
      */
     public void deleteUserById(String id) {
         userRepository.deleteById(id);
+        httpRequestService.invalidateAllergies(id);
     }
 
 
@@ -122,6 +123,7 @@ public class UserService {
         currentUser.setAllergies(allergies);
 
         userRepository.save(currentUser);
+        httpRequestService.invalidateAllergies(id);
     }
 
     /**
@@ -12,6 +12,8 @@ import org.mockito.Mockito;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import pizzeria.commons.authentication.JwtTokenVerifier;
+import pizzeria.commons.authentication.VerifiedToken;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -20,6 +22,7 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -60,12 +63,10 @@ public class JwtRequestFilterTests {
         // Arrange
         String token = "randomtoken123";
         String user = "user123";
-        Collection <? extends GrantedAuthority> asd = Collections.singleton(new SimpleGrantedAuthority("ROLE_ADMIN"));
+        Collection<GrantedAuthority> asd = Collections.singleton(new SimpleGrantedAuthority("ROLE_ADMIN"));
 
         when(mockRequest.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(mockJwtTokenVerifier.validateToken(token)).thenReturn(true);
-        when(mockJwtTokenVerifier.getNetIdFromToken(token)).thenReturn(user);
-        //when(mockJwtTokenVerifier.getRoleFromToken(token)).thenReturn(asd);
+        when(mockJwtTokenVerifier.verify(token)).thenReturn(new VerifiedToken(user, asd, null));
 
         // Act
         jwtRequestFilter.doFilterInternal(mockRequest, mockResponse, mockFilterChain);
@@ -73,6 +74,12 @@ public class JwtRequestFilterTests {
         // Assert
         assertThat(SecurityContextHolder.getContext().getAuthentication().getName())
                 .isEqualTo(user);
+        assertThat(SecurityContextHolder.getContext().getAuthentication().getAuthorities())
+                .extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_ADMIN");
+        // the token is parsed only once per request
+        verify(mockJwtTokenVerifier, times(1)).verify(token);
+        verifyNoMoreInteractions(mockJwtTokenVerifier);
     }
 
     @Test
@@ -81,8 +88,7 @@ public class JwtRequestFilterTests {
         String token = "randomtoken123";
         String user = "user123";
         when(mockRequest.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(mockJwtTokenVerifier.validateToken(token)).thenReturn(false);
-        when(mockJwtTokenVerifier.getNetIdFromToken(token)).thenReturn(user);
+        when(mockJwtTokenVerifier.verify(token)).thenReturn(new VerifiedToken(user, Collections.emptySet(), new Date(0)));
 
         // Act
         jwtRequestFilter.doFilterInternal(mockRequest, mockResponse, mockFilterChain);
@@ -103,10 +109,8 @@ public class JwtRequestFilterTests {
             throws ServletException, IOException {
         // Arrange
         String token = "randomtoken123";
-        String user = "user123";
         when(mockRequest.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(mockJwtTokenVerifier.validateToken(token)).thenThrow(throwable);
-        when(mockJwtTokenVerifier.getNetIdFromToken(token)).thenReturn(user);
+        when(mockJwtTokenVerifier.verify(token)).thenThrow(throwable);
 
         // Act
         jwtRequestFilter.doFilterInternal(mockRequest, mockResponse, mockFilterChain);
@@ -144,8 +148,7 @@ public class JwtRequestFilterTests {
         String token = "randomtoken123";
         String user = "user123";
         when(mockRequest.getHeader("Authorization")).thenReturn("Bearer1 " + token);
-        when(mockJwtTokenVerifier.validateToken(token)).thenReturn(true);
-        when(mockJwtTokenVerifier.getNetIdFromToken(token)).thenReturn(user);
+        when(mockJwtTokenVerifier.verify(token)).thenReturn(new VerifiedToken(user, Collections.emptySet(), null));
 
         // Act
         jwtRequestFilter.doFilterInternal(mockRequest, mockResponse, mockFilterChain);
@@ -161,8 +164,7 @@ public class JwtRequestFilterTests {
         String token = "randomtoken123";
         String user = "user123";
         when(mockRequest.getHeader("Authorization")).thenReturn(token);
-        when(mockJwtTokenVerifier.validateToken(token)).thenReturn(true);
-        when(mockJwtTokenVerifier.getNetIdFromToken(token)).thenReturn(user);
+        when(mockJwtTokenVerifier.verify(token)).thenReturn(new VerifiedToken(user, Collections.emptySet(), null));
 
         // Act
         jwtRequestFilter.doFilterInternal(mockRequest, mockResponse, mockFilterChain);
@@ -0,0 +1,46 @@
+package pizzeria.user.authentication;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import pizzeria.commons.authentication.JwtTokenVerifier;
+
+import java.lang.reflect.Field;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ServiceTokenGeneratorTests {
+    private final String secret = "testSecret123";
+
+    private transient ServiceTokenGenerator serviceTokenGenerator;
+    private transient JwtTokenVerifier jwtTokenVerifier;
+
+    @BeforeEach
+    public void setup() throws NoSuchFieldException, IllegalAccessException {
+        serviceTokenGenerator = new ServiceTokenGenerator(secret);
+        jwtTokenVerifier = new JwtTokenVerifier();
+        Field declaredField = jwtTokenVerifier.getClass().getDeclaredField("jwtSecret");
+        declaredField.setAccessible(true);
+        declaredField.set(jwtTokenVerifier, secret);
+    }
+
+    @Test
+    public void generatedToken_onlyHasTheServiceRole() {
+        String token = serviceTokenGenerator.generateToken();
+
+        assertThat(jwtTokenVerifier.getNetIdFromToken(token)).isEqualTo(ServiceTokenGenerator.SUBJECT);
+        assertThat(jwtTokenVerifier.getRoleFromToken(token))
+                .extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_SERVICE");
+    }
+
+    @Test
+    public void generatedToken_expiresWithinAMinute() {
+        String token = serviceTokenGenerator.generateToken();
+
+        assertThat(jwtTokenVerifier.getExpirationDateFromToken(token))
+                .isAfter(new Date())
+                .isBeforeOrEqualTo(new Date(System.currentTimeMillis() + ServiceTokenGenerator.SERVICE_TOKEN_VALIDITY));
+    }
+}
@@ -15,7 +15,9 @@ import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import pizzeria.user.authentication.ServiceTokenGenerator;
 import pizzeria.user.domain.user.User;
 import pizzeria.user.models.AuthenticationResponseModel;
 
@@ -38,6 +40,9 @@ public class CommunicationServiceTests {
     @Autowired
     private transient RestTemplate restTemplate;
 
+    @Autowired
+    private transient ServiceTokenGenerator serviceTokenGenerator;
+
     @Captor
     private transient ArgumentCaptor<HttpEntity<Map<String, Object>>> entityCaptor;
 
@@ -46,7 +51,7 @@ public class CommunicationServiceTests {
         when(restTemplate.postForEntity(eq("http://localhost:8081/register"), entityCaptor.capture(), eq(ResponseEntity.class)))
                 .thenReturn(ResponseEntity.status(HttpStatus.CREATED).build());
 
-        HttpRequestService httpRequestService = new HttpRequestService(restTemplate);
+        HttpRequestService httpRequestService = new HttpRequestService(restTemplate, serviceTokenGenerator);
 
         boolean flag = httpRequestService.registerUser(new User("Borislav", "Borislav@gmail.com", List.of("Allergy1")), "Password1");
 
@@ -62,7 +67,7 @@ public class CommunicationServiceTests {
         when(restTemplate.postForEntity(eq("http://localhost:8081/register"), any(), eq(ResponseEntity.class)))
                 .thenReturn(ResponseEntity.status(HttpStatus.BAD_REQUEST).build());
 
-        HttpRequestService httpRequestService = new HttpRequestService(restTemplate);
+        HttpRequestService httpRequestService = new HttpRequestService(restTemplate, serviceTokenGenerator);
 
         assertThat(httpRequestService.registerUser(new User("Borislav", "Borislav@gmail.com", List.of("Allergy1")), "Password1")).isEqualTo(false);
     }
@@ -77,7 +82,7 @@ public class CommunicationServiceTests {
         when(restTemplate.postForEntity(eq("http://localhost:8081/authenticate"), entityCaptor.capture(), eq(AuthenticationResponseModel.class)))
                 .thenReturn(ResponseEntity.ok().body(new AuthenticationResponseModel(token)));
 
-        HttpRequestService httpRequestService = new HttpRequestService(restTemplate);
+        HttpRequestService httpRequestService = new HttpRequestService(restTemplate, serviceTokenGenerator);
 
         Optional <String> actualToken = httpRequestService.loginUser("mockedId", "Password1");
 
@@ -93,7 +98,7 @@ public class CommunicationServiceTests {
         when(restTemplate.postForEntity(eq("http://localhost:8081/authenticate"), any(), eq(AuthenticationResponseModel.class)))
                 .thenReturn(ResponseEntity.badRequest().build());
 
-        HttpRequestService httpRequestService = new HttpRequestService(restTemplate);
+        HttpRequestService httpRequestService = new HttpRequestService(restTemplate, serviceTokenGenerator);
 
         Optional <String> actualToken = httpRequestService.loginUser("mockedId", "Password1");
 
@@ -105,12 +110,32 @@ public class CommunicationServiceTests {
         when(restTemplate.postForEntity(eq("http://localhost:8081/authenticate"), any(), eq(AuthenticationResponseModel.class)))
                 .thenThrow(new HttpServerErrorException(HttpStatus.CREATED));
 
-        HttpRequestService httpRequestService = new HttpRequestService(restTemplate);
+        HttpRequestService httpRequestService = new HttpRequestService(restTemplate, serviceTokenGenerator);
 
         Optional <String> actualToken = httpRequestService.loginUser("mockedId", "Password1");
 
         assertThat(actualToken).isEmpty();
     }
 
+    @Test
+    public void invalidateAllergies_worksCorrectly() {
+        when(restTemplate.postForEntity(eq("http://localhost:8084/allergens/invalidate"), entityCaptor.capture(), eq(Void.class)))
+                .thenReturn(ResponseEntity.ok().build());
+
+        HttpRequestService httpRequestService = new HttpRequestService(restTemplate, serviceTokenGenerator);
+
+        assertThat(httpRequestService.invalidateAllergies("mockedId")).isTrue();
+        assertThat(entityCaptor.getValue().getBody()).containsEntry("id", "mockedId");
+        assertThat(entityCaptor.getValue().getHeaders().getFirst(HttpHeaders.AUTHORIZATION)).startsWith("Bearer ");
+    }
+
+    @Test
+    public void invalidateAllergies_foodServiceDown() {
+        when(restTemplate.postForEntity(eq("http://localhost:8084/allergens/invalidate"), any(), eq(Void.class)))
+                .thenThrow(new ResourceAccessException("Connection refused"));
 
+        HttpRequestService httpRequestService = new HttpRequestService(restTemplate, serviceTokenGenerator);
+
+        assertThat(httpRequestService.invalidateAllergies("mockedId")).isFalse();
+    }
 }
@@ -79,6 +79,21 @@ public class UserServiceTests {
         assertThat(exception.getMessage()).isEqualTo("The email test is not valid");
     }
 
+    @Test
+    public void testSaveUserAfterWrongEmailFormat() throws Exception {
+        userModel.setEmail("test@gmail.");
+        assertThrows(UserService.InvalidEmailException.class, () -> {
+            userService.saveUser(userModel);
+        });
+
+        // the shared pattern still accepts a well-formed email after a rejected one
+        userModel.setEmail("first.second@tudelft.nl");
+        userService.saveUser(userModel);
+
+        Assertions.assertThat(userRepository.findUserByEmail("first.second@tudelft.nl")).isNotEmpty();
+        Assertions.assertThat(userRepository.findUserByEmail("test@gmail.")).isEmpty();
+    }
+
     @Test
     public void testSaveUserEmailAlreadyInUse(){
         try {
@@ -3,6 +3,7 @@ package pizzeria.user.integration;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -21,8 +22,9 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import pizzeria.commons.authentication.JwtTokenVerifier;
+import pizzeria.commons.authentication.VerifiedToken;
 import pizzeria.user.authentication.AuthManager;
-import pizzeria.user.authentication.JwtTokenVerifier;
 import pizzeria.user.communication.HttpRequestService;
 import pizzeria.user.domain.user.User;
 import pizzeria.user.domain.user.UserRepository;
@@ -209,7 +211,7 @@ public class UsersTests {
         User currentUser = userRepository.save(new User(testName, testEmail, testAllergies));
 
         when(mockAuthManager.getNetId()).thenReturn(currentUser.getId());
-        when(mockJwtTokenVerifier.validateToken(anyString())).thenReturn(true);
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken(null, List.of(), null));
 
 
         // Act
@@ -219,6 +221,7 @@ public class UsersTests {
 
         // Assert
         resultActions.andExpect(status().isOk());
+        verify(httpRequestService).invalidateAllergies(currentUser.getId());
     }
 
     @Test
@@ -230,7 +233,7 @@ public class UsersTests {
         User currentUser = userRepository.save(new User(testName, testEmail, testAllergies));
 
         when(mockAuthManager.getNetId()).thenReturn(currentUser.getId());
-        when(mockJwtTokenVerifier.validateToken(anyString())).thenReturn(false);
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(null);
 
         // Act
         ResultActions resultActions = mockMvc.perform(delete("/user/delete_user")
@@ -268,7 +271,7 @@ public class UsersTests {
         userRepository.save(new User(testName, testEmail, testAllergies));
 
         when(mockAuthManager.getNetId()).thenReturn("Not The Correct Id");
-        when(mockJwtTokenVerifier.validateToken(anyString())).thenReturn(true);
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken(null, List.of(), null));
 
         // Act
         ResultActions resultActions = mockMvc.perform(delete("/user/delete_user")
@@ -296,8 +299,7 @@ public class UsersTests {
         final List<String> testAllergies = List.of("Allergy");
         final List<String> newAllergies = List.of("Allergy2");
 
-        when(mockJwtTokenVerifier.validateToken(any())).thenReturn(true);
-        when(mockJwtTokenVerifier.getNetIdFromToken(anyString())).thenReturn("asdasdasdas");
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("asdasdasdas", List.of(), null));
 
         userRepository.save(new User(testName, testEmail, testAllergies));
 
@@ -321,6 +323,7 @@ public class UsersTests {
         User tempUser = userRepository.findUserByEmail(testEmail).get();
 
         assertThat(tempUser.getAllergies()).containsExactlyElementsOf(newAllergies);
+        verify(httpRequestService).invalidateAllergies(id);
     }
 
     @Test
@@ -330,8 +333,7 @@ public class UsersTests {
         final List<String> testAllergies = List.of("Allergy");
         final List<String> newAllergies = null;
 
-        when(mockJwtTokenVerifier.validateToken(any())).thenReturn(true);
-        when(mockJwtTokenVerifier.getNetIdFromToken(anyString())).thenReturn("asdasdasdas");
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("asdasdasdas", List.of(), null));
 
         userRepository.save(new User(testName, testEmail, testAllergies));
 
@@ -362,7 +364,7 @@ public class UsersTests {
 
         userRepository.save(new User(testName, testEmail, testAllergies));
 
-        when(mockJwtTokenVerifier.validateToken(any())).thenReturn(true);
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken(null, List.of(), null));
         when(mockAuthManager.getNetId()).thenReturn("NotTheSameId");
 
         AllergiesModel model = new AllergiesModel();
@@ -383,8 +385,7 @@ public class UsersTests {
         final String testName = "borislav";
         final List<String> testAllergies = List.of("Allergy", "Allergy2", "Allergy3");
 
-        when(mockJwtTokenVerifier.validateToken(any())).thenReturn(true);
-        when(mockJwtTokenVerifier.getNetIdFromToken(anyString())).thenReturn("MockedID");
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken("MockedID", List.of(), null));
 
         userRepository.save(new User(testName, testEmail, testAllergies));
 
@@ -414,7 +415,7 @@ public class UsersTests {
 
         userRepository.save(new User(testName, testEmail, testAllergies));
 
-        when(mockJwtTokenVerifier.validateToken(any())).thenReturn(true);
+        when(mockJwtTokenVerifier.verify(anyString())).thenReturn(new VerifiedToken(null, List.of(), null));
         when(mockAuthManager.getNetId()).thenReturn("NotTheSameId");
 
         // Act